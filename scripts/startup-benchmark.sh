@@ -0,0 +1,57 @@
+#!/usr/bin/env bash
+#
+# Measures time to first request: starts the application, polls it until it answers and reports
+# the median over several runs. Any HTTP status counts as answered, since the point is that the
+# server is up and handling requests. Postgres, Redis and MinIO have to be reachable as usual.
+#
+#   scripts/startup-benchmark.sh java -jar target/app.jar
+#   cd target/fast-startup && ../../scripts/startup-benchmark.sh java -XX:SharedArchiveFile=app.jsa \
+#       -Dspring.aot.enabled=true -Dspring.profiles.active=fast-startup -jar app.jar
+#
+# RUNS (default 5), URL (default http://localhost:8080/actuator/health) and TIMEOUT in seconds
+# (default 120) can be set in the environment. The application also logs the time since JVM start
+# and exposes it as the application.first.request.time metric.
+
+set -euo pipefail
+
+if [[ $# -eq 0 ]]; then
+    sed -n '3,13p' "$0" | sed 's/^# \{0,1\}//'
+    exit 1
+fi
+
+RUNS=${RUNS:-5}
+URL=${URL:-http://localhost:8080/actuator/health}
+TIMEOUT=${TIMEOUT:-120}
+
+now_ms() {
+    date +%s%3N
+}
+
+times=()
+for run in $(seq 1 "$RUNS"); do
+    start=$(now_ms)
+    "$@" > "startup-benchmark-$run.log" 2>&1 &
+    pid=$!
+    elapsed=""
+    while (( $(now_ms) - start < TIMEOUT * 1000 )); do
+        if ! kill -0 "$pid" 2> /dev/null; then
+            echo "run $run: application exited, see startup-benchmark-$run.log" >&2
+            exit 1
+        fi
+        if [[ $(curl -s -o /dev/null -w '%{http_code}' "$URL") != "000" ]]; then
+            elapsed=$(( $(now_ms) - start ))
+            break
+        fi
+        sleep 0.05
+    done
+    kill "$pid" && wait "$pid" 2> /dev/null || true
+    if [[ -z $elapsed ]]; then
+        echo "run $run: no answer from $URL within ${TIMEOUT}s" >&2
+        exit 1
+    fi
+    echo "run $run: ${elapsed} ms"
+    times+=("$elapsed")
+done
+
+median=$(printf '%s\n' "${times[@]}" | sort -n | awk '{ t[NR] = $1 } END { print (NR % 2) ? t[(NR + 1) / 2] : (t[NR / 2] + t[NR / 2 + 1]) / 2 }')
+echo "time to first request over $RUNS runs: median ${median} ms"
@@ -0,0 +1,41 @@
+package com.qubb.cloud.config;
+
+import com.qubb.cloud.service.ChangeFeedService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class ChangeFeedConfig {
+
+    /**
+     * One thread, so messages reach the listener in the order Redis delivered them. The listener
+     * only queues them for the streams, which send on threads of their own.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor changeFeedDispatcher() {
+        var executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setThreadNamePrefix("change-feed-");
+        return executor;
+    }
+
+    @Bean
+    public RedisMessageListenerContainer changeFeedListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                     ChangeFeedService changeFeedService,
+                                                                     ThreadPoolTaskExecutor changeFeedDispatcher) {
+        var subscriptionExecutor = new SimpleAsyncTaskExecutor("change-feed-subscription-");
+        subscriptionExecutor.setVirtualThreads(true);
+        var container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.setSubscriptionExecutor(subscriptionExecutor);
+        container.setTaskExecutor(changeFeedDispatcher);
+        container.addMessageListener(changeFeedService, new PatternTopic(ChangeFeedService.CHANNEL_PATTERN));
+        return container;
+    }
+}
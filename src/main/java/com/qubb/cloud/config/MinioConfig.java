@@ -1,11 +1,28 @@
 package com.qubb.cloud.config;
 
+import com.qubb.cloud.storage.ColdStorage;
+import com.qubb.cloud.storage.ShardRouter;
+import com.qubb.cloud.storage.StorageShard;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
 @Configuration
+@EnableConfigurationProperties(StorageShardingProperties.class)
 public class MinioConfig {
 
     @Value("${minio.endpoint}")
@@ -17,11 +34,147 @@ public class MinioConfig {
     @Value("${minio.secret-key}")
     private String secretKey;
 
+    @Value("${minio.bucket}")
+    private String bucket;
+
+    @Value("${minio.public-endpoint:${minio.endpoint}}")
+    private String publicEndpoint;
+
+    @Value("${minio.region:us-east-1}")
+    private String region;
+
+    @Value("${storage.bulkheads.interactive.max-connections:48}")
+    private int interactiveConnections;
+
+    @Value("${storage.bulkheads.bulk.max-connections:16}")
+    private int bulkConnections;
+
+    @Value("${minio.http.keep-alive:5m}")
+    private Duration keepAlive;
+
+    @Value("${minio.http.connect-timeout:2s}")
+    private Duration connectTimeout;
+
+    @Value("${minio.http.read-timeout:30s}")
+    private Duration readTimeout;
+
+    @Value("${minio.http.write-timeout:60s}")
+    private Duration writeTimeout;
+
+    @Value("${minio.http.metadata-timeout:5s}")
+    private Duration metadataTimeout;
+
+    @Value("${minio.http.retry.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${minio.http.retry.base-backoff:50ms}")
+    private Duration baseBackoff;
+
+    @Value("${minio.http.retry.max-backoff:2s}")
+    private Duration maxBackoff;
+
+    @Value("${storage.tiering.cold.endpoint:${minio.endpoint}}")
+    private String coldEndpoint;
+
+    @Value("${storage.tiering.cold.access-key:${minio.access-key}}")
+    private String coldAccessKey;
+
+    @Value("${storage.tiering.cold.secret-key:${minio.secret-key}}")
+    private String coldSecretKey;
+
+    @Value("${storage.tiering.cold.bucket:${minio.bucket}-cold}")
+    private String coldBucket;
+
+    private final StorageShardingProperties shardingProperties;
+
+    public MinioConfig(StorageShardingProperties shardingProperties) {
+        this.shardingProperties = shardingProperties;
+    }
+
+    /**
+     * Every shard gets separate interactive and bulk clients, each with its own connection pool,
+     * so long transfers cannot hold the connections that browsing needs.
+     */
     @Bean
-    public MinioClient minioClient() {
-        return MinioClient.builder()
-                .endpoint(endpoint)
-                .credentials(accessKey, secretKey)
+    public ShardRouter shardRouter(StringRedisTemplate redisTemplate) {
+        if (shardingProperties.shards().isEmpty()) {
+            return ShardRouter.single(buildShard("default", endpoint, publicEndpoint, accessKey, secretKey, bucket));
+        }
+        List<StorageShard> shards = shardingProperties.shards().stream()
+                .map(shard -> buildShard(shard.name(),
+                        shard.endpoint() != null ? shard.endpoint() : endpoint,
+                        shard.publicEndpoint() != null ? shard.publicEndpoint()
+                                : shard.endpoint() != null ? shard.endpoint() : publicEndpoint,
+                        shard.accessKey() != null ? shard.accessKey() : accessKey,
+                        shard.secretKey() != null ? shard.secretKey() : secretKey,
+                        shard.bucket() != null ? shard.bucket() : bucket))
+                .toList();
+        Map<String, Integer> weights = shardingProperties.shards().stream()
+                .collect(Collectors.toMap(StorageShardingProperties.Shard::name, StorageShardingProperties.Shard::weight));
+        return new ShardRouter(shards, weights, shardingProperties.legacyShard(),
+                shardingProperties.virtualNodes(), shardingProperties.placementCacheTtl(), redisTemplate);
+    }
+
+    /**
+     * A single bucket for the cold tier, so that moving users between shards leaves it alone. It may
+     * live on a separate, cheaper backend.
+     */
+    @Bean
+    public ColdStorage coldStorage() {
+        return new ColdStorage(buildShard("cold", coldEndpoint, coldEndpoint, coldAccessKey, coldSecretKey, coldBucket));
+    }
+
+    /**
+     * The presign client signs URLs for the address clients reach MinIO at. Its region is fixed
+     * so that signing needs no round trip to that address.
+     */
+    private StorageShard buildShard(String name,
+                                    String endpoint,
+                                    String publicEndpoint,
+                                    String accessKey,
+                                    String secretKey,
+                                    String bucket) {
+        OkHttpClient bulkHttpClient = buildHttpClient(bulkConnections);
+        return new StorageShard(name, bucket,
+                MinioClient.builder()
+                        .endpoint(endpoint)
+                        .credentials(accessKey, secretKey)
+                        .httpClient(buildHttpClient(interactiveConnections))
+                        .build(),
+                MinioClient.builder()
+                        .endpoint(endpoint)
+                        .credentials(accessKey, secretKey)
+                        .httpClient(bulkHttpClient)
+                        .build(),
+                MinioAsyncClient.builder()
+                        .endpoint(endpoint)
+                        .credentials(accessKey, secretKey)
+                        .httpClient(bulkHttpClient)
+                        .build(),
+                MinioClient.builder()
+                        .endpoint(publicEndpoint)
+                        .region(region)
+                        .credentials(accessKey, secretKey)
+                        .build());
+    }
+
+    /**
+     * The MinIO client issues its requests through the async dispatcher, whose default of five
+     * concurrent requests per host would otherwise cap all storage traffic.
+     */
+    private OkHttpClient buildHttpClient(int maxConnections) {
+        var dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxConnections);
+        dispatcher.setMaxRequestsPerHost(maxConnections);
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(maxConnections, keepAlive.toMillis(), TimeUnit.MILLISECONDS))
+                .connectTimeout(connectTimeout)
+                .readTimeout(readTimeout)
+                .writeTimeout(writeTimeout)
+                .protocols(List.of(Protocol.HTTP_1_1))
+                .retryOnConnectionFailure(true)
+                .addInterceptor(new MinioTransportInterceptor(maxAttempts, baseBackoff, maxBackoff, metadataTimeout))
                 .build();
     }
 }
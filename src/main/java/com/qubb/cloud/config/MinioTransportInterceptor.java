@@ -0,0 +1,97 @@
+package com.qubb.cloud.config;
+
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies per-operation timeouts to MinIO calls and retries idempotent ones on connection failures
+ * and throttling or server errors. Backoff is exponential with full jitter, so clients that failed
+ * together do not come back together.
+ */
+@Slf4j
+public class MinioTransportInterceptor implements Interceptor {
+
+    private static final Set<String> IDEMPOTENT_METHODS = Set.of("GET", "HEAD", "DELETE");
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(429, 500, 502, 503, 504);
+
+    private final int maxAttempts;
+    private final Duration baseBackoff;
+    private final Duration maxBackoff;
+    private final Duration metadataTimeout;
+
+    /**
+     * {@code maxAttempts} counts every request of a call, the first one included.
+     */
+    public MinioTransportInterceptor(int maxAttempts, Duration baseBackoff, Duration maxBackoff, Duration metadataTimeout) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseBackoff = baseBackoff;
+        this.maxBackoff = maxBackoff;
+        this.metadataTimeout = metadataTimeout;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Chain timed = isMetadataRequest(request)
+                ? chain.withReadTimeout((int) metadataTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                : chain;
+        if (!IDEMPOTENT_METHODS.contains(request.method())) {
+            return timed.proceed(request);
+        }
+        for (int attempt = 0; ; attempt++) {
+            try {
+                Response response = timed.proceed(request);
+                if (isLast(attempt, chain) || !RETRYABLE_STATUSES.contains(response.code())) {
+                    return response;
+                }
+                log.debug("Retrying {} {} after status {}", request.method(), request.url().encodedPath(), response.code());
+                response.close();
+            } catch (IOException e) {
+                if (isLast(attempt, chain) || e instanceof InterruptedIOException
+                        && Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                log.debug("Retrying {} {} after {}", request.method(), request.url().encodedPath(), e.toString());
+            }
+            sleep(backoff(attempt));
+            if (chain.call().isCanceled()) {
+                throw new IOException("Canceled");
+            }
+        }
+    }
+
+    private boolean isLast(int attempt, Chain chain) {
+        return attempt + 1 >= maxAttempts || chain.call().isCanceled();
+    }
+
+    /**
+     * Stats and listings return small bodies, so a slow answer means a stuck server rather than a large transfer.
+     */
+    private boolean isMetadataRequest(Request request) {
+        return request.method().equals("HEAD")
+                || request.method().equals("GET") && request.url().queryParameter("list-type") != null;
+    }
+
+    private long backoff(int attempt) {
+        long ceiling = Math.min(maxBackoff.toMillis(), baseBackoff.toMillis() << Math.min(attempt, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while backing off");
+        }
+    }
+}
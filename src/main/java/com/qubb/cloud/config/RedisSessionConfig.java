@@ -1,20 +1,30 @@
 package com.qubb.cloud.config;
 
+import com.qubb.cloud.security.CompactSessionSerializer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.session.FlushMode;
 import org.springframework.session.data.redis.config.annotation.web.http.EnableRedisHttpSession;
 
+import java.time.Duration;
+
 @Configuration
-@EnableRedisHttpSession
+@EnableRedisHttpSession(flushMode = FlushMode.ON_SAVE)
 public class RedisSessionConfig {
 
+    @Value("${session.decode-cache.ttl:5s}")
+    private Duration decodeCacheTtl;
+
+    @Value("${session.decode-cache.max-entries:10000}")
+    private int decodeCacheMaxEntries;
+
     @Bean
     public RedisSerializer<Object> springSessionDefaultRedisSerializer() {
-        return new JdkSerializationRedisSerializer(getClass().getClassLoader());
+        return new CompactSessionSerializer(getClass().getClassLoader(), decodeCacheTtl, decodeCacheMaxEntries);
     }
 
     @Bean
@@ -29,4 +39,4 @@ public class RedisSessionConfig {
 
         return template;
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,9 @@
 package com.qubb.cloud.config;
 
+import com.qubb.cloud.security.BoundedPasswordEncoder;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.SneakyThrows;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -20,12 +23,25 @@ import org.springframework.session.web.http.DefaultCookieSerializer;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.time.Duration;
 import java.util.List;
 
 @EnableWebSecurity
 @Configuration
 public class SecurityConfig {
 
+    @Value("${security.password.bcrypt-strength:10}")
+    private int bcryptStrength;
+
+    @Value("${security.password.pool.threads:2}")
+    private int passwordHashThreads;
+
+    @Value("${security.password.pool.queue-capacity:32}")
+    private int passwordHashQueueCapacity;
+
+    @Value("${security.password.pool.timeout:5s}")
+    private Duration passwordHashTimeout;
+
     @Bean
     public SecurityFilterChain configure(HttpSecurity http) throws Exception {
         return http
@@ -96,7 +112,13 @@ public class SecurityConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
+        return new BoundedPasswordEncoder(
+                new BCryptPasswordEncoder(bcryptStrength),
+                passwordHashThreads,
+                passwordHashQueueCapacity,
+                passwordHashTimeout,
+                meterRegistry
+        );
     }
 }
\ No newline at end of file
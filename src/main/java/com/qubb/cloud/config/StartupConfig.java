@@ -0,0 +1,25 @@
+package com.qubb.cloud.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * The {@code fast-startup} profile turns on lazy initialization, so most beans are only created
+ * when first used. Beans that are never asked for but have to run on their own stay eager:
+ * scheduled jobs would otherwise never be registered, and message listeners never subscribed.
+ */
+@Configuration
+public class StartupConfig {
+
+    @Bean
+    public static LazyInitializationExcludeFilter eagerBackgroundBeans() {
+        return (beanName, beanDefinition, beanType) -> MessageListener.class.isAssignableFrom(beanType)
+                || !MethodIntrospector.selectMethods(beanType, (MethodIntrospector.MetadataLookup<Scheduled>)
+                        method -> AnnotatedElementUtils.findMergedAnnotation(method, Scheduled.class)).isEmpty();
+    }
+}
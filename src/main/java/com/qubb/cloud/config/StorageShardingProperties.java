@@ -0,0 +1,30 @@
+package com.qubb.cloud.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Storage shards users are spread across. Without shards the single backend from {@code minio.*} is used.
+ * Fields a shard leaves out are taken from {@code minio.*}.
+ *
+ * @param legacyShard shard that held every user before sharding was enabled; users without a recorded
+ *                    placement are looked for there and moved to their ring shard by the rebalancer
+ */
+@ConfigurationProperties("storage.sharding")
+public record StorageShardingProperties(@DefaultValue List<Shard> shards,
+                                        String legacyShard,
+                                        @DefaultValue("128") int virtualNodes,
+                                        @DefaultValue("30s") Duration placementCacheTtl) {
+
+    public record Shard(String name,
+                        String endpoint,
+                        String publicEndpoint,
+                        String accessKey,
+                        String secretKey,
+                        String bucket,
+                        @DefaultValue("1") int weight) {
+    }
+}
@@ -0,0 +1,19 @@
+package com.qubb.cloud.config;
+
+import com.qubb.cloud.throttle.UserThrottleInterceptor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    private final UserThrottleInterceptor userThrottleInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(userThrottleInterceptor).addPathPatterns("/api/**");
+    }
+}
@@ -0,0 +1,146 @@
+package com.qubb.cloud.controller;
+
+import com.qubb.cloud.payload.ChunkHashes;
+import com.qubb.cloud.payload.ChunkedFileRequest;
+import com.qubb.cloud.payload.ChunkingParameters;
+import com.qubb.cloud.payload.ResourceInfoResponse;
+import com.qubb.cloud.security.UserDetailsImpl;
+import com.qubb.cloud.service.ChunkedUploadService;
+import com.qubb.cloud.throttle.Direction;
+import com.qubb.cloud.throttle.Throttled;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/chunked")
+@PreAuthorize("isAuthenticated()")
+@SecurityRequirement(name = "sessionCookie")
+@Tag(name = "Chunked uploads", description = "Delta uploads of large files in content-defined chunks")
+public class ChunkedUploadController {
+
+    private final ChunkedUploadService chunkedUploadService;
+
+    @Operation(
+            summary = "Get Chunking Parameters",
+            description = """
+            Returns how the server cuts files into chunks. Any cut points are accepted, but a client
+            cutting the same way finds the chunks of files the server has chunked itself.
+            """,
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Chunking parameters",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = ChunkingParameters.class))
+                    ),
+                    @ApiResponse(responseCode = "401", description = "User not authorized")
+            }
+    )
+    @GetMapping("/parameters")
+    public ResponseEntity<ChunkingParameters> parameters() {
+        return ResponseEntity.ok(chunkedUploadService.parameters());
+    }
+
+    @Operation(
+            summary = "Find Missing Chunks",
+            description = """
+            Takes the hex SHA-256 hashes of a file's chunks and returns those the server does not
+            have yet; only these have to be uploaded before the file is written.
+            """,
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Hashes of the chunks to upload",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = ChunkHashes.class))
+                    ),
+                    @ApiResponse(responseCode = "400", description = "Invalid hash"),
+                    @ApiResponse(responseCode = "401", description = "User not authorized"),
+                    @ApiResponse(responseCode = "413", description = "Too many hashes")
+            }
+    )
+    @PostMapping("/missing")
+    public ResponseEntity<ChunkHashes> missing(
+            @Valid @RequestBody ChunkHashes request,
+            @AuthenticationPrincipal UserDetailsImpl userDetails) {
+
+        return ResponseEntity.ok(chunkedUploadService.missing(request, userDetails));
+    }
+
+    @Operation(
+            summary = "Upload Chunk",
+            description = """
+            Stores one chunk sent as the raw request body under its hex SHA-256, which the body must match.
+            """,
+            responses = {
+                    @ApiResponse(responseCode = "204", description = "Chunk stored"),
+                    @ApiResponse(responseCode = "400", description = "Invalid hash or body does not match it"),
+                    @ApiResponse(responseCode = "401", description = "User not authorized"),
+                    @ApiResponse(responseCode = "413", description = "Chunk larger than the maximum chunk size"),
+                    @ApiResponse(responseCode = "429", description = "Transfer limit exceeded, retry later"),
+                    @ApiResponse(responseCode = "500", description = "Internal server error")
+            }
+    )
+    @Throttled(Direction.UPLOAD)
+    @PutMapping(value = "/chunks/{hash}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Void> uploadChunk(
+            @PathVariable("hash") String hash,
+            InputStream body,
+            @AuthenticationPrincipal UserDetailsImpl userDetails) {
+
+        chunkedUploadService.uploadChunk(hash, body, userDetails);
+        return ResponseEntity.noContent().build();
+    }
+
+    @Operation(
+            summary = "Write Chunked File",
+            description = """
+            Writes the file at 'path' from uploaded chunks, given in order. Without 'etag' nothing
+            may exist at the path yet; with the etag of the current version the file is replaced,
+            unless it has changed since. Downloads reassemble the file as usual.
+            Errors:
+              400 - Invalid path or hash.
+              401 - User not authorized.
+              409 - A file already exists at the path, or chunks are missing; the problem lists them.
+              412 - The file has changed or been deleted since the given etag.
+              413 - Too many chunks.
+              500 - Unknown error.
+            """,
+            responses = {
+                    @ApiResponse(
+                            responseCode = "201",
+                            description = "File written",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = ResourceInfoResponse.class))
+                    ),
+                    @ApiResponse(responseCode = "400", description = "Invalid request"),
+                    @ApiResponse(responseCode = "401", description = "User not authorized"),
+                    @ApiResponse(responseCode = "409", description = "File exists or chunks are missing"),
+                    @ApiResponse(responseCode = "412", description = "File has changed"),
+                    @ApiResponse(responseCode = "413", description = "Too many chunks"),
+                    @ApiResponse(responseCode = "500", description = "Internal server error")
+            }
+    )
+    @PostMapping("/files")
+    public ResponseEntity<ResourceInfoResponse> writeFile(
+            @Valid @RequestBody ChunkedFileRequest request,
+            @AuthenticationPrincipal UserDetailsImpl userDetails) {
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(chunkedUploadService.writeFile(request, userDetails));
+    }
+}
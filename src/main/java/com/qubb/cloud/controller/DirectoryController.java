@@ -1,5 +1,6 @@
 package com.qubb.cloud.controller;
 
+import com.qubb.cloud.service.ChangeFeedService;
 import com.qubb.cloud.service.DirectoryService;
 import com.qubb.cloud.payload.ResourceInfoResponse;
 import com.qubb.cloud.security.UserDetailsImpl;
@@ -10,10 +11,13 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import java.util.List;
 
 @SecurityRequirement(name = "sessionCookie")
@@ -24,6 +28,7 @@ import java.util.List;
 public class DirectoryController {
 
     private final DirectoryService directoryService;
+    private final ChangeFeedService changeFeedService;
 
     @Operation(
             summary = "Create Empty Folder",
@@ -71,6 +76,7 @@ public class DirectoryController {
             Retrieves a list of resources located within the specified directory (non-recursively).
             The 'path' query parameter must contain the full path to the directory, and for folders, the path must end with a '/'.
             On success, returns 200 OK with a JSON array of resource information.
+            The response carries an ETag derived from the entries; a matching If-None-Match gets 304 Not Modified.
             Errors:
               400 - Invalid or missing path.
               401 - User not authorized.
@@ -86,6 +92,7 @@ public class DirectoryController {
                                     schema = @Schema(implementation = ResourceInfoResponse[].class)
                             )
                     ),
+                    @ApiResponse(responseCode = "304", description = "Directory content not modified"),
                     @ApiResponse(responseCode = "400", description = "Invalid or missing path"),
                     @ApiResponse(responseCode = "401", description = "User not authorized"),
                     @ApiResponse(responseCode = "404", description = "Directory not found"),
@@ -98,6 +105,64 @@ public class DirectoryController {
             @AuthenticationPrincipal UserDetailsImpl userDetails) {
 
         var response = directoryService.getDirectoryContentInfo(path, userDetails);
-        return ResponseEntity.ok().body(response);
+        return ResponseEntity.ok()
+                .eTag(response.etag())
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(response.body());
+    }
+
+    @Operation(
+            summary = "Get Largest Folders",
+            description = """
+            Lists the user's largest folders, biggest first, with their rolled-up size in bytes and file count.
+            Sizes are maintained as files are uploaded, copied, moved and deleted, so no folder is walked.
+            The 'limit' query parameter caps the number of folders returned (1 to 100, default 10).
+            Errors:
+              401 - User not authorized.
+              500 - Unknown error.
+            """,
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Largest folders retrieved successfully",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = ResourceInfoResponse[].class)
+                            )
+                    ),
+                    @ApiResponse(responseCode = "401", description = "User not authorized"),
+                    @ApiResponse(responseCode = "500", description = "Internal server error")
+            }
+    )
+    @GetMapping("/largest")
+    public ResponseEntity<List<ResourceInfoResponse>> getLargestFolders(
+            @RequestParam(value = "limit", defaultValue = "10") int limit,
+            @AuthenticationPrincipal UserDetailsImpl userDetails) {
+
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(directoryService.getLargestFolders(limit, userDetails));
+    }
+
+    @Operation(
+            summary = "Subscribe to Changes",
+            description = """
+            Opens a server-sent event stream of changes to the user's files and folders, made from any
+            device or tab, so clients refresh only the directories that changed instead of polling.
+            Each event is named after its type (CREATED, DELETED, MOVED, CHANGED) and carries a JSON body
+            with the full 'path' of the resource and, for moves, the 'from' path. CHANGED means anything
+            below 'path' may have changed. Delivery is best effort; after reconnecting, reload the
+            directory on screen.
+            Errors:
+              401 - User not authorized.
+            """,
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Event stream opened"),
+                    @ApiResponse(responseCode = "401", description = "User not authorized")
+            }
+    )
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeToChanges(@AuthenticationPrincipal UserDetailsImpl userDetails) {
+        return changeFeedService.subscribe(userDetails);
     }
 }
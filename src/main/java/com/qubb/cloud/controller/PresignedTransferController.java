@@ -0,0 +1,126 @@
+package com.qubb.cloud.controller;
+
+import com.qubb.cloud.payload.PresignedUrlResponse;
+import com.qubb.cloud.payload.ResourceInfoResponse;
+import com.qubb.cloud.security.UserDetailsImpl;
+import com.qubb.cloud.service.PresignedTransferService;
+import com.qubb.cloud.throttle.Direction;
+import com.qubb.cloud.throttle.Throttled;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/resource/presigned")
+@PreAuthorize("isAuthenticated()")
+@SecurityRequirement(name = "sessionCookie")
+@Tag(name = "Presigned transfers", description = "Direct transfers between the client and object storage")
+public class PresignedTransferController {
+
+    private final PresignedTransferService presignedTransferService;
+
+    @Operation(
+            summary = "Get Download URL",
+            description = """
+            Returns a short-lived URL the client can download the file from directly.
+            The 'path' query parameter must contain the full URL-encoded path to the resource.
+            Folders and files stored compressed are served by the application; for them 'direct'
+            is false and the URL points to the regular download endpoint.
+            """,
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Download URL issued",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = PresignedUrlResponse.class))
+                    ),
+                    @ApiResponse(responseCode = "400", description = "Invalid or missing path"),
+                    @ApiResponse(responseCode = "401", description = "User not authorized"),
+                    @ApiResponse(responseCode = "404", description = "Resource not found"),
+                    @ApiResponse(responseCode = "429", description = "Transfer limit exceeded"),
+                    @ApiResponse(responseCode = "500", description = "Internal server error")
+            }
+    )
+    @Throttled(Direction.DOWNLOAD)
+    @GetMapping("/download")
+    public ResponseEntity<PresignedUrlResponse> presignDownload(
+            @RequestParam("path") String path,
+            @AuthenticationPrincipal UserDetailsImpl userDetails) {
+
+        return ResponseEntity.ok(presignedTransferService.prepareDownload(path, userDetails));
+    }
+
+    @Operation(
+            summary = "Get Upload URL",
+            description = """
+            Returns a short-lived URL the client can PUT the file body to directly, along with
+            headers the request must carry unchanged. The 'path' query parameter must contain the
+            full URL-encoded path of the new file and 'size' its exact length in bytes. The URL
+            only creates the file: it fails if a file is stored under the path by then.
+            Once the upload has finished, the client must call /upload/complete with the same path.
+            """,
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Upload URL issued",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = PresignedUrlResponse.class))
+                    ),
+                    @ApiResponse(responseCode = "400", description = "Invalid or missing path"),
+                    @ApiResponse(responseCode = "401", description = "User not authorized"),
+                    @ApiResponse(responseCode = "409", description = "File already exists"),
+                    @ApiResponse(responseCode = "413", description = "File exceeds the upload size limit"),
+                    @ApiResponse(responseCode = "429", description = "Transfer limit exceeded"),
+                    @ApiResponse(responseCode = "500", description = "Internal server error")
+            }
+    )
+    @Throttled(Direction.UPLOAD)
+    @PostMapping("/upload")
+    public ResponseEntity<PresignedUrlResponse> presignUpload(
+            @RequestParam("path") String path,
+            @RequestParam("size") long size,
+            @AuthenticationPrincipal UserDetailsImpl userDetails) {
+
+        return ResponseEntity.ok(presignedTransferService.prepareUpload(path, size, userDetails));
+    }
+
+    @Operation(
+            summary = "Complete Direct Upload",
+            description = """
+            Registers a file uploaded through a presigned URL: creates its missing parent folders
+            and returns the resource information. Repeating the call for the same upload returns
+            the same information without registering the file again.
+            """,
+            responses = {
+                    @ApiResponse(
+                            responseCode = "201",
+                            description = "Upload completed",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = ResourceInfoResponse.class))
+                    ),
+                    @ApiResponse(responseCode = "400", description = "Invalid or missing path"),
+                    @ApiResponse(responseCode = "401", description = "User not authorized"),
+                    @ApiResponse(responseCode = "404", description = "Uploaded file not found"),
+                    @ApiResponse(responseCode = "413", description = "File exceeds the upload size limit"),
+                    @ApiResponse(responseCode = "500", description = "Internal server error")
+            }
+    )
+    @PostMapping("/upload/complete")
+    public ResponseEntity<ResourceInfoResponse> completeUpload(
+            @RequestParam("path") String path,
+            @AuthenticationPrincipal UserDetailsImpl userDetails) {
+
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(presignedTransferService.completeUpload(path, userDetails));
+    }
+}
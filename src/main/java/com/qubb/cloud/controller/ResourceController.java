@@ -1,16 +1,26 @@
 package com.qubb.cloud.controller;
 
+import com.qubb.cloud.payload.BatchDownloadRequest;
+import com.qubb.cloud.payload.BatchItemResult;
+import com.qubb.cloud.payload.BatchRequest;
+import com.qubb.cloud.payload.DownloadResponse;
+import com.qubb.cloud.payload.ReadConditions;
 import com.qubb.cloud.payload.ResourceInfoResponse;
+import com.qubb.cloud.service.BatchService;
 import com.qubb.cloud.service.ResourceService;
 import com.qubb.cloud.security.UserDetailsImpl;
+import com.qubb.cloud.throttle.Direction;
+import com.qubb.cloud.throttle.Throttled;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -20,7 +30,11 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequiredArgsConstructor
@@ -31,6 +45,7 @@ import java.util.List;
 public class ResourceController {
 
     private final ResourceService resourceService;
+    private final BatchService batchService;
 
     @Operation(
             summary = "Get Resource Information",
@@ -38,6 +53,7 @@ public class ResourceController {
             Returns information about the requested resource (file or folder).
             The 'path' query parameter must contain the full URL-encoded path to the resource.
             For folders, the path must end with a '/'.
+            The response carries ETag and Last-Modified; If-None-Match and If-Modified-Since are honored.
             """,
             responses = {
                     @ApiResponse(
@@ -46,6 +62,7 @@ public class ResourceController {
                             content = @Content(mediaType = "application/json",
                                     schema = @Schema(implementation = ResourceInfoResponse.class))
                     ),
+                    @ApiResponse(responseCode = "304", description = "Resource not modified"),
                     @ApiResponse(responseCode = "400", description = "Invalid or missing path"),
                     @ApiResponse(responseCode = "401", description = "User not authorized"),
                     @ApiResponse(responseCode = "404", description = "Resource not found"),
@@ -58,7 +75,9 @@ public class ResourceController {
             @AuthenticationPrincipal UserDetailsImpl userDetails) {
 
         var response = resourceService.getResourceInfo(path, userDetails);
-        return ResponseEntity.ok(response);
+        return withValidators(ResponseEntity.ok(), response.etag(), response.lastModified())
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(response.body());
     }
 
     @Operation(
@@ -66,11 +85,13 @@ public class ResourceController {
             description = """
             Deletes the specified resource by its full URL-encoded path.
             For folders, the path must end with a '/'.
+            The resource is moved to the trash: it disappears at once, however large, and can be
+            restored through /api/trash until the retention period ends and it is removed for good.
             On success, returns 204 No Content with no response body.
             """,
             responses = {
                     @ApiResponse(responseCode = "204", description = "Resource deleted successfully"),
-                    @ApiResponse(responseCode = "400", description = "Invalid or missing path"),
+                    @ApiResponse(responseCode = "400", description = "Invalid or missing path, or the root folder"),
                     @ApiResponse(responseCode = "401", description = "User not authorized"),
                     @ApiResponse(responseCode = "404", description = "Resource not found"),
                     @ApiResponse(responseCode = "500", description = "Internal server error")
@@ -92,6 +113,8 @@ public class ResourceController {
             If the resource is a file, its binary content is returned with
             Content-Type: application/octet-stream. If the resource is a folder,
             a ZIP archive containing its contents is returned.
+            File downloads carry ETag and Last-Modified; a matching If-None-Match or
+            If-Modified-Since gets 304 Not Modified without transferring the file.
             """,
             responses = {
                     @ApiResponse(
@@ -99,23 +122,68 @@ public class ResourceController {
                             description = "Resource downloaded successfully",
                             content = @Content(mediaType = "application/octet-stream")
                     ),
+                    @ApiResponse(responseCode = "304", description = "File not modified"),
+                    @ApiResponse(responseCode = "429", description = "Transfer limit exceeded, retry later"),
                     @ApiResponse(responseCode = "400", description = "Invalid or missing path"),
                     @ApiResponse(responseCode = "401", description = "User not authorized"),
                     @ApiResponse(responseCode = "404", description = "Resource not found"),
                     @ApiResponse(responseCode = "500", description = "Internal server error")
             }
     )
+    @Throttled(Direction.DOWNLOAD)
     @GetMapping("/download")
     public ResponseEntity<Resource> downloadResource(
             @RequestParam("path") String path,
+            @RequestHeader HttpHeaders headers,
             @AuthenticationPrincipal UserDetailsImpl userDetails) {
 
-        var response = resourceService.downloadResource(path, userDetails);
-        return ResponseEntity.ok()
+        var response = resourceService.downloadResource(path, ReadConditions.from(headers), userDetails);
+        if (response.isNotModified()) {
+            return withValidators(ResponseEntity.status(HttpStatus.NOT_MODIFIED), response.etag(), response.lastModified())
+                    .build();
+        }
+        var builder = withValidators(ResponseEntity.ok(), response.etag(), response.lastModified())
                 .contentType(response.mediaType())
                 .header(HttpHeaders.CONTENT_DISPOSITION,
-                        "attachment; filename=\"" + response.filename() + "\"")
-                .body(response.resource());
+                        "attachment; filename=\"" + response.filename() + "\"");
+        if (response.contentLength() != null) {
+            builder.contentLength(response.contentLength());
+        }
+        return builder.body(response.resource());
+    }
+
+    @Operation(
+            summary = "Preview Image",
+            description = """
+            Returns a small JPEG thumbnail of the specified image by its full URL-encoded path.
+            The thumbnail is generated on first access and stored, so later requests are served directly.
+            Supported formats: JPEG, PNG, GIF, BMP.
+            """,
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Preview returned successfully",
+                            content = @Content(mediaType = "image/jpeg")
+                    ),
+                    @ApiResponse(responseCode = "400", description = "Invalid or missing path"),
+                    @ApiResponse(responseCode = "401", description = "User not authorized"),
+                    @ApiResponse(responseCode = "404", description = "Resource not found"),
+                    @ApiResponse(responseCode = "415", description = "Resource is not a supported image"),
+                    @ApiResponse(responseCode = "503", description = "Preview generation is busy, retry later"),
+                    @ApiResponse(responseCode = "500", description = "Internal server error")
+            }
+    )
+    @GetMapping("/preview")
+    public CompletableFuture<ResponseEntity<Resource>> previewResource(
+            @RequestParam("path") String path,
+            @AuthenticationPrincipal UserDetailsImpl userDetails) {
+
+        return resourceService.previewResource(path, userDetails).thenApply(response -> ResponseEntity.ok()
+                .contentType(response.mediaType())
+                .cacheControl(CacheControl.maxAge(Duration.ofHours(1)).cachePrivate())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "inline; filename=\"" + response.filename() + "\"")
+                .body(response.resource()));
     }
 
     @Operation(
@@ -149,6 +217,78 @@ public class ResourceController {
         return ResponseEntity.ok(response);
     }
 
+    @Operation(
+            summary = "Batch Operation",
+            description = """
+            Applies one operation to up to 1000 resources: DELETE (to the trash), MOVE into the folder given as
+            'target', or INFO.
+            Paths are full paths as in the other endpoints; folders end with '/'. Checks shared by the items are
+            made once and the items run in parallel. Each path gets its own result with status OK, NOT_FOUND,
+            CONFLICT (MOVE target taken), SKIPPED (already handled, e.g. inside a selected folder) or FAILED,
+            so the request itself succeeds even when some items do not.
+            Errors:
+              400 - Invalid request or path.
+              401 - User not authorized.
+              404 - MOVE target folder does not exist.
+              500 - Unknown error.
+            """,
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Batch processed, see the per-item results",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = BatchItemResult[].class))
+                    ),
+                    @ApiResponse(responseCode = "400", description = "Invalid request or path"),
+                    @ApiResponse(responseCode = "401", description = "User not authorized"),
+                    @ApiResponse(responseCode = "404", description = "Target folder not found"),
+                    @ApiResponse(responseCode = "500", description = "Internal server error")
+            }
+    )
+    @PostMapping("/batch")
+    public ResponseEntity<List<BatchItemResult>> batch(
+            @Valid @RequestBody BatchRequest request,
+            @AuthenticationPrincipal UserDetailsImpl userDetails) {
+
+        return ResponseEntity.ok(batchService.execute(request, userDetails));
+    }
+
+    @Operation(
+            summary = "Download Selection",
+            description = """
+            Downloads up to 1000 files and folders as a single ZIP archive. Entries are named relative to the
+            closest folder containing all of them; folders are packed with everything under them.
+            Errors:
+              400 - Invalid request or path.
+              401 - User not authorized.
+              404 - One of the resources was not found.
+              500 - Unknown error.
+            """,
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Archive of the selection",
+                            content = @Content(mediaType = "application/zip")
+                    ),
+                    @ApiResponse(responseCode = "400", description = "Invalid request or path"),
+                    @ApiResponse(responseCode = "401", description = "User not authorized"),
+                    @ApiResponse(responseCode = "404", description = "Resource not found"),
+                    @ApiResponse(responseCode = "500", description = "Internal server error")
+            }
+    )
+    @Throttled(Direction.DOWNLOAD)
+    @PostMapping("/batch/download")
+    public ResponseEntity<Resource> batchDownload(
+            @Valid @RequestBody BatchDownloadRequest request,
+            @AuthenticationPrincipal UserDetailsImpl userDetails) {
+
+        DownloadResponse response = batchService.download(request, userDetails);
+        return ResponseEntity.ok()
+                .contentType(response.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + response.filename() + "\"")
+                .body(response.resource());
+    }
+
     @Operation(
             summary = "Search Resources",
             description = """
@@ -196,10 +336,12 @@ public class ResourceController {
                     @ApiResponse(responseCode = "400", description = "Invalid request body"),
                     @ApiResponse(responseCode = "404", description = "Target folder not found"),
                     @ApiResponse(responseCode = "409", description = "File already exists"),
+                    @ApiResponse(responseCode = "429", description = "Transfer limit exceeded, retry later"),
                     @ApiResponse(responseCode = "401", description = "User not authorized"),
                     @ApiResponse(responseCode = "500", description = "Internal server error")
             }
     )
+    @Throttled(Direction.UPLOAD)
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<List<ResourceInfoResponse>> uploadResources(
             @RequestParam("path") String targetPath,
@@ -209,4 +351,48 @@ public class ResourceController {
         var response = resourceService.uploadResources(targetPath, files, userDetails);
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
+
+    @Operation(
+            summary = "Upload Folder Archive",
+            description = """
+            Uploads a whole folder as a single ZIP or TAR archive (optionally gzipped) sent as the raw request body.
+            The archive is expanded on the server into the folder given by the 'path' query parameter,
+            keeping the folder structure stored in the archive.
+            Entries that would escape the target folder are rejected.
+            """,
+            responses = {
+                    @ApiResponse(
+                            responseCode = "201",
+                            description = "Archive expanded successfully",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = ResourceInfoResponse[].class))
+                    ),
+                    @ApiResponse(responseCode = "400", description = "Invalid path or archive entry"),
+                    @ApiResponse(responseCode = "401", description = "User not authorized"),
+                    @ApiResponse(responseCode = "415", description = "Request body is not a ZIP or TAR archive"),
+                    @ApiResponse(responseCode = "429", description = "Transfer limit exceeded, retry later"),
+                    @ApiResponse(responseCode = "500", description = "Internal server error")
+            }
+    )
+    @Throttled(Direction.UPLOAD)
+    @PostMapping(value = "/archive", consumes = {
+            "application/zip", "application/x-tar", "application/gzip", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<List<ResourceInfoResponse>> uploadArchive(
+            @RequestParam("path") String targetPath,
+            InputStream archive,
+            @AuthenticationPrincipal UserDetailsImpl userDetails) {
+
+        var response = resourceService.uploadArchive(targetPath, archive, userDetails);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    private static <B extends ResponseEntity.HeadersBuilder<B>> B withValidators(B builder, String etag, Instant lastModified) {
+        if (etag != null) {
+            builder.eTag(etag);
+        }
+        if (lastModified != null) {
+            builder.lastModified(lastModified);
+        }
+        return builder;
+    }
 }
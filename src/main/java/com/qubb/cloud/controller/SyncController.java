@@ -0,0 +1,78 @@
+package com.qubb.cloud.controller;
+
+import com.qubb.cloud.payload.SyncAction;
+import com.qubb.cloud.payload.SyncRequest;
+import com.qubb.cloud.security.UserDetailsImpl;
+import com.qubb.cloud.service.SyncService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/sync")
+@PreAuthorize("isAuthenticated()")
+@SecurityRequirement(name = "sessionCookie")
+@Tag(name = "Sync", description = "Differences between a sync client's copy and the server")
+public class SyncController {
+
+    private final SyncService syncService;
+
+    @Operation(
+            summary = "Sync Folder",
+            description = """
+            Compares the client's copy of a folder with the server and returns only what has to be
+            transferred, instead of the client listing every directory. 'path' is the synced folder
+            (empty for the whole storage); entry paths are relative to it.
+            The first sync sends every local file with its size and MD5 (or the etag the server gave
+            for it). Later syncs send the token from the previous response and only the files changed
+            locally since then, with 'deleted' set for local deletions.
+            The response is streamed as {"actions": [...], "token": "..."}: each action is UPLOAD,
+            DOWNLOAD, DELETE_LOCAL, DELETE_REMOTE or CONFLICT for one file, with the server's size,
+            hash, etag and modification time where it has the file. The client carries the actions
+            out through the usual endpoints and keeps the token for its next sync. No token is
+            returned for folders with more files than the server keeps snapshots of.
+            Errors:
+              400 - Invalid path, or a deletion sent without a token.
+              401 - User not authorized.
+              410 - Token expired or unknown; sync again with the full manifest.
+              413 - Too many entries.
+              500 - Unknown error.
+            """,
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Actions for the client, followed by the next token",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = SyncAction[].class))
+                    ),
+                    @ApiResponse(responseCode = "400", description = "Invalid request"),
+                    @ApiResponse(responseCode = "401", description = "User not authorized"),
+                    @ApiResponse(responseCode = "410", description = "Sync token expired"),
+                    @ApiResponse(responseCode = "413", description = "Too many entries"),
+                    @ApiResponse(responseCode = "500", description = "Internal server error")
+            }
+    )
+    @PostMapping
+    public ResponseEntity<StreamingResponseBody> sync(
+            @Valid @RequestBody SyncRequest request,
+            @AuthenticationPrincipal UserDetailsImpl userDetails) {
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noStore())
+                .body(syncService.sync(request, userDetails));
+    }
+}
@@ -0,0 +1,89 @@
+package com.qubb.cloud.controller;
+
+import com.qubb.cloud.payload.ResourceInfoResponse;
+import com.qubb.cloud.payload.TrashEntryResponse;
+import com.qubb.cloud.security.UserDetailsImpl;
+import com.qubb.cloud.service.TrashService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/trash")
+@PreAuthorize("isAuthenticated()")
+@SecurityRequirement(name = "sessionCookie")
+@Tag(name = "Trash", description = "Deleted resources that can still be restored")
+public class TrashController {
+
+    private final TrashService trashService;
+
+    @Operation(
+            summary = "List Trash",
+            description = """
+            Lists the user's deleted files and folders, most recently deleted first, with the time each
+            was deleted and the time after which it is removed for good and can no longer be restored.
+            Errors:
+              401 - User not authorized.
+              500 - Unknown error.
+            """,
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Trash listed successfully",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = TrashEntryResponse[].class))
+                    ),
+                    @ApiResponse(responseCode = "401", description = "User not authorized"),
+                    @ApiResponse(responseCode = "500", description = "Internal server error")
+            }
+    )
+    @GetMapping
+    public ResponseEntity<List<TrashEntryResponse>> listTrash(@AuthenticationPrincipal UserDetailsImpl userDetails) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(trashService.list(userDetails));
+    }
+
+    @Operation(
+            summary = "Restore Resource",
+            description = """
+            Restores a deleted file or folder to its original path. Anything created at that path since
+            it was deleted is kept; for a folder both show together. A file that was replaced by a new
+            upload in the meantime can no longer be restored.
+            Errors:
+              401 - User not authorized.
+              404 - Trash entry not found, already removed for good, or its resource no longer exists.
+              500 - Unknown error.
+            """,
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Resource restored successfully",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = ResourceInfoResponse.class))
+                    ),
+                    @ApiResponse(responseCode = "401", description = "User not authorized"),
+                    @ApiResponse(responseCode = "404", description = "Trash entry not found"),
+                    @ApiResponse(responseCode = "500", description = "Internal server error")
+            }
+    )
+    @PostMapping("/{id}/restore")
+    public ResponseEntity<ResourceInfoResponse> restore(
+            @PathVariable("id") long id,
+            @AuthenticationPrincipal UserDetailsImpl userDetails) {
+
+        return ResponseEntity.ok(trashService.restore(id, userDetails));
+    }
+}
@@ -0,0 +1,41 @@
+package com.qubb.cloud.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A piece of a chunked file stored once per user under its SHA-256. {@code lastUsedAt} moves
+ * whenever an upload finds or references it; chunks no file refers to are collected once it is
+ * old enough.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+@Entity
+@Table(name = "chunks",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "hash"}, name = "chunks_user_hash_unique"),
+        indexes = @Index(columnList = "last_used_at", name = "chunks_last_used_at_index"))
+public class Chunk {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    @Column(nullable = false, length = 64)
+    private String hash;
+
+    @Column(nullable = false)
+    private long size;
+
+    @Column(name = "last_used_at", nullable = false)
+    private Instant lastUsedAt;
+}
@@ -0,0 +1,34 @@
+package com.qubb.cloud.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Rolled-up size of a folder and everything below it, kept current by deltas from every write.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+@Entity
+@Table(name = "folder_sizes", indexes = {
+        @Index(columnList = "user_id, bytes DESC", name = "folder_sizes_user_bytes_index")
+})
+public class FolderSize {
+
+    @Id
+    @Column(length = 1024)
+    private String path;
+
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    @Column(nullable = false)
+    private long bytes;
+
+    @Column(nullable = false)
+    private long files;
+}
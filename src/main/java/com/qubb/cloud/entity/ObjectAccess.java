@@ -0,0 +1,36 @@
+package com.qubb.cloud.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * How often a file has been read and when last, as flushed from the in-memory counters.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+@Entity
+@Table(name = "object_access", indexes = {
+        @Index(columnList = "user_id", name = "object_access_user_index")
+})
+public class ObjectAccess {
+
+    @Id
+    @Column(name = "object_name", length = 1024)
+    private String objectName;
+
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    @Column(nullable = false)
+    private long reads;
+
+    @Column(name = "last_accessed_at", nullable = false)
+    private Instant lastAccessedAt;
+}
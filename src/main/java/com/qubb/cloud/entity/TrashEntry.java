@@ -0,0 +1,52 @@
+package com.qubb.cloud.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A deleted file or folder that is hidden but still stored until {@code purgeAfter}. While
+ * {@code storedAt} is null it hides everything at or under its path; once something is written
+ * there again, its content is moved to {@code storedAt} in the trash tree and it hides nothing.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+@Entity
+@Table(name = "trash_entries", indexes = {
+        @Index(columnList = "user_id", name = "trash_entries_user_index"),
+        @Index(columnList = "purge_after", name = "trash_entries_purge_after_index")
+})
+public class TrashEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    @Column(name = "object_name", nullable = false, length = 1024)
+    private String objectName;
+
+    @Column(name = "trashed_at", nullable = false)
+    private Instant trashedAt;
+
+    @Column(name = "purge_after", nullable = false)
+    private Instant purgeAfter;
+
+    @Column(name = "stored_at", length = 1024)
+    private String storedAt;
+
+    /**
+     * Whether the object lies at or under this entry's path, moved-out content or not.
+     */
+    public boolean covers(String name) {
+        return objectName.endsWith("/") ? name.startsWith(objectName) : name.equals(objectName);
+    }
+}
@@ -0,0 +1,16 @@
+package com.qubb.cloud.exception;
+
+import java.util.List;
+
+public class ChunksMissingException extends RuntimeException {
+    private final List<String> missing;
+
+    public ChunksMissingException(String message, List<String> missing) {
+        super(message);
+        this.missing = missing;
+    }
+
+    public List<String> getMissing() {
+        return missing;
+    }
+}
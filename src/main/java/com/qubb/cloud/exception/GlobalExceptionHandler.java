@@ -1,6 +1,7 @@
 package com.qubb.cloud.exception;
 
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
@@ -40,6 +41,18 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(problemDetail);
     }
 
+    @ExceptionHandler(ResourceAlreadyExistsException.class)
+    public ResponseEntity<ProblemDetail> handleResourceAlreadyExistsException(
+            ResourceAlreadyExistsException ex, HttpServletRequest request) {
+        ProblemDetail problemDetail = createBaseProblemDetail(
+                HttpStatus.CONFLICT,
+                "Resource Conflict",
+                request
+        );
+        problemDetail.setDetail(ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(problemDetail);
+    }
+
 
     @ExceptionHandler(IncorrectPathException.class)
     public ResponseEntity<ProblemDetail> handleIncorrectPathException(
@@ -122,6 +135,131 @@ public class GlobalExceptionHandler {
         return ResponseEntity.internalServerError().body(problemDetail);
     }
 
+    @ExceptionHandler(PreviewNotSupportedException.class)
+    public ResponseEntity<ProblemDetail> handlePreviewNotSupportedException(
+            PreviewNotSupportedException ex, HttpServletRequest request) {
+        ProblemDetail problemDetail = createBaseProblemDetail(
+                HttpStatus.UNSUPPORTED_MEDIA_TYPE,
+                "Preview Not Supported",
+                request
+        );
+        problemDetail.setDetail(ex.getMessage());
+        return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).body(problemDetail);
+    }
+
+    @ExceptionHandler(UnsupportedArchiveException.class)
+    public ResponseEntity<ProblemDetail> handleUnsupportedArchiveException(
+            UnsupportedArchiveException ex, HttpServletRequest request) {
+        ProblemDetail problemDetail = createBaseProblemDetail(
+                HttpStatus.UNSUPPORTED_MEDIA_TYPE,
+                "Unsupported Archive",
+                request
+        );
+        problemDetail.setDetail(ex.getMessage());
+        return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).body(problemDetail);
+    }
+
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ProblemDetail> handleServiceOverloadedException(
+            ServiceOverloadedException ex, HttpServletRequest request) {
+        ProblemDetail problemDetail = createBaseProblemDetail(
+                HttpStatus.SERVICE_UNAVAILABLE,
+                "Service Overloaded",
+                request
+        );
+        problemDetail.setDetail(ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(problemDetail);
+    }
+
+    @ExceptionHandler(PayloadTooLargeException.class)
+    public ResponseEntity<ProblemDetail> handlePayloadTooLargeException(
+            PayloadTooLargeException ex, HttpServletRequest request) {
+        ProblemDetail problemDetail = createBaseProblemDetail(
+                HttpStatus.PAYLOAD_TOO_LARGE,
+                "Payload Too Large",
+                request
+        );
+        problemDetail.setDetail(ex.getMessage());
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(problemDetail);
+    }
+
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<ProblemDetail> handleRateLimitExceededException(
+            RateLimitExceededException ex, HttpServletRequest request) {
+        ProblemDetail problemDetail = createBaseProblemDetail(
+                HttpStatus.TOO_MANY_REQUESTS,
+                "Rate Limit Exceeded",
+                request
+        );
+        problemDetail.setDetail(ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(problemDetail);
+    }
+
+    @ExceptionHandler(SyncTokenExpiredException.class)
+    public ResponseEntity<ProblemDetail> handleSyncTokenExpiredException(
+            SyncTokenExpiredException ex, HttpServletRequest request) {
+        ProblemDetail problemDetail = createBaseProblemDetail(
+                HttpStatus.GONE,
+                "Sync Token Expired",
+                request
+        );
+        problemDetail.setDetail(ex.getMessage());
+        return ResponseEntity.status(HttpStatus.GONE).body(problemDetail);
+    }
+
+    @ExceptionHandler(ResourceChangedException.class)
+    public ResponseEntity<ProblemDetail> handleResourceChangedException(
+            ResourceChangedException ex, HttpServletRequest request) {
+        ProblemDetail problemDetail = createBaseProblemDetail(
+                HttpStatus.PRECONDITION_FAILED,
+                "Resource Changed",
+                request
+        );
+        problemDetail.setDetail(ex.getMessage());
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(problemDetail);
+    }
+
+    @ExceptionHandler(ChunksMissingException.class)
+    public ResponseEntity<ProblemDetail> handleChunksMissingException(
+            ChunksMissingException ex, HttpServletRequest request) {
+        ProblemDetail problemDetail = createBaseProblemDetail(
+                HttpStatus.CONFLICT,
+                "Chunks Missing",
+                request
+        );
+        problemDetail.setDetail(ex.getMessage());
+        problemDetail.setProperty("missing", ex.getMissing());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(problemDetail);
+    }
+
+    @ExceptionHandler(InvalidChunkException.class)
+    public ResponseEntity<ProblemDetail> handleInvalidChunkException(
+            InvalidChunkException ex, HttpServletRequest request) {
+        ProblemDetail problemDetail = createBaseProblemDetail(
+                HttpStatus.BAD_REQUEST,
+                "Invalid Chunk",
+                request
+        );
+        problemDetail.setDetail(ex.getMessage());
+        return ResponseEntity.badRequest().body(problemDetail);
+    }
+
+    @ExceptionHandler(InvalidUploadException.class)
+    public ResponseEntity<ProblemDetail> handleInvalidUploadException(
+            InvalidUploadException ex, HttpServletRequest request) {
+        ProblemDetail problemDetail = createBaseProblemDetail(
+                HttpStatus.BAD_REQUEST,
+                "Invalid Upload",
+                request
+        );
+        problemDetail.setDetail(ex.getMessage());
+        return ResponseEntity.badRequest().body(problemDetail);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ProblemDetail> handleAllExceptions(
             Exception ex, HttpServletRequest request) {
@@ -0,0 +1,7 @@
+package com.qubb.cloud.exception;
+
+public class InvalidChunkException extends RuntimeException {
+    public InvalidChunkException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.qubb.cloud.exception;
+
+public class PreviewNotSupportedException extends RuntimeException {
+    public PreviewNotSupportedException(String message) {
+        super(message);
+    }
+}
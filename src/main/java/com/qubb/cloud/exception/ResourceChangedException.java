@@ -0,0 +1,7 @@
+package com.qubb.cloud.exception;
+
+public class ResourceChangedException extends RuntimeException {
+    public ResourceChangedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.qubb.cloud.exception;
+
+public class UnsupportedArchiveException extends RuntimeException {
+    public UnsupportedArchiveException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,59 @@
+package com.qubb.cloud.filter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Records how long after the JVM started the first request was answered, as the
+ * {@code application.first.request.time} gauge. Unlike the ready time Spring Boot reports, this
+ * includes whatever lazy initialization the first request triggers.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class FirstRequestTimingFilter extends OncePerRequestFilter {
+
+    public static final String METRIC = "application.first.request.time";
+
+    private final MeterRegistry meterRegistry;
+    private final AtomicBoolean recorded = new AtomicBoolean();
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return recorded.get();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (recorded.compareAndSet(false, true)) {
+                long millis = ManagementFactory.getRuntimeMXBean().getUptime();
+                TimeGauge.builder(METRIC, () -> millis, TimeUnit.MILLISECONDS)
+                        .description("Time from JVM start until the first request was answered")
+                        .register(meterRegistry);
+                log.info("First request {} {} answered {} ms after JVM start",
+                        request.getMethod(), request.getRequestURI(), millis);
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.qubb.cloud.filter;
+
+import com.qubb.cloud.storage.StorageCallContext;
+import com.qubb.cloud.storage.StorageCallStats;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * Counts MinIO round trips per request and reports them in the {@code Server-Timing}
+ * and {@code X-Storage-Calls} response headers. Requests over the call budget are logged.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class StorageCallAccountingFilter extends OncePerRequestFilter {
+
+    public static final String STORAGE_CALLS_HEADER = "X-Storage-Calls";
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    @Value("${storage.accounting.enabled:true}")
+    private boolean enabled;
+
+    @Value("${storage.accounting.call-budget:20}")
+    private int callBudget;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        StorageCallStats stats = StorageCallContext.begin();
+        var accountedResponse = new AccountedResponse(response, stats);
+        try {
+            filterChain.doFilter(request, accountedResponse);
+        } finally {
+            StorageCallContext.end();
+            accountedResponse.writeHeaders();
+            if (stats.calls() > callBudget) {
+                log.warn("{} {} exceeded storage call budget of {}: {}",
+                        request.getMethod(), request.getRequestURI(), callBudget, stats);
+            }
+        }
+    }
+
+    /**
+     * Adds the accounting headers right before the body starts, since they cannot be set once
+     * the response is committed. Calls made while the body is streamed still show up in the log.
+     */
+    private static class AccountedResponse extends HttpServletResponseWrapper {
+
+        private final StorageCallStats stats;
+        private boolean headersWritten;
+
+        AccountedResponse(HttpServletResponse response, StorageCallStats stats) {
+            super(response);
+            this.stats = stats;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeaders();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeaders();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeaders();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeHeaders();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeHeaders();
+            super.sendError(sc);
+        }
+
+        void writeHeaders() {
+            if (headersWritten || isCommitted()) {
+                return;
+            }
+            headersWritten = true;
+            setHeader(STORAGE_CALLS_HEADER, String.valueOf(stats.calls()));
+            addHeader(SERVER_TIMING_HEADER, String.format(Locale.ROOT,
+                    "storage;desc=\"%d calls\";dur=%.1f", stats.calls(), stats.totalMillis()));
+        }
+    }
+}
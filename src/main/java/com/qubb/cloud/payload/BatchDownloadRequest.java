@@ -0,0 +1,14 @@
+package com.qubb.cloud.payload;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Builder;
+
+import java.util.List;
+
+@Builder
+public record BatchDownloadRequest(
+        @NotEmpty(message = "At least one path is required")
+        @Size(max = BatchRequest.MAX_ITEMS, message = "At most 1000 paths per batch") List<String> paths
+) {
+}
@@ -0,0 +1,21 @@
+package com.qubb.cloud.payload;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+
+/**
+ * Outcome for one path of a batch request. {@code resource} describes the resource after the
+ * operation and {@code error} says why it was not carried out.
+ */
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchItemResult(String path, Status status, ResourceInfoResponse resource, String error) {
+
+    public enum Status {
+        OK,
+        NOT_FOUND,
+        CONFLICT,
+        SKIPPED,
+        FAILED
+    }
+}
@@ -0,0 +1,10 @@
+package com.qubb.cloud.payload;
+
+/**
+ * What a batch request does with each of its paths. Downloads have their own endpoint, since they answer with one archive.
+ */
+public enum BatchOperation {
+    DELETE,
+    MOVE,
+    INFO
+}
@@ -0,0 +1,22 @@
+package com.qubb.cloud.payload;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Builder;
+
+import java.util.List;
+
+/**
+ * One operation applied to several resources. {@code target} is the folder to move into and is only used by MOVE.
+ */
+@Builder
+public record BatchRequest(
+        @NotNull(message = "Operation is required") BatchOperation operation,
+        @NotEmpty(message = "At least one path is required")
+        @Size(max = BatchRequest.MAX_ITEMS, message = "At most 1000 paths per batch") List<String> paths,
+        String target
+) {
+
+    public static final int MAX_ITEMS = 1000;
+}
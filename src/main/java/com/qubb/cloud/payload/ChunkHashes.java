@@ -0,0 +1,14 @@
+package com.qubb.cloud.payload;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Builder;
+
+import java.util.List;
+
+/**
+ * Hex SHA-256 hashes of chunks: the ones a client is about to upload, or the ones of them the
+ * server does not have.
+ */
+@Builder
+public record ChunkHashes(@NotNull(message = "Hashes are required") List<String> hashes) {
+}
@@ -0,0 +1,17 @@
+package com.qubb.cloud.payload;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Builder;
+
+import java.util.List;
+
+/**
+ * A file made of uploaded chunks, in order. With {@code etag} it replaces that version of the file;
+ * without, nothing may exist at {@code path} yet.
+ */
+@Builder
+public record ChunkedFileRequest(@NotBlank(message = "Path is required") String path,
+                                 @NotNull(message = "Chunks are required") List<String> chunks,
+                                 String etag) {
+}
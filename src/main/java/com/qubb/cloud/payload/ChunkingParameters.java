@@ -0,0 +1,10 @@
+package com.qubb.cloud.payload;
+
+import lombok.Builder;
+
+/**
+ * How the server cuts files into chunks, for clients that want to find the same chunks.
+ */
+@Builder
+public record ChunkingParameters(String algorithm, String hash, int minSize, int averageSize, int maxSize) {
+}
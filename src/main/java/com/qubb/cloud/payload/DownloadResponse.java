@@ -4,6 +4,28 @@ import lombok.Builder;
 import org.springframework.core.io.Resource;
 import org.springframework.http.MediaType;
 
-@Builder
-public record DownloadResponse(Resource resource, MediaType mediaType, String filename) {
+import java.time.Instant;
+
+/**
+ * A downloadable resource with its validators. A null resource means the client's copy is still current.
+ */
+@Builder(toBuilder = true)
+public record DownloadResponse(Resource resource,
+                               MediaType mediaType,
+                               String filename,
+                               Long contentLength,
+                               String etag,
+                               Instant lastModified) {
+
+    public DownloadResponse(Resource resource, MediaType mediaType, String filename) {
+        this(resource, mediaType, filename, null, null, null);
+    }
+
+    public static DownloadResponse notModified(String etag, Instant lastModified) {
+        return new DownloadResponse(null, null, null, null, etag, lastModified);
+    }
+
+    public boolean isNotModified() {
+        return resource == null;
+    }
 }
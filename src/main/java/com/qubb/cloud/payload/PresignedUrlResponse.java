@@ -0,0 +1,18 @@
+package com.qubb.cloud.payload;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Where to transfer a file. With {@code direct} set the client talks to storage itself and the URL
+ * stops working at {@code expiresAt}; otherwise the URL is the regular API endpoint. Direct uploads
+ * must send {@code headers} as given, since they are part of the signature.
+ */
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record PresignedUrlResponse(String url, String method, Map<String, String> headers, Instant expiresAt,
+                                   boolean direct) {
+}
@@ -0,0 +1,49 @@
+package com.qubb.cloud.payload;
+
+import org.springframework.http.HttpHeaders;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Validators a client sent with a conditional GET: every entity tag of If-None-Match, and
+ * If-Modified-Since, which may be null.
+ */
+public record ReadConditions(List<String> ifNoneMatch, Instant ifModifiedSince) {
+
+    public static final ReadConditions NONE = new ReadConditions(List.of(), null);
+
+    public static ReadConditions from(HttpHeaders headers) {
+        long ifModifiedSince = headers.getIfModifiedSince();
+        return new ReadConditions(List.copyOf(headers.getIfNoneMatch()),
+                ifModifiedSince < 0 ? null : Instant.ofEpochMilli(ifModifiedSince));
+    }
+
+    public boolean isEmpty() {
+        return ifNoneMatch.isEmpty() && ifModifiedSince == null;
+    }
+
+    /**
+     * Whether the client's copy is current, as RFC 9110 evaluates it for GET: If-None-Match, when
+     * sent, decides alone by weak comparison; otherwise If-Modified-Since, to the second.
+     */
+    public boolean isNotModified(String etag, Instant lastModified) {
+        if (!ifNoneMatch.isEmpty()) {
+            String current = opaque(etag);
+            return ifNoneMatch.stream().anyMatch(tag -> "*".equals(tag) || opaque(tag).equals(current));
+        }
+        return ifModifiedSince != null && lastModified != null
+                && !lastModified.truncatedTo(ChronoUnit.SECONDS).isAfter(ifModifiedSince);
+    }
+
+    private static String opaque(String etag) {
+        if (etag == null) {
+            return "";
+        }
+        String tag = etag.startsWith("W/") ? etag.substring(2) : etag;
+        return tag.length() > 1 && tag.startsWith("\"") && tag.endsWith("\"")
+                ? tag.substring(1, tag.length() - 1)
+                : tag;
+    }
+}
@@ -0,0 +1,19 @@
+package com.qubb.cloud.payload;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+
+/**
+ * A change to a user's tree, pushed to their open change feeds. Paths are full object paths; folders
+ * end with '/'. {@code from} is only set for moves. A CHANGED event means anything below {@code path}
+ * may have changed, as after an archive upload.
+ */
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ResourceChangeEvent(String type, String path, String from) {
+
+    public static final String CREATED = "CREATED";
+    public static final String DELETED = "DELETED";
+    public static final String MOVED = "MOVED";
+    public static final String CHANGED = "CHANGED";
+}
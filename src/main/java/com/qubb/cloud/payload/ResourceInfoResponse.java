@@ -3,7 +3,8 @@ package com.qubb.cloud.payload;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Builder;
 
-@Builder
+@Builder(toBuilder = true)
 @JsonInclude(JsonInclude.Include.NON_NULL)
-public record ResourceInfoResponse(String path, String name, Long size, String type) {
+public record ResourceInfoResponse(String path, String name, Long size, String type, Long fileCount,
+                                   String etag) {
 }
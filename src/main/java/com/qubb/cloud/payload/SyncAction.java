@@ -0,0 +1,28 @@
+package com.qubb.cloud.payload;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+
+import java.time.Instant;
+
+/**
+ * One step that brings the client and the server in line, for a path relative to the synced folder.
+ * Size, hash, etag and modification time describe the server's copy where there is one.
+ */
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record SyncAction(Type action, String path, Long size, String hash, String etag, Instant lastModified) {
+
+    public enum Type {
+        /** The client's copy is new or changed; upload it. */
+        UPLOAD,
+        /** The server's copy is new or changed; download it. */
+        DOWNLOAD,
+        /** Deleted on the server; delete the client's copy. */
+        DELETE_LOCAL,
+        /** Deleted on the client; delete the server's copy. */
+        DELETE_REMOTE,
+        /** Changed differently on both sides; the client decides. */
+        CONFLICT
+    }
+}
@@ -0,0 +1,12 @@
+package com.qubb.cloud.payload;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Builder;
+
+/**
+ * A file on the client, relative to the synced folder. {@code hash} is the hex MD5 of its content or
+ * the etag the server returned for it. {@code deleted} marks a local deletion and needs a sync token.
+ */
+@Builder
+public record SyncEntry(@NotBlank(message = "Path is required") String path, Long size, String hash, boolean deleted) {
+}
@@ -0,0 +1,18 @@
+package com.qubb.cloud.payload;
+
+import jakarta.validation.Valid;
+import lombok.Builder;
+
+import java.util.List;
+
+/**
+ * What a sync client holds under {@code path}. Without a token, {@code entries} is the client's whole
+ * tree. With the token of its last sync, it lists only what changed locally since then.
+ */
+@Builder
+public record SyncRequest(String path, String token, List<@Valid SyncEntry> entries) {
+
+    public List<SyncEntry> entriesOrEmpty() {
+        return entries == null ? List.of() : entries;
+    }
+}
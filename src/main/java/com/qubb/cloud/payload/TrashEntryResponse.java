@@ -0,0 +1,12 @@
+package com.qubb.cloud.payload;
+
+import lombok.Builder;
+
+import java.time.Instant;
+
+/**
+ * A deleted resource that can be restored until {@code purgeAfter}, when it is removed for good.
+ */
+@Builder
+public record TrashEntryResponse(Long id, String path, String name, String type, Instant deletedAt, Instant purgeAfter) {
+}
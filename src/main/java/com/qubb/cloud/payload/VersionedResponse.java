@@ -0,0 +1,10 @@
+package com.qubb.cloud.payload;
+
+import java.time.Instant;
+
+/**
+ * A response body together with the validators clients can use for conditional requests.
+ * The last-modified time is null when it cannot be derived reliably.
+ */
+public record VersionedResponse<T>(T body, String etag, Instant lastModified) {
+}
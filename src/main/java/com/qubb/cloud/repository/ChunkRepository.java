@@ -0,0 +1,50 @@
+package com.qubb.cloud.repository;
+
+import com.qubb.cloud.entity.Chunk;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ChunkRepository extends JpaRepository<Chunk, Long> {
+
+    List<Chunk> findByUserIdAndHashIn(Integer userId, Collection<String> hashes);
+
+    List<Chunk> findByUserIdAndLastUsedAtBeforeAndIdGreaterThanOrderById(Integer userId,
+                                                                         Instant before,
+                                                                         Long afterId,
+                                                                         Pageable pageable);
+
+    @Query(value = "SELECT DISTINCT user_id FROM chunks WHERE last_used_at < :before", nativeQuery = true)
+    List<Integer> findUserIdsWithChunksUnusedSince(@Param("before") Instant before);
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO chunks (user_id, hash, size, last_used_at) VALUES (:userId, :hash, :size, now())
+            ON CONFLICT (user_id, hash) DO UPDATE SET last_used_at = now()
+            """, nativeQuery = true)
+    void upsert(@Param("userId") int userId, @Param("hash") String hash, @Param("size") long size);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE chunks SET last_used_at = now() WHERE user_id = :userId AND hash IN (:hashes)",
+            nativeQuery = true)
+    int touch(@Param("userId") int userId, @Param("hashes") Collection<String> hashes);
+
+    /**
+     * Returns 0 when the chunk has been used again since the collector looked at it.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM chunks WHERE id = :id AND last_used_at < :before", nativeQuery = true)
+    int deleteIfUnusedSince(@Param("id") long id, @Param("before") Instant before);
+}
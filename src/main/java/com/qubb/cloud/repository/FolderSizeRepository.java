@@ -0,0 +1,102 @@
+package com.qubb.cloud.repository;
+
+import com.qubb.cloud.entity.FolderSize;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface FolderSizeRepository extends JpaRepository<FolderSize, String> {
+
+    List<FolderSize> findByPathIn(Collection<String> paths);
+
+    /**
+     * The user's largest folders other than {@code root}, leaving out folders a trash entry hides,
+     * so that hidden folders do not take up places within the limit.
+     */
+    @Query(value = """
+            SELECT f.* FROM folder_sizes f
+            WHERE f.user_id = :userId AND f.path <> :root
+              AND NOT EXISTS (SELECT 1 FROM trash_entries t
+                              WHERE t.user_id = f.user_id AND t.stored_at IS NULL
+                                AND right(t.object_name, 1) = '/'
+                                AND left(f.path, length(t.object_name)) = t.object_name)
+            ORDER BY f.bytes DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<FolderSize> findLargestVisible(@Param("userId") int userId,
+                                        @Param("root") String root,
+                                        @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO folder_sizes (path, user_id, bytes, files) VALUES (:path, :userId, :bytes, :files)
+            ON CONFLICT (path) DO UPDATE SET bytes = folder_sizes.bytes + EXCLUDED.bytes,
+                                             files = folder_sizes.files + EXCLUDED.files
+            """, nativeQuery = true)
+    void addDelta(@Param("path") String path,
+                  @Param("userId") int userId,
+                  @Param("bytes") long bytes,
+                  @Param("files") long files);
+
+    @Modifying
+    @Query(value = "DELETE FROM folder_sizes WHERE path IN (:paths) AND files <= 0", nativeQuery = true)
+    void deleteEmpty(@Param("paths") Collection<String> paths);
+
+    @Modifying
+    @Query(value = "DELETE FROM folder_sizes WHERE user_id = :userId", nativeQuery = true)
+    void deleteByUser(@Param("userId") int userId);
+
+    /**
+     * Locks the user's sizes against concurrent deltas and tells whether they are built; empty
+     * while nobody has started building them.
+     */
+    @Query(value = "SELECT built FROM folder_size_users WHERE user_id = :userId FOR UPDATE", nativeQuery = true)
+    Optional<Boolean> lockTrackedUser(@Param("userId") int userId);
+
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM folder_size_users WHERE user_id = :userId AND built)", nativeQuery = true)
+    boolean isBuilt(@Param("userId") int userId);
+
+    /**
+     * Returns 0 when the sizes are built or another build claimed them after {@code staleBefore}.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO folder_size_users (user_id, built, claimed_at, dirty) VALUES (:userId, FALSE, now(), FALSE)
+            ON CONFLICT (user_id) DO UPDATE SET claimed_at = now(), dirty = FALSE
+            WHERE NOT folder_size_users.built AND folder_size_users.claimed_at < :staleBefore
+            """, nativeQuery = true)
+    int claimBuild(@Param("userId") int userId, @Param("staleBefore") Instant staleBefore);
+
+    /**
+     * Records that a size changed while the build was listing, so the listing may have missed it.
+     */
+    @Modifying
+    @Query(value = "UPDATE folder_size_users SET dirty = TRUE WHERE user_id = :userId AND NOT built", nativeQuery = true)
+    void markDirty(@Param("userId") int userId);
+
+    /**
+     * Returns 0 when a size changed since the build started listing.
+     */
+    @Modifying
+    @Query(value = "UPDATE folder_size_users SET built = TRUE WHERE user_id = :userId AND NOT dirty", nativeQuery = true)
+    int markBuilt(@Param("userId") int userId);
+
+    /**
+     * Clears the flag and renews the claim before the build lists again.
+     */
+    @Modifying
+    @Query(value = "UPDATE folder_size_users SET dirty = FALSE, claimed_at = now() WHERE user_id = :userId", nativeQuery = true)
+    void restartBuild(@Param("userId") int userId);
+
+    @Modifying
+    @Query(value = "DELETE FROM folder_size_users WHERE user_id = :userId AND NOT built", nativeQuery = true)
+    void releaseBuild(@Param("userId") int userId);
+}
@@ -0,0 +1,13 @@
+package com.qubb.cloud.repository;
+
+import com.qubb.cloud.entity.ObjectAccess;
+
+import java.util.Collection;
+
+public interface ObjectAccessBatchRepository {
+
+    /**
+     * Adds the reads to the stored counts and keeps the later access time, in JDBC batches.
+     */
+    void addAll(Collection<ObjectAccess> accesses);
+}
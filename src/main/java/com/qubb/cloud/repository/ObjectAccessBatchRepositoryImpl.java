@@ -0,0 +1,32 @@
+package com.qubb.cloud.repository;
+
+import com.qubb.cloud.entity.ObjectAccess;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+
+@RequiredArgsConstructor
+public class ObjectAccessBatchRepositoryImpl implements ObjectAccessBatchRepository {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String UPSERT = """
+            INSERT INTO object_access (object_name, user_id, reads, last_accessed_at) VALUES (?, ?, ?, ?)
+            ON CONFLICT (object_name) DO UPDATE SET reads = object_access.reads + EXCLUDED.reads,
+                last_accessed_at = GREATEST(object_access.last_accessed_at, EXCLUDED.last_accessed_at)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void addAll(Collection<ObjectAccess> accesses) {
+        jdbcTemplate.batchUpdate(UPSERT, accesses, BATCH_SIZE, (statement, access) -> {
+            statement.setString(1, access.getObjectName());
+            statement.setInt(2, access.getUserId());
+            statement.setLong(3, access.getReads());
+            statement.setTimestamp(4, Timestamp.from(access.getLastAccessedAt()));
+        });
+    }
+}
@@ -0,0 +1,13 @@
+package com.qubb.cloud.repository;
+
+import com.qubb.cloud.entity.ObjectAccess;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ObjectAccessRepository extends JpaRepository<ObjectAccess, String>, ObjectAccessBatchRepository {
+
+    List<ObjectAccess> findByUserId(Integer userId);
+}
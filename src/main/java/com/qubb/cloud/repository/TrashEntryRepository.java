@@ -0,0 +1,38 @@
+package com.qubb.cloud.repository;
+
+import com.qubb.cloud.entity.TrashEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TrashEntryRepository extends JpaRepository<TrashEntry, Long> {
+
+    List<TrashEntry> findByUserIdOrderByTrashedAtDesc(Integer userId);
+
+    Optional<TrashEntry> findByIdAndUserId(Long id, Integer userId);
+
+    List<TrashEntry> findByPurgeAfterLessThanEqualOrderByPurgeAfter(Instant now, Pageable pageable);
+
+    /**
+     * Entries still hiding their path that sit at one of {@code paths}, e.g. the ancestors of a path.
+     */
+    List<TrashEntry> findByUserIdAndStoredAtIsNullAndObjectNameIn(Integer userId, Collection<String> paths);
+
+    /**
+     * Entries still hiding their path that sit below a folder; {@code pattern} is a LIKE pattern
+     * escaped with a backslash.
+     */
+    @Query("""
+            SELECT e FROM TrashEntry e
+            WHERE e.userId = :userId AND e.storedAt IS NULL AND e.objectName LIKE :pattern ESCAPE '\\'
+            """)
+    List<TrashEntry> findHidingUnder(@Param("userId") Integer userId, @Param("pattern") String pattern);
+}
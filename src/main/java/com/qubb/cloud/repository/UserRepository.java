@@ -2,11 +2,16 @@ package com.qubb.cloud.repository;
 
 import com.qubb.cloud.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Integer> {
     Optional<User> findByUsername(String username);
+
+    @Query("SELECT u.id FROM User u ORDER BY u.id")
+    List<Integer> findAllIds();
 }
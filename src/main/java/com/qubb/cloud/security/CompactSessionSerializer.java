@@ -0,0 +1,127 @@
+package com.qubb.cloud.security;
+
+import com.qubb.cloud.entity.User;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Session attribute codec for Redis.
+ * The security context is stored as user id and username only, and session timestamps as raw numbers;
+ * everything else falls back to JDK serialization. JDK streams start with 0xACED, so sessions
+ * written before this codec was introduced are still readable.
+ */
+public class CompactSessionSerializer implements RedisSerializer<Object> {
+
+    private static final byte SECURITY_CONTEXT = 1;
+    private static final byte LONG = 2;
+    private static final byte INTEGER = 3;
+
+    private final JdkSerializationRedisSerializer fallback;
+    private final Duration decodeCacheTtl;
+    private final int decodeCacheSize;
+    private final Map<ByteBuffer, CachedAuthentication> decodeCache = new ConcurrentHashMap<>();
+
+    public CompactSessionSerializer(ClassLoader classLoader, Duration decodeCacheTtl, int decodeCacheSize) {
+        this.fallback = new JdkSerializationRedisSerializer(classLoader);
+        this.decodeCacheTtl = decodeCacheTtl;
+        this.decodeCacheSize = decodeCacheSize;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value instanceof SecurityContext context && isCompactable(context.getAuthentication())) {
+            return serializeSecurityContext((UserDetailsImpl) context.getAuthentication().getPrincipal());
+        }
+        if (value instanceof Long number) {
+            return ByteBuffer.allocate(9).put(LONG).putLong(number).array();
+        }
+        if (value instanceof Integer number) {
+            return ByteBuffer.allocate(5).put(INTEGER).putInt(number).array();
+        }
+        return fallback.serialize(value);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        return switch (bytes[0]) {
+            case SECURITY_CONTEXT -> new SecurityContextImpl(decodeAuthentication(bytes));
+            case LONG -> ByteBuffer.wrap(bytes, 1, 8).getLong();
+            case INTEGER -> ByteBuffer.wrap(bytes, 1, 4).getInt();
+            default -> fallback.deserialize(bytes);
+        };
+    }
+
+    private boolean isCompactable(Authentication authentication) {
+        return authentication instanceof UsernamePasswordAuthenticationToken
+                && authentication.isAuthenticated()
+                && authentication.getAuthorities().isEmpty()
+                && authentication.getPrincipal() instanceof UserDetailsImpl userDetails
+                && userDetails.user() != null
+                && userDetails.user().getId() != null;
+    }
+
+    private byte[] serializeSecurityContext(UserDetailsImpl userDetails) {
+        try (var bytes = new ByteArrayOutputStream(32);
+             var out = new DataOutputStream(bytes)) {
+            out.writeByte(SECURITY_CONTEXT);
+            out.writeInt(userDetails.user().getId());
+            out.writeUTF(userDetails.user().getUsername());
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new SerializationException("Failed to serialize security context", e);
+        }
+    }
+
+    /**
+     * Every request of a session reads the same bytes, so the decoded token is kept for a short while.
+     * The token itself is immutable; callers get a fresh {@link SecurityContextImpl} around it.
+     */
+    private Authentication decodeAuthentication(byte[] bytes) {
+        ByteBuffer key = ByteBuffer.wrap(bytes);
+        long now = System.nanoTime();
+        CachedAuthentication cached = decodeCache.get(key);
+        if (cached != null && cached.expiresAt() - now > 0) {
+            return cached.authentication();
+        }
+        Authentication authentication = readAuthentication(bytes);
+        if (decodeCache.size() >= decodeCacheSize) {
+            decodeCache.values().removeIf(entry -> entry.expiresAt() - now <= 0);
+            if (decodeCache.size() >= decodeCacheSize) {
+                decodeCache.clear();
+            }
+        }
+        decodeCache.put(key, new CachedAuthentication(authentication, now + decodeCacheTtl.toNanos()));
+        return authentication;
+    }
+
+    private Authentication readAuthentication(byte[] bytes) {
+        try (var in = new DataInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1))) {
+            var user = User.builder()
+                    .id(in.readInt())
+                    .username(in.readUTF())
+                    .build();
+            return UsernamePasswordAuthenticationToken.authenticated(
+                    new UserDetailsImpl(user), null, Collections.emptyList());
+        } catch (IOException e) {
+            throw new SerializationException("Failed to deserialize security context", e);
+        }
+    }
+
+    private record CachedAuthentication(Authentication authentication, long expiresAt) {}
+}
@@ -1,6 +1,7 @@
 package com.qubb.cloud.service;
 
 import com.qubb.cloud.exception.InvalidUserCredentialsException;
+import com.qubb.cloud.exception.ServiceOverloadedException;
 import com.qubb.cloud.exception.UsernameAlreadyTakenException;
 import com.qubb.cloud.payload.UserCredentials;
 import com.qubb.cloud.payload.UsernameResponse;
@@ -46,6 +47,8 @@ public class AuthService {
                     )
             );
             SecurityContextHolder.getContext().setAuthentication(authentication);
+        } catch (ServiceOverloadedException e) {
+            throw e;
         } catch (Exception e) {
             throw new InvalidUserCredentialsException(e.getMessage());
         }
@@ -0,0 +1,309 @@
+package com.qubb.cloud.service;
+
+import com.qubb.cloud.exception.ResourceNotFoundException;
+import com.qubb.cloud.exception.ResourceOperationException;
+import com.qubb.cloud.exception.UserNotFoundException;
+import com.qubb.cloud.payload.*;
+import com.qubb.cloud.payload.BatchItemResult.Status;
+import com.qubb.cloud.security.UserDetailsImpl;
+import com.qubb.cloud.storage.StorageCallContext;
+import com.qubb.cloud.storage.StorageOperations;
+import com.qubb.cloud.throttle.Direction;
+import com.qubb.cloud.throttle.UserThrottleService;
+import com.qubb.cloud.util.PathUtils;
+import com.qubb.cloud.util.ResourceResponseBuilder;
+import com.qubb.cloud.util.ValidationFacade;
+import io.minio.messages.Item;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Applies one operation to many resources in a single request. Checks the items share are made
+ * once for the whole batch: each parent directory is listed once to find which items exist, and a
+ * move target is checked and listed once. Items then run in parallel, a bounded number at a time,
+ * and each gets its own result, so one failing item does not fail the rest.
+ */
+@Slf4j
+@Service
+public class BatchService {
+
+    private final StorageOperations storageOperations;
+    private final ValidationFacade validationFacade;
+    private final FolderSizeService folderSizeService;
+    private final ChangeFeedService changeFeedService;
+    private final UserThrottleService userThrottleService;
+    private final TrashService trashService;
+    private final int parallelism;
+    private final ThreadPoolExecutor executor;
+
+    public BatchService(StorageOperations storageOperations,
+                        ValidationFacade validationFacade,
+                        FolderSizeService folderSizeService,
+                        ChangeFeedService changeFeedService,
+                        UserThrottleService userThrottleService,
+                        TrashService trashService,
+                        @Value("${batch.parallelism:8}") int parallelism,
+                        @Value("${batch.max-threads:32}") int maxThreads) {
+        this.storageOperations = storageOperations;
+        this.validationFacade = validationFacade;
+        this.folderSizeService = folderSizeService;
+        this.changeFeedService = changeFeedService;
+        this.userThrottleService = userThrottleService;
+        this.trashService = trashService;
+        this.parallelism = Math.max(1, parallelism);
+        this.executor = new ThreadPoolExecutor(
+                0, Math.max(1, maxThreads),
+                60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                new CustomizableThreadFactory("batch-item-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public List<BatchItemResult> execute(BatchRequest request, UserDetailsImpl userDetails) {
+        validate(userDetails, request.paths(), request.target());
+        int userId = getUserId(userDetails);
+        List<Selected> selection = plan(userId, request.paths(), request.operation() == BatchOperation.INFO);
+        return switch (request.operation()) {
+            case INFO -> info(userId, selection);
+            case DELETE -> run(selection, selected -> delete(userId, selected));
+            case MOVE -> move(userId, selection, request.target());
+        };
+    }
+
+    /**
+     * Packs the selected files and folders into one ZIP, with paths relative to their closest common folder.
+     */
+    public DownloadResponse download(BatchDownloadRequest request, UserDetailsImpl userDetails) {
+        validate(userDetails, request.paths(), null);
+        int userId = getUserId(userDetails);
+        List<Selected> selection = plan(userId, request.paths(), false);
+        selection.stream()
+                .filter(selected -> selected.item() == null && selected.coveredBy() == null)
+                .findFirst()
+                .ifPresent(missing -> {
+                    throw new ResourceNotFoundException("Resource not found: " + missing.path());
+                });
+        List<String> objectNames = selection.stream()
+                .filter(selected -> selected.coveredBy() == null)
+                .map(Selected::objectName)
+                .toList();
+        String basePath = commonParent(objectNames);
+        String filename = basePath.equals(PathUtils.buildUserRootPath(userId))
+                ? "files.zip"
+                : PathUtils.getResourceName(basePath) + ".zip";
+        var response = storageOperations.downloadSelection(basePath, objectNames, filename,
+                trashService.visibleItems(userId, basePath));
+        try {
+            return response.toBuilder()
+                    .resource(new InputStreamResource(userThrottleService.limit(
+                            response.resource().getInputStream(), userId, Direction.DOWNLOAD)))
+                    .build();
+        } catch (IOException e) {
+            throw new ResourceOperationException("Failed to open download of the selection", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Resolves every path and finds out which exist with one listing per distinct parent folder;
+     * deleted resources count as missing. Paths selected twice are kept once; paths inside a
+     * selected folder are marked as covered by it and, unless {@code listCovered} is set, not
+     * looked up at all.
+     */
+    List<Selected> plan(int userId, List<String> paths, boolean listCovered) {
+        String userRoot = PathUtils.buildUserRootPath(userId);
+        Map<String, String> objectNames = new LinkedHashMap<>();
+        paths.forEach(path -> objectNames.putIfAbsent(path, PathUtils.buildFullUserPath(userId, path)));
+        List<String> folders = objectNames.values().stream()
+                .filter(objectName -> objectName.endsWith("/"))
+                .toList();
+        Map<String, String> coveredBy = new HashMap<>();
+        objectNames.values().forEach(objectName -> folders.stream()
+                .filter(folder -> !folder.equals(objectName) && objectName.startsWith(folder))
+                .findFirst()
+                .ifPresent(folder -> coveredBy.put(objectName, folder)));
+        var visible = trashService.visibleItems(userId, userRoot);
+        Map<String, Map<String, Item>> listings = new HashMap<>();
+        objectNames.values().stream()
+                .filter(objectName -> objectName.startsWith(userRoot) && !objectName.equals(userRoot))
+                .filter(objectName -> listCovered || !coveredBy.containsKey(objectName))
+                .map(PathUtils::getParentPath)
+                .distinct()
+                .forEach(parent -> listings.put(parent, storageOperations.listObjects(parent)
+                        .filter(visible)
+                        .collect(Collectors.toMap(Item::objectName, Function.identity(), (first, second) -> first))));
+        return objectNames.entrySet().stream()
+                .map(entry -> {
+                    String objectName = entry.getValue();
+                    Map<String, Item> siblings = listings.getOrDefault(PathUtils.getParentPath(objectName), Map.of());
+                    return new Selected(entry.getKey(), objectName, siblings.get(objectName), coveredBy.get(objectName));
+                })
+                .toList();
+    }
+
+    private List<BatchItemResult> info(int userId, List<Selected> selection) {
+        Map<String, ResourceInfoResponse> found = new HashMap<>();
+        selection.stream()
+                .filter(selected -> selected.item() != null)
+                .forEach(selected -> found.put(selected.objectName(), ResourceResponseBuilder.buildFromItem(selected.item())));
+        var sizes = folderSizeService.sizes(userId, found.values().stream()
+                .filter(ResourceResponseBuilder::isDirectory)
+                .map(ResourceResponseBuilder::folderPath)
+                .toList());
+        return selection.stream()
+                .map(selected -> selected.item() == null
+                        ? notFound(selected)
+                        : ok(selected, ResourceResponseBuilder.withFolderSize(found.get(selected.objectName()), sizes)))
+                .toList();
+    }
+
+    private BatchItemResult delete(int userId, Selected selected) {
+        trashService.trash(userId, selected.objectName());
+        changeFeedService.deleted(userId, selected.objectName());
+        return ok(selected, ResourceResponseBuilder.buildFromItem(selected.item()));
+    }
+
+    private List<BatchItemResult> move(int userId, List<Selected> selection, String target) {
+        if (target == null || target.isBlank()) {
+            return selection.stream().map(selected -> failed(selected, "Target folder is required")).toList();
+        }
+        String targetFolder = PathUtils.normalizeDirectoryPath(PathUtils.buildFullUserPath(userId, target));
+        var visible = trashService.visibleItems(userId, PathUtils.buildUserRootPath(userId));
+        if (!targetFolder.startsWith(PathUtils.buildUserRootPath(userId))
+                || !validationFacade.isSourceResourceExists(targetFolder)
+                || !trashService.isVisible(userId, targetFolder)) {
+            throw new ResourceNotFoundException("Target directory does not exist: " + targetFolder);
+        }
+        Set<String> occupied = storageOperations.listObjects(targetFolder)
+                .filter(visible)
+                .map(Item::objectName)
+                .collect(Collectors.toSet());
+        return run(selection, selected -> {
+            String name = PathUtils.getResourceName(selected.objectName());
+            String destination = targetFolder + (selected.objectName().endsWith("/") ? name + "/" : name);
+            if (destination.equals(selected.objectName())) {
+                return skipped(selected, "Already in the target folder");
+            }
+            if (targetFolder.startsWith(selected.objectName())) {
+                return failed(selected, "A folder cannot be moved into itself");
+            }
+            if (occupied.contains(destination)) {
+                return result(selected, Status.CONFLICT, null, "Target resource already exists: " + destination);
+            }
+            trashService.release(userId, destination);
+            storageOperations.copyResource(selected.objectName(), destination, visible);
+            storageOperations.delete(selected.objectName());
+            trashService.forget(userId, selected.objectName());
+            changeFeedService.moved(userId, selected.objectName(), destination);
+            return ok(selected, ResourceResponseBuilder.buildFromItem(selected.item()).toBuilder()
+                    .path(targetFolder)
+                    .build());
+        });
+    }
+
+    /**
+     * Runs the action for every existing item that is not covered by a selected folder, at most
+     * {@code parallelism} at a time. Results keep the order of the request.
+     */
+    private List<BatchItemResult> run(List<Selected> selection, Function<Selected, BatchItemResult> action) {
+        var window = new Semaphore(parallelism);
+        List<CompletableFuture<BatchItemResult>> results = new ArrayList<>(selection.size());
+        for (Selected selected : selection) {
+            if (selected.coveredBy() != null) {
+                results.add(CompletableFuture.completedFuture(skipped(selected, "Included in " + selected.coveredBy())));
+                continue;
+            }
+            if (selected.item() == null) {
+                results.add(CompletableFuture.completedFuture(notFound(selected)));
+                continue;
+            }
+            try {
+                window.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ResourceOperationException("Batch interrupted", e);
+            }
+            var result = new CompletableFuture<BatchItemResult>();
+            results.add(result);
+            executor.execute(StorageCallContext.wrap(() -> {
+                try {
+                    result.complete(action.apply(selected));
+                } catch (RuntimeException e) {
+                    log.warn("Batch item {} failed: {}", selected.objectName(), e.getMessage());
+                    result.complete(failed(selected, e.getMessage()));
+                } finally {
+                    window.release();
+                }
+            }));
+        }
+        return results.stream().map(CompletableFuture::join).toList();
+    }
+
+    private void validate(UserDetailsImpl userDetails, List<String> paths, String target) {
+        validationFacade.validateRequest(userDetails, Stream.concat(paths.stream(), Stream.ofNullable(target))
+                .toArray(String[]::new));
+    }
+
+    private static String commonParent(List<String> objectNames) {
+        String common = PathUtils.getParentPath(objectNames.getFirst());
+        for (String objectName : objectNames) {
+            while (!objectName.startsWith(common)) {
+                common = PathUtils.getParentPath(common);
+            }
+        }
+        return common;
+    }
+
+    private static BatchItemResult ok(Selected selected, ResourceInfoResponse resource) {
+        return result(selected, Status.OK, resource, null);
+    }
+
+    private static BatchItemResult notFound(Selected selected) {
+        return result(selected, Status.NOT_FOUND, null, "Resource not found: " + selected.objectName());
+    }
+
+    private static BatchItemResult skipped(Selected selected, String reason) {
+        return result(selected, Status.SKIPPED, null, reason);
+    }
+
+    private static BatchItemResult failed(Selected selected, String error) {
+        return result(selected, Status.FAILED, null, error);
+    }
+
+    private static BatchItemResult result(Selected selected, Status status, ResourceInfoResponse resource, String error) {
+        return BatchItemResult.builder()
+                .path(selected.path())
+                .status(status)
+                .resource(resource)
+                .error(error)
+                .build();
+    }
+
+    private int getUserId(UserDetailsImpl user) {
+        if (user == null || user.user() == null) {
+            throw new UserNotFoundException("User not authenticated");
+        }
+        return user.user().getId();
+    }
+
+    /**
+     * A requested path with its listing entry, null when it does not exist, and the selected folder it lies in, if any.
+     */
+    record Selected(String path, String objectName, Item item, String coveredBy) {
+    }
+}
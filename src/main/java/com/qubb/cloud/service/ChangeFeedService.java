@@ -0,0 +1,256 @@
+package com.qubb.cloud.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qubb.cloud.exception.UserNotFoundException;
+import com.qubb.cloud.payload.ResourceChangeEvent;
+import com.qubb.cloud.security.UserDetailsImpl;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes changes of a user's tree to their open server-sent event streams, so clients refresh the
+ * directories that changed instead of polling listings. Changes are published on a per-user Redis
+ * channel; every node subscribes to all of them and forwards to the streams it holds, including
+ * the node that published.
+ * <p>
+ * Every stream sends its events in order on a virtual thread of its own, so a slow client holds
+ * up neither the Redis listener nor the heartbeat nor other streams. A stream that falls more than
+ * {@code max-pending} events behind is closed.
+ * <p>
+ * Delivery is best effort: a client that reconnects should reload the directory it shows.
+ */
+@Slf4j
+@Service
+public class ChangeFeedService implements MessageListener {
+
+    public static final String CHANNEL_PREFIX = "cloud:changes:user-";
+    public static final String CHANNEL_PATTERN = CHANNEL_PREFIX + "*";
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration timeout;
+    private final int maxStreamsPerUser;
+    private final int maxPending;
+    private final Map<Integer, Deque<FeedStream>> streams = new ConcurrentHashMap<>();
+    private final ExecutorService senders = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("change-feed-sender-", 0).factory());
+
+    public ChangeFeedService(StringRedisTemplate redisTemplate,
+                             ObjectMapper objectMapper,
+                             @Value("${change-feed.timeout:30m}") Duration timeout,
+                             @Value("${change-feed.max-streams-per-user:8}") int maxStreamsPerUser,
+                             @Value("${change-feed.max-pending:256}") int maxPending) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.timeout = timeout;
+        this.maxStreamsPerUser = maxStreamsPerUser;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Opens a stream of the user's changes. Past the per-user limit the oldest stream is closed.
+     */
+    public SseEmitter subscribe(UserDetailsImpl userDetails) {
+        int userId = getUserId(userDetails);
+        var emitter = new SseEmitter(timeout.toMillis());
+        var stream = new FeedStream(userId, emitter);
+        Deque<FeedStream> userStreams = streams.compute(userId, (id, current) -> {
+            Deque<FeedStream> updated = current == null ? new ConcurrentLinkedDeque<>() : current;
+            updated.add(stream);
+            return updated;
+        });
+        emitter.onCompletion(() -> remove(stream));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> remove(stream));
+        while (userStreams.size() > maxStreamsPerUser) {
+            FeedStream oldest = userStreams.poll();
+            if (oldest != null) {
+                oldest.emitter().complete();
+            }
+        }
+        return emitter;
+    }
+
+    public void created(int userId, String path) {
+        publish(userId, ResourceChangeEvent.builder().type(ResourceChangeEvent.CREATED).path(path).build());
+    }
+
+    public void deleted(int userId, String path) {
+        publish(userId, ResourceChangeEvent.builder().type(ResourceChangeEvent.DELETED).path(path).build());
+    }
+
+    public void moved(int userId, String from, String to) {
+        publish(userId, ResourceChangeEvent.builder().type(ResourceChangeEvent.MOVED).path(to).from(from).build());
+    }
+
+    public void changed(int userId, String path) {
+        publish(userId, ResourceChangeEvent.builder().type(ResourceChangeEvent.CHANGED).path(path).build());
+    }
+
+    /**
+     * Called after the change has been made, so a failure here is logged rather than failing the request.
+     */
+    void publish(int userId, ResourceChangeEvent event) {
+        try {
+            redisTemplate.convertAndSend(CHANNEL_PREFIX + userId, objectMapper.writeValueAsString(event));
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Failed to publish {} of {} for user {}", event.type(), event.path(), userId, e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        int userId;
+        try {
+            userId = Integer.parseInt(channel.substring(CHANNEL_PREFIX.length()));
+        } catch (RuntimeException e) {
+            log.debug("Ignoring message on unexpected channel {}", channel);
+            return;
+        }
+        Deque<FeedStream> userStreams = streams.get(userId);
+        if (userStreams == null || userStreams.isEmpty()) {
+            return;
+        }
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String type;
+        try {
+            type = objectMapper.readValue(body, ResourceChangeEvent.class).type();
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed change event for user {}", userId);
+            return;
+        }
+        userStreams.forEach(stream -> stream.offer(SseEmitter.event()
+                .name(type)
+                .data(body, MediaType.APPLICATION_JSON)));
+    }
+
+    /**
+     * Keeps idle streams open through proxies and finds clients that went away without closing.
+     */
+    @Scheduled(fixedDelayString = "${change-feed.heartbeat:25s}")
+    public void heartbeat() {
+        streams.values().forEach(userStreams -> userStreams.forEach(stream ->
+                stream.offer(SseEmitter.event().comment("keep-alive"))));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        streams.values().forEach(userStreams -> userStreams.forEach(stream -> stream.emitter().complete()));
+        streams.clear();
+        senders.shutdownNow();
+    }
+
+    private void remove(FeedStream stream) {
+        streams.computeIfPresent(stream.userId(), (id, userStreams) -> {
+            userStreams.remove(stream);
+            return userStreams.isEmpty() ? null : userStreams;
+        });
+    }
+
+    private int getUserId(UserDetailsImpl user) {
+        if (user == null || user.user() == null) {
+            throw new UserNotFoundException("User not authenticated");
+        }
+        return user.user().getId();
+    }
+
+    /**
+     * An open stream with the events still to be sent on it. At most one sender drains the queue
+     * at a time, which keeps the events in the order they were offered.
+     */
+    private final class FeedStream {
+
+        private final int userId;
+        private final SseEmitter emitter;
+        private final Queue<SseEmitter.SseEventBuilder> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private FeedStream(int userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        int userId() {
+            return userId;
+        }
+
+        SseEmitter emitter() {
+            return emitter;
+        }
+
+        void offer(SseEmitter.SseEventBuilder event) {
+            if (size.incrementAndGet() > maxPending) {
+                log.debug("Closing change feed of user {}: client is too far behind", userId);
+                close(null);
+                return;
+            }
+            pending.add(event);
+            schedule();
+        }
+
+        private void schedule() {
+            if (!draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                senders.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+            }
+        }
+
+        private void drain() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while ((event = pending.poll()) != null) {
+                    size.decrementAndGet();
+                    emitter.send(event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                close(e);
+                return;
+            } finally {
+                draining.set(false);
+            }
+            if (!pending.isEmpty()) {
+                schedule();
+            }
+        }
+
+        private void close(Throwable failure) {
+            remove(this);
+            pending.clear();
+            if (failure == null) {
+                emitter.complete();
+            } else {
+                emitter.completeWithError(failure);
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.qubb.cloud.service;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.qubb.cloud.entity.Chunk;
+import com.qubb.cloud.repository.ChunkRepository;
+import com.qubb.cloud.storage.ChunkStore;
+import com.qubb.cloud.storage.MinioService;
+import com.qubb.cloud.storage.StoragePriority;
+import com.qubb.cloud.util.PathUtils;
+import io.minio.messages.Item;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Removes chunks no file refers to any more. A user's chunks are marked from the manifests of all
+ * chunked files under their root, deleted ones included since the trash still stores them; chunks
+ * left unmarked that no upload has used for the grace period are then removed. The grace period
+ * covers uploads in progress, whose chunks are stored before the file that refers to them.
+ */
+@Slf4j
+@Component
+public class ChunkCollector {
+
+    private static final String LOCK = "cloud:chunks:collecting";
+
+    private final ChunkRepository chunkRepository;
+    private final ChunkStore chunkStore;
+    private final MinioService minioService;
+    private final StringRedisTemplate redisTemplate;
+    private final boolean enabled;
+    private final Duration gracePeriod;
+    private final int batchSize;
+    private final Duration lockTtl;
+    private final RateLimiter rateLimiter;
+
+    public ChunkCollector(ChunkRepository chunkRepository,
+                          ChunkStore chunkStore,
+                          MinioService minioService,
+                          StringRedisTemplate redisTemplate,
+                          @Value("${storage.chunking.collect.enabled:true}") boolean enabled,
+                          @Value("${storage.chunking.collect.grace-period:1d}") Duration gracePeriod,
+                          @Value("${storage.chunking.collect.objects-per-second:200}") double objectsPerSecond,
+                          @Value("${storage.chunking.collect.batch-size:500}") int batchSize,
+                          @Value("${storage.chunking.collect.lock-ttl:1h}") Duration lockTtl) {
+        this.chunkRepository = chunkRepository;
+        this.chunkStore = chunkStore;
+        this.minioService = minioService;
+        this.redisTemplate = redisTemplate;
+        this.enabled = enabled;
+        this.gracePeriod = gracePeriod;
+        this.batchSize = Math.max(batchSize, 1);
+        this.lockTtl = lockTtl;
+        this.rateLimiter = RateLimiter.create(objectsPerSecond);
+    }
+
+    @Scheduled(initialDelayString = "${storage.chunking.collect.initial-delay:10m}",
+            fixedDelayString = "${storage.chunking.collect.interval:1h}")
+    public void collectUnreferenced() {
+        if (!enabled || !Boolean.TRUE.equals(redisTemplate.opsForValue()
+                .setIfAbsent(LOCK, UUID.randomUUID().toString(), lockTtl))) {
+            return;
+        }
+        try {
+            Instant cutoff = Instant.now().minus(gracePeriod);
+            chunkRepository.findUserIdsWithChunksUnusedSince(cutoff)
+                    .forEach(userId -> StoragePriority.BULK.run(() -> collect(userId, cutoff)));
+        } catch (RuntimeException e) {
+            log.error("Chunk collection run failed", e);
+        } finally {
+            redisTemplate.delete(LOCK);
+        }
+    }
+
+    /**
+     * Nothing is removed unless every manifest could be read. A chunk used again after
+     * {@code cutoff} is kept, even if no file referred to it when the manifests were read.
+     */
+    void collect(int userId, Instant cutoff) {
+        Set<String> referenced;
+        try {
+            referenced = referencedHashes(userId);
+        } catch (RuntimeException e) {
+            log.warn("Skipping chunk collection for user {}: manifests could not be read", userId, e);
+            return;
+        }
+        int removed = 0;
+        long lastId = 0;
+        List<Chunk> batch;
+        do {
+            batch = chunkRepository.findByUserIdAndLastUsedAtBeforeAndIdGreaterThanOrderById(
+                    userId, cutoff, lastId, PageRequest.of(0, batchSize));
+            for (Chunk chunk : batch) {
+                lastId = chunk.getId();
+                if (!referenced.contains(chunk.getHash())
+                        && chunkRepository.deleteIfUnusedSince(chunk.getId(), cutoff) == 1) {
+                    rateLimiter.acquire();
+                    if (remove(chunk)) {
+                        removed++;
+                    }
+                }
+            }
+        } while (batch.size() == batchSize);
+        if (removed > 0) {
+            log.info("Removed {} unreferenced chunks of user {}", removed, userId);
+        }
+    }
+
+    /**
+     * A chunk that could not be removed is indexed again, which also puts off the next attempt.
+     */
+    private boolean remove(Chunk chunk) {
+        try {
+            minioService.removeObject(PathUtils.buildChunkObjectName(chunk.getUserId(), chunk.getHash()));
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Failed to remove chunk {} of user {}", chunk.getHash(), chunk.getUserId(), e);
+            chunkRepository.upsert(chunk.getUserId(), chunk.getHash(), chunk.getSize());
+            return false;
+        }
+    }
+
+    private Set<String> referencedHashes(int userId) {
+        Set<String> hashes = new HashSet<>();
+        try (Stream<Item> items = minioService.recursiveListObjects(PathUtils.buildUserRootPath(userId))) {
+            items.filter(ChunkStore::isChunked).forEach(item -> {
+                try {
+                    chunkStore.readManifest(item.objectName()).chunks().forEach(chunk -> hashes.add(chunk.hash()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to read manifest: " + item.objectName(), e);
+                }
+            });
+        }
+        return hashes;
+    }
+}
@@ -0,0 +1,122 @@
+package com.qubb.cloud.service;
+
+import com.qubb.cloud.exception.IncorrectPathException;
+import com.qubb.cloud.exception.ResourceChangedException;
+import com.qubb.cloud.exception.ResourceOperationException;
+import com.qubb.cloud.exception.UserNotFoundException;
+import com.qubb.cloud.payload.ChunkHashes;
+import com.qubb.cloud.payload.ChunkedFileRequest;
+import com.qubb.cloud.payload.ChunkingParameters;
+import com.qubb.cloud.payload.ResourceInfoResponse;
+import com.qubb.cloud.security.UserDetailsImpl;
+import com.qubb.cloud.storage.ChunkStore;
+import com.qubb.cloud.storage.MinioService;
+import com.qubb.cloud.throttle.Direction;
+import com.qubb.cloud.throttle.UserThrottleService;
+import com.qubb.cloud.util.PathUtils;
+import com.qubb.cloud.util.ValidationFacade;
+import io.minio.StatObjectResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Delta uploads: the client cuts the file into chunks, asks which of them the server is missing,
+ * uploads only those and then writes the file from its list of chunks. A modified large file
+ * thereby costs the chunks around the edits rather than the whole file.
+ */
+@Service
+@RequiredArgsConstructor
+public class ChunkedUploadService {
+
+    private final ChunkStore chunkStore;
+    private final MinioService minioService;
+    private final ValidationFacade validationFacade;
+    private final TrashService trashService;
+    private final ChangeFeedService changeFeedService;
+    private final UserThrottleService userThrottleService;
+
+    public ChunkingParameters parameters() {
+        return chunkStore.parameters();
+    }
+
+    public ChunkHashes missing(ChunkHashes request, UserDetailsImpl userDetails) {
+        return ChunkHashes.builder()
+                .hashes(chunkStore.missing(getUserId(userDetails), request.hashes()))
+                .build();
+    }
+
+    public void uploadChunk(String hash, InputStream body, UserDetailsImpl userDetails) {
+        int userId = getUserId(userDetails);
+        try {
+            chunkStore.store(userId, hash, userThrottleService.limit(body, userId, Direction.UPLOAD));
+        } catch (IOException e) {
+            throw new ResourceOperationException("Failed to read chunk: " + hash, e);
+        }
+    }
+
+    /**
+     * A replacement must name the version it was made from, so that a change made elsewhere in the
+     * meantime is reported instead of lost.
+     */
+    public ResourceInfoResponse writeFile(ChunkedFileRequest request, UserDetailsImpl userDetails) {
+        validationFacade.validateRequest(userDetails, request.path());
+        int userId = getUserId(userDetails);
+        String objectName = PathUtils.buildFullUserPath(userId, request.path());
+        if (objectName.endsWith("/")) {
+            throw new IncorrectPathException("Path must point to a file: " + request.path());
+        }
+        StatObjectResponse replacing = null;
+        if (request.etag() != null) {
+            replacing = currentVersion(userId, objectName, request.etag());
+        } else {
+            trashService.release(userId, objectName);
+            createParentDirectories(objectName);
+        }
+        String contentType = MediaTypeFactory.getMediaType(objectName)
+                .map(MediaType::toString)
+                .orElse(null);
+        var response = chunkStore.writeFile(userId, objectName, request.chunks(), contentType, replacing);
+        if (replacing == null) {
+            changeFeedService.created(userId, objectName);
+        } else {
+            changeFeedService.changed(userId, objectName);
+        }
+        return response;
+    }
+
+    private StatObjectResponse currentVersion(int userId, String objectName, String etag) {
+        if (!validationFacade.isSourceResourceExists(objectName) || !trashService.isVisible(userId, objectName)) {
+            throw new ResourceChangedException("File no longer exists: " + objectName);
+        }
+        StatObjectResponse current = minioService.statObject(objectName);
+        if (!unquote(current.etag()).equals(unquote(etag))) {
+            throw new ResourceChangedException("File has changed: " + objectName);
+        }
+        return current;
+    }
+
+    private void createParentDirectories(String objectName) {
+        String parentDir = PathUtils.getParentPath(objectName);
+        if (!parentDir.isEmpty() && !minioService.isDirectoryExists(parentDir)) {
+            minioService.createDirectoryObject(parentDir);
+        }
+    }
+
+    private static String unquote(String etag) {
+        return etag.startsWith("\"") && etag.endsWith("\"") && etag.length() > 1
+                ? etag.substring(1, etag.length() - 1)
+                : etag;
+    }
+
+    private int getUserId(UserDetailsImpl user) {
+        if (user == null || user.user() == null) {
+            throw new UserNotFoundException("User not authenticated");
+        }
+        return user.user().getId();
+    }
+}
@@ -1,41 +1,76 @@
 package com.qubb.cloud.service;
 
+import com.qubb.cloud.entity.FolderSize;
 import com.qubb.cloud.exception.*;
 import com.qubb.cloud.storage.MinioService;
 import com.qubb.cloud.payload.ResourceInfoResponse;
+import com.qubb.cloud.payload.VersionedResponse;
 import com.qubb.cloud.security.UserDetailsImpl;
 import com.qubb.cloud.util.PathUtils;
 import com.qubb.cloud.util.RequestValidator;
 import com.qubb.cloud.util.ResourceResponseBuilder;
+import io.minio.messages.Item;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class DirectoryService {
 
+    private static final int MAX_LARGEST_FOLDERS = 100;
+
     private final MinioService minioService;
     private final RequestValidator requestValidator;
+    private final FolderSizeService folderSizeService;
+    private final ChangeFeedService changeFeedService;
+    private final TrashService trashService;
 
-    public List<ResourceInfoResponse> getDirectoryContentInfo(String path, UserDetailsImpl userDetails) {
+    public VersionedResponse<List<ResourceInfoResponse>> getDirectoryContentInfo(String path, UserDetailsImpl userDetails) {
         requestValidator.validateRequest(userDetails, path);
         minioService.createBucketIfNotExists();
 
         ensureUserRootDirectoryExists(userDetails);
 
         String fullPath = PathUtils.buildFullUserPath(getUserId(userDetails), path);
-        if (!minioService.isDirectoryExists(fullPath)) {
+        if (!minioService.isDirectoryExists(fullPath) || !trashService.isVisible(getUserId(userDetails), fullPath)) {
             throw new ResourceNotFoundException("Directory not found: " + fullPath);
         }
-        return minioService.listObjects(fullPath)
+        var visible = trashService.visibleItems(getUserId(userDetails), fullPath);
+        List<Item> items = minioService.listObjects(fullPath)
                 .filter(item -> !item.objectName().equals(fullPath))
+                .filter(visible)
+                .toList();
+        List<ResourceInfoResponse> listed = items.stream()
                 .map(ResourceResponseBuilder::buildFromItem)
                 .distinct()
                 .toList();
+        Map<String, FolderSize> sizes = folderSizeService.sizes(getUserId(userDetails), listed.stream()
+                .filter(ResourceResponseBuilder::isDirectory)
+                .map(ResourceResponseBuilder::folderPath)
+                .toList());
+        List<ResourceInfoResponse> entries = listed.stream()
+                .map(entry -> ResourceResponseBuilder.withFolderSize(entry, sizes))
+                .toList();
+        List<ResourceInfoResponse> directories = entries.stream()
+                .filter(ResourceResponseBuilder::isDirectory)
+                .toList();
+        return new VersionedResponse<>(entries, ResourceResponseBuilder.buildListingEtag(items, directories), null);
+    }
+
+    /**
+     * The user's largest folders with their rolled-up sizes, read from the maintained totals.
+     * Deleted folders are left out before the limit applies; deleted content inside a folder still
+     * counts until it is purged or moved out of the way of a new write, as it still takes up storage.
+     */
+    public List<ResourceInfoResponse> getLargestFolders(int limit, UserDetailsImpl userDetails) {
+        return folderSizeService.largest(getUserId(userDetails), Math.clamp(limit, 1, MAX_LARGEST_FOLDERS)).stream()
+                .map(ResourceResponseBuilder::buildFromFolderSize)
+                .toList();
     }
 
     public ResourceInfoResponse createEmptyFolder(String path, UserDetailsImpl userDetails) {
@@ -44,13 +79,16 @@ public class DirectoryService {
         String fullPath = PathUtils.normalize(PathUtils.buildFullUserPath(getUserId(userDetails), path));
         String parentPath = PathUtils.getParentPath(fullPath);
 
-        if (!parentPath.isEmpty() && !minioService.isDirectoryExists(parentPath)) {
+        if (!parentPath.isEmpty() && (!minioService.isDirectoryExists(parentPath)
+                || !trashService.isVisible(getUserId(userDetails), parentPath))) {
             throw new ResourceNotFoundException("Parent directory does not exist");
-        } else if (minioService.isDirectoryExists(fullPath)) {
+        } else if (minioService.isDirectoryExists(fullPath) && trashService.isVisible(getUserId(userDetails), fullPath)) {
             throw new DirectoryAlreadyExistsException("Directory already exists");
         }
 
+        trashService.release(getUserId(userDetails), fullPath);
         minioService.createDirectoryObject(fullPath);
+        changeFeedService.created(getUserId(userDetails), PathUtils.normalizeDirectoryPath(fullPath));
         return ResourceResponseBuilder.buildFromObjectName(fullPath, minioService.statObject(fullPath));
     }
 
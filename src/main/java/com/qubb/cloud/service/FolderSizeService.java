@@ -0,0 +1,194 @@
+package com.qubb.cloud.service;
+
+import com.qubb.cloud.entity.FolderSize;
+import com.qubb.cloud.repository.FolderSizeRepository;
+import com.qubb.cloud.storage.MinioService;
+import com.qubb.cloud.storage.ObjectMetadata;
+import com.qubb.cloud.storage.ObjectSizeChangedEvent;
+import com.qubb.cloud.util.PathUtils;
+import io.minio.messages.Item;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the rolled-up size and file count of every folder in Postgres. Each stored or removed file
+ * adds its delta to all folders above it, so reading a folder's size is a lookup instead of a
+ * recursive listing.
+ * <p>
+ * A user's sizes are built from a recursive listing the first time they are read. The build runs
+ * in the background, and reads return what is stored until it is done. The listing runs outside
+ * any transaction: the build is claimed first and its result saved in a short transaction of its
+ * own. Deltas for a user whose sizes are not built yet are not applied, since the listing counts
+ * the file, but one that lands while the build is claimed marks it dirty: the listing may have
+ * passed the file already, so the build lists again instead of saving, up to
+ * {@code max-build-attempts} times before leaving it to the next read. A claim whose node died is
+ * taken over once it is older than {@code build-timeout}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FolderSizeService {
+
+    private final FolderSizeRepository folderSizeRepository;
+    private final MinioService minioService;
+    private final TransactionTemplate transactionTemplate;
+    private final Set<Integer> building = ConcurrentHashMap.newKeySet();
+    private final ExecutorService builders = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("folder-size-builder-", 0).factory());
+
+    @Value("${folder-sizes.build-timeout:30m}")
+    private Duration buildTimeout;
+
+    @Value("${folder-sizes.max-build-attempts:3}")
+    private int maxBuildAttempts;
+
+    @PreDestroy
+    public void shutdown() {
+        builders.shutdownNow();
+    }
+
+    /**
+     * Applied after the write has succeeded, so a failure here is logged rather than failing the write.
+     */
+    @EventListener
+    public void onObjectSizeChanged(ObjectSizeChangedEvent event) {
+        String objectName = event.objectName();
+        if (!PathUtils.isUserObject(objectName)) {
+            return;
+        }
+        int userId = PathUtils.extractUserId(objectName);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Optional<Boolean> built = folderSizeRepository.lockTrackedUser(userId);
+                if (built.isEmpty()) {
+                    return;
+                }
+                if (!built.get()) {
+                    folderSizeRepository.markDirty(userId);
+                    return;
+                }
+                List<String> folders = ancestors(objectName);
+                folders.forEach(folder -> folderSizeRepository.addDelta(folder, userId, event.bytes(), event.files()));
+                if (event.files() < 0) {
+                    folderSizeRepository.deleteEmpty(folders);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("Failed to apply size change of {} to its folders", objectName, e);
+        }
+    }
+
+    /**
+     * Sizes of the given folders of the user; folders without files are absent.
+     */
+    public Map<String, FolderSize> sizes(int userId, Collection<String> folders) {
+        if (folders.isEmpty()) {
+            return Map.of();
+        }
+        ensureBuilt(userId);
+        return folderSizeRepository.findByPathIn(folders).stream()
+                .collect(Collectors.toMap(FolderSize::getPath, Function.identity()));
+    }
+
+    /**
+     * The user's largest folders below their root that are not deleted, biggest first.
+     */
+    public List<FolderSize> largest(int userId, int limit) {
+        ensureBuilt(userId);
+        return folderSizeRepository.findLargestVisible(userId, PathUtils.buildUserRootPath(userId), limit);
+    }
+
+    /**
+     * Starts the build in the background; readers get what is stored so far, without waiting.
+     */
+    private void ensureBuilt(int userId) {
+        if (folderSizeRepository.isBuilt(userId) || !building.add(userId)) {
+            return;
+        }
+        try {
+            builders.execute(() -> {
+                try {
+                    build(userId);
+                } catch (RuntimeException e) {
+                    log.error("Failed to build folder sizes for user {}", userId, e);
+                } finally {
+                    building.remove(userId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            building.remove(userId);
+        }
+    }
+
+    void build(int userId) {
+        Integer claimed = transactionTemplate.execute(status ->
+                folderSizeRepository.claimBuild(userId, Instant.now().minus(buildTimeout)));
+        if (claimed == null || claimed == 0) {
+            return;
+        }
+        for (int attempt = 1; attempt <= maxBuildAttempts; attempt++) {
+            Map<String, FolderSize> totals = new HashMap<>();
+            try (Stream<Item> items = minioService.recursiveListObjects(PathUtils.buildUserRootPath(userId))) {
+                items.filter(item -> !item.objectName().endsWith("/"))
+                        .forEach(item -> count(totals, userId, item));
+            } catch (RuntimeException e) {
+                transactionTemplate.executeWithoutResult(status -> folderSizeRepository.releaseBuild(userId));
+                throw e;
+            }
+            Boolean saved = transactionTemplate.execute(status -> {
+                folderSizeRepository.lockTrackedUser(userId);
+                if (folderSizeRepository.markBuilt(userId) == 0) {
+                    folderSizeRepository.restartBuild(userId);
+                    return false;
+                }
+                folderSizeRepository.deleteByUser(userId);
+                folderSizeRepository.saveAll(totals.values());
+                return true;
+            });
+            if (Boolean.TRUE.equals(saved)) {
+                log.info("Built folder sizes for user {}: {} folders", userId, totals.size());
+                return;
+            }
+            log.debug("Folder sizes of user {} changed while listing, listing again", userId);
+        }
+        transactionTemplate.executeWithoutResult(status -> folderSizeRepository.releaseBuild(userId));
+        log.info("Folder sizes of user {} kept changing while listing, left for the next read", userId);
+    }
+
+    private static void count(Map<String, FolderSize> totals, int userId, Item item) {
+        long bytes = ObjectMetadata.logicalSize(item.userMetadata(), item.size());
+        for (String folder : ancestors(item.objectName())) {
+            FolderSize size = totals.computeIfAbsent(folder, path -> new FolderSize(path, userId, 0, 0));
+            size.setBytes(size.getBytes() + bytes);
+            size.setFiles(size.getFiles() + 1);
+        }
+    }
+
+    /**
+     * Folders from the user root down to the file's parent: "user-1-files/a/b.txt" ->
+     * ["user-1-files/", "user-1-files/a/"]. Always in this order, so concurrent deltas lock rows alike.
+     */
+    static List<String> ancestors(String objectName) {
+        List<String> folders = new ArrayList<>();
+        for (int slash = objectName.indexOf('/'); slash != -1; slash = objectName.indexOf('/', slash + 1)) {
+            folders.add(objectName.substring(0, slash + 1));
+        }
+        return folders;
+    }
+}
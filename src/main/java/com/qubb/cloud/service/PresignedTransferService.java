@@ -0,0 +1,152 @@
+package com.qubb.cloud.service;
+
+import com.qubb.cloud.exception.IncorrectPathException;
+import com.qubb.cloud.exception.PayloadTooLargeException;
+import com.qubb.cloud.exception.ResourceNotFoundException;
+import com.qubb.cloud.exception.ResourceOperationException;
+import com.qubb.cloud.exception.UserNotFoundException;
+import com.qubb.cloud.payload.PresignedUrlResponse;
+import com.qubb.cloud.payload.ResourceInfoResponse;
+import com.qubb.cloud.security.UserDetailsImpl;
+import com.qubb.cloud.storage.StorageOperations;
+import com.qubb.cloud.throttle.Direction;
+import com.qubb.cloud.throttle.UserThrottleService;
+import com.qubb.cloud.util.PathUtils;
+import com.qubb.cloud.util.ResourceResponseBuilder;
+import com.qubb.cloud.util.ValidationFacade;
+import io.minio.StatObjectResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Hands out presigned URLs once the caller is authorized for the path, so file bytes flow between
+ * the client and storage directly. Direct transfers are charged to the user's bandwidth bucket.
+ * Completing an upload is idempotent: each stored version, known by its etag, is registered and
+ * charged once however often the client reports it.
+ */
+@Service
+@RequiredArgsConstructor
+public class PresignedTransferService {
+
+    private static final String DOWNLOAD_ENDPOINT = "/api/resource/download";
+    private static final String COMPLETED_PREFIX = "presigned:completed:";
+
+    private final StorageOperations storageOperations;
+    private final ValidationFacade validationFacade;
+    private final UserThrottleService userThrottleService;
+    private final ChangeFeedService changeFeedService;
+    private final TrashService trashService;
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${presigned.expiry:15m}")
+    private Duration expiry;
+
+    @Value("${presigned.max-upload-size:5GB}")
+    private DataSize maxUploadSize;
+
+    @Value("${presigned.completion-ttl:7d}")
+    private Duration completionTtl;
+
+    /**
+     * Folders and files compressed at rest are served by the application, so for them the regular
+     * download endpoint is returned instead.
+     */
+    public PresignedUrlResponse prepareDownload(String path, UserDetailsImpl userDetails) {
+        validationFacade.validateRequest(userDetails, path);
+        String objectName = PathUtils.buildFullUserPath(getUserId(userDetails), path);
+        if (!validationFacade.isSourceResourceExists(objectName)) {
+            throw new ResourceNotFoundException(objectName);
+        }
+        trashService.checkVisible(getUserId(userDetails), objectName);
+        if (objectName.endsWith("/")) {
+            return viaApplication(objectName);
+        }
+        StatObjectResponse stat = storageOperations.statObject(objectName);
+        return storageOperations.presignDownload(stat)
+                .map(url -> {
+                    userThrottleService.charge(getUserId(userDetails), Direction.DOWNLOAD, stat.size());
+                    return direct(url, "GET", null);
+                })
+                .orElseGet(() -> viaApplication(objectName));
+    }
+
+    /**
+     * The URL is signed for a body of exactly {@code size} bytes and for creating the file only, so
+     * it can neither exceed the upload limit nor replace a file stored after it was issued.
+     */
+    public PresignedUrlResponse prepareUpload(String path, long size, UserDetailsImpl userDetails) {
+        validationFacade.validateRequest(userDetails, path);
+        String objectName = PathUtils.buildFullUserPath(getUserId(userDetails), path);
+        if (objectName.endsWith("/")) {
+            throw new IncorrectPathException("Upload path must point to a file: " + path);
+        }
+        if (size > maxUploadSize.toBytes()) {
+            throw new PayloadTooLargeException("File exceeds the upload limit: " + objectName);
+        }
+        trashService.release(getUserId(userDetails), objectName);
+        if (validationFacade.isSourceResourceExists(objectName)) {
+            throw new ResourceOperationException("File already exists: " + objectName);
+        }
+        return direct(storageOperations.presignUpload(objectName, size), "PUT",
+                storageOperations.presignedUploadHeaders(size));
+    }
+
+    public ResourceInfoResponse completeUpload(String path, UserDetailsImpl userDetails) {
+        validationFacade.validateRequest(userDetails, path);
+        String objectName = PathUtils.buildFullUserPath(getUserId(userDetails), path);
+        if (objectName.endsWith("/") || !validationFacade.isSourceResourceExists(objectName)) {
+            throw new ResourceNotFoundException(objectName);
+        }
+        StatObjectResponse stat = storageOperations.statObject(objectName);
+        String completed = COMPLETED_PREFIX + objectName + ":" + stat.etag();
+        if (!Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(completed, "1", completionTtl))) {
+            return ResourceResponseBuilder.buildFromObjectName(objectName, stat);
+        }
+        ResourceInfoResponse response;
+        try {
+            response = storageOperations.completeDirectUpload(stat, maxUploadSize.toBytes());
+        } catch (RuntimeException e) {
+            redisTemplate.delete(completed);
+            throw e;
+        }
+        userThrottleService.charge(getUserId(userDetails), Direction.UPLOAD, response.size());
+        changeFeedService.created(getUserId(userDetails), objectName);
+        return response;
+    }
+
+    private PresignedUrlResponse direct(String url, String method, Map<String, String> headers) {
+        return PresignedUrlResponse.builder()
+                .url(url)
+                .method(method)
+                .headers(headers)
+                .expiresAt(Instant.now().plus(expiry))
+                .direct(true)
+                .build();
+    }
+
+    private PresignedUrlResponse viaApplication(String objectName) {
+        return PresignedUrlResponse.builder()
+                .url(UriComponentsBuilder.fromPath(DOWNLOAD_ENDPOINT)
+                        .queryParam("path", objectName)
+                        .encode()
+                        .toUriString())
+                .method("GET")
+                .direct(false)
+                .build();
+    }
+
+    private int getUserId(UserDetailsImpl user) {
+        if (user == null || user.user() == null) {
+            throw new UserNotFoundException("User not authenticated");
+        }
+        return user.user().getId();
+    }
+}
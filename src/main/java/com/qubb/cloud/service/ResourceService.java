@@ -1,18 +1,29 @@
 package com.qubb.cloud.service;
 
+import com.qubb.cloud.exception.IncorrectPathException;
 import com.qubb.cloud.exception.ResourceNotFoundException;
+import com.qubb.cloud.exception.ResourceOperationException;
 import com.qubb.cloud.exception.UserNotFoundException;
 import com.qubb.cloud.payload.DownloadResponse;
+import com.qubb.cloud.payload.ReadConditions;
 import com.qubb.cloud.payload.ResourceInfoResponse;
+import com.qubb.cloud.payload.VersionedResponse;
 import com.qubb.cloud.storage.StorageOperations;
 import com.qubb.cloud.security.UserDetailsImpl;
+import com.qubb.cloud.throttle.Direction;
+import com.qubb.cloud.throttle.UserThrottleService;
 import com.qubb.cloud.util.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -22,19 +33,60 @@ public class ResourceService {
 
     private final StorageOperations storageOperations;
     private final ValidationFacade validationFacade;
+    private final UserThrottleService userThrottleService;
+    private final FolderSizeService folderSizeService;
+    private final ChangeFeedService changeFeedService;
+    private final TrashService trashService;
 
-    public ResourceInfoResponse getResourceInfo(String path, UserDetailsImpl userDetails) {
+    public VersionedResponse<ResourceInfoResponse> getResourceInfo(String path, UserDetailsImpl userDetails) {
         validationFacade.validateRequest(userDetails, path);
         String objectName = PathUtils.buildFullUserPath(getUserId(userDetails), path);
         if (!validationFacade.isSourceResourceExists(objectName)) {
             throw new ResourceNotFoundException(objectName);
         }
-        return ResourceResponseBuilder.buildFromObjectName(objectName, storageOperations.statObject(objectName));
+        trashService.checkVisible(getUserId(userDetails), objectName);
+        if (objectName.endsWith("/")) {
+            return getDirectoryInfo(objectName, getUserId(userDetails));
+        }
+        return ResourceResponseBuilder.buildVersioned(objectName, storageOperations.statObject(objectName));
+    }
+
+    /**
+     * A folder's size changes with its contents while its marker stays the same, so no validators are sent.
+     */
+    private VersionedResponse<ResourceInfoResponse> getDirectoryInfo(String objectName, int userId) {
+        var sizes = folderSizeService.sizes(userId, List.of(objectName));
+        return new VersionedResponse<>(ResourceResponseBuilder.buildFromDirectory(objectName, sizes), null, null);
+    }
+
+    public DownloadResponse downloadResource(String path, ReadConditions conditions, UserDetailsImpl userDetails) {
+        validationFacade.validateRequest(userDetails, path);
+        int userId = getUserId(userDetails);
+        trashService.checkVisible(userId, PathUtils.buildFullUserPath(userId, path));
+        var response = storageOperations.download(path, conditions,
+                trashService.visibleItems(userId, PathUtils.buildFullUserPath(userId, path)));
+        if (response.isNotModified()) {
+            return response;
+        }
+        try {
+            InputStream body = userThrottleService.limit(
+                    response.resource().getInputStream(), getUserId(userDetails), Direction.DOWNLOAD);
+            return response.toBuilder()
+                    .resource(new InputStreamResource(body))
+                    .build();
+        } catch (IOException e) {
+            throw new ResourceOperationException("Failed to open download: " + path, e);
+        }
     }
 
-    public DownloadResponse downloadResource(String path, UserDetailsImpl userDetails) {
+    public CompletableFuture<DownloadResponse> previewResource(String path, UserDetailsImpl userDetails) {
         validationFacade.validateRequest(userDetails, path);
-        return storageOperations.download(path);
+        String objectName = PathUtils.buildFullUserPath(getUserId(userDetails), path);
+        if (!validationFacade.isSourceResourceExists(objectName)) {
+            throw new ResourceNotFoundException(objectName);
+        }
+        trashService.checkVisible(getUserId(userDetails), objectName);
+        return storageOperations.preview(objectName);
     }
 
     public List<ResourceInfoResponse> uploadResources(String targetPath,
@@ -42,31 +94,75 @@ public class ResourceService {
                                                       UserDetailsImpl userDetails) {
         validationFacade.validateRequest(userDetails, targetPath);
         String fullPath = PathUtils.buildFullUserPath(getUserId(userDetails), targetPath);
-        return storageOperations.upload(files, fullPath);
+        Arrays.stream(files).forEach(file -> trashService.release(getUserId(userDetails),
+                PathUtils.normalize(fullPath) + file.getOriginalFilename()));
+        MultipartFile[] limited = Arrays.stream(files)
+                .map(file -> userThrottleService.limit(file, getUserId(userDetails)))
+                .toArray(MultipartFile[]::new);
+        List<ResourceInfoResponse> uploaded = storageOperations.upload(limited, fullPath);
+        uploaded.forEach(resource -> changeFeedService.created(getUserId(userDetails), resource.path() + resource.name()));
+        return uploaded;
+    }
+
+    public List<ResourceInfoResponse> uploadArchive(String targetPath,
+                                                    InputStream archive,
+                                                    UserDetailsImpl userDetails) {
+        validationFacade.validateRequest(userDetails, targetPath);
+        String fullPath = PathUtils.buildFullUserPath(getUserId(userDetails), targetPath);
+        trashService.release(getUserId(userDetails), PathUtils.normalize(fullPath));
+        List<ResourceInfoResponse> uploaded = storageOperations.uploadArchive(
+                userThrottleService.limit(archive, getUserId(userDetails), Direction.UPLOAD), fullPath);
+        changeFeedService.changed(getUserId(userDetails), PathUtils.normalize(fullPath));
+        return uploaded;
     }
 
+    /**
+     * Moves the resource to the trash, which hides it at once however large it is; its objects are
+     * removed in the background once the retention period has passed.
+     */
     public void deleteResource(String path, UserDetailsImpl userDetails) {
         validationFacade.validateRequest(userDetails, path);
-        storageOperations.delete(path);
+        int userId = getUserId(userDetails);
+        String objectName = PathUtils.buildFullUserPath(userId, path);
+        if (objectName.equals(PathUtils.buildUserRootPath(userId))) {
+            throw new IncorrectPathException("The root folder cannot be deleted");
+        }
+        if (!validationFacade.isSourceResourceExists(objectName)) {
+            throw new ResourceNotFoundException(objectName);
+        }
+        trashService.checkVisible(userId, objectName);
+        trashService.trash(userId, objectName);
+        changeFeedService.deleted(userId, objectName);
     }
 
+    /**
+     * Deleted content inside a moved folder is not carried over; it is removed along with the source.
+     */
     public ResourceInfoResponse moveResource(String from, String to, UserDetailsImpl userDetails) {
         validationFacade.validateRequest(userDetails, from, to);
         from = PathUtils.buildFullUserPath(getUserId(userDetails), from);
         to = PathUtils.buildFullUserPath(getUserId(userDetails), to);
         validationFacade.isSourceResourceExists(from);
+        int userId = getUserId(userDetails);
+        trashService.checkVisible(userId, from);
+        trashService.checkVisible(userId, PathUtils.getParentPath(to));
+        trashService.release(userId, to);
         validationFacade.checkTargetParentExists(to);
-        storageOperations.copyResource(from, to);
-        deleteResource(from, userDetails);
+        storageOperations.copyResource(from, to, trashService.visibleItems(userId, from));
+        storageOperations.delete(from);
+        trashService.forget(userId, from);
+        changeFeedService.moved(userId, from, to);
         return ResourceResponseBuilder.buildFromObjectName(to, storageOperations.statObject(to));
     }
 
     public List<ResourceInfoResponse> search(String query, UserDetailsImpl userDetails) {
         validationFacade.validateRequest(userDetails, query);
         String rootPath = PathUtils.buildUserRootPath(getUserId(userDetails));
+        var visible = trashService.visibleItems(getUserId(userDetails), rootPath);
         return storageOperations.recursiveListObjects(rootPath)
                 .filter(item -> matchesSearch(item.objectName(), rootPath, query))
-                .map(item -> ResourceResponseBuilder.buildFromObjectName(item.objectName(), storageOperations.statObject(item.objectName())))
+                .filter(visible)
+                .map(ResourceResponseBuilder::buildFromItem)
                 .collect(Collectors.toList());
     }
 
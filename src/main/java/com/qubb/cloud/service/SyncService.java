@@ -0,0 +1,253 @@
+package com.qubb.cloud.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.qubb.cloud.exception.IncorrectPathException;
+import com.qubb.cloud.exception.PayloadTooLargeException;
+import com.qubb.cloud.exception.SyncTokenExpiredException;
+import com.qubb.cloud.exception.UserNotFoundException;
+import com.qubb.cloud.payload.SyncAction;
+import com.qubb.cloud.payload.SyncAction.Type;
+import com.qubb.cloud.payload.SyncEntry;
+import com.qubb.cloud.payload.SyncRequest;
+import com.qubb.cloud.security.UserDetailsImpl;
+import com.qubb.cloud.storage.MinioService;
+import com.qubb.cloud.storage.ObjectMetadata;
+import com.qubb.cloud.util.PathUtils;
+import com.qubb.cloud.util.ValidationFacade;
+import io.minio.messages.Item;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Tells a sync client what to transfer instead of letting it walk the tree listing by listing.
+ * The folder is listed once, recursively, and compared with what the client sent and, given a
+ * token, with what the folder held at the client's last sync:
+ * <ul>
+ *     <li>changed on the server only: download, or delete locally;</li>
+ *     <li>changed on the client only: upload, or delete on the server;</li>
+ *     <li>changed on both sides to different content: conflict.</li>
+ * </ul>
+ * Without a token every file on either side counts as changed. Files are compared by MD5 where
+ * both sides know it, otherwise by size; folders are not synced, only the files in them.
+ * <p>
+ * Actions are written while the listing is read, followed by the token for the next sync.
+ */
+@Slf4j
+@Service
+public class SyncService {
+
+    private final MinioService minioService;
+    private final ValidationFacade validationFacade;
+    private final TrashService trashService;
+    private final SyncSnapshotStore snapshotStore;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter actionWriter;
+    private final int maxEntries;
+
+    public SyncService(MinioService minioService,
+                       ValidationFacade validationFacade,
+                       TrashService trashService,
+                       SyncSnapshotStore snapshotStore,
+                       ObjectMapper objectMapper,
+                       @Value("${sync.max-entries:200000}") int maxEntries) {
+        this.minioService = minioService;
+        this.validationFacade = validationFacade;
+        this.trashService = trashService;
+        this.snapshotStore = snapshotStore;
+        this.objectMapper = objectMapper;
+        this.actionWriter = objectMapper.writerFor(SyncAction.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Checks the request and the token up front, so that errors still get a status code; the
+     * listing and comparison run while the response is written.
+     */
+    public StreamingResponseBody sync(SyncRequest request, UserDetailsImpl userDetails) {
+        String path = request.path() == null ? "" : request.path();
+        validationFacade.validateRequest(userDetails, path);
+        int userId = getUserId(userDetails);
+        List<SyncEntry> entries = request.entriesOrEmpty();
+        if (entries.size() > maxEntries) {
+            throw new PayloadTooLargeException("At most " + maxEntries + " entries per sync");
+        }
+        boolean incremental = request.token() != null && !request.token().isBlank();
+        entries.forEach(entry -> {
+            validationFacade.validateRequest(userDetails, entry.path());
+            if (entry.deleted() && !incremental) {
+                throw new IncorrectPathException("Deletions can only be sent with a sync token: " + entry.path());
+            }
+        });
+        String root = PathUtils.normalize(PathUtils.buildFullUserPath(userId, path));
+        Map<String, SyncEntry> local = entries.stream()
+                .collect(Collectors.toMap(SyncEntry::path, Function.identity(), (first, second) -> second));
+        Map<String, String> base = incremental
+                ? snapshotStore.load(userId, root, request.token())
+                        .orElseThrow(() -> new SyncTokenExpiredException(
+                                "Sync token expired, send the full manifest without a token"))
+                : Map.of();
+        return out -> write(out, userId, root, local, base);
+    }
+
+    private void write(OutputStream out,
+                       int userId,
+                       String root,
+                       Map<String, SyncEntry> local,
+                       Map<String, String> base) throws IOException {
+        Map<String, String> current = new LinkedHashMap<>();
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.writeStartObject();
+            json.writeArrayFieldStart("actions");
+            try (Stream<Item> items = minioService.recursiveListObjects(root)) {
+                Iterator<Item> iterator = items
+                        .filter(item -> !item.isDir() && !item.objectName().endsWith("/"))
+                        .filter(trashService.visibleItems(userId, root))
+                        .iterator();
+                while (iterator.hasNext()) {
+                    Item item = iterator.next();
+                    String path = item.objectName().substring(root.length());
+                    String etag = etag(item);
+                    current.put(path, etag);
+                    writeAction(json, compare(path, local.get(path), base.get(path), item, etag));
+                }
+            }
+            for (String path : union(local.keySet(), base.keySet())) {
+                if (!current.containsKey(path)) {
+                    writeAction(json, compareDeleted(path, local.get(path), base.containsKey(path)));
+                }
+            }
+            json.writeEndArray();
+            if (current.size() <= maxEntries) {
+                json.writeStringField("token", snapshotStore.save(userId, root, current));
+            } else {
+                log.info("Not issuing a sync token for {}: {} files is over the limit", root, current.size());
+            }
+            json.writeEndObject();
+        }
+    }
+
+    private void writeAction(JsonGenerator json, SyncAction action) throws IOException {
+        if (action != null) {
+            actionWriter.writeValue(json, action);
+        }
+    }
+
+    /**
+     * A file the server has.
+     */
+    private SyncAction compare(String path, SyncEntry local, String baseEtag, Item item, String etag) {
+        boolean remoteChanged = !etag.equals(baseEtag);
+        boolean localChanged = local != null;
+        if (!remoteChanged && !localChanged) {
+            return null;
+        }
+        if (!localChanged) {
+            return remote(Type.DOWNLOAD, path, item, etag);
+        }
+        if (!remoteChanged) {
+            return local.deleted()
+                    ? SyncAction.builder().action(Type.DELETE_REMOTE).path(path).build()
+                    : SyncAction.builder().action(Type.UPLOAD).path(path).build();
+        }
+        if (!local.deleted() && sameContent(local, item, etag)) {
+            return null;
+        }
+        return remote(Type.CONFLICT, path, item, etag);
+    }
+
+    /**
+     * A file the server does not have, but the client or the last sync did.
+     */
+    private SyncAction compareDeleted(String path, SyncEntry local, boolean remoteChanged) {
+        boolean localChanged = local != null;
+        if (localChanged && local.deleted()) {
+            return null;
+        }
+        if (!remoteChanged) {
+            return SyncAction.builder().action(Type.UPLOAD).path(path).build();
+        }
+        return SyncAction.builder().action(localChanged ? Type.CONFLICT : Type.DELETE_LOCAL).path(path).build();
+    }
+
+    /**
+     * Only a matching hash proves both sides hold the same content. Equal sizes do not, so a file
+     * changed on both sides without a hash on one of them is a conflict, left to the user.
+     */
+    private boolean sameContent(SyncEntry local, Item item, String etag) {
+        if (local.hash() == null) {
+            return false;
+        }
+        String remoteHash = contentHash(item, etag);
+        return local.hash().equalsIgnoreCase(etag) || (remoteHash != null && local.hash().equalsIgnoreCase(remoteHash));
+    }
+
+    /**
+     * The MD5 of what the user uploaded: recorded at upload for compressed objects, and equal to
+     * the etag for objects stored as uploaded in a single part.
+     */
+    private static String contentHash(Item item, String etag) {
+        String recorded = ObjectMetadata.get(item.userMetadata(), ObjectMetadata.CONTENT_MD5);
+        if (recorded != null) {
+            return recorded;
+        }
+        boolean plain = ObjectMetadata.get(item.userMetadata(), ObjectMetadata.CODEC) == null;
+        if (plain && etag.length() == 32 && etag.chars().allMatch(HexFormat::isHexDigit)) {
+            return etag;
+        }
+        return null;
+    }
+
+    private SyncAction remote(Type type, String path, Item item, String etag) {
+        return SyncAction.builder()
+                .action(type)
+                .path(path)
+                .size(ObjectMetadata.logicalSize(item.userMetadata(), item.size()))
+                .hash(contentHash(item, etag))
+                .etag(etag)
+                .lastModified(item.lastModified() == null ? null : item.lastModified().toInstant())
+                .build();
+    }
+
+    private static Set<String> union(Set<String> first, Set<String> second) {
+        Set<String> union = new TreeSet<>(first);
+        union.addAll(second);
+        return union;
+    }
+
+    /**
+     * Files moved between storage tiers are rewritten, but keep the etag they had before.
+     */
+    private static String etag(Item item) {
+        String tiered = ObjectMetadata.get(item.userMetadata(), ObjectMetadata.TIERED_ETAG);
+        return tiered != null ? tiered : unquote(item.etag());
+    }
+
+    private static String unquote(String etag) {
+        if (etag == null) {
+            return "";
+        }
+        return etag.startsWith("\"") && etag.endsWith("\"") && etag.length() > 1
+                ? etag.substring(1, etag.length() - 1)
+                : etag;
+    }
+
+    private int getUserId(UserDetailsImpl user) {
+        if (user == null || user.user() == null) {
+            throw new UserNotFoundException("User not authenticated");
+        }
+        return user.user().getId();
+    }
+}
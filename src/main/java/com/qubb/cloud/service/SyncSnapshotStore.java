@@ -0,0 +1,96 @@
+package com.qubb.cloud.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The server side of sync tokens: what the synced folder held when the token was handed out, as a
+ * Redis hash of relative path to etag that expires after the configured time. The token is a digest
+ * of that content, so syncs that find nothing changed share one snapshot and only renew it.
+ */
+@Slf4j
+@Component
+public class SyncSnapshotStore {
+
+    private static final String KEY_PREFIX = "cloud:sync:snapshot:";
+    /** Field holding the synced folder; file paths are never empty. */
+    private static final String ROOT_FIELD = "";
+    private static final int WRITE_CHUNK = 1000;
+
+    private final StringRedisTemplate redisTemplate;
+    private final Duration ttl;
+
+    public SyncSnapshotStore(StringRedisTemplate redisTemplate,
+                             @Value("${sync.token-ttl:7d}") Duration ttl) {
+        this.redisTemplate = redisTemplate;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Empty when the token has expired, is unknown or belongs to another folder.
+     */
+    public Optional<Map<String, String>> load(int userId, String root, String token) {
+        Map<Object, Object> stored = redisTemplate.opsForHash().entries(key(userId, token));
+        if (!root.equals(stored.get(ROOT_FIELD))) {
+            return Optional.empty();
+        }
+        Map<String, String> etags = new HashMap<>(stored.size());
+        stored.forEach((path, etag) -> etags.put((String) path, (String) etag));
+        etags.remove(ROOT_FIELD);
+        return Optional.of(etags);
+    }
+
+    /**
+     * Stores the folder's content, given in listing order, and returns its token.
+     */
+    public String save(int userId, String root, Map<String, String> etags) {
+        String token = digest(root, etags);
+        String key = key(userId, token);
+        if (Boolean.TRUE.equals(redisTemplate.expire(key, ttl))) {
+            return token;
+        }
+        Map<String, String> chunk = new LinkedHashMap<>();
+        chunk.put(ROOT_FIELD, root);
+        for (Map.Entry<String, String> entry : etags.entrySet()) {
+            chunk.put(entry.getKey(), entry.getValue());
+            if (chunk.size() == WRITE_CHUNK) {
+                redisTemplate.opsForHash().putAll(key, chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            redisTemplate.opsForHash().putAll(key, chunk);
+        }
+        redisTemplate.expire(key, ttl);
+        log.debug("Stored sync snapshot of {} with {} files", root, etags.size());
+        return token;
+    }
+
+    private static String key(int userId, String token) {
+        return KEY_PREFIX + userId + ":" + token;
+    }
+
+    private static String digest(String root, Map<String, String> etags) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        digest.update(root.getBytes(StandardCharsets.UTF_8));
+        etags.forEach((path, etag) -> digest.update(("\n" + path + "\0" + etag).getBytes(StandardCharsets.UTF_8)));
+        return HexFormat.of().formatHex(digest.digest(), 0, 16);
+    }
+}
@@ -0,0 +1,190 @@
+package com.qubb.cloud.service;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.RateLimiter;
+import com.qubb.cloud.entity.ObjectAccess;
+import com.qubb.cloud.repository.ObjectAccessRepository;
+import com.qubb.cloud.repository.UserRepository;
+import com.qubb.cloud.storage.ChunkStore;
+import com.qubb.cloud.storage.MinioService;
+import com.qubb.cloud.storage.ObjectMetadata;
+import com.qubb.cloud.storage.StoragePriority;
+import com.qubb.cloud.storage.TieringService;
+import com.qubb.cloud.util.PathUtils;
+import io.minio.messages.Item;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Moves files to the cold tier once they have been neither written nor read for the configured
+ * time, one user at a time. Reads come from the statistics kept by {@code AccessStats}; a file
+ * never read counts from its last write. Each pass over a user also drops the statistics of files
+ * that are gone and removes cold copies no stub refers to any more.
+ */
+@Slf4j
+@Component
+public class TieringPolicy {
+
+    private static final String LOCK = "cloud:tiering:running";
+    private static final RedisScript<Long> RELEASE_LOCK =
+            RedisScript.of(new ClassPathResource("scripts/release-lock.lua"), Long.class);
+    private static final RedisScript<Long> EXTEND_LOCK =
+            RedisScript.of(new ClassPathResource("scripts/extend-lock.lua"), Long.class);
+    private static final int DELETE_BATCH = 1000;
+
+    private final TieringService tieringService;
+    private final MinioService minioService;
+    private final ObjectAccessRepository objectAccessRepository;
+    private final UserRepository userRepository;
+    private final TrashService trashService;
+    private final StringRedisTemplate redisTemplate;
+    private final boolean enabled;
+    private final Duration coldAfter;
+    private final long minSize;
+    private final int maxPerUser;
+    private final Duration lockTtl;
+    private final RateLimiter rateLimiter;
+
+    public TieringPolicy(TieringService tieringService,
+                         MinioService minioService,
+                         ObjectAccessRepository objectAccessRepository,
+                         UserRepository userRepository,
+                         TrashService trashService,
+                         StringRedisTemplate redisTemplate,
+                         @Value("${storage.tiering.enabled:false}") boolean enabled,
+                         @Value("${storage.tiering.cold-after:90d}") Duration coldAfter,
+                         @Value("${storage.tiering.min-size:1MB}") DataSize minSize,
+                         @Value("${storage.tiering.max-per-user:1000}") int maxPerUser,
+                         @Value("${storage.tiering.objects-per-second:20}") double objectsPerSecond,
+                         @Value("${storage.tiering.lock-ttl:6h}") Duration lockTtl) {
+        this.tieringService = tieringService;
+        this.minioService = minioService;
+        this.objectAccessRepository = objectAccessRepository;
+        this.userRepository = userRepository;
+        this.trashService = trashService;
+        this.redisTemplate = redisTemplate;
+        this.enabled = enabled;
+        this.coldAfter = coldAfter;
+        this.minSize = minSize.toBytes();
+        this.maxPerUser = maxPerUser;
+        this.lockTtl = lockTtl;
+        this.rateLimiter = RateLimiter.create(objectsPerSecond);
+    }
+
+    @Scheduled(initialDelayString = "${storage.tiering.initial-delay:15m}",
+            fixedDelayString = "${storage.tiering.interval:6h}")
+    public void run() {
+        String owner = UUID.randomUUID().toString();
+        if (!enabled || !Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(LOCK, owner, lockTtl))) {
+            return;
+        }
+        try {
+            tieringService.createBucketIfNotExists();
+            Instant cutoff = Instant.now().minus(coldAfter);
+            for (int userId : userRepository.findAllIds()) {
+                if (!extendLock(owner)) {
+                    log.warn("Stopping tiering run: its lock expired and may be held by another node");
+                    return;
+                }
+                StoragePriority.BULK.run(() -> tier(userId, cutoff));
+            }
+        } catch (RuntimeException e) {
+            log.error("Tiering run failed", e);
+        } finally {
+            redisTemplate.execute(RELEASE_LOCK, List.of(LOCK), owner);
+        }
+    }
+
+    /**
+     * Renewed before each user, so a run over many users keeps its lock for as long as it makes
+     * progress, and a run that lost it stops instead of overlapping the next one.
+     */
+    private boolean extendLock(String owner) {
+        Long extended = redisTemplate.execute(EXTEND_LOCK, List.of(LOCK), owner, String.valueOf(lockTtl.toMillis()));
+        return extended != null && extended == 1;
+    }
+
+    /**
+     * Cold copies are only swept after the user's whole root was listed, trash included, and the
+     * deleted content moved to the trash tree too, so that every stub has been seen.
+     */
+    void tier(int userId, Instant cutoff) {
+        Map<String, Instant> lastRead = objectAccessRepository.findByUserId(userId).stream()
+                .collect(Collectors.toMap(ObjectAccess::getObjectName, ObjectAccess::getLastAccessedAt));
+        Predicate<Item> visible = trashService.visibleItems(userId, PathUtils.buildUserRootPath(userId));
+        Set<String> listed = new HashSet<>();
+        Set<String> referenced = new HashSet<>();
+        int demoted = 0;
+        try (Stream<Item> items = minioService.recursiveListObjects(PathUtils.buildUserRootPath(userId))) {
+            Iterator<Item> iterator = items
+                    .filter(item -> !item.isDir() && !item.objectName().endsWith("/"))
+                    .iterator();
+            while (iterator.hasNext()) {
+                Item item = iterator.next();
+                listed.add(item.objectName());
+                String coldObject = TieringService.coldObject(item);
+                if (coldObject != null) {
+                    referenced.add(coldObject);
+                } else if (demoted < maxPerUser && isCold(item, lastRead.get(item.objectName()), cutoff)
+                        && visible.test(item)) {
+                    rateLimiter.acquire();
+                    coldObject = demote(item);
+                    if (coldObject != null) {
+                        referenced.add(coldObject);
+                        demoted++;
+                    }
+                }
+            }
+        }
+        try (Stream<Item> trashed = minioService.recursiveListObjects(PathUtils.buildTrashRoot(userId))) {
+            trashed.map(TieringService::coldObject).filter(Objects::nonNull).forEach(referenced::add);
+        }
+        List<String> gone = lastRead.keySet().stream().filter(name -> !listed.contains(name)).toList();
+        Lists.partition(gone, DELETE_BATCH).forEach(objectAccessRepository::deleteAllByIdInBatch);
+        int swept = tieringService.sweep(userId, referenced);
+        if (demoted > 0 || swept > 0) {
+            log.info("Moved {} files of user {} to the cold tier and removed {} unreferenced cold copies",
+                    demoted, userId, swept);
+        }
+    }
+
+    /**
+     * Previews and chunks are never moved; neither are chunk manifests, which reads of the chunked
+     * file fetch every time. Age is the modification time listings and sync show, which a moved
+     * file keeps, not when its object was last written.
+     */
+    private boolean isCold(Item item, Instant lastRead, Instant cutoff) {
+        return !PathUtils.isPreviewObject(item.objectName())
+                && !PathUtils.isChunkObject(item.objectName())
+                && !ChunkStore.isChunked(item)
+                && ObjectMetadata.logicalSize(item.userMetadata(), item.size()) >= minSize
+                && isBefore(ObjectMetadata.lastModified(item), cutoff)
+                && (lastRead == null || lastRead.isBefore(cutoff));
+    }
+
+    private static boolean isBefore(Instant modified, Instant cutoff) {
+        return modified != null && modified.isBefore(cutoff);
+    }
+
+    private String demote(Item item) {
+        try {
+            return tieringService.demote(item);
+        } catch (RuntimeException e) {
+            log.warn("Failed to move {} to the cold tier", item.objectName(), e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.qubb.cloud.service;
+
+import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.RateLimiter;
+import com.qubb.cloud.entity.TrashEntry;
+import com.qubb.cloud.repository.TrashEntryRepository;
+import com.qubb.cloud.storage.MinioService;
+import com.qubb.cloud.storage.StoragePriority;
+import com.qubb.cloud.util.PathUtils;
+import io.minio.messages.Item;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Removes trashed objects for good once their retention has passed. Objects go in multi-object
+ * delete requests, and a shared rate limit keeps purging from competing with users for storage;
+ * a Redis lock lets one node purge at a time.
+ */
+@Slf4j
+@Component
+public class TrashPurger {
+
+    private static final String LOCK = "cloud:trash:purging";
+
+    private final TrashEntryRepository trashEntryRepository;
+    private final MinioService minioService;
+    private final StringRedisTemplate redisTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxEntriesPerRun;
+    private final Duration lockTtl;
+    private final RateLimiter rateLimiter;
+
+    public TrashPurger(TrashEntryRepository trashEntryRepository,
+                       MinioService minioService,
+                       StringRedisTemplate redisTemplate,
+                       @Value("${trash.purge.enabled:true}") boolean enabled,
+                       @Value("${trash.purge.objects-per-second:500}") double objectsPerSecond,
+                       @Value("${trash.purge.batch-size:500}") int batchSize,
+                       @Value("${trash.purge.max-entries-per-run:100}") int maxEntriesPerRun,
+                       @Value("${trash.purge.lock-ttl:30m}") Duration lockTtl) {
+        this.trashEntryRepository = trashEntryRepository;
+        this.minioService = minioService;
+        this.redisTemplate = redisTemplate;
+        this.enabled = enabled;
+        this.batchSize = Math.clamp(batchSize, 1, 1000);
+        this.maxEntriesPerRun = maxEntriesPerRun;
+        this.lockTtl = lockTtl;
+        this.rateLimiter = RateLimiter.create(objectsPerSecond);
+    }
+
+    @Scheduled(initialDelayString = "${trash.purge.initial-delay:1m}",
+            fixedDelayString = "${trash.purge.interval:1m}")
+    public void purgeExpired() {
+        if (!enabled || !Boolean.TRUE.equals(redisTemplate.opsForValue()
+                .setIfAbsent(LOCK, UUID.randomUUID().toString(), lockTtl))) {
+            return;
+        }
+        try {
+            trashEntryRepository.findByPurgeAfterLessThanEqualOrderByPurgeAfter(
+                            Instant.now(), PageRequest.of(0, maxEntriesPerRun))
+                    .forEach(entry -> StoragePriority.BULK.run(() -> purge(entry)));
+        } catch (RuntimeException e) {
+            log.error("Trash purge run failed", e);
+        } finally {
+            redisTemplate.delete(LOCK);
+        }
+    }
+
+    /**
+     * The entry is kept when some object could not be removed, so the next run tries again. The
+     * trash tree is cleared even for entries whose content was never moved there, in case a move
+     * was cut short.
+     */
+    void purge(TrashEntry entry) {
+        String objectName = entry.getObjectName();
+        String storedAt = entry.getStoredAt() != null
+                ? entry.getStoredAt()
+                : PathUtils.buildTrashObjectName(entry.getUserId(), entry.getId(), objectName);
+        long failed = removeTrashed(storedAt, null);
+        if (entry.getStoredAt() == null) {
+            failed += removeTrashed(objectName, entry.getTrashedAt())
+                    + removeTrashed(PathUtils.buildPreviewObjectName(objectName), entry.getTrashedAt());
+        }
+        if (failed > 0) {
+            log.warn("Purge of {} left {} objects, retrying on the next run", objectName, failed);
+            return;
+        }
+        trashEntryRepository.delete(entry);
+        log.info("Purged {} of user {} from the trash", objectName, entry.getUserId());
+    }
+
+    /**
+     * Returns how many objects could not be removed. At the original path, objects written after
+     * the deletion are kept: a write there moves the deleted content out first, so anything newer
+     * got there some other way and is not the user's to lose. {@code trashedAt} is null for the
+     * trash tree, where everything goes.
+     */
+    private long removeTrashed(String objectName, Instant trashedAt) {
+        Stream<Item> items = objectName.endsWith("/")
+                ? minioService.recursiveListObjects(objectName)
+                : minioService.listObjects(objectName).filter(item -> item.objectName().equals(objectName));
+        long[] failed = {0};
+        Iterators.partition(items
+                        .filter(item -> trashedAt == null || item.lastModified() != null
+                                && !item.lastModified().toInstant().isAfter(trashedAt))
+                        .iterator(), batchSize)
+                .forEachRemaining(batch -> {
+                    rateLimiter.acquire(batch.size());
+                    failed[0] += batch.size() - minioService.removeObjects(List.copyOf(batch));
+                });
+        return failed[0];
+    }
+}
@@ -0,0 +1,280 @@
+package com.qubb.cloud.service;
+
+import com.google.common.collect.Iterators;
+import com.qubb.cloud.entity.TrashEntry;
+import com.qubb.cloud.exception.ResourceAlreadyExistsException;
+import com.qubb.cloud.exception.ResourceNotFoundException;
+import com.qubb.cloud.exception.ResourceOperationException;
+import com.qubb.cloud.exception.UserNotFoundException;
+import com.qubb.cloud.payload.ResourceInfoResponse;
+import com.qubb.cloud.payload.TrashEntryResponse;
+import com.qubb.cloud.repository.TrashEntryRepository;
+import com.qubb.cloud.security.UserDetailsImpl;
+import com.qubb.cloud.storage.MinioService;
+import com.qubb.cloud.util.PathUtils;
+import com.qubb.cloud.util.ResourceResponseBuilder;
+import io.minio.StatObjectResponse;
+import io.minio.messages.Item;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Deleting a file or folder only records it here, which takes one insert however large the folder
+ * is. Its objects stay in storage, hidden from listings, search and downloads, until
+ * {@link TrashPurger} removes them after the retention period; until then it can be restored.
+ * <p>
+ * An entry hides everything at or under its path, so visibility is decided by path alone, from the
+ * entries on a path's ancestors and, for listings, below the listed folder. A write into a deleted
+ * folder first moves the folder's content to the trash tree, where it waits to be purged or
+ * restored without hiding anything; that costs a copy of the deleted content, once per entry.
+ */
+@Slf4j
+@Service
+public class TrashService {
+
+    private static final int DELETE_BATCH = 1000;
+
+    private final TrashEntryRepository trashEntryRepository;
+    private final MinioService minioService;
+    private final ChangeFeedService changeFeedService;
+    private final Duration retention;
+
+    public TrashService(TrashEntryRepository trashEntryRepository,
+                        MinioService minioService,
+                        ChangeFeedService changeFeedService,
+                        @Value("${trash.retention:30d}") Duration retention) {
+        this.trashEntryRepository = trashEntryRepository;
+        this.minioService = minioService;
+        this.changeFeedService = changeFeedService;
+        this.retention = retention;
+    }
+
+    /**
+     * Hides the resource from now on. The caller has checked that it exists and is visible.
+     */
+    public TrashEntry trash(int userId, String objectName) {
+        Instant now = Instant.now();
+        return trashEntryRepository.save(TrashEntry.builder()
+                .userId(userId)
+                .objectName(objectName)
+                .trashedAt(now)
+                .purgeAfter(now.plus(retention))
+                .build());
+    }
+
+    public List<TrashEntryResponse> list(UserDetailsImpl userDetails) {
+        Instant now = Instant.now();
+        return trashEntryRepository.findByUserIdOrderByTrashedAtDesc(getUserId(userDetails)).stream()
+                .filter(entry -> entry.getPurgeAfter().isAfter(now))
+                .map(ResourceResponseBuilder::buildFromTrashEntry)
+                .toList();
+    }
+
+    /**
+     * Shows the resource at its original path again, next to anything written there since it was
+     * deleted. Entries past their retention are being purged and can no longer be restored.
+     */
+    public ResourceInfoResponse restore(long id, UserDetailsImpl userDetails) {
+        int userId = getUserId(userDetails);
+        TrashEntry entry = trashEntryRepository.findByIdAndUserId(id, userId)
+                .filter(found -> found.getPurgeAfter().isAfter(Instant.now()))
+                .orElseThrow(() -> new ResourceNotFoundException("Trash entry not found: " + id));
+        String objectName = entry.getObjectName();
+        if (entry.getStoredAt() != null) {
+            moveBack(entry);
+        } else {
+            trashEntryRepository.delete(entry);
+        }
+        if (objectName.endsWith("/")) {
+            if (!minioService.isDirectoryExists(objectName)) {
+                throw new ResourceNotFoundException("Resource no longer exists: " + objectName);
+            }
+            changeFeedService.created(userId, objectName);
+            return ResourceResponseBuilder.buildFromDirectory(objectName, Map.of());
+        }
+        StatObjectResponse stat;
+        try {
+            stat = minioService.statObject(objectName);
+        } catch (ResourceOperationException e) {
+            throw new ResourceNotFoundException("Resource no longer exists: " + objectName);
+        }
+        changeFeedService.created(userId, objectName);
+        return ResourceResponseBuilder.buildFromObjectName(objectName, stat);
+    }
+
+    /**
+     * Filter for listings of the user's objects at or under {@code scope} that drops deleted ones.
+     * Costs two indexed queries and no storage calls.
+     */
+    public Predicate<Item> visibleItems(int userId, String scope) {
+        List<TrashEntry> entries = new ArrayList<>(hiding(userId, scope));
+        if (scope.endsWith("/")) {
+            entries.addAll(trashEntryRepository.findHidingUnder(userId, below(scope)));
+        }
+        if (entries.isEmpty()) {
+            return item -> true;
+        }
+        return item -> entries.stream().noneMatch(entry -> entry.covers(item.objectName()));
+    }
+
+    public boolean isVisible(int userId, String objectName) {
+        return hiding(userId, objectName).isEmpty();
+    }
+
+    public void checkVisible(int userId, String objectName) {
+        if (!isVisible(userId, objectName)) {
+            throw new ResourceNotFoundException("Resource not found: " + objectName);
+        }
+    }
+
+    /**
+     * Called before writing at a path the user sees as free. A deleted file stored there is removed
+     * for good, since the write replaces it. Deleted folders around the path, and deleted content
+     * below it when a folder is written, are moved to the trash tree, so the path hides nothing.
+     */
+    public void release(int userId, String objectName) {
+        Map<Long, TrashEntry> affected = new HashMap<>();
+        hiding(userId, objectName).forEach(entry -> affected.put(entry.getId(), entry));
+        List<String> folders = new ArrayList<>(affected.values().stream()
+                .map(TrashEntry::getObjectName)
+                .filter(path -> path.endsWith("/"))
+                .toList());
+        if (objectName.endsWith("/")) {
+            folders.add(objectName);
+        }
+        folders.forEach(folder -> trashEntryRepository.findHidingUnder(userId, below(folder))
+                .forEach(entry -> affected.put(entry.getId(), entry)));
+        affected.values().stream()
+                .sorted(Comparator.comparing((TrashEntry entry) -> entry.getObjectName().length()).reversed())
+                .forEach(entry -> {
+                    if (entry.getObjectName().equals(objectName) && !objectName.endsWith("/")) {
+                        removeForGood(entry);
+                    } else {
+                        moveOutOfTheWay(entry);
+                    }
+                });
+    }
+
+    /**
+     * Drops the entries at or under a path whose objects have just been removed for good, e.g. the
+     * source of a move. Entries moved to the trash tree keep their content and stay restorable.
+     */
+    public void forget(int userId, String objectName) {
+        List<TrashEntry> removed = new ArrayList<>(
+                trashEntryRepository.findByUserIdAndStoredAtIsNullAndObjectNameIn(userId, List.of(objectName)));
+        if (objectName.endsWith("/")) {
+            removed.addAll(trashEntryRepository.findHidingUnder(userId, below(objectName)));
+        }
+        if (!removed.isEmpty()) {
+            trashEntryRepository.deleteAll(removed);
+        }
+    }
+
+    /**
+     * Entries hiding the path: those on it or on one of the folders above it.
+     */
+    private List<TrashEntry> hiding(int userId, String objectName) {
+        Set<String> paths = new HashSet<>(FolderSizeService.ancestors(objectName));
+        paths.add(objectName);
+        return trashEntryRepository.findByUserIdAndStoredAtIsNullAndObjectNameIn(userId, paths);
+    }
+
+    /**
+     * Deepest entries go first, so a folder's copy leaves out what entries inside it moved already.
+     */
+    private void moveOutOfTheWay(TrashEntry entry) {
+        String source = entry.getObjectName();
+        String target = PathUtils.buildTrashObjectName(entry.getUserId(), entry.getId(), source);
+        minioService.copyDirectoryContents(source, target, item -> matches(item, source));
+        if (remove(source) > 0) {
+            throw new ResourceOperationException("Failed to move deleted " + source + " out of the way");
+        }
+        remove(PathUtils.buildPreviewObjectName(source));
+        entry.setStoredAt(target);
+        trashEntryRepository.save(entry);
+        log.debug("Moved deleted {} to {} to make room for a new write", source, target);
+    }
+
+    /**
+     * Anything written at the original path since it was moved out is kept, so the restore is
+     * refused rather than overwrite a file. Copies that fail to be removed afterwards are left in
+     * the trash tree.
+     */
+    private void moveBack(TrashEntry entry) {
+        String objectName = entry.getObjectName();
+        String storedAt = entry.getStoredAt();
+        Set<String> occupied;
+        try (Stream<Item> items = list(objectName)) {
+            occupied = items.map(Item::objectName).filter(name -> !name.endsWith("/")).collect(Collectors.toSet());
+        }
+        try (Stream<Item> stored = list(storedAt)) {
+            stored.map(item -> objectName + item.objectName().substring(storedAt.length()))
+                    .filter(occupied::contains)
+                    .findFirst()
+                    .ifPresent(name -> {
+                        throw new ResourceAlreadyExistsException("Cannot restore " + objectName + ": "
+                                + name + " exists");
+                    });
+        }
+        minioService.copyDirectoryContents(storedAt, objectName, item -> matches(item, storedAt));
+        trashEntryRepository.delete(entry);
+        long failed = remove(storedAt);
+        if (failed > 0) {
+            log.warn("Restored {} but left {} copies in {}", objectName, failed, storedAt);
+        }
+    }
+
+    private void removeForGood(TrashEntry entry) {
+        String objectName = entry.getObjectName();
+        if (remove(objectName) > 0) {
+            throw new ResourceOperationException("Failed to remove deleted " + objectName);
+        }
+        minioService.removeObject(PathUtils.buildPreviewObjectName(objectName));
+        trashEntryRepository.delete(entry);
+        log.debug("Removed deleted {} to make room for a new write", objectName);
+    }
+
+    /**
+     * Returns how many objects could not be removed.
+     */
+    private long remove(String objectName) {
+        long[] failed = {0};
+        try (Stream<Item> items = list(objectName)) {
+            Iterators.partition(items.iterator(), DELETE_BATCH).forEachRemaining(batch ->
+                    failed[0] += batch.size() - minioService.removeObjects(List.copyOf(batch)));
+        }
+        return failed[0];
+    }
+
+    private Stream<Item> list(String objectName) {
+        return objectName.endsWith("/")
+                ? minioService.recursiveListObjects(objectName)
+                : minioService.listObjects(objectName).filter(item -> item.objectName().equals(objectName));
+    }
+
+    private static boolean matches(Item item, String objectName) {
+        return objectName.endsWith("/") || item.objectName().equals(objectName);
+    }
+
+    /**
+     * LIKE pattern for the paths strictly below a folder.
+     */
+    private static String below(String folder) {
+        return folder.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "_%";
+    }
+
+    private int getUserId(UserDetailsImpl user) {
+        if (user == null || user.user() == null) {
+            throw new UserNotFoundException("User not authenticated");
+        }
+        return user.user().getId();
+    }
+}
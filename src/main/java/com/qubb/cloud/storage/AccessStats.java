@@ -0,0 +1,115 @@
+package com.qubb.cloud.storage;
+
+import com.qubb.cloud.entity.ObjectAccess;
+import com.qubb.cloud.repository.ObjectAccessRepository;
+import com.qubb.cloud.util.PathUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts reads of users' files in memory and writes them to the database in one batch every few
+ * seconds, so a read costs a map update rather than a write. The counts are approximate: a read
+ * racing the flush of its counter may be lost, and while the number of files waiting to be flushed
+ * is at its limit, reads of further files are not counted.
+ */
+@Slf4j
+@Component
+public class AccessStats {
+
+    private final ObjectAccessRepository objectAccessRepository;
+    private final boolean enabled;
+    private final int maxPending;
+    private final ConcurrentHashMap<String, Reads> pending = new ConcurrentHashMap<>();
+    private final Counter dropped;
+
+    public AccessStats(ObjectAccessRepository objectAccessRepository,
+                       @Value("${storage.access-stats.enabled:true}") boolean enabled,
+                       @Value("${storage.access-stats.max-pending:100000}") int maxPending,
+                       MeterRegistry meterRegistry) {
+        this.objectAccessRepository = objectAccessRepository;
+        this.enabled = enabled;
+        this.maxPending = maxPending;
+        this.dropped = Counter.builder("storage.access.stats.dropped")
+                .description("Reads not counted because too many files were waiting to be flushed")
+                .register(meterRegistry);
+        Gauge.builder("storage.access.stats.pending", pending, ConcurrentHashMap::size)
+                .register(meterRegistry);
+    }
+
+    public void record(String objectName) {
+        if (!enabled || !isTracked(objectName)) {
+            return;
+        }
+        Reads reads = pending.get(objectName);
+        if (reads == null) {
+            if (pending.size() >= maxPending) {
+                dropped.increment();
+                return;
+            }
+            reads = pending.computeIfAbsent(objectName, name -> new Reads());
+        }
+        reads.add(System.currentTimeMillis());
+    }
+
+    @Scheduled(initialDelayString = "${storage.access-stats.flush-interval:30s}",
+            fixedDelayString = "${storage.access-stats.flush-interval:30s}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<ObjectAccess> batch = new ArrayList<>(pending.size());
+        for (String objectName : pending.keySet()) {
+            Reads reads = pending.remove(objectName);
+            if (reads != null) {
+                batch.add(ObjectAccess.builder()
+                        .objectName(objectName)
+                        .userId(PathUtils.extractUserId(objectName))
+                        .reads(reads.count.sum())
+                        .lastAccessedAt(Instant.ofEpochMilli(reads.last))
+                        .build());
+            }
+        }
+        try {
+            objectAccessRepository.addAll(batch);
+            log.debug("Flushed access statistics of {} files", batch.size());
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush access statistics of {} files", batch.size(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private static boolean isTracked(String objectName) {
+        return !objectName.endsWith("/")
+                && !PathUtils.isPreviewObject(objectName)
+                && !PathUtils.isChunkObject(objectName)
+                && PathUtils.extractUserId(objectName) != null;
+    }
+
+    private static final class Reads {
+        private final LongAdder count = new LongAdder();
+        private volatile long last;
+
+        private void add(long now) {
+            count.increment();
+            if (now > last) {
+                last = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package com.qubb.cloud.storage;
+
+import com.qubb.cloud.exception.IncorrectPathException;
+import com.qubb.cloud.exception.ResourceOperationException;
+import com.qubb.cloud.exception.UnsupportedArchiveException;
+import com.qubb.cloud.payload.ResourceInfoResponse;
+import com.qubb.cloud.util.PathUtils;
+import com.qubb.cloud.util.ResourceResponseBuilder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Expands a streamed ZIP or TAR (optionally gzipped) into objects under a target folder.
+ * The archive is read once, front to back; each entry is buffered and handed to a small pool of
+ * uploaders, so reading the next entry overlaps with storing the previous ones. Files are written
+ * only where nothing is stored yet, so the target is never listed, and the folders the archive needs
+ * are created together at the end. An archive that fails part way leaves nothing behind.
+ */
+@Slf4j
+@Service
+public class ArchiveUploadService {
+
+    private final MinioService minioService;
+    private final CompressionService compressionService;
+    private final ThreadPoolExecutor executor;
+    private final int maxInFlight;
+
+    @Value("${storage.archive-upload.memory-threshold:1MB}")
+    private DataSize memoryThreshold;
+
+    @Value("${storage.archive-upload.max-entries:100000}")
+    private int maxEntries;
+
+    @Value("${storage.archive-upload.max-expanded-size:10GB}")
+    private DataSize maxExpandedSize;
+
+    public ArchiveUploadService(MinioService minioService,
+                                CompressionService compressionService,
+                                @Value("${storage.archive-upload.parallelism:8}") int parallelism) {
+        this.minioService = minioService;
+        this.compressionService = compressionService;
+        this.maxInFlight = parallelism * 2;
+        this.executor = new ThreadPoolExecutor(
+                parallelism, parallelism,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                new CustomizableThreadFactory("archive-upload-"));
+    }
+
+    public List<ResourceInfoResponse> upload(InputStream body, String basePath) {
+        return StoragePriority.BULK.call(() -> expand(body, basePath));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private List<ResourceInfoResponse> expand(InputStream body, String basePath) {
+        String base = PathUtils.normalizeDirectoryPath(basePath);
+        var expansion = new Expansion(base);
+        try (ArchiveInputStream<?> archive = open(body)) {
+            ArchiveEntry entry;
+            while ((entry = archive.getNextEntry()) != null && !expansion.failed()) {
+                expansion.accept(archive, entry);
+            }
+            expansion.awaitUploads();
+            expansion.createDirectories();
+        } catch (IOException e) {
+            expansion.cancel();
+            throw new ResourceOperationException("Failed to read archive: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            expansion.cancel();
+            throw e;
+        }
+        log.debug("Expanded archive into {}: {} files, {} folders",
+                base, expansion.uploaded.size(), expansion.createdDirectories);
+        return List.copyOf(expansion.uploaded);
+    }
+
+    private ArchiveInputStream<?> open(InputStream body) throws IOException {
+        InputStream in = new BufferedInputStream(body);
+        try {
+            if (CompressorStreamFactory.GZIP.equals(CompressorStreamFactory.detect(in))) {
+                in = new BufferedInputStream(new GzipCompressorInputStream(in, true));
+            }
+        } catch (CompressorException e) {
+            // not compressed, read as a plain archive
+        }
+        String format;
+        try {
+            format = ArchiveStreamFactory.detect(in);
+        } catch (ArchiveException e) {
+            throw new UnsupportedArchiveException("Request body is not a ZIP or TAR archive");
+        }
+        return switch (format) {
+            case ArchiveStreamFactory.ZIP -> new ZipArchiveInputStream(in, StandardCharsets.UTF_8.name(), true, true);
+            case ArchiveStreamFactory.TAR -> new TarArchiveInputStream(in);
+            default -> throw new UnsupportedArchiveException("Unsupported archive format: " + format);
+        };
+    }
+
+    /**
+     * Entry names come from the client, so anything that would escape the target folder is rejected.
+     */
+    static String sanitize(String entryName) {
+        String name = entryName.replace('\\', '/');
+        while (name.startsWith("/")) {
+            name = name.substring(1);
+        }
+        boolean directory = name.endsWith("/");
+        List<String> segments = Arrays.stream(name.split("/")).filter(s -> !s.isEmpty()).toList();
+        if (segments.isEmpty() || segments.stream().anyMatch(s -> s.equals(".") || s.equals(".."))) {
+            throw new IncorrectPathException("Invalid archive entry: " + entryName);
+        }
+        String joined = String.join("/", segments);
+        return directory ? joined + "/" : joined;
+    }
+
+    private static boolean isLink(ArchiveEntry entry) {
+        return entry instanceof TarArchiveEntry tar && !tar.isFile() && !tar.isDirectory()
+                || entry instanceof ZipArchiveEntry zip && zip.isUnixSymlink();
+    }
+
+    /**
+     * State of one archive being expanded.
+     */
+    private final class Expansion {
+
+        private final String base;
+        private final Set<String> directories = new TreeSet<>();
+        private final Set<String> files = new HashSet<>();
+        private final List<ResourceInfoResponse> uploaded = Collections.synchronizedList(new ArrayList<>());
+        private final Map<String, Long> written = new ConcurrentHashMap<>();
+        private final List<String> created = new ArrayList<>();
+        private final List<Future<?>> futures = new ArrayList<>();
+        private final Semaphore inFlight = new Semaphore(maxInFlight);
+        private volatile Throwable failure;
+        private long expandedBytes;
+        private int createdDirectories;
+
+        private Expansion(String base) {
+            this.base = base;
+            directories.add(base);
+        }
+
+        private boolean failed() {
+            return failure != null;
+        }
+
+        private void accept(InputStream archive, ArchiveEntry entry) throws IOException {
+            if (isLink(entry)) {
+                log.debug("Skipping link entry {}", entry.getName());
+                return;
+            }
+            if (files.size() + directories.size() > maxEntries) {
+                throw new ResourceOperationException("Archive has more than " + maxEntries + " entries");
+            }
+            String objectName = base + sanitize(entry.getName());
+            planParents(objectName);
+            if (entry.isDirectory()) {
+                directories.add(PathUtils.normalizeDirectoryPath(objectName));
+                return;
+            }
+            if (!files.add(objectName)) {
+                throw new ResourceOperationException("File already exists: " + objectName);
+            }
+            Buffered content = buffer(archive);
+            acquire();
+            try {
+                futures.add(executor.submit(StorageCallContext.wrap(() -> StoragePriority.BULK.run(() -> store(objectName, content)))));
+            } catch (RejectedExecutionException e) {
+                inFlight.release();
+                content.discard();
+                throw new ResourceOperationException("Archive upload rejected: " + objectName, e);
+            }
+        }
+
+        private void planParents(String objectName) {
+            String parent = PathUtils.getParentPath(objectName);
+            while (parent.length() > base.length() && directories.add(parent)) {
+                parent = PathUtils.getParentPath(parent);
+            }
+        }
+
+        private void store(String objectName, Buffered content) {
+            String contentType = MediaTypeFactory.getMediaType(objectName)
+                    .orElse(MediaType.APPLICATION_OCTET_STREAM)
+                    .toString();
+            if (failed()) {
+                content.close();
+                inFlight.release();
+                return;
+            }
+            try (content; StoredContent stored = compressionService.prepare(content.open(), content.size(), contentType)) {
+                minioService.putObjectIfAbsent(objectName, stored.stream(), stored.size(), contentType, stored.metadata());
+                written.put(objectName, content.size());
+                uploaded.add(ResourceResponseBuilder.buildFromObjectName(objectName, content.size()));
+            } catch (Exception e) {
+                failure = e;
+                throw e instanceof RuntimeException runtimeException
+                        ? runtimeException
+                        : new ResourceOperationException("Failed to upload file: " + objectName, e);
+            } finally {
+                inFlight.release();
+            }
+        }
+
+        /**
+         * Small entries are kept in memory; larger ones are spooled to a temporary file.
+         */
+        private Buffered buffer(InputStream archive) throws IOException {
+            int threshold = (int) memoryThreshold.toBytes();
+            byte[] head = archive.readNBytes(threshold + 1);
+            count(head.length);
+            if (head.length <= threshold) {
+                return new Buffered(head, null, head.length);
+            }
+            Path spool = Files.createTempFile("archive-entry-", ".tmp");
+            try (OutputStream out = Files.newOutputStream(spool)) {
+                out.write(head);
+                long size = head.length;
+                byte[] chunk = new byte[64 * 1024];
+                int read;
+                while ((read = archive.read(chunk)) != -1) {
+                    count(read);
+                    out.write(chunk, 0, read);
+                    size += read;
+                }
+                return new Buffered(null, spool, size);
+            } catch (IOException | RuntimeException e) {
+                TempFileResource.delete(spool);
+                throw e;
+            }
+        }
+
+        /**
+         * Guards against archives that expand far beyond their transfer size.
+         */
+        private void count(long bytes) {
+            expandedBytes += bytes;
+            if (expandedBytes > maxExpandedSize.toBytes()) {
+                throw new ResourceOperationException("Archive expands to more than " + maxExpandedSize);
+            }
+        }
+
+        private void acquire() {
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ResourceOperationException("Archive upload interrupted", e);
+            }
+        }
+
+        private void awaitUploads() {
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ResourceOperationException("Archive upload interrupted", e);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException runtimeException) {
+                        throw runtimeException;
+                    }
+                    throw new ResourceOperationException("Archive upload failed", e.getCause());
+                }
+            }
+        }
+
+        /**
+         * A stat per folder the archive needs is far cheaper than listing everything under the target.
+         */
+        private void createDirectories() {
+            directories.stream()
+                    .filter(directory -> !minioService.objectExists(directory))
+                    .forEach(directory -> {
+                        minioService.createDirectoryObject(directory);
+                        created.add(directory);
+                        createdDirectories++;
+                    });
+        }
+
+        /**
+         * Lets queued uploads drain without storing anything, so their buffers are released, then
+         * removes what the archive had already stored.
+         */
+        private void cancel() {
+            if (failure == null) {
+                failure = new CancellationException("Archive upload aborted");
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException | CancellationException e) {
+                    // already reported
+                }
+            }
+            rollBack();
+        }
+
+        private void rollBack() {
+            try {
+                int removed = minioService.removeObjects(Map.copyOf(written));
+                created.forEach(minioService::removeObject);
+                log.debug("Rolled back archive expansion into {}: {} files, {} folders", base, removed, created.size());
+            } catch (RuntimeException e) {
+                log.warn("Failed to roll back archive expansion into {}", base, e);
+            }
+        }
+    }
+
+    /**
+     * One archive entry detached from the archive stream.
+     */
+    private record Buffered(byte[] bytes, Path spool, long size) implements Closeable {
+
+        InputStream open() throws IOException {
+            return bytes != null ? new ByteArrayInputStream(bytes) : Files.newInputStream(spool);
+        }
+
+        void discard() {
+            TempFileResource.delete(spool);
+        }
+
+        @Override
+        public void close() {
+            discard();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.qubb.cloud.storage;
+
+import java.util.List;
+
+/**
+ * What a chunked file stores at its own path: its chunks in order, owned by {@code owner}.
+ */
+public record ChunkManifest(int version, int owner, long size, List<ChunkRef> chunks) {
+
+    public record ChunkRef(String hash, long size) {
+    }
+}
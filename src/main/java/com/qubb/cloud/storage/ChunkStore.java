@@ -0,0 +1,376 @@
+package com.qubb.cloud.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Iterables;
+import com.qubb.cloud.entity.Chunk;
+import com.qubb.cloud.exception.ChunksMissingException;
+import com.qubb.cloud.exception.InvalidChunkException;
+import com.qubb.cloud.exception.PayloadTooLargeException;
+import com.qubb.cloud.exception.ResourceOperationException;
+import com.qubb.cloud.payload.ChunkingParameters;
+import com.qubb.cloud.payload.ResourceInfoResponse;
+import com.qubb.cloud.repository.ChunkRepository;
+import com.qubb.cloud.storage.ChunkManifest.ChunkRef;
+import com.qubb.cloud.util.PathUtils;
+import com.qubb.cloud.util.ResourceResponseBuilder;
+import io.minio.ObjectWriteResponse;
+import io.minio.StatObjectResponse;
+import io.minio.messages.Item;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+/**
+ * Files stored as content-defined chunks, so that a new version of a large file only costs the
+ * chunks that changed. Each chunk is an object named by its SHA-256 under the user's chunk root,
+ * indexed in the database so an upload can ask which of its chunks are stored already. The file
+ * itself is a small {@link ChunkManifest} at its path with the {@value #CODEC} codec; reads
+ * fetch a few chunks ahead in parallel, so a large file is not read at one round trip per chunk.
+ * <p>
+ * Chunks are shared by every file of the user that contains them and are only removed by
+ * {@code ChunkCollector} once no file refers to them and no upload has used them for a while.
+ */
+@Slf4j
+@Service
+public class ChunkStore {
+
+    public static final String CODEC = "chunked";
+
+    private static final int MANIFEST_VERSION = 1;
+    private static final int QUERY_BATCH = 1000;
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private final MinioService minioService;
+    private final ChunkRepository chunkRepository;
+    private final ContentDefinedChunker chunker;
+    private final ObjectMapper objectMapper;
+    private final long uploadThreshold;
+    private final int maxChunksPerFile;
+    private final int readAhead;
+    private final ExecutorService readers = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("chunk-reader-", 0).factory());
+
+    public ChunkStore(MinioService minioService,
+                      ChunkRepository chunkRepository,
+                      ContentDefinedChunker chunker,
+                      ObjectMapper objectMapper,
+                      @Value("${storage.chunking.upload-threshold:64MB}") DataSize uploadThreshold,
+                      @Value("${storage.chunking.max-chunks-per-file:100000}") int maxChunksPerFile,
+                      @Value("${storage.chunking.read-ahead:4}") int readAhead) {
+        this.minioService = minioService;
+        this.chunkRepository = chunkRepository;
+        this.chunker = chunker;
+        this.objectMapper = objectMapper;
+        this.uploadThreshold = uploadThreshold.toBytes();
+        this.maxChunksPerFile = maxChunksPerFile;
+        this.readAhead = Math.max(1, readAhead);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        readers.shutdownNow();
+    }
+
+    public ChunkingParameters parameters() {
+        return chunker.parameters();
+    }
+
+    /**
+     * Whether a regular upload of this size is stored in chunks; a threshold of 0 turns that off.
+     */
+    public boolean shouldChunk(long size) {
+        return uploadThreshold > 0 && size >= uploadThreshold;
+    }
+
+    public static boolean isChunked(Item item) {
+        return CODEC.equalsIgnoreCase(ObjectMetadata.get(item.userMetadata(), ObjectMetadata.CODEC));
+    }
+
+    /**
+     * The hashes the user has no chunk for, in the order asked. Chunks that are found count as used,
+     * so they are not collected before the upload that asked has referenced them.
+     */
+    public List<String> missing(int userId, Collection<String> hashes) {
+        if (hashes.size() > maxChunksPerFile) {
+            throw new PayloadTooLargeException("At most " + maxChunksPerFile + " hashes per request");
+        }
+        Set<String> asked = distinctHashes(hashes);
+        Set<String> present = storedSizes(userId, asked).keySet();
+        touch(userId, present);
+        return asked.stream()
+                .filter(hash -> !present.contains(hash))
+                .toList();
+    }
+
+    /**
+     * Stores a chunk sent by the client after checking it against its hash.
+     */
+    public void store(int userId, String hash, InputStream body) throws IOException {
+        checkHash(hash);
+        byte[] data = body.readNBytes(chunker.maxSize() + 1);
+        if (data.length > chunker.maxSize()) {
+            throw new PayloadTooLargeException("Chunks are at most " + chunker.maxSize() + " bytes");
+        }
+        if (!hash.equals(sha256(data, data.length))) {
+            throw new InvalidChunkException("Chunk content does not match its hash: " + hash);
+        }
+        put(userId, hash, data, data.length);
+    }
+
+    /**
+     * Writes the file at {@code objectName} from chunks the user has stored. With {@code replacing}
+     * the file must still be that version, otherwise nothing may be stored at the path yet.
+     */
+    public ResourceInfoResponse writeFile(int userId,
+                                         String objectName,
+                                         List<String> hashes,
+                                         String contentType,
+                                         StatObjectResponse replacing) {
+        if (hashes.size() > maxChunksPerFile) {
+            throw new PayloadTooLargeException("A file has at most " + maxChunksPerFile + " chunks");
+        }
+        Set<String> distinct = distinctHashes(hashes);
+        Map<String, Long> sizes = storedSizes(userId, distinct);
+        List<String> missing = distinct.stream()
+                .filter(hash -> !sizes.containsKey(hash))
+                .toList();
+        if (!missing.isEmpty()) {
+            throw new ChunksMissingException(missing.size() + " chunks have not been uploaded", missing);
+        }
+        touch(userId, sizes.keySet());
+        List<ChunkRef> chunks = hashes.stream()
+                .map(hash -> new ChunkRef(hash, sizes.get(hash)))
+                .toList();
+        ObjectWriteResponse written = writeManifest(userId, objectName, chunks, contentType, Map.of(), replacing);
+        return ResourceResponseBuilder.buildFromUpload(objectName,
+                chunks.stream().mapToLong(ChunkRef::size).sum(), written);
+    }
+
+    /**
+     * Chunks a regular upload on the server and stores only the chunks the user does not have.
+     */
+    public ObjectWriteResponse storeChunked(String objectName, InputStream source, String contentType) {
+        int userId = Objects.requireNonNull(PathUtils.extractUserId(objectName), objectName);
+        MessageDigest md5 = digest("MD5");
+        List<ChunkRef> chunks = new ArrayList<>();
+        try {
+            chunker.split(new DigestInputStream(source, md5), (buffer, length) -> {
+                String hash = sha256(buffer, length);
+                if (chunkRepository.touch(userId, List.of(hash)) == 0) {
+                    put(userId, hash, buffer, length);
+                }
+                chunks.add(new ChunkRef(hash, length));
+            });
+        } catch (IOException e) {
+            throw new ResourceOperationException("Failed to read upload: " + objectName, e);
+        }
+        return writeManifest(userId, objectName, chunks, contentType,
+                Map.of(ObjectMetadata.CONTENT_MD5, HexFormat.of().formatHex(md5.digest())), null);
+    }
+
+    /**
+     * Reads the chunked file stored at {@code objectName} from its manifest. Chunks are looked up under
+     * the root of the user owning the path, never the owner the manifest names.
+     */
+    public InputStream open(String objectName, InputStream stored) throws IOException {
+        Integer owner = objectName == null ? null : PathUtils.extractUserId(objectName);
+        if (owner == null) {
+            stored.close();
+            throw new ResourceOperationException("Chunked file outside a user root: " + objectName);
+        }
+        return new ChunkStream(owner, readManifest(stored));
+    }
+
+    public ChunkManifest readManifest(String objectName) throws IOException {
+        return readManifest(minioService.getObject(objectName));
+    }
+
+    private ChunkManifest readManifest(InputStream stored) throws IOException {
+        ChunkManifest manifest;
+        try (stored) {
+            manifest = objectMapper.readValue(stored, ChunkManifest.class);
+        }
+        if (manifest.version() != MANIFEST_VERSION) {
+            throw new ResourceOperationException("Unsupported chunk manifest version: " + manifest.version());
+        }
+        return manifest;
+    }
+
+    private ObjectWriteResponse writeManifest(int userId,
+                                              String objectName,
+                                              List<ChunkRef> chunks,
+                                              String contentType,
+                                              Map<String, String> metadata,
+                                              StatObjectResponse replacing) {
+        long size = chunks.stream().mapToLong(ChunkRef::size).sum();
+        byte[] manifest;
+        try {
+            manifest = objectMapper.writeValueAsBytes(new ChunkManifest(MANIFEST_VERSION, userId, size, chunks));
+        } catch (IOException e) {
+            throw new ResourceOperationException("Failed to write chunk manifest: " + objectName, e);
+        }
+        Map<String, String> userMetadata = new HashMap<>(metadata);
+        userMetadata.put(ObjectMetadata.CODEC, CODEC);
+        userMetadata.put(ObjectMetadata.LOGICAL_SIZE, String.valueOf(size));
+        String type = contentType == null ? MediaType.APPLICATION_OCTET_STREAM_VALUE : contentType;
+        var stream = new ByteArrayInputStream(manifest);
+        ObjectWriteResponse written = replacing == null
+                ? minioService.putObjectIfAbsent(objectName, stream, manifest.length, type, userMetadata)
+                : minioService.putObjectIfMatch(objectName, stream, manifest.length, type, userMetadata, replacing);
+        log.debug("Stored {} as {} chunks, {} bytes", objectName, chunks.size(), size);
+        return written;
+    }
+
+    /**
+     * Chunks are named by their content, so writing one that is already stored changes nothing.
+     */
+    private void put(int userId, String hash, byte[] data, int length) {
+        minioService.putObject(PathUtils.buildChunkObjectName(userId, hash),
+                new ByteArrayInputStream(data, 0, length), (long) length, MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        chunkRepository.upsert(userId, hash, length);
+    }
+
+    private Map<String, Long> storedSizes(int userId, Set<String> hashes) {
+        Map<String, Long> sizes = new HashMap<>();
+        for (List<String> batch : Iterables.partition(hashes, QUERY_BATCH)) {
+            for (Chunk chunk : chunkRepository.findByUserIdAndHashIn(userId, batch)) {
+                sizes.put(chunk.getHash(), chunk.getSize());
+            }
+        }
+        return sizes;
+    }
+
+    private void touch(int userId, Set<String> hashes) {
+        for (List<String> batch : Iterables.partition(hashes, QUERY_BATCH)) {
+            chunkRepository.touch(userId, batch);
+        }
+    }
+
+    private static Set<String> distinctHashes(Collection<String> hashes) {
+        Set<String> distinct = new LinkedHashSet<>(hashes);
+        distinct.forEach(ChunkStore::checkHash);
+        return distinct;
+    }
+
+    private static void checkHash(String hash) {
+        if (hash == null || !HASH.matcher(hash).matches()) {
+            throw new InvalidChunkException("Not a lowercase hex SHA-256: " + hash);
+        }
+    }
+
+    private static String sha256(byte[] data, int length) {
+        MessageDigest digest = digest("SHA-256");
+        digest.update(data, 0, length);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest digest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(algorithm + " is not available", e);
+        }
+    }
+
+    /**
+     * Keeps up to {@code readAhead} chunks in flight, each read whole into memory on its own thread,
+     * so at most that many chunks of a file are buffered. Closing it early drops the chunks in flight.
+     */
+    private final class ChunkStream extends InputStream {
+
+        private final int owner;
+        private final Iterator<ChunkRef> chunks;
+        private final StoragePriority priority = StoragePriority.current();
+        private final Deque<CompletableFuture<byte[]>> ahead = new ArrayDeque<>();
+        private InputStream current;
+
+        private ChunkStream(int owner, ChunkManifest manifest) {
+            this.owner = owner;
+            this.chunks = manifest.chunks().iterator();
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            while (true) {
+                if (current == null) {
+                    fill();
+                    if (ahead.isEmpty()) {
+                        return -1;
+                    }
+                    current = new ByteArrayInputStream(await(ahead.poll()));
+                    fill();
+                }
+                int read = current.read(buffer, offset, length);
+                if (read >= 0) {
+                    return read;
+                }
+                current = null;
+            }
+        }
+
+        @Override
+        public void close() {
+            ahead.forEach(future -> future.cancel(false));
+            ahead.clear();
+            current = null;
+        }
+
+        private void fill() {
+            while (ahead.size() < readAhead && chunks.hasNext()) {
+                ChunkRef chunk = chunks.next();
+                String chunkName = PathUtils.buildChunkObjectName(owner, chunk.hash());
+                var future = new CompletableFuture<byte[]>();
+                readers.execute(StorageCallContext.wrap(() -> priority.run(() -> {
+                    try (InputStream in = minioService.getObject(chunkName)) {
+                        byte[] data = in.readAllBytes();
+                        if (data.length != chunk.size()) {
+                            throw new IOException("Chunk " + chunkName + " has " + data.length
+                                    + " bytes, expected " + chunk.size());
+                        }
+                        future.complete(data);
+                    } catch (Exception e) {
+                        future.completeExceptionally(e);
+                    }
+                })));
+                ahead.add(future);
+            }
+        }
+
+        private static byte[] await(CompletableFuture<byte[]> future) throws IOException {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while reading a chunk");
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException io ? io : new IOException("Failed to read a chunk", e.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.qubb.cloud.storage;
+
+/**
+ * Body of the stub a file leaves at its path when moved to the cold tier.
+ */
+public record ColdReference(String objectName, String coldObject) {
+}
@@ -0,0 +1,7 @@
+package com.qubb.cloud.storage;
+
+/**
+ * The bucket files are moved to once nobody reads them, shared by all shards.
+ */
+public record ColdStorage(StorageShard shard) {
+}
@@ -0,0 +1,160 @@
+package com.qubb.cloud.storage;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import com.qubb.cloud.exception.ResourceOperationException;
+import io.minio.GetObjectResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Transparent at-rest compression. Uploads that look compressible are stored zstd-compressed
+ * with the codec, the original size and the original's MD5 in object metadata; reads decode them on
+ * the fly. Files stored in chunks by {@link ChunkStore} are reassembled here as well, and files
+ * moved to the cold tier by {@link TieringService} are read from there.
+ */
+@Slf4j
+@Service
+public class CompressionService {
+
+    public static final String ZSTD = "zstd";
+
+    private static final Set<String> COMPRESSIBLE_TYPES = Set.of(
+            "application/json", "application/x-ndjson", "application/xml", "application/csv",
+            "application/javascript", "application/x-yaml", "application/yaml", "application/sql",
+            "application/x-sh", "application/x-tex", "image/svg+xml", "image/bmp");
+
+    @Value("${storage.compression.enabled:true}")
+    private boolean enabled;
+
+    @Value("${storage.compression.level:3}")
+    private int level;
+
+    @Value("${storage.compression.min-size:4KB}")
+    private DataSize minSize;
+
+    @Value("${storage.compression.sample-size:64KB}")
+    private DataSize sampleSize;
+
+    @Value("${storage.compression.max-ratio:0.8}")
+    private double maxRatio;
+
+    private final ChunkStore chunkStore;
+    private final TieringService tieringService;
+
+    public CompressionService(ChunkStore chunkStore, TieringService tieringService) {
+        this.chunkStore = chunkStore;
+        this.tieringService = tieringService;
+    }
+
+    /**
+     * Decides by content type first, then by compressing a sample of the first bytes, so already
+     * compressed payloads labelled as text or octet-stream are stored as is.
+     */
+    public StoredContent prepare(InputStream source, long size, String contentType) throws IOException {
+        if (!enabled || size < minSize.toBytes() || !isCandidate(contentType)) {
+            return StoredContent.raw(source, size);
+        }
+        byte[] sample = source.readNBytes((int) Math.min(size, sampleSize.toBytes()));
+        InputStream whole = new SequenceInputStream(new ByteArrayInputStream(sample), source);
+        if (!isCompressible(sample)) {
+            return StoredContent.raw(whole, size);
+        }
+        Path tempFile = Files.createTempFile("upload-", ".zst");
+        MessageDigest md5 = md5();
+        try (var out = new ZstdOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)), level)) {
+            new DigestInputStream(whole, md5).transferTo(out);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        } finally {
+            whole.close();
+        }
+        long storedSize = Files.size(tempFile);
+        log.debug("Compressed upload {} -> {} bytes", size, storedSize);
+        return new StoredContent(
+                Files.newInputStream(tempFile),
+                storedSize,
+                Map.of(ObjectMetadata.CODEC, ZSTD,
+                        ObjectMetadata.LOGICAL_SIZE, String.valueOf(size),
+                        ObjectMetadata.CONTENT_MD5, HexFormat.of().formatHex(md5.digest())),
+                tempFile
+        );
+    }
+
+    public InputStream decode(GetObjectResponse object) throws IOException {
+        String codec = ObjectMetadata.get(object.headers(), ObjectMetadata.CODEC);
+        if (TieringService.CODEC.equalsIgnoreCase(codec)) {
+            return decode(tieringService.open(object));
+        }
+        return decode(object.object(), object, codec);
+    }
+
+    public InputStream decode(InputStream stored, String codec) throws IOException {
+        return decode(null, stored, codec);
+    }
+
+    /**
+     * The object name locates the chunks of chunked files. Files in the cold tier are found by the
+     * metadata of their stub and can only be read from the stub's storage response.
+     */
+    public InputStream decode(String objectName, InputStream stored, String codec) throws IOException {
+        if (codec == null) {
+            return stored;
+        }
+        if (ZSTD.equalsIgnoreCase(codec)) {
+            return new ZstdInputStream(new BufferedInputStream(stored));
+        }
+        if (ChunkStore.CODEC.equalsIgnoreCase(codec)) {
+            return chunkStore.open(objectName, stored);
+        }
+        if (TieringService.CODEC.equalsIgnoreCase(codec)) {
+            stored.close();
+            throw new ResourceOperationException("Cold file read without its stub's metadata: " + objectName);
+        }
+        throw new ResourceOperationException("Unsupported storage codec: " + codec);
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not available", e);
+        }
+    }
+
+    private boolean isCandidate(String contentType) {
+        if (contentType == null) {
+            return true;
+        }
+        String type = contentType.toLowerCase();
+        int parameters = type.indexOf(';');
+        if (parameters >= 0) {
+            type = type.substring(0, parameters).trim();
+        }
+        return type.startsWith("text/")
+                || COMPRESSIBLE_TYPES.contains(type)
+                || type.equals("application/octet-stream");
+    }
+
+    private boolean isCompressible(byte[] sample) {
+        if (sample.length == 0) {
+            return false;
+        }
+        byte[] compressed = Zstd.compress(sample, 1);
+        return compressed.length <= sample.length * maxRatio;
+    }
+}
@@ -0,0 +1,145 @@
+package com.qubb.cloud.storage;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import io.minio.MinioAsyncClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.messages.Part;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Uploads large objects in parts with a write condition such as {@code If-None-Match: *} on the
+ * request that completes the upload. The client library puts custom headers on the request that
+ * starts a multipart upload only, where the storage evaluates them before any data is sent, so two
+ * uploads started together could both pass the check and the later completion would overwrite the
+ * earlier one. On completion the check and the write are one step again.
+ */
+@Slf4j
+@Component
+public class ConditionalUploader {
+
+    private final StorageBulkheads bulkheads;
+    private final long partSize;
+
+    public ConditionalUploader(StorageBulkheads bulkheads,
+                               @Value("${storage.conditional-upload.part-size:16MB}") DataSize partSize) {
+        this.bulkheads = bulkheads;
+        this.partSize = Math.clamp(partSize.toBytes(), MultipartCopier.MIN_PART_SIZE, MultipartCopier.MAX_PART_SIZE);
+    }
+
+    /**
+     * Whether the client library would send an object of this size in parts, losing the condition.
+     */
+    public boolean isMultipart(Long size) {
+        return size == null || size < 0 || size > MultipartCopier.MIN_PART_SIZE;
+    }
+
+    /**
+     * Reads the stream one part at a time, so at most one part is held in memory. A stream shorter
+     * or longer than {@code size} fails the upload, as it would with a single request.
+     */
+    ObjectWriteResponse upload(StorageShard shard,
+                               String objectName,
+                               InputStream stream,
+                               Long size,
+                               String contentType,
+                               Map<String, String> userMetadata,
+                               Map<String, String> conditions) throws Exception {
+        MinioAsyncClient client = shard.bulkAsyncClient();
+        String bucket = shard.bucket();
+        long part = partSize(size);
+        String uploadId = execute("createMultipartUpload", () -> await(client.createMultipartUploadAsync(
+                bucket, null, objectName, objectHeaders(contentType, userMetadata), null)).result().uploadId());
+        try {
+            Part[] parts = uploadParts(client, bucket, objectName, uploadId, stream, size, part);
+            Multimap<String, String> completeHeaders = HashMultimap.create();
+            conditions.forEach(completeHeaders::put);
+            ObjectWriteResponse response = execute("completeMultipartUpload", () -> await(
+                    client.completeMultipartUploadAsync(bucket, null, objectName, uploadId, parts, completeHeaders, null)));
+            log.debug("Uploaded {} in {} parts of up to {} bytes", objectName, parts.length, part);
+            return response;
+        } catch (Exception e) {
+            abort(client, bucket, objectName, uploadId);
+            throw e;
+        }
+    }
+
+    long partSize(Long size) {
+        if (size == null || size < 0) {
+            return partSize;
+        }
+        long minimumForPartLimit = (size + MultipartCopier.MAX_PARTS - 1) / MultipartCopier.MAX_PARTS;
+        return Math.clamp(Math.max(partSize, minimumForPartLimit), MultipartCopier.MIN_PART_SIZE,
+                MultipartCopier.MAX_PART_SIZE);
+    }
+
+    private Part[] uploadParts(MinioAsyncClient client,
+                               String bucket,
+                               String objectName,
+                               String uploadId,
+                               InputStream stream,
+                               Long size,
+                               long part) throws Exception {
+        List<Part> parts = new ArrayList<>();
+        long uploaded = 0;
+        byte[] data = stream.readNBytes((int) part);
+        do {
+            if (parts.size() == MultipartCopier.MAX_PARTS) {
+                throw new IOException("Too many parts for " + objectName);
+            }
+            int partNumber = parts.size() + 1;
+            byte[] body = data;
+            var response = execute("uploadPart", () -> await(client.uploadPartAsync(
+                    bucket, null, objectName, body, body.length, uploadId, partNumber, null, null)));
+            parts.add(new Part(partNumber, response.etag()));
+            uploaded += body.length;
+            data = body.length < part ? new byte[0] : stream.readNBytes((int) part);
+        } while (data.length > 0);
+        if (size != null && size >= 0 && uploaded != size) {
+            throw new IOException("Expected " + size + " bytes for " + objectName + " but read " + uploaded);
+        }
+        return parts.toArray(Part[]::new);
+    }
+
+    private void abort(MinioAsyncClient client, String bucket, String objectName, String uploadId) {
+        try {
+            await(client.abortMultipartUploadAsync(bucket, null, objectName, uploadId, null, null));
+        } catch (Exception e) {
+            log.warn("Failed to abort upload of {}, upload {} is left for the bucket lifecycle", objectName, uploadId);
+        }
+    }
+
+    private static Multimap<String, String> objectHeaders(String contentType, Map<String, String> userMetadata) {
+        Multimap<String, String> headers = HashMultimap.create();
+        if (contentType != null) {
+            headers.put("Content-Type", contentType);
+        }
+        if (userMetadata != null) {
+            userMetadata.forEach((key, value) -> headers.put("x-amz-meta-" + key, value));
+        }
+        return headers;
+    }
+
+    private <T> T execute(String operation, StorageCallContext.StorageCall<T> call) throws Exception {
+        return StorageCallContext.track(operation, () -> bulkheads.execute(call));
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+}
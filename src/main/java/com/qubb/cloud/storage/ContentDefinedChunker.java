@@ -0,0 +1,130 @@
+package com.qubb.cloud.storage;
+
+import com.qubb.cloud.payload.ChunkingParameters;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Splits content where its bytes say so rather than at fixed offsets, so that an insertion or
+ * deletion in a large file only changes the chunks around the edit and the rest are found again.
+ * <p>
+ * This is FastCDC: a Gear rolling hash over the last 64 bytes is tested against a mask, no cut is
+ * looked for in the first {@code min-size} bytes of a chunk, a harder mask is used before
+ * {@code average-size} and an easier one after it, and a chunk is cut at {@code max-size} at the
+ * latest. The Gear table is SplitMix64 seeded with 0, so clients can produce the same chunks.
+ */
+@Component
+public class ContentDefinedChunker {
+
+    public static final String ALGORITHM = "fastcdc-gear-splitmix64";
+
+    private static final long[] GEAR = gearTable();
+
+    private final int minSize;
+    private final int averageSize;
+    private final int maxSize;
+    private final long smallMask;
+    private final long largeMask;
+
+    public ContentDefinedChunker(@Value("${storage.chunking.min-size:256KB}") DataSize minSize,
+                                 @Value("${storage.chunking.average-size:1MB}") DataSize averageSize,
+                                 @Value("${storage.chunking.max-size:4MB}") DataSize maxSize) {
+        this.minSize = Math.toIntExact(minSize.toBytes());
+        this.averageSize = Math.toIntExact(averageSize.toBytes());
+        this.maxSize = Math.toIntExact(maxSize.toBytes());
+        if (Integer.bitCount(this.averageSize) != 1 || this.minSize < 64
+                || this.minSize >= this.averageSize || this.averageSize >= this.maxSize) {
+            throw new IllegalArgumentException("Chunk sizes must satisfy 64B <= min < average < max, "
+                    + "with a power of two as average");
+        }
+        int bits = Integer.numberOfTrailingZeros(this.averageSize);
+        this.smallMask = topBits(bits + 2);
+        this.largeMask = topBits(bits - 2);
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    public ChunkingParameters parameters() {
+        return ChunkingParameters.builder()
+                .algorithm(ALGORITHM)
+                .hash("SHA-256")
+                .minSize(minSize)
+                .averageSize(averageSize)
+                .maxSize(maxSize)
+                .build();
+    }
+
+    /**
+     * Hands each chunk to {@code handler} in order. The buffer is reused for the next chunk, so the
+     * handler must be done with it when it returns.
+     */
+    public void split(InputStream source, ChunkHandler handler) throws IOException {
+        byte[] buffer = new byte[maxSize];
+        int filled = source.readNBytes(buffer, 0, maxSize);
+        while (filled > 0) {
+            int length = cut(buffer, filled);
+            handler.accept(buffer, length);
+            System.arraycopy(buffer, length, buffer, 0, filled - length);
+            filled -= length;
+            filled += source.readNBytes(buffer, filled, maxSize - filled);
+        }
+    }
+
+    /**
+     * Length of the chunk at the start of {@code buffer}, which holds {@code length} bytes: all of
+     * them at the end of the content, at least {@code max-size} otherwise.
+     */
+    int cut(byte[] buffer, int length) {
+        if (length <= minSize) {
+            return length;
+        }
+        int end = Math.min(length, maxSize);
+        int normal = Math.min(averageSize, end);
+        long fingerprint = 0;
+        int i = minSize;
+        for (; i < normal; i++) {
+            fingerprint = (fingerprint << 1) + GEAR[buffer[i] & 0xff];
+            if ((fingerprint & smallMask) == 0) {
+                return i + 1;
+            }
+        }
+        for (; i < end; i++) {
+            fingerprint = (fingerprint << 1) + GEAR[buffer[i] & 0xff];
+            if ((fingerprint & largeMask) == 0) {
+                return i + 1;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * The shift moves older bytes towards the top, so the top bits depend on the most bytes.
+     */
+    private static long topBits(int bits) {
+        return -1L << (Long.SIZE - bits);
+    }
+
+    private static long[] gearTable() {
+        long[] table = new long[256];
+        long state = 0;
+        for (int i = 0; i < table.length; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            long z = state;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            table[i] = z ^ (z >>> 31);
+        }
+        return table;
+    }
+
+    @FunctionalInterface
+    public interface ChunkHandler {
+        void accept(byte[] buffer, int length) throws IOException;
+    }
+}
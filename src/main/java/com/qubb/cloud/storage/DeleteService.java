@@ -3,6 +3,8 @@ package com.qubb.cloud.storage;
 
 import com.qubb.cloud.exception.ResourceNotFoundException;
 import com.qubb.cloud.exception.ResourceOperationException;
+import com.qubb.cloud.util.PathUtils;
+import io.minio.StatObjectResponse;
 import io.minio.messages.Item;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -22,23 +24,50 @@ public class DeleteService {
         }
     }
 
+    /**
+     * The file is stat'ed first so its size can be taken off the folders above it;
+     * a file that is already gone has nothing to take off.
+     */
     public void deleteFile(String objectName) {
+        StatObjectResponse stat = null;
         try {
-            minioService.removeObject(objectName);
-        } catch (Exception e) {
-            throw new ResourceOperationException("Failed to delete file: " + objectName, e);
+            stat = minioService.statObject(objectName);
+        } catch (ResourceOperationException e) {
+            removeObject(objectName);
         }
+        if (stat != null) {
+            removeObject(objectName, ObjectMetadata.logicalSize(stat.headers(), stat.size()));
+        }
+        removeObject(PathUtils.buildPreviewObjectName(objectName));
     }
 
     public void deleteDirectory(String directoryPath) {
-        List<String> objectsToDelete = minioService
+        List<Item> objectsToDelete = minioService
                 .recursiveListObjects(directoryPath)
-                .map(Item::objectName)
                 .toList();
         if (objectsToDelete.isEmpty()) {
             throw new ResourceNotFoundException("Directory not found or empty: " + directoryPath);
         }
-        objectsToDelete.forEach(this::deleteFile);
+        objectsToDelete.forEach(item -> removeObject(item.objectName(),
+                ObjectMetadata.logicalSize(item.userMetadata(), item.size())));
+        minioService.recursiveListObjects(PathUtils.buildPreviewObjectName(directoryPath))
+                .map(Item::objectName)
+                .forEach(this::removeObject);
+    }
+
+    private void removeObject(String objectName, long logicalSize) {
+        try {
+            minioService.removeObject(objectName, logicalSize);
+        } catch (Exception e) {
+            throw new ResourceOperationException("Failed to delete file: " + objectName, e);
+        }
     }
-}
 
+    private void removeObject(String objectName) {
+        try {
+            minioService.removeObject(objectName);
+        } catch (Exception e) {
+            throw new ResourceOperationException("Failed to delete file: " + objectName, e);
+        }
+    }
+}
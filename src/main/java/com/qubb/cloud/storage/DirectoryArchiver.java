@@ -0,0 +1,270 @@
+package com.qubb.cloud.storage;
+
+import com.qubb.cloud.exception.ResourceOperationException;
+import io.minio.messages.Item;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.zip.ScatterZipOutputStream;
+import org.apache.commons.compress.archivers.zip.StreamCompressor;
+import org.apache.commons.compress.archivers.zip.Zip64Mode;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntryRequest;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.parallel.FileBasedScatterGatherBackingStore;
+import org.apache.commons.compress.parallel.InputStreamSupplier;
+import org.apache.commons.compress.parallel.ScatterGatherBackingStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+
+/**
+ * Packs a directory into a ZIP stream. Entries are read and deflated in parallel on a shared
+ * fork-join pool, a bounded window ahead of the one being written, and written in listing order as
+ * they finish, so the first bytes go out while the rest is still being packed. Already compressed
+ * media is stored as is.
+ */
+@Slf4j
+@Component
+public class DirectoryArchiver {
+
+    private static final Set<String> INCOMPRESSIBLE_TYPES = Set.of(
+            "image/jpeg", "image/png", "image/gif", "image/webp", "image/heic", "image/avif",
+            "application/zip", "application/gzip", "application/x-gzip", "application/x-bzip2",
+            "application/x-xz", "application/x-7z-compressed", "application/vnd.rar",
+            "application/x-rar-compressed", "application/zstd", "application/java-archive",
+            "application/epub+zip", "application/pdf");
+    private static final Set<String> INCOMPRESSIBLE_PREFIXES = Set.of("video/", "audio/");
+
+    private final MinioService minioService;
+    private final CompressionService compressionService;
+    private final ForkJoinPool pool;
+    private final ExecutorService writers = Executors.newCachedThreadPool(
+            new CustomizableThreadFactory("archive-writer-"));
+
+    @Value("${storage.archive.compression-level:6}")
+    private int compressionLevel;
+
+    @Value("${storage.archive.memory-entry-limit:1MB}")
+    private DataSize memoryEntryLimit = DataSize.ofMegabytes(1);
+
+    public DirectoryArchiver(MinioService minioService,
+                             CompressionService compressionService,
+                             @Value("${storage.archive.parallelism:0}") int parallelism) {
+        this.minioService = minioService;
+        this.compressionService = compressionService;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * A stream of the archive {@link #archive(String, OutputStream, Predicate)} writes, packed as it is read.
+     */
+    public InputStream open(String directoryPath, Predicate<Item> include) {
+        return new PipedArchiveStream(out -> archive(directoryPath, out, include), writers);
+    }
+
+    /**
+     * A stream of the archive {@link #archive(String, List, OutputStream, Predicate)} writes, packed as it is read.
+     */
+    public InputStream open(String basePath, List<String> objectNames, Predicate<Item> include) {
+        return new PipedArchiveStream(out -> archive(basePath, objectNames, out, include), writers);
+    }
+
+    /**
+     * Writes every object under {@code directoryPath} to {@code target}, keeping paths relative to the directory.
+     */
+    public void archive(String directoryPath, OutputStream target) {
+        archive(directoryPath, target, item -> true);
+    }
+
+    /**
+     * Same as {@link #archive(String, OutputStream)}, leaving out the objects {@code include} rejects.
+     */
+    public void archive(String directoryPath, OutputStream target, Predicate<Item> include) {
+        StoragePriority.BULK.run(() -> writeArchive(directoryPath, target, minioService.recursiveListObjects(directoryPath)
+                .filter(item -> !item.objectName().equals(directoryPath))
+                .filter(include)));
+    }
+
+    /**
+     * Writes the selected files and folders, all below {@code basePath}, to {@code target} with paths
+     * relative to {@code basePath}. Folders are packed with everything under them that {@code include} accepts.
+     */
+    public void archive(String basePath, List<String> objectNames, OutputStream target, Predicate<Item> include) {
+        StoragePriority.BULK.run(() -> writeArchive(basePath, target, objectNames.stream()
+                .flatMap(objectName -> objectName.endsWith("/")
+                        ? minioService.recursiveListObjects(objectName)
+                        : minioService.listObjects(objectName).filter(item -> item.objectName().equals(objectName)))
+                .filter(include)));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writers.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    /**
+     * Keeps up to twice the pool's parallelism entries in flight, so workers never wait on the
+     * writer while the memory and scratch space held by finished entries stays bounded. The target
+     * is closed only once the archive is complete: closing it early would end it with a central
+     * directory and pass it off as whole.
+     */
+    private void writeArchive(String directoryPath, OutputStream target, Stream<Item> items) {
+        int window = 2 * pool.getParallelism();
+        Deque<PackedEntry> pending = new ArrayDeque<>();
+        var zipOut = new ZipArchiveOutputStream(target);
+        zipOut.setUseZip64(Zip64Mode.AsNeeded);
+        try (items) {
+            Iterator<Item> iterator = items.iterator();
+            while (iterator.hasNext()) {
+                pending.add(pack(directoryPath, iterator.next()));
+                if (pending.size() >= window) {
+                    writeEntry(pending.poll(), zipOut);
+                }
+            }
+            while (!pending.isEmpty()) {
+                writeEntry(pending.poll(), zipOut);
+            }
+            zipOut.close();
+            log.debug("Archived {}", directoryPath);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceOperationException("Directory packaging interrupted: " + directoryPath, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new ResourceOperationException("Directory packaging failed: " + directoryPath, e.getCause());
+        } catch (IOException e) {
+            throw new ResourceOperationException("Directory packaging failed: " + directoryPath, e);
+        } finally {
+            pending.forEach(PackedEntry::discard);
+        }
+    }
+
+    /**
+     * Starts compressing the entry into its own scatter stream, in memory for small files and in a
+     * scratch file for the rest.
+     */
+    private PackedEntry pack(String directoryPath, Item item) throws IOException {
+        String objectName = item.objectName();
+        var entry = new ZipArchiveEntry(objectName.substring(directoryPath.length()));
+        if (item.lastModified() != null) {
+            entry.setTime(item.lastModified().toInstant().toEpochMilli());
+        }
+        InputStreamSupplier payload;
+        if (entry.isDirectory()) {
+            entry.setMethod(ZipEntry.STORED);
+            payload = () -> new ByteArrayInputStream(new byte[0]);
+        } else {
+            entry.setMethod(isIncompressible(item) ? ZipEntry.STORED : ZipEntry.DEFLATED);
+            payload = openEntry(objectName);
+        }
+        ScatterGatherBackingStore store = entry.isDirectory() || item.size() <= memoryEntryLimit.toBytes()
+                ? new MemoryBackingStore()
+                : new FileBasedScatterGatherBackingStore(Files.createTempFile("archive-entry-", ".tmp"));
+        var scatter = new ScatterZipOutputStream(store, StreamCompressor.create(compressionLevel, store));
+        var task = new FutureTask<>(() -> {
+            scatter.addArchiveEntry(ZipArchiveEntryRequest.createZipArchiveEntryRequest(entry, payload));
+            return scatter;
+        });
+        pool.execute(StorageCallContext.wrap(task));
+        return new PackedEntry(scatter, task);
+    }
+
+    private static void writeEntry(PackedEntry packed, ZipArchiveOutputStream zipOut)
+            throws IOException, InterruptedException, ExecutionException {
+        try (ScatterZipOutputStream scatter = packed.task().get()) {
+            scatter.writeTo(zipOut);
+        }
+    }
+
+    private InputStreamSupplier openEntry(String objectName) {
+        return () -> StoragePriority.BULK.call(() -> {
+            try {
+                return compressionService.decode(minioService.getObject(objectName));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read: " + objectName, e);
+            }
+        });
+    }
+
+    /**
+     * Objects compressed at rest were compressible to begin with; everything else is judged by its type.
+     */
+    boolean isIncompressible(Item item) {
+        if (CompressionService.ZSTD.equals(ObjectMetadata.get(item.userMetadata(), ObjectMetadata.CODEC))) {
+            return false;
+        }
+        String contentType = ObjectMetadata.get(item.userMetadata(), "content-type");
+        MediaType mediaType;
+        try {
+            mediaType = contentType != null
+                    ? MediaType.parseMediaType(contentType)
+                    : MediaTypeFactory.getMediaType(item.objectName()).orElse(null);
+        } catch (InvalidMediaTypeException e) {
+            mediaType = null;
+        }
+        if (mediaType == null) {
+            return false;
+        }
+        String type = (mediaType.getType() + "/" + mediaType.getSubtype()).toLowerCase(Locale.ROOT);
+        return INCOMPRESSIBLE_TYPES.contains(type)
+                || INCOMPRESSIBLE_PREFIXES.stream().anyMatch(type::startsWith);
+    }
+
+    /**
+     * An entry being compressed. Discarding it stops the compression and frees its scratch file.
+     */
+    private record PackedEntry(ScatterZipOutputStream scatter, FutureTask<ScatterZipOutputStream> task) {
+
+        void discard() {
+            task.cancel(true);
+            try {
+                scatter.close();
+            } catch (IOException e) {
+                log.debug("Failed to discard archive entry", e);
+            }
+        }
+    }
+
+    private static final class MemoryBackingStore implements ScatterGatherBackingStore {
+
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(buffer.toByteArray());
+        }
+
+        @Override
+        public void writeOut(byte[] data, int offset, int length) {
+            buffer.write(data, offset, length);
+        }
+
+        @Override
+        public void closeForWriting() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,526 @@
+package com.qubb.cloud.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.GetObjectResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Read-through cache of stored object bytes on the node's local disk, evicted least recently used
+ * under a size cap. Entries are keyed by object name and etag: every hit is revalidated with a
+ * conditional GET, so storage only sends a body when the object has changed. A miss starts one
+ * download to disk that runs to the end whether or not its reader does; that reader and any other
+ * miss on the same object meanwhile read the partial file as it grows instead of fetching again.
+ * <p>
+ * Entries are served as plain file streams. The body is decoded on its way to the client and the
+ * servlet stack copies it through a buffer, so neither {@code transferTo} to the socket nor memory
+ * mapping is used.
+ */
+@Slf4j
+@Component
+public class DiskObjectCache {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final MinioService minioService;
+    private final boolean enabled;
+    private final Path directory;
+    private final long maxSize;
+    private final long maxObjectSize;
+    private final LinkedHashMap<String, CachedObject> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, Fill> filling = new ConcurrentHashMap<>();
+    private final ExecutorService fillers = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("disk-cache-fill-", 0).factory());
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter stale;
+    private final Counter evictions;
+    private long size;
+
+    public DiskObjectCache(MinioService minioService,
+                           @Value("${storage.disk-cache.enabled:false}") boolean enabled,
+                           @Value("${storage.disk-cache.directory:${java.io.tmpdir}/cloud-object-cache}") Path directory,
+                           @Value("${storage.disk-cache.max-size:10GB}") DataSize maxSize,
+                           @Value("${storage.disk-cache.max-object-size:512MB}") DataSize maxObjectSize,
+                           MeterRegistry meterRegistry) throws IOException {
+        this.minioService = minioService;
+        this.enabled = enabled;
+        this.directory = directory;
+        this.maxSize = maxSize.toBytes();
+        this.maxObjectSize = Math.min(maxObjectSize.toBytes(), maxSize.toBytes());
+        this.hits = counter(meterRegistry, "hit");
+        this.misses = counter(meterRegistry, "miss");
+        this.stale = counter(meterRegistry, "stale");
+        this.evictions = Counter.builder("storage.disk.cache.evictions").register(meterRegistry);
+        Gauge.builder("storage.disk.cache.size", this, cache -> cache.size)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("storage.disk.cache.hit.ratio", this, DiskObjectCache::hitRatio)
+                .register(meterRegistry);
+        if (enabled) {
+            // the index lives in memory, so files left by a previous run cannot be trusted
+            FileSystemUtils.deleteRecursively(directory);
+            Files.createDirectories(directory);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fillers.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the object's body, opened from local disk on a hit and otherwise from the download
+     * filling the entry. Objects too large to cache, and stubs of files in the cold tier, which are
+     * replaced on their first read, come back as the open storage response instead.
+     */
+    public Read read(String objectName) throws IOException {
+        Read hit = open(objectName);
+        if (hit != null) {
+            Optional<GetObjectResponse> changed;
+            try {
+                changed = minioService.getObjectIfModified(objectName, hit.cached().etag());
+            } catch (RuntimeException e) {
+                hit.body().close();
+                throw e;
+            }
+            if (changed.isEmpty()) {
+                hits.increment();
+                return hit;
+            }
+            hit.body().close();
+            stale.increment();
+            remove(objectName);
+            Fill fill = new Fill(objectName);
+            if (filling.putIfAbsent(objectName, fill) != null) {
+                return new Read(null, null, changed.get());
+            }
+            return start(fill, changed.get());
+        }
+        misses.increment();
+        Fill fill = new Fill(objectName);
+        Fill current = filling.putIfAbsent(objectName, fill);
+        if (current != null) {
+            return join(current);
+        }
+        GetObjectResponse object;
+        try {
+            object = minioService.getObject(objectName);
+        } catch (RuntimeException | Error e) {
+            fill.decline();
+            throw e;
+        }
+        return start(fill, object);
+    }
+
+    @EventListener
+    public void onObjectChanged(ObjectChangedEvent event) {
+        if (enabled) {
+            remove(event.objectName());
+        }
+    }
+
+    /**
+     * Copies the body to a temporary file in the background, so a half-written entry is never
+     * visible and the copy does not depend on how far the first reader gets.
+     */
+    private Read start(Fill fill, GetObjectResponse object) {
+        String objectName = fill.objectName;
+        StoredHeaders headers = StoredHeaders.of(object);
+        boolean stub = TieringService.CODEC.equalsIgnoreCase(ObjectMetadata.get(object.headers(), ObjectMetadata.CODEC));
+        if (stub || headers.storedSize() < 0 || headers.storedSize() > maxObjectSize) {
+            fill.decline();
+            return new Read(null, null, object);
+        }
+        Path partial = null;
+        OutputStream out;
+        InputStream body;
+        try {
+            partial = Files.createTempFile(directory, "partial-", ".tmp");
+            out = Files.newOutputStream(partial);
+            body = Files.newInputStream(partial);
+        } catch (IOException e) {
+            deletePartial(partial);
+            fill.decline();
+            log.warn("Failed to cache {} on disk: {}", objectName, e.getMessage());
+            return new Read(null, null, object);
+        }
+        var cached = new CachedObject(objectName, headers.etag(), directory.resolve(fileName(objectName, headers.etag())),
+                headers.storedSize(), ObjectMetadata.logicalSize(object.headers(), headers.storedSize()),
+                headers.lastModified(), ObjectMetadata.get(object.headers(), ObjectMetadata.CODEC));
+        fill.start(cached, partial);
+        try {
+            fillers.execute(() -> copy(fill, object, out));
+        } catch (RejectedExecutionException e) {
+            fill.fail(new IOException("Cache is shutting down", e));
+            closeQuietly(object);
+            closeQuietly(out);
+        }
+        return new Read(cached, new TailStream(fill, body), null);
+    }
+
+    /**
+     * Misses that find a download under way wait for its headers and then read its file; if the
+     * object turned out not to be cacheable, or the download has failed, they read storage themselves.
+     */
+    private Read join(Fill fill) throws IOException {
+        Read read = fill.awaitStarted() ? fill.tail() : null;
+        return read != null ? read : new Read(null, null, minioService.getObject(fill.objectName));
+    }
+
+    private void copy(Fill fill, GetObjectResponse object, OutputStream out) {
+        try (object; out) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = object.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                fill.advance(read);
+            }
+        } catch (IOException e) {
+            fill.fail(e);
+            return;
+        }
+        fill.complete();
+    }
+
+    /**
+     * Opens the entry while holding the index lock: eviction takes an entry out of the index before
+     * deleting its file, so an entry found here still has its file, and an open file stays readable.
+     */
+    private Read open(String objectName) throws IOException {
+        synchronized (entries) {
+            CachedObject cached = entries.get(objectName);
+            if (cached == null) {
+                return null;
+            }
+            try {
+                return new Read(cached, cached.open(), null);
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+        }
+    }
+
+    private void put(CachedObject cached) {
+        List<CachedObject> evicted = new ArrayList<>();
+        synchronized (entries) {
+            CachedObject previous = entries.put(cached.objectName(), cached);
+            if (previous != null) {
+                size -= previous.storedSize();
+                if (!previous.file().equals(cached.file())) {
+                    evicted.add(previous);
+                }
+            }
+            size += cached.storedSize();
+            Iterator<CachedObject> eldest = entries.values().iterator();
+            while (size > maxSize && eldest.hasNext()) {
+                CachedObject victim = eldest.next();
+                if (victim == cached) {
+                    continue;
+                }
+                eldest.remove();
+                size -= victim.storedSize();
+                evicted.add(victim);
+                evictions.increment();
+            }
+        }
+        evicted.forEach(DiskObjectCache::deleteFile);
+    }
+
+    private void remove(String objectName) {
+        CachedObject removed;
+        synchronized (entries) {
+            removed = entries.remove(objectName);
+            if (removed != null) {
+                size -= removed.storedSize();
+            }
+        }
+        if (removed != null) {
+            deleteFile(removed);
+        }
+    }
+
+    /**
+     * Open readers keep their data: on the file systems the cache is meant for, a deleted file
+     * stays readable until its last descriptor is closed.
+     */
+    private static void deleteFile(CachedObject cached) {
+        try {
+            Files.deleteIfExists(cached.file());
+        } catch (IOException e) {
+            log.warn("Failed to delete cached file {}", cached.file(), e);
+        }
+    }
+
+    private static void deletePartial(Path partial) {
+        if (partial == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(partial);
+        } catch (IOException e) {
+            log.warn("Failed to delete partial file {}", partial, e);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            log.debug("Failed to close {}", closeable, e);
+        }
+    }
+
+    private double hitRatio() {
+        double lookups = hits.count() + misses.count() + stale.count();
+        return lookups == 0 ? 0 : hits.count() / lookups;
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("storage.disk.cache.requests")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static String fileName(String objectName, String etag) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(objectName.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(etag).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A cached copy of the stored bytes; {@code codec} tells how they are to be decoded.
+     */
+    public record CachedObject(String objectName,
+                               String etag,
+                               Path file,
+                               long storedSize,
+                               Long logicalSize,
+                               Instant lastModified,
+                               String codec) {
+
+        public InputStream open() throws IOException {
+            return Files.newInputStream(file);
+        }
+    }
+
+    /**
+     * Outcome of {@link #read}: either the cached copy with its body open, or the open storage
+     * response of an object that is not cached.
+     */
+    public record Read(CachedObject cached, InputStream body, GetObjectResponse object) {
+    }
+
+    private enum FillState {
+        PENDING, RUNNING, DONE, FAILED, DECLINED
+    }
+
+    /**
+     * One download into the cache. Moving the finished file into place and opening the partial
+     * file for another reader both happen under this object's lock, so a reader that joins always
+     * finds one of the two.
+     */
+    private final class Fill {
+
+        private final String objectName;
+        private FillState state = FillState.PENDING;
+        private CachedObject cached;
+        private Path partial;
+        private long written;
+        private IOException failure;
+
+        private Fill(String objectName) {
+            this.objectName = objectName;
+        }
+
+        synchronized void start(CachedObject cached, Path partial) {
+            this.cached = cached;
+            this.partial = partial;
+            state = FillState.RUNNING;
+            notifyAll();
+        }
+
+        void decline() {
+            synchronized (this) {
+                state = FillState.DECLINED;
+                notifyAll();
+            }
+            filling.remove(objectName, this);
+        }
+
+        synchronized void advance(int read) {
+            written += read;
+            notifyAll();
+        }
+
+        void complete() {
+            synchronized (this) {
+                try {
+                    if (written != cached.storedSize()) {
+                        throw new IOException("Expected " + cached.storedSize() + " bytes but read " + written);
+                    }
+                    Files.move(partial, cached.file(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    fail(e);
+                    return;
+                }
+                put(cached);
+                state = FillState.DONE;
+                notifyAll();
+            }
+            filling.remove(objectName, this);
+        }
+
+        void fail(IOException e) {
+            synchronized (this) {
+                state = FillState.FAILED;
+                failure = e;
+                notifyAll();
+            }
+            log.warn("Failed to cache {} on disk: {}", objectName, e.getMessage());
+            deletePartial(partial);
+            filling.remove(objectName, this);
+        }
+
+        /**
+         * Returns whether a download was started, rather than left to each reader.
+         */
+        synchronized boolean awaitStarted() throws IOException {
+            while (state == FillState.PENDING) {
+                await();
+            }
+            return state != FillState.DECLINED;
+        }
+
+        /**
+         * Opens the file as far as it has been written, or {@code null} when there is none to read.
+         */
+        synchronized Read tail() throws IOException {
+            try {
+                return switch (state) {
+                    case RUNNING -> new Read(cached, new TailStream(this, Files.newInputStream(partial)), null);
+                    case DONE -> new Read(cached, cached.open(), null);
+                    default -> null;
+                };
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Waits until bytes past {@code position} are on disk and returns how many there are, or
+         * returns the full length once the download is done.
+         */
+        synchronized long awaitBeyond(long position) throws IOException {
+            while (state == FillState.RUNNING && written <= position) {
+                await();
+            }
+            if (state == FillState.FAILED) {
+                throw new IOException("Failed to read " + objectName, failure);
+            }
+            return written;
+        }
+
+        private void await() throws InterruptedIOException {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while reading " + objectName);
+            }
+        }
+    }
+
+    /**
+     * Reads a partial file no further than its download has written, waiting for more until the
+     * download is done. A failed download fails the read rather than ending it early.
+     */
+    private static final class TailStream extends InputStream {
+
+        private final Fill fill;
+        private final InputStream file;
+        private long position;
+
+        private TailStream(Fill fill, InputStream file) {
+            this.fill = fill;
+            this.file = file;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int read = read(single, 0, 1);
+            return read == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (len == 0) {
+                return 0;
+            }
+            long available = fill.awaitBeyond(position);
+            if (available <= position) {
+                return -1;
+            }
+            int read = file.read(b, off, (int) Math.min(len, available - position));
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            file.close();
+        }
+    }
+
+    private record StoredHeaders(String etag, long storedSize, Instant lastModified) {
+
+        static StoredHeaders of(GetObjectResponse object) {
+            String length = object.headers().get(HttpHeaders.CONTENT_LENGTH);
+            Date lastModified = object.headers().getDate(HttpHeaders.LAST_MODIFIED);
+            return new StoredHeaders(object.headers().get(HttpHeaders.ETAG),
+                    length == null ? -1 : Long.parseLong(length),
+                    lastModified == null ? null : lastModified.toInstant());
+        }
+    }
+}
@@ -2,75 +2,121 @@ package com.qubb.cloud.storage;
 
 import com.qubb.cloud.exception.ResourceOperationException;
 import com.qubb.cloud.payload.DownloadResponse;
+import com.qubb.cloud.payload.ReadConditions;
 import com.qubb.cloud.util.PathUtils;
+import io.minio.GetObjectResponse;
+import io.minio.StatObjectResponse;
 import io.minio.messages.Item;
 import lombok.RequiredArgsConstructor;
-import org.apache.commons.compress.utils.IOUtils;
-import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import java.io.ByteArrayOutputStream;
+
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Predicate;
 
 @Service
 @RequiredArgsConstructor
 public class DownloadService {
 
     private final MinioService minioService;
+    private final CompressionService compressionService;
+    private final DirectoryArchiver directoryArchiver;
+    private final DiskObjectCache diskObjectCache;
 
-    public DownloadResponse download(String objectName) {
+    /**
+     * Folders are packed with the objects under them that {@code include} accepts.
+     */
+    public DownloadResponse download(String objectName, ReadConditions conditions, Predicate<Item> include) {
         if (objectName.endsWith("/")) {
-            return downloadDirectory(objectName);
+            return downloadDirectory(objectName, include);
         } else {
-            return downloadFile(objectName);
+            return downloadFile(objectName, conditions);
         }
     }
 
-    private DownloadResponse downloadFile(String objectName) {
+    /**
+     * Conditional requests are answered from a stat, so a 304 carries the current validators
+     * whichever of the client's matched; a changed file is then read like any other.
+     */
+    private DownloadResponse downloadFile(String objectName, ReadConditions conditions) {
         try {
-            InputStream stream = minioService.getObject(objectName);
-            String filename = PathUtils.getResourceName(objectName);
-            return new DownloadResponse(
-                    new InputStreamResource(stream),
-                    MediaType.APPLICATION_OCTET_STREAM,
-                    filename
-            );
+            if (!conditions.isEmpty()) {
+                StatObjectResponse current = minioService.statObject(objectName);
+                Instant lastModified = current.lastModified() == null ? null : current.lastModified().toInstant();
+                if (conditions.isNotModified(current.etag(), lastModified)) {
+                    return DownloadResponse.notModified(current.etag(), lastModified);
+                }
+            }
+            if (diskObjectCache.isEnabled()) {
+                return downloadThroughCache(objectName);
+            }
+            return fromStorage(objectName, minioService.getObject(objectName));
         } catch (Exception e) {
             throw new ResourceOperationException("Failed to download file: " + objectName, e);
         }
     }
 
-    private DownloadResponse downloadDirectory(String directoryPath) {
-        try (ByteArrayOutputStream zipStream = new ByteArrayOutputStream();
-             ZipOutputStream zipOut = new ZipOutputStream(zipStream)) {
+    private DownloadResponse downloadThroughCache(String objectName) throws IOException {
+        DiskObjectCache.Read read = diskObjectCache.read(objectName);
+        if (read.object() != null) {
+            return fromStorage(objectName, read.object());
+        }
+        DiskObjectCache.CachedObject cached = read.cached();
+        return DownloadResponse.builder()
+                .resource(new InputStreamResource(compressionService.decode(objectName, read.body(), cached.codec())))
+                .mediaType(MediaType.APPLICATION_OCTET_STREAM)
+                .filename(PathUtils.getResourceName(objectName))
+                .contentLength(cached.logicalSize())
+                .etag(cached.etag())
+                .lastModified(cached.lastModified())
+                .build();
+    }
 
-            minioService.recursiveListObjects(directoryPath)
-                    .forEach(item -> packageZipEntry(item, zipOut));
+    private DownloadResponse fromStorage(String objectName, GetObjectResponse stream) throws IOException {
+        Date lastModified = stream.headers().getDate(HttpHeaders.LAST_MODIFIED);
+        return DownloadResponse.builder()
+                .resource(new InputStreamResource(compressionService.decode(stream)))
+                .mediaType(MediaType.APPLICATION_OCTET_STREAM)
+                .filename(PathUtils.getResourceName(objectName))
+                .contentLength(logicalSize(stream))
+                .etag(stream.headers().get(HttpHeaders.ETAG))
+                .lastModified(lastModified == null ? null : lastModified.toInstant())
+                .build();
+    }
 
-            zipOut.finish();
-            return new DownloadResponse(
-                    new ByteArrayResource(zipStream.toByteArray()),
-                    MediaType.parseMediaType("application/zip"),
-                    PathUtils.getResourceName(directoryPath) + ".zip"
-            );
-        } catch (IOException e) {
-            throw new ResourceOperationException("Directory packaging failed");
-        }
+    /**
+     * Folder archives are streamed as they are packed, so they have no length up front.
+     */
+    private DownloadResponse downloadDirectory(String directoryPath, Predicate<Item> include) {
+        return DownloadResponse.builder()
+                .resource(new InputStreamResource(directoryArchiver.open(directoryPath, include)))
+                .mediaType(MediaType.parseMediaType("application/zip"))
+                .filename(PathUtils.getResourceName(directoryPath) + ".zip")
+                .build();
     }
 
-    private void packageZipEntry(Item item, ZipOutputStream zipOut) {
-        try (InputStream is = minioService.getObject(item.objectName())) {
-            String entryName = PathUtils.getResourceName(item.objectName());
-            zipOut.putNextEntry(new ZipEntry(entryName));
-            IOUtils.copy(is, zipOut);
-            zipOut.closeEntry();
-        } catch (Exception e) {
-            throw new ResourceOperationException("Failed to package: " + item.objectName());
+    /**
+     * Packs several files and folders below {@code basePath} into one ZIP named after {@code filename}.
+     */
+    public DownloadResponse downloadSelection(String basePath, List<String> objectNames, String filename,
+                                              Predicate<Item> include) {
+        return DownloadResponse.builder()
+                .resource(new InputStreamResource(directoryArchiver.open(basePath, objectNames, include)))
+                .mediaType(MediaType.parseMediaType("application/zip"))
+                .filename(filename)
+                .build();
+    }
+
+    private Long logicalSize(GetObjectResponse object) {
+        String contentLength = object.headers().get(HttpHeaders.CONTENT_LENGTH);
+        if (contentLength == null) {
+            return null;
         }
+        return ObjectMetadata.logicalSize(object.headers(), Long.parseLong(contentLength));
     }
 }
-
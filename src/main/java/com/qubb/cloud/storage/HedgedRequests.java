@@ -0,0 +1,166 @@
+package com.qubb.cloud.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Sends a second copy of a slow idempotent read once the first has taken longer than the recent
+ * p95 latency of that operation, and returns whichever answers first. The losing result is discarded.
+ */
+@Slf4j
+@Component
+public class HedgedRequests {
+
+    private static final int WINDOW = 256;
+
+    private final boolean enabled;
+    private final Duration minDelay;
+    private final Duration maxDelay;
+    private final ThreadPoolExecutor executor;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+
+    public HedgedRequests(@Value("${minio.hedging.enabled:false}") boolean enabled,
+                          @Value("${minio.hedging.min-delay:20ms}") Duration minDelay,
+                          @Value("${minio.hedging.max-delay:1s}") Duration maxDelay,
+                          @Value("${minio.hedging.max-threads:64}") int maxThreads,
+                          MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.minDelay = minDelay;
+        this.maxDelay = maxDelay;
+        this.meterRegistry = meterRegistry;
+        this.executor = new ThreadPoolExecutor(
+                0, maxThreads,
+                60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                new CustomizableThreadFactory("minio-hedge-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    <T> T call(String operation, StorageCallContext.StorageCall<T> call, Consumer<T> discard) throws Exception {
+        if (!enabled) {
+            return call.execute();
+        }
+        LatencyWindow window = latencies.computeIfAbsent(operation, op -> new LatencyWindow());
+        CompletableFuture<T> primary = submit(call, window);
+        try {
+            return primary.get(window.hedgeDelay(minDelay, maxDelay), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            return hedge(operation, call, discard, window, primary);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T hedge(String operation,
+                        StorageCallContext.StorageCall<T> call,
+                        Consumer<T> discard,
+                        LatencyWindow window,
+                        CompletableFuture<T> primary) throws Exception {
+        counter(operation, "sent").increment();
+        CompletableFuture<T> secondary = submit(call, window);
+        CompletableFuture<T> winner = new CompletableFuture<>();
+        primary.whenComplete((value, error) -> settle(winner, value, error, discard, secondary));
+        secondary.whenComplete((value, error) -> {
+            if (error == null && !winner.isDone()) {
+                counter(operation, "won").increment();
+            }
+            settle(winner, value, error, discard, primary);
+        });
+        try {
+            return winner.get();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private <T> void settle(CompletableFuture<T> winner, T value, Throwable error,
+                            Consumer<T> discard, CompletableFuture<T> other) {
+        if (error == null) {
+            if (!winner.complete(value)) {
+                discard.accept(value);
+            }
+        } else if (other.isCompletedExceptionally()) {
+            winner.completeExceptionally(error);
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(StorageCallContext.StorageCall<T> call, LatencyWindow window) {
+        Callable<T> timed = () -> {
+            long start = System.nanoTime();
+            T result = call.execute();
+            window.record(System.nanoTime() - start);
+            return result;
+        };
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(timed.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private Counter counter(String operation, String outcome) {
+        return Counter.builder("storage.hedged.requests")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static Exception unwrap(ExecutionException e) {
+        Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+        if (cause instanceof Exception exception) {
+            return exception;
+        }
+        throw (Error) cause;
+    }
+
+    /**
+     * Ring buffer of recent latencies; the percentile is recomputed every few samples rather than on every call.
+     */
+    private static final class LatencyWindow {
+
+        private final long[] samples = new long[WINDOW];
+        private int count;
+        private int next;
+        private volatile long p95 = -1;
+
+        synchronized void record(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % WINDOW;
+            count = Math.min(count + 1, WINDOW);
+            if (next % 16 == 0) {
+                long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                p95 = sorted[(int) Math.ceil(count * 0.95) - 1];
+            }
+        }
+
+        long hedgeDelay(Duration min, Duration max) {
+            long current = p95;
+            if (current < 0) {
+                return max.toNanos();
+            }
+            return Math.max(min.toNanos(), Math.min(max.toNanos(), current));
+        }
+    }
+}
@@ -1,147 +1,487 @@
 package com.qubb.cloud.storage;
 
+import com.qubb.cloud.exception.ResourceAlreadyExistsException;
+import com.qubb.cloud.exception.ResourceChangedException;
 import com.qubb.cloud.exception.ResourceOperationException;
+import com.qubb.cloud.exception.ServiceOverloadedException;
 import com.qubb.cloud.util.PathUtils;
 import io.minio.*;
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.ServerException;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
 import io.minio.messages.Item;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class MinioService {
 
-    private final MinioClient minioClient;
+    private static final long MIN_MULTIPART_SIZE = 5L * 1024 * 1024;
 
-    @Value("${minio.bucket}")
-    private String bucketName;
+    private final ShardRouter shardRouter;
+    private final HedgedRequests hedgedRequests;
+    private final StorageBulkheads bulkheads;
+    private final MultipartCopier multipartCopier;
+    private final ConditionalUploader conditionalUploader;
+    private final SmallObjectCache smallObjects;
+    private final AccessStats accessStats;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public MinioService(ShardRouter shardRouter,
+                        HedgedRequests hedgedRequests,
+                        StorageBulkheads bulkheads,
+                        MultipartCopier multipartCopier,
+                        ConditionalUploader conditionalUploader,
+                        SmallObjectCache smallObjects,
+                        AccessStats accessStats,
+                        ApplicationEventPublisher eventPublisher) {
+        this.shardRouter = shardRouter;
+        this.hedgedRequests = hedgedRequests;
+        this.bulkheads = bulkheads;
+        this.multipartCopier = multipartCopier;
+        this.conditionalUploader = conditionalUploader;
+        this.smallObjects = smallObjects;
+        this.accessStats = accessStats;
+        this.eventPublisher = eventPublisher;
+    }
 
     public void createBucketIfNotExists() {
-        try {
-            if (!bucketExists()) {
-                createBucket();
+        for (StorageShard shard : shardRouter.shards()) {
+            try {
+                if (!bucketExists(shard)) {
+                    createBucket(shard);
+                }
+            } catch (Exception e) {
+                throw storageFailure("Bucket initialization failed: " + shard.bucket(), e);
             }
+        }
+    }
+
+    public GetObjectResponse getObject(String objectName) {
+        accessStats.record(objectName);
+        try {
+            return cachedGet(shardRouter.route(objectName), objectName);
         } catch (Exception e) {
-            throw new ResourceOperationException("Bucket initialization failed: " + bucketName, e);
+            throw storageFailure("Failed to get object: " + objectName, e);
         }
     }
 
-    public InputStream getObject(String objectName) {
+    /**
+     * Empty when the object's etag is still {@code etag}, so an unchanged object costs no body.
+     */
+    public Optional<GetObjectResponse> getObjectIfModified(String objectName, String etag) {
+        accessStats.record(objectName);
+        StorageShard shard = shardRouter.route(objectName);
         try {
-            return minioClient.getObject(
-                    GetObjectArgs.builder()
-                            .bucket(bucketName)
-                            .object(objectName)
-                            .build());
+            return Optional.of(hedgedGet(shard, GetObjectArgs.builder()
+                    .bucket(shard.bucket())
+                    .object(objectName)
+                    .notMatchETag(etag)
+                    .build()));
         } catch (Exception e) {
-            throw new ResourceOperationException("Failed to get object: " + objectName, e);
+            if (e instanceof ServerException serverException
+                    && serverException.statusCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                return Optional.empty();
+            }
+            throw storageFailure("Failed to get object: " + objectName, e);
+        }
+    }
+
+    public Optional<GetObjectResponse> getObjectIfExists(String objectName) {
+        accessStats.record(objectName);
+        try {
+            return Optional.of(cachedGet(shardRouter.route(objectName), objectName));
+        } catch (Exception e) {
+            if (isNoSuchKey(e)) {
+                return Optional.empty();
+            }
+            throw storageFailure("Failed to get object: " + objectName, e);
         }
     }
 
     public void putObject(String objectName, InputStream stream, Long size, String contentType) {
+        putObject(objectName, stream, size, contentType, Map.of());
+    }
+
+    public void putObject(String objectName,
+                          InputStream stream,
+                          Long size,
+                          String contentType,
+                          Map<String, String> userMetadata) {
         try {
-            minioClient.putObject(
-                    PutObjectArgs.builder()
-                            .bucket(bucketName)
-                            .object(objectName)
-                            .stream(stream, size, -1)
-                            .contentType(contentType)
-                            .build()
-            );
+            Optional<StatObjectResponse> replaced = replaced(objectName);
+            put(objectName, stream, size, contentType, userMetadata, Map.of());
+            replaced.ifPresent(previous -> sizeChanged(objectName,
+                    -ObjectMetadata.logicalSize(previous.headers(), previous.size()), -1));
         } catch (Exception e) {
-            throw new ResourceOperationException("Failed to put object: " + objectName, e);
+            throw storageFailure("Failed to put object: " + objectName, e);
+        }
+    }
+
+    /**
+     * The version an unconditional write of a user file is about to replace, so its size can be
+     * taken off the folders above once the write succeeds.
+     */
+    private Optional<StatObjectResponse> replaced(String objectName) throws Exception {
+        if (objectName.endsWith("/") || !PathUtils.isUserObject(objectName)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(hedgedStat(shardRouter.route(objectName), objectName));
+        } catch (Exception e) {
+            if (isNoSuchKey(e)) {
+                return Optional.empty();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the object only if nothing is stored under its name yet, sending {@code If-None-Match: *}
+     * so that the check and the write are one request and concurrent uploads cannot both succeed.
+     * Objects large enough to go in parts carry the condition on the request that completes the upload.
+     */
+    public ObjectWriteResponse putObjectIfAbsent(String objectName,
+                                                 InputStream stream,
+                                                 long size,
+                                                 String contentType,
+                                                 Map<String, String> userMetadata) {
+        try {
+            return put(objectName, stream, size, contentType, userMetadata, Map.of("If-None-Match", "*"));
+        } catch (Exception e) {
+            if (isPreconditionFailed(e)) {
+                throw new ResourceAlreadyExistsException("File already exists: " + objectName);
+            }
+            throw storageFailure("Failed to put object: " + objectName, e);
+        }
+    }
+
+    /**
+     * Replaces the object only if it is still the version the caller read, sending {@code If-Match}
+     * with its etag, on the completing request for objects sent in parts; the replaced version's size
+     * is taken off the folders above.
+     */
+    public ObjectWriteResponse putObjectIfMatch(String objectName,
+                                                InputStream stream,
+                                                long size,
+                                                String contentType,
+                                                Map<String, String> userMetadata,
+                                                StatObjectResponse current) {
+        ObjectWriteResponse written;
+        try {
+            written = put(objectName, stream, size, contentType, userMetadata, Map.of("If-Match", quoted(current.etag())));
+        } catch (Exception e) {
+            if (isPreconditionFailed(e) || isNoSuchKey(e)) {
+                throw new ResourceChangedException("File has changed: " + objectName);
+            }
+            throw storageFailure("Failed to put object: " + objectName, e);
         }
+        sizeChanged(objectName, -ObjectMetadata.logicalSize(current.headers(), current.size()), -1);
+        return written;
     }
 
     public StatObjectResponse statObject(String objectName) {
+        accessStats.record(objectName);
         try {
-            return minioClient.statObject(
-                    StatObjectArgs.builder()
-                            .bucket(bucketName)
-                            .object(objectName)
-                            .build());
+            return cachedStat(shardRouter.route(objectName), objectName);
         } catch (Exception e) {
-            throw new ResourceOperationException("Failed to stat object: " + objectName, e);
+            throw storageFailure("Failed to stat object: " + objectName, e);
         }
     }
 
+    /**
+     * Reads straight from a shard or the cold tier, bypassing the caches and access statistics.
+     */
+    GetObjectResponse getObject(StorageShard shard, String objectName) {
+        try {
+            return hedgedGet(shard, GetObjectArgs.builder()
+                    .bucket(shard.bucket())
+                    .object(objectName)
+                    .build());
+        } catch (Exception e) {
+            throw storageFailure("Failed to get object: " + objectName + " from " + shard.name(), e);
+        }
+    }
+
+    StatObjectResponse statObject(StorageShard shard, String objectName) {
+        try {
+            return hedgedStat(shard, objectName);
+        } catch (Exception e) {
+            throw storageFailure("Failed to stat object: " + objectName + " on " + shard.name(), e);
+        }
+    }
+
+    void createBucketIfNotExists(StorageShard shard) {
+        if (!bucketExists(shard)) {
+            createBucket(shard);
+        }
+    }
+
+    /**
+     * Copies an object within the bucket. Objects above the multipart threshold are copied in parallel parts.
+     */
     public void copyObject(String source, String target) {
+        StatObjectResponse stat = statObject(source);
+        long logicalSize = ObjectMetadata.logicalSize(stat.headers(), stat.size());
+        if (multipartCopier.isMultipart(stat.size())) {
+            copyInParts(stat, target, logicalSize);
+        } else {
+            copySingle(source, target, logicalSize);
+        }
+    }
+
+    /**
+     * Accounts a file the client has put straight into storage through a presigned URL. Such
+     * uploads are signed create-only, so there is no replaced version to take off.
+     */
+    public void registerDirectUpload(StatObjectResponse stat) {
+        changed(stat.object());
+        sizeChanged(stat.object(), ObjectMetadata.logicalSize(stat.headers(), stat.size()), 1);
+    }
+
+    /**
+     * Copies stay within a shard: source and target always belong to the same user.
+     */
+    private void copySingle(String source, String target, long logicalSize) {
+        StorageShard shard = shardRouter.route(source);
         try {
-            minioClient.copyObject(
+            track("copyObject", () -> client(shard).copyObject(
                     CopyObjectArgs.builder()
-                            .bucket(bucketName)
+                            .bucket(shard.bucket())
                             .object(target)
                             .source(CopySource.builder()
-                                    .bucket(bucketName)
+                                    .bucket(shard.bucket())
                                     .object(source)
                                     .build())
                             .build()
-            );
+            ));
+            sizeChanged(target, logicalSize, 1);
         } catch (Exception e) {
-            throw new ResourceOperationException("Copy failed from " + source + " to " + target, e);
+            throw storageFailure("Copy failed from " + source + " to " + target, e);
+        } finally {
+            changed(target);
+        }
+    }
+
+    private void copyInParts(StatObjectResponse source, String target, long logicalSize) {
+        try {
+            StoragePriority.BULK.execute(() -> {
+                multipartCopier.copy(shardRouter.route(target), source, target);
+                return null;
+            });
+            sizeChanged(target, logicalSize, 1);
+        } catch (Exception e) {
+            throw storageFailure("Copy failed from " + source.object() + " to " + target, e);
+        } finally {
+            changed(target);
         }
     }
 
     public void removeObject(String objectName) {
+        removeObject(shardRouter.route(objectName), objectName);
+    }
+
+    /**
+     * Removes a file whose logical size the caller knows from a stat or listing, so folder sizes follow.
+     */
+    public void removeObject(String objectName, long logicalSize) {
+        removeObject(shardRouter.route(objectName), objectName);
+        sizeChanged(objectName, -logicalSize, -1);
+    }
+
+    void removeObject(StorageShard shard, String objectName) {
         try {
-            minioClient.removeObject(RemoveObjectArgs.builder()
-                    .bucket(bucketName)
-                    .object(objectName)
-                    .build());
+            track("removeObject", () -> {
+                client(shard).removeObject(RemoveObjectArgs.builder()
+                        .bucket(shard.bucket())
+                        .object(objectName)
+                        .build());
+                return null;
+            });
+        } catch (Exception e) {
+            throw storageFailure("Failed to remove object: " + objectName, e);
+        } finally {
+            changed(objectName);
+        }
+    }
+
+    /**
+     * Removes listed objects with multi-object delete requests of up to a thousand keys each, so a
+     * large folder costs a request per thousand objects rather than one per object. The listed sizes
+     * are taken off the folders above. Returns how many objects were removed.
+     */
+    public int removeObjects(List<Item> items) {
+        if (items.isEmpty()) {
+            return 0;
+        }
+        Set<String> failed = deleteObjects(items.stream().map(Item::objectName).toList());
+        items.stream()
+                .filter(item -> !failed.contains(item.objectName()))
+                .forEach(item -> sizeChanged(item.objectName(),
+                        -ObjectMetadata.logicalSize(item.userMetadata(), item.size()), -1));
+        return items.size() - failed.size();
+    }
+
+    /**
+     * Same as {@link #removeObjects(List)} for files the caller wrote itself and knows the logical
+     * sizes of, keyed by object name.
+     */
+    public int removeObjects(Map<String, Long> logicalSizes) {
+        if (logicalSizes.isEmpty()) {
+            return 0;
+        }
+        Set<String> failed = deleteObjects(List.copyOf(logicalSizes.keySet()));
+        logicalSizes.forEach((objectName, logicalSize) -> {
+            if (!failed.contains(objectName)) {
+                sizeChanged(objectName, -logicalSize, -1);
+            }
+        });
+        return logicalSizes.size() - failed.size();
+    }
+
+    private Set<String> deleteObjects(List<String> objectNames) {
+        StorageShard shard = shardRouter.route(objectNames.getFirst());
+        Set<String> failed = new HashSet<>();
+        try {
+            track("removeObjects", () -> {
+                for (Result<DeleteError> result : client(shard).removeObjects(RemoveObjectsArgs.builder()
+                        .bucket(shard.bucket())
+                        .objects(objectNames.stream().map(DeleteObject::new).toList())
+                        .build())) {
+                    DeleteError error = result.get();
+                    log.warn("Failed to remove object {}: {}", error.objectName(), error.message());
+                    failed.add(error.objectName());
+                }
+                return null;
+            });
         } catch (Exception e) {
-            throw new ResourceOperationException("Failed to remove object: " + objectName, e);
+            throw storageFailure("Failed to remove objects under " + PathUtils.getParentPath(objectNames.getFirst()), e);
+        } finally {
+            objectNames.forEach(this::changed);
+        }
+        return failed;
+    }
+
+    /**
+     * Streams an object from one shard to another, keeping its content type and user metadata.
+     * Used to move users between shards, which may be different clusters. The copy is written now,
+     * so the time the file was last written is kept in its metadata.
+     */
+    void transferObject(StorageShard from, StorageShard to, String objectName) {
+        transferObject(from, to, objectName, objectName);
+    }
+
+    /**
+     * Same as {@link #transferObject(StorageShard, StorageShard, String)}, storing the copy under another name.
+     */
+    void transferObject(StorageShard from, StorageShard to, String objectName, String targetName) {
+        try (GetObjectResponse source = hedgedGet(from, GetObjectArgs.builder()
+                .bucket(from.bucket())
+                .object(objectName)
+                .build())) {
+            Map<String, String> headers = new HashMap<>();
+            source.headers().names().stream()
+                    .filter(name -> name.toLowerCase(Locale.ROOT).startsWith("x-amz-meta-"))
+                    .forEach(name -> headers.put(name, source.headers().get(name)));
+            Date modified = source.headers().getDate("Last-Modified");
+            if (ObjectMetadata.get(source.headers(), ObjectMetadata.MODIFIED) == null && modified != null) {
+                headers.put("x-amz-meta-" + ObjectMetadata.MODIFIED, modified.toInstant().toString());
+            }
+            String length = source.headers().get("Content-Length");
+            track("putObject", () -> client(to).putObject(PutObjectArgs.builder()
+                    .bucket(to.bucket())
+                    .object(targetName)
+                    .stream(source, length == null ? -1 : Long.parseLong(length), length == null ? MIN_MULTIPART_SIZE : -1)
+                    .contentType(source.headers().get("Content-Type"))
+                    .headers(headers)
+                    .build()));
+        } catch (Exception e) {
+            throw storageFailure("Failed to move object " + objectName + " from " + from.name() + " to " + to.name(), e);
         }
     }
 
     public boolean objectExists(String objectName) {
         try {
-            minioClient.statObject(StatObjectArgs.builder()
-                    .bucket(bucketName)
-                    .object(objectName)
-                    .build());
+            cachedStat(shardRouter.route(objectName), objectName);
             return true;
         } catch (Exception e) {
+            if (e instanceof ServiceOverloadedException overloaded) {
+                throw overloaded;
+            }
             return false;
         }
     }
 
     public void createDirectoryObject(String path) {
         String normalizedPath = PathUtils.normalizeDirectoryPath(path);
+        StorageShard shard = shardRouter.route(normalizedPath);
         try (var stream = new ByteArrayInputStream(new byte[0])) {
-            minioClient.putObject(PutObjectArgs.builder()
-                    .bucket(bucketName)
+            track("putObject", () -> client(shard).putObject(PutObjectArgs.builder()
+                    .bucket(shard.bucket())
                     .object(normalizedPath)
                     .stream(stream, 0, -1)
                     .contentType("application/x-directory")
-                    .build());
+                    .build()));
         } catch (Exception e) {
-            throw new ResourceOperationException("Directory creation failed: " + path, e);
+            throw storageFailure("Directory creation failed: " + path, e);
+        } finally {
+            changed(normalizedPath);
         }
     }
 
     public void copyDirectoryContents(String source, String target) {
+        copyDirectoryContents(source, target, item -> true);
+    }
+
+    public void copyDirectoryContents(String source, String target, Predicate<Item> include) {
         recursiveListObjects(source)
+                .filter(include)
                 .forEach(item -> {
                     String sourceKey = item.objectName();
                     String targetKey = target + sourceKey.substring(source.length());
-                    copyObject(sourceKey, targetKey);
+                    if (multipartCopier.isMultipart(item.size())) {
+                        copyObject(sourceKey, targetKey);
+                    } else {
+                        copySingle(sourceKey, targetKey, ObjectMetadata.logicalSize(item.userMetadata(), item.size()));
+                    }
                 });
     }
 
     public Stream<Item> recursiveListObjects(String prefix) {
-        return listObjectsInternal(prefix, true);
+        return listObjectsInternal(shardRouter.route(prefix), prefix, true);
     }
 
     public Stream<Item> listObjects(String prefix) {
-        return listObjectsInternal(prefix, false);
+        return listObjectsInternal(shardRouter.route(prefix), prefix, false);
+    }
+
+    Stream<Item> recursiveListObjects(StorageShard shard, String prefix) {
+        return listObjectsInternal(shard, prefix, true);
+    }
+
+    Stream<Item> listObjects(StorageShard shard, String prefix) {
+        return listObjectsInternal(shard, prefix, false);
     }
 
     public boolean isDirectory(String objectName) {
@@ -155,62 +495,224 @@ public class MinioService {
         final String normalizedPath = PathUtils.normalizeDirectoryPath(directoryPath);
         try {
             return existsAsDirectoryObject(normalizedPath) || hasChildrenInPath(normalizedPath);
+        } catch (ServiceOverloadedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Directory existence check failed for path: {}", normalizedPath, e);
             return false;
         }
     }
 
-    private Stream<Item> listObjectsInternal(String prefix, boolean recursive) {
-        Iterable<Result<Item>> iterable = minioClient.listObjects(ListObjectsArgs.builder()
-                .bucket(bucketName)
+    private Stream<Item> listObjectsInternal(StorageShard shard, String prefix, boolean recursive) {
+        Iterator<Result<Item>> iterator = listIterator(shard, ListObjectsArgs.builder()
+                .bucket(shard.bucket())
                 .prefix(prefix)
                 .recursive(recursive)
+                .includeUserMetadata(true)
                 .build());
-        return StreamSupport.stream(iterable.spliterator(), false)
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
                 .map(result -> {
                     try {
                         return result.get();
                     } catch (Exception e) {
-                        throw new ResourceOperationException("Failed to process MinIO item", e);
+                        throw storageFailure("Failed to process MinIO item", e);
                     }
                 });
     }
 
+    private ObjectWriteResponse put(String objectName,
+                                    InputStream stream,
+                                    Long size,
+                                    String contentType,
+                                    Map<String, String> userMetadata,
+                                    Map<String, String> headers) throws Exception {
+        StorageShard shard = shardRouter.route(objectName);
+        try {
+            ObjectWriteResponse response;
+            if (!headers.isEmpty() && conditionalUploader.isMultipart(size)) {
+                response = conditionalUploader.upload(shard, objectName, stream, size, contentType, userMetadata, headers);
+            } else {
+                response = track("putObject", () -> client(shard).putObject(
+                        PutObjectArgs.builder()
+                                .bucket(shard.bucket())
+                                .object(objectName)
+                                .stream(stream, size, -1)
+                                .contentType(contentType)
+                                .userMetadata(userMetadata)
+                                .headers(headers)
+                                .build()
+                ));
+            }
+            if (size != null && size >= 0) {
+                sizeChanged(objectName, ObjectMetadata.logicalSize(userMetadata, size), 1);
+            }
+            return response;
+        } finally {
+            changed(objectName);
+        }
+    }
+
+    private boolean isPreconditionFailed(Exception e) {
+        return e instanceof ErrorResponseException errorResponse
+                && "PreconditionFailed".equals(errorResponse.errorResponse().code());
+    }
+
+    private static String quoted(String etag) {
+        return etag.startsWith("\"") ? etag : "\"" + etag + "\"";
+    }
+
+    private boolean isNoSuchKey(Exception e) {
+        return e instanceof ErrorResponseException errorResponse
+                && "NoSuchKey".equals(errorResponse.errorResponse().code());
+    }
+
     private boolean existsAsDirectoryObject(String path) {
         return objectExists(path);
     }
 
     private boolean hasChildrenInPath(String path) {
+        StorageShard shard = shardRouter.route(path);
         try {
-            Iterable<Result<Item>> results = minioClient.listObjects(
-                    ListObjectsArgs.builder()
-                            .bucket(bucketName)
-                            .prefix(path)
-                            .maxKeys(1)
-                            .build());
-            return results.iterator().hasNext();
+            return listIterator(shard, ListObjectsArgs.builder()
+                    .bucket(shard.bucket())
+                    .prefix(path)
+                    .maxKeys(1)
+                    .build()).hasNext();
         } catch (Exception e) {
-            throw new ResourceOperationException("Error listing directory contents", e);
+            throw storageFailure("Error listing directory contents", e);
         }
     }
 
-    private boolean bucketExists() {
+    private boolean bucketExists(StorageShard shard) {
         try {
-            return minioClient.bucketExists(BucketExistsArgs.builder()
-                    .bucket(bucketName)
-                    .build());
+            return track("bucketExists", () -> client(shard).bucketExists(BucketExistsArgs.builder()
+                    .bucket(shard.bucket())
+                    .build()));
         } catch (Exception e) {
             throw new ResourceOperationException("Bucket check failed");
         }
     }
 
-    private synchronized void createBucket() {
+    /**
+     * The first page of a listing is fetched eagerly so that its round trip is accounted
+     * to the current request; MinIO fetches further pages lazily while the stream is consumed.
+     */
+    private Iterator<Result<Item>> listIterator(StorageShard shard, ListObjectsArgs args) {
         try {
-            minioClient.makeBucket(MakeBucketArgs.builder()
-                    .bucket(bucketName)
-                    .build());
-            log.info("Bucket created: {}", bucketName);
+            return track("listObjects", () -> {
+                Iterator<Result<Item>> iterator = client(shard).listObjects(args).iterator();
+                iterator.hasNext();
+                return iterator;
+            });
+        } catch (Exception e) {
+            throw storageFailure("Error listing objects: " + args.prefix(), e);
+        }
+    }
+
+    /**
+     * Serves small objects from {@link SmallObjectCache}. Once an entry is past its freshness it is
+     * revalidated with a conditional GET, which costs a round trip but no body unless the object changed.
+     */
+    private GetObjectResponse cachedGet(StorageShard shard, String objectName) throws Exception {
+        SmallObjectCache.Snapshot cached = smallObjects.get(objectName);
+        if (cached != null && cached.body() != null && cached.fresh()) {
+            return cached.toObject(shard.bucket(), objectName);
+        }
+        long stamp = smallObjects.stamp();
+        var args = GetObjectArgs.builder()
+                .bucket(shard.bucket())
+                .object(objectName);
+        boolean revalidating = cached != null && cached.body() != null && cached.etag() != null;
+        if (revalidating) {
+            args.notMatchETag(cached.etag());
+        }
+        try {
+            return smallObjects.store(hedgedGet(shard, args.build()), stamp);
+        } catch (ServerException e) {
+            if (revalidating && e.statusCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                smallObjects.revalidated(objectName);
+                return cached.toObject(shard.bucket(), objectName);
+            }
+            throw e;
+        }
+    }
+
+    private StatObjectResponse cachedStat(StorageShard shard, String objectName) throws Exception {
+        SmallObjectCache.Snapshot cached = smallObjects.get(objectName);
+        if (cached != null && cached.fresh()) {
+            return cached.toStat(shard.bucket(), objectName);
+        }
+        long stamp = smallObjects.stamp();
+        StatObjectResponse stat = hedgedStat(shard, objectName);
+        smallObjects.storeMetadata(stat, stamp);
+        return stat;
+    }
+
+    private GetObjectResponse hedgedGet(StorageShard shard, GetObjectArgs args) throws Exception {
+        MinioClient client = client(shard);
+        return track("getObject", () -> hedgedRequests.call("getObject",
+                () -> client.getObject(args), this::closeQuietly));
+    }
+
+    private StatObjectResponse hedgedStat(StorageShard shard, String objectName) throws Exception {
+        var args = StatObjectArgs.builder()
+                .bucket(shard.bucket())
+                .object(objectName)
+                .build();
+        MinioClient client = client(shard);
+        return track("statObject", () -> hedgedRequests.call("statObject",
+                () -> client.statObject(args), stat -> {}));
+    }
+
+    /**
+     * Sent whether or not the write succeeded: a failed write may still have replaced the object.
+     */
+    private void changed(String objectName) {
+        eventPublisher.publishEvent(new ObjectChangedEvent(objectName));
+    }
+
+    private void sizeChanged(String objectName, long bytes, int files) {
+        if (!objectName.endsWith("/")) {
+            eventPublisher.publishEvent(new ObjectSizeChangedEvent(objectName, bytes, files));
+        }
+    }
+
+    private void closeQuietly(GetObjectResponse response) {
+        try {
+            response.close();
+        } catch (Exception e) {
+            log.debug("Failed to close discarded response for {}", response.object(), e);
+        }
+    }
+
+    private <T> T track(String operation, StorageCallContext.StorageCall<T> call) throws Exception {
+        return StorageCallContext.track(operation, () -> bulkheads.execute(call));
+    }
+
+    /**
+     * Picks the connection budget of the current priority class. Resolved on the calling thread,
+     * since hedged attempts run on pool threads that do not carry the priority.
+     */
+    private MinioClient client(StorageShard shard) {
+        return shard.client(StoragePriority.current());
+    }
+
+    private static RuntimeException storageFailure(String message, Exception e) {
+        if (e instanceof ServiceOverloadedException overloaded) {
+            return overloaded;
+        }
+        return new ResourceOperationException(message, e);
+    }
+
+    private synchronized void createBucket(StorageShard shard) {
+        try {
+            track("makeBucket", () -> {
+                client(shard).makeBucket(MakeBucketArgs.builder()
+                        .bucket(shard.bucket())
+                        .build());
+                return null;
+            });
+            log.info("Bucket created on shard {}: {}", shard.name(), shard.bucket());
         } catch (Exception e) {
             throw new ResourceOperationException("Bucket creation failed");
         }
@@ -0,0 +1,195 @@
+package com.qubb.cloud.storage;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import io.minio.ComposeSource;
+import io.minio.MinioAsyncClient;
+import io.minio.StatObjectResponse;
+import io.minio.messages.Part;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Copies large objects as a multipart upload whose parts are ranged server-side copies of the source,
+ * issued in parallel. A single CopyObject is capped at 5 GiB and runs as one stream on the storage
+ * side; parts lift the cap and spread the work over several connections.
+ */
+@Slf4j
+@Component
+public class MultipartCopier {
+
+    static final long MIN_PART_SIZE = DataSize.ofMegabytes(5).toBytes();
+    static final long MAX_PART_SIZE = DataSize.ofGigabytes(5).toBytes();
+    static final int MAX_PARTS = 10_000;
+
+    private static final Set<String> COPIED_HEADERS =
+            Set.of("content-type", "content-encoding", "content-disposition", "content-language", "cache-control");
+
+    private final StorageBulkheads bulkheads;
+    private final long threshold;
+    private final long partSize;
+    private final int parallelism;
+    private final ThreadPoolExecutor executor;
+
+    public MultipartCopier(StorageBulkheads bulkheads,
+                           @Value("${storage.copy.multipart-threshold:1GB}") DataSize threshold,
+                           @Value("${storage.copy.part-size:128MB}") DataSize partSize,
+                           @Value("${storage.copy.parallelism:8}") int parallelism,
+                           @Value("${storage.copy.max-threads:32}") int maxThreads) {
+        this.bulkheads = bulkheads;
+        this.threshold = Math.min(threshold.toBytes(), MAX_PART_SIZE);
+        this.partSize = Math.clamp(partSize.toBytes(), MIN_PART_SIZE, MAX_PART_SIZE);
+        this.parallelism = Math.max(1, parallelism);
+        this.executor = new ThreadPoolExecutor(
+                0, Math.max(1, maxThreads),
+                60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                new CustomizableThreadFactory("minio-part-copy-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Whether an object of this size is copied in parts. Objects past the single-copy limit always are.
+     */
+    public boolean isMultipart(long size) {
+        return size > threshold;
+    }
+
+    /**
+     * Copies {@code source} to {@code target} within the shard's bucket, keeping its content headers and user
+     * metadata. Every part is conditional on the source etag, so a source replaced mid-copy fails
+     * the copy instead of producing a mix of both versions.
+     */
+    void copy(StorageShard shard, StatObjectResponse source, String target) throws Exception {
+        MinioAsyncClient client = shard.bulkAsyncClient();
+        String bucket = shard.bucket();
+        long size = source.size();
+        long part = partSize(size);
+        int partCount = (int) ((size + part - 1) / part);
+        String uploadId = execute("createMultipartUpload", () -> await(client.createMultipartUploadAsync(
+                bucket, null, target, contentHeaders(source), null)).result().uploadId());
+        try {
+            Part[] parts = copyParts(client, bucket, source, target, uploadId, part, partCount);
+            execute("completeMultipartUpload", () -> await(client.completeMultipartUploadAsync(
+                    bucket, null, target, uploadId, parts, null, null)));
+            log.debug("Copied {} to {} in {} parts of {} bytes", source.object(), target, partCount, part);
+        } catch (Exception e) {
+            abort(client, bucket, target, uploadId);
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    long partSize(long size) {
+        long minimumForPartLimit = (size + MAX_PARTS - 1) / MAX_PARTS;
+        return Math.clamp(Math.max(partSize, minimumForPartLimit), MIN_PART_SIZE, MAX_PART_SIZE);
+    }
+
+    private Part[] copyParts(MinioAsyncClient client,
+                             String bucket,
+                             StatObjectResponse source,
+                             String target,
+                             String uploadId,
+                             long part,
+                             int partCount) throws Exception {
+        var window = new Semaphore(parallelism);
+        var failed = new AtomicBoolean();
+        List<CompletableFuture<Part>> pending = new ArrayList<>(partCount);
+        try {
+            for (int i = 0; i < partCount && !failed.get(); i++) {
+                window.acquire();
+                int partNumber = i + 1;
+                long offset = i * part;
+                long length = Math.min(part, source.size() - offset);
+                var future = new CompletableFuture<Part>();
+                pending.add(future);
+                executor.execute(StorageCallContext.wrap(() -> StoragePriority.BULK.run(() -> {
+                    try {
+                        future.complete(copyPart(client, bucket, source, target, uploadId, partNumber, offset, length));
+                    } catch (Exception e) {
+                        failed.set(true);
+                        future.completeExceptionally(e);
+                    } finally {
+                        window.release();
+                    }
+                })));
+            }
+            Part[] parts = new Part[pending.size()];
+            for (int i = 0; i < parts.length; i++) {
+                parts[i] = pending.get(i).get();
+            }
+            return parts;
+        } catch (ExecutionException e) {
+            pending.forEach(future -> future.cancel(false));
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    private Part copyPart(MinioAsyncClient client,
+                          String bucket,
+                          StatObjectResponse source,
+                          String target,
+                          String uploadId,
+                          int partNumber,
+                          long offset,
+                          long length) throws Exception {
+        var range = ComposeSource.builder()
+                .bucket(bucket)
+                .object(source.object())
+                .offset(offset)
+                .length(length)
+                .build();
+        range.buildHeaders(source.size(), source.etag());
+        Multimap<String, String> headers = HashMultimap.create(range.headers());
+        headers.put("x-amz-copy-source-range", "bytes=" + offset + "-" + (offset + length - 1));
+        var response = execute("uploadPartCopy", () -> await(client.uploadPartCopyAsync(
+                bucket, null, target, uploadId, partNumber, headers, null)));
+        return new Part(partNumber, response.result().etag());
+    }
+
+    private void abort(MinioAsyncClient client, String bucket, String target, String uploadId) {
+        try {
+            await(client.abortMultipartUploadAsync(bucket, null, target, uploadId, null, null));
+        } catch (Exception e) {
+            log.warn("Failed to abort multipart copy to {}, upload {} is left for the bucket lifecycle", target, uploadId);
+        }
+    }
+
+    private static Multimap<String, String> contentHeaders(StatObjectResponse source) {
+        Multimap<String, String> headers = HashMultimap.create();
+        source.headers().toMultimap().forEach((name, values) -> {
+            String key = name.toLowerCase(Locale.ROOT);
+            if (COPIED_HEADERS.contains(key) || key.startsWith("x-amz-meta-")) {
+                headers.putAll(name, values);
+            }
+        });
+        return headers;
+    }
+
+    private <T> T execute(String operation, StorageCallContext.StorageCall<T> call) throws Exception {
+        return StorageCallContext.track(operation, () -> bulkheads.execute(call));
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.qubb.cloud.storage;
+
+/**
+ * Published by {@link MinioService} after an object has been written or removed on this node,
+ * so local caches can drop their copy.
+ */
+public record ObjectChangedEvent(String objectName) {
+}
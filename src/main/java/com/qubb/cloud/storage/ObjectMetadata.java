@@ -0,0 +1,142 @@
+package com.qubb.cloud.storage;
+
+import io.minio.StatObjectResponse;
+import io.minio.messages.Item;
+import okhttp3.Headers;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * User metadata keys this application stores on MinIO objects.
+ */
+public final class ObjectMetadata {
+
+    /** Etag of the original an image preview was rendered from. */
+    public static final String SOURCE_ETAG = "source-etag";
+
+    /** Codec the stored bytes are compressed with; absent for objects stored as uploaded. */
+    public static final String CODEC = "codec";
+
+    /** Size of the object as the user uploaded it, when the stored size differs. */
+    public static final String LOGICAL_SIZE = "logical-size";
+
+    /** Hex MD5 of the object as the user uploaded it, kept where the etag is not that digest. */
+    public static final String CONTENT_MD5 = "content-md5";
+
+    /** Key in the cold bucket holding the content of an object moved to the cold tier. */
+    public static final String COLD_OBJECT = "cold-object";
+
+    /** Etag the object had before it was first moved between tiers, which sync keeps comparing against. */
+    public static final String TIERED_ETAG = "tiered-etag";
+
+    /**
+     * When the file was last written, kept where storage no longer knows it because the object has
+     * been moved between shards or tiers.
+     */
+    public static final String MODIFIED = "modified";
+
+    /**
+     * Set by the signed headers of a presigned upload, so only files the client put into storage
+     * themselves are registered as direct uploads.
+     */
+    public static final String DIRECT_UPLOAD = "direct-upload";
+
+    /**
+     * Keys that change how the stored bytes are read or accounted, which only the server may set.
+     */
+    public static final List<String> STORAGE_KEYS =
+            List.of(CODEC, LOGICAL_SIZE, CONTENT_MD5, COLD_OBJECT, TIERED_ETAG, MODIFIED);
+
+    private static final String USER_METADATA_PREFIX = "x-amz-meta-";
+
+    private ObjectMetadata() {
+    }
+
+    /**
+     * The request header that stores {@code key} as user metadata.
+     */
+    public static String header(String key) {
+        return USER_METADATA_PREFIX + key;
+    }
+
+    public static String get(Headers headers, String key) {
+        return headers.get(USER_METADATA_PREFIX + key);
+    }
+
+    /**
+     * Listings return user metadata with the header prefix and in server-specific case.
+     */
+    public static String get(Map<String, String> userMetadata, String key) {
+        if (userMetadata == null) {
+            return null;
+        }
+        String prefixedKey = USER_METADATA_PREFIX + key;
+        return userMetadata.entrySet().stream()
+                .filter(entry -> entry.getKey().equalsIgnoreCase(key) || entry.getKey().equalsIgnoreCase(prefixedKey))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * The user metadata in {@code headers}, keyed without the header prefix and in lower case.
+     */
+    public static Map<String, String> userMetadata(Headers headers) {
+        Map<String, String> userMetadata = new HashMap<>();
+        headers.names().forEach(name -> {
+            String key = name.toLowerCase(Locale.ROOT);
+            if (key.startsWith(USER_METADATA_PREFIX)) {
+                userMetadata.put(key.substring(USER_METADATA_PREFIX.length()), headers.get(name));
+            }
+        });
+        return userMetadata;
+    }
+
+    public static Long logicalSize(Headers headers, long storedSize) {
+        return parseSize(get(headers, LOGICAL_SIZE), storedSize);
+    }
+
+    public static Long logicalSize(Map<String, String> userMetadata, long storedSize) {
+        return parseSize(get(userMetadata, LOGICAL_SIZE), storedSize);
+    }
+
+    /**
+     * When the listed file was last written, or {@code null} for folders without a marker object.
+     */
+    public static Instant lastModified(Item item) {
+        return parseInstant(get(item.userMetadata(), MODIFIED),
+                item.lastModified() == null ? null : item.lastModified().toInstant());
+    }
+
+    public static Instant lastModified(StatObjectResponse stat) {
+        return parseInstant(get(stat.headers(), MODIFIED),
+                stat.lastModified() == null ? null : stat.lastModified().toInstant());
+    }
+
+    private static Instant parseInstant(String value, Instant stored) {
+        if (value == null) {
+            return stored;
+        }
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            return stored;
+        }
+    }
+
+    private static Long parseSize(String value, long storedSize) {
+        if (value == null) {
+            return storedSize;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return storedSize;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.qubb.cloud.storage;
+
+/**
+ * Published by {@link MinioService} after a file has been stored or removed, with the change in
+ * logical bytes and file count it brings to every folder above it. Directory markers are not counted.
+ */
+public record ObjectSizeChangedEvent(String objectName, long bytes, int files) {
+}
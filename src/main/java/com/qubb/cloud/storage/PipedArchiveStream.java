@@ -0,0 +1,96 @@
+package com.qubb.cloud.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Streams an archive while it is written. The writer starts on the first read, so a response that
+ * is never sent costs nothing, and stops with the first write after the reader closes the stream.
+ * A writer failure is rethrown to the reader instead of ending the stream, which would pass a
+ * truncated archive off as complete.
+ */
+@Slf4j
+final class PipedArchiveStream extends InputStream {
+
+    private static final int PIPE_SIZE = 64 * 1024;
+
+    private final Consumer<OutputStream> writer;
+    private final ExecutorService executor;
+    private final PipedInputStream pipe = new PipedInputStream(PIPE_SIZE);
+    private volatile Throwable failure;
+    private Future<?> task;
+
+    PipedArchiveStream(Consumer<OutputStream> writer, ExecutorService executor) {
+        this.writer = writer;
+        this.executor = executor;
+    }
+
+    @Override
+    public int read() throws IOException {
+        start();
+        return checked(pipe.read());
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        start();
+        return checked(pipe.read(b, off, len));
+    }
+
+    @Override
+    public int available() throws IOException {
+        return task == null ? 0 : pipe.available();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        pipe.close();
+        if (task != null) {
+            task.cancel(true);
+        }
+    }
+
+    private synchronized void start() throws IOException {
+        if (task != null) {
+            return;
+        }
+        var out = new PipedOutputStream(pipe);
+        task = executor.submit(StorageCallContext.wrap(() -> {
+            try {
+                writer.accept(out);
+            } catch (RuntimeException e) {
+                failure = e;
+                log.debug("Archive stream stopped", e);
+            } finally {
+                close(out);
+            }
+        }));
+    }
+
+    /**
+     * Closed only after a failure is recorded, so the reader never sees the end of a broken archive.
+     */
+    private static void close(OutputStream out) {
+        try {
+            out.close();
+        } catch (IOException e) {
+            log.debug("Failed to close archive pipe", e);
+        }
+    }
+
+    private int checked(int read) throws IOException {
+        Throwable error = failure;
+        if (read == -1 && error != null) {
+            throw new IOException("Archive could not be completed", error);
+        }
+        return read;
+    }
+}
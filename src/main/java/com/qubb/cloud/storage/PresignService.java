@@ -0,0 +1,81 @@
+package com.qubb.cloud.storage;
+
+import com.qubb.cloud.exception.ResourceOperationException;
+import com.qubb.cloud.exception.ServiceOverloadedException;
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.StatObjectResponse;
+import io.minio.http.Method;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Signs short-lived URLs against the public endpoint of the user's shard so clients can move file bytes
+ * without going through the application.
+ */
+@Service
+public class PresignService {
+
+    private static final long MOVING_RETRY_SECONDS = 60;
+
+    private final ShardRouter shardRouter;
+    private final MinioService minioService;
+
+    @Value("${presigned.expiry:15m}")
+    private Duration expiry;
+
+    public PresignService(ShardRouter shardRouter, MinioService minioService) {
+        this.shardRouter = shardRouter;
+        this.minioService = minioService;
+    }
+
+    public Duration expiry() {
+        return expiry;
+    }
+
+    /**
+     * Objects stored compressed or in chunks must be decoded by the application, so they are not
+     * signed; neither are objects of users being moved between shards.
+     */
+    public Optional<String> presignGet(StatObjectResponse stat) {
+        if (ObjectMetadata.get(stat.headers(), ObjectMetadata.CODEC) != null || shardRouter.isMoving(stat.object())) {
+            return Optional.empty();
+        }
+        return Optional.of(presign(Method.GET, stat.object(), Map.of()));
+    }
+
+    /**
+     * The headers returned by {@link #uploadHeaders(long)} are part of the signature, so the URL only
+     * accepts a body of exactly {@code size} bytes and only while nothing is stored under the name.
+     */
+    public String presignPut(String objectName, long size) {
+        if (shardRouter.isMoving(objectName)) {
+            throw new ServiceOverloadedException("Storage is being rebalanced, please retry", MOVING_RETRY_SECONDS);
+        }
+        return presign(Method.PUT, objectName, uploadHeaders(size));
+    }
+
+    public Map<String, String> uploadHeaders(long size) {
+        return Map.of(HttpHeaders.CONTENT_LENGTH, String.valueOf(size), HttpHeaders.IF_NONE_MATCH, "*",
+                ObjectMetadata.header(ObjectMetadata.DIRECT_UPLOAD), "true");
+    }
+
+    private String presign(Method method, String objectName, Map<String, String> signedHeaders) {
+        StorageShard shard = shardRouter.route(objectName);
+        try {
+            return shard.presignClient().getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
+                    .method(method)
+                    .bucket(shard.bucket())
+                    .object(objectName)
+                    .extraHeaders(signedHeaders)
+                    .expiry((int) expiry.toSeconds())
+                    .build());
+        } catch (Exception e) {
+            throw new ResourceOperationException("Failed to sign URL for: " + objectName, e);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.qubb.cloud.storage;
+
+import com.qubb.cloud.exception.PreviewNotSupportedException;
+import com.qubb.cloud.exception.ResourceOperationException;
+import com.qubb.cloud.exception.ServiceOverloadedException;
+import com.qubb.cloud.payload.DownloadResponse;
+import com.qubb.cloud.util.PathUtils;
+import io.minio.GetObjectResponse;
+import io.minio.StatObjectResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Renders fixed-size JPEG thumbnails of images on first access and stores them as derivative objects.
+ * A stored preview remembers the etag of its original and is re-rendered when the original changes.
+ */
+@Slf4j
+@Service
+public class PreviewService {
+
+    private static final Set<String> SUPPORTED_TYPES = Set.of(
+            "image/jpeg", "image/png", "image/gif", "image/bmp");
+    private static final MediaType PREVIEW_MEDIA_TYPE = MediaType.IMAGE_JPEG;
+
+    private final MinioService minioService;
+    private final CompressionService compressionService;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+
+    @Value("${preview.size:256}")
+    private int previewSize;
+
+    @Value("${preview.max-source-size:50MB}")
+    private DataSize maxSourceSize;
+
+    @Value("${preview.max-source-pixels:50000000}")
+    private long maxSourcePixels;
+
+    @Value("${preview.generation-timeout:10s}")
+    private Duration generationTimeout;
+
+    public PreviewService(MinioService minioService,
+                          CompressionService compressionService,
+                          @Value("${preview.pool.threads:2}") int threads,
+                          @Value("${preview.pool.queue-capacity:64}") int queueCapacity) {
+        this.minioService = minioService;
+        this.compressionService = compressionService;
+        this.executor = new ThreadPoolExecutor(
+                threads, threads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("preview-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Completes once the preview is available, so the request thread is not held while it renders.
+     * A render slower than the generation timeout fails this request with 503 and keeps running for
+     * the next one.
+     */
+    public CompletableFuture<DownloadResponse> preview(String objectName) {
+        StatObjectResponse source = minioService.statObject(objectName);
+        checkSupported(objectName, source);
+
+        String previewName = PathUtils.buildPreviewObjectName(objectName);
+        String filename = PathUtils.getResourceName(objectName) + ".jpg";
+
+        var stored = minioService.getObjectIfExists(previewName);
+        if (stored.isPresent()) {
+            GetObjectResponse preview = stored.get();
+            if (Objects.equals(ObjectMetadata.get(preview.headers(), ObjectMetadata.SOURCE_ETAG), source.etag())) {
+                return CompletableFuture.completedFuture(
+                        new DownloadResponse(new InputStreamResource(preview), PREVIEW_MEDIA_TYPE, filename));
+            }
+            closeQuietly(preview);
+        }
+        return generation(objectName, previewName, source.etag())
+                .thenApply(bytes -> new DownloadResponse(new ByteArrayResource(bytes), PREVIEW_MEDIA_TYPE, filename));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void checkSupported(String objectName, StatObjectResponse source) {
+        if (objectName.endsWith("/") || source.contentType() == null
+                || !SUPPORTED_TYPES.contains(source.contentType().toLowerCase())) {
+            throw new PreviewNotSupportedException("Preview is not available for: " + objectName);
+        }
+        if (ObjectMetadata.logicalSize(source.headers(), source.size()) > maxSourceSize.toBytes()) {
+            throw new PreviewNotSupportedException("Image is too large for preview: " + objectName);
+        }
+    }
+
+    /**
+     * Concurrent requests for the same original share one rendering; each waits on its own copy,
+     * so one request timing out does not fail the others.
+     */
+    private CompletableFuture<byte[]> generation(String objectName, String previewName, String sourceEtag) {
+        String key = previewName + "@" + sourceEtag;
+        CompletableFuture<byte[]> future = inFlight.computeIfAbsent(key, k -> submit(objectName, previewName, sourceEtag));
+        future.whenComplete((bytes, error) -> inFlight.remove(key, future));
+        return future.copy()
+                .orTimeout(generationTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .exceptionally(error -> {
+                    throw failure(objectName, error);
+                });
+    }
+
+    private RuntimeException failure(String objectName, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof TimeoutException) {
+            return new ServiceOverloadedException("Preview is being generated, please retry",
+                    Math.max(1, generationTimeout.toSeconds()));
+        }
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        return new ResourceOperationException("Preview generation failed: " + objectName, cause);
+    }
+
+    private CompletableFuture<byte[]> submit(String objectName, String previewName, String sourceEtag) {
+        try {
+            return CompletableFuture.supplyAsync(
+                    () -> generate(objectName, previewName, sourceEtag), executor);
+        } catch (RejectedExecutionException e) {
+            throw new ServiceOverloadedException("Too many previews are being generated, please retry", 1);
+        }
+    }
+
+    private byte[] generate(String objectName, String previewName, String sourceEtag) {
+        BufferedImage thumbnail;
+        try (InputStream source = compressionService.decode(minioService.getObject(objectName))) {
+            thumbnail = render(objectName, source);
+        } catch (IOException e) {
+            throw new ResourceOperationException("Failed to read image: " + objectName, e);
+        }
+        byte[] bytes = encode(objectName, thumbnail);
+        minioService.putObject(previewName, new ByteArrayInputStream(bytes), (long) bytes.length,
+                PREVIEW_MEDIA_TYPE.toString(), Map.of(ObjectMetadata.SOURCE_ETAG, sourceEtag));
+        log.debug("Preview generated for {} ({} bytes)", objectName, bytes.length);
+        return bytes;
+    }
+
+    /**
+     * Large images are subsampled while decoding so a full-resolution raster is never held in memory.
+     */
+    private BufferedImage render(String objectName, InputStream source) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source)) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                throw new PreviewNotSupportedException("Unsupported image format: " + objectName);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxSourcePixels) {
+                    throw new PreviewNotSupportedException("Image is too large for preview: " + objectName);
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, Math.max(width, height) / (previewSize * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return scale(reader.read(0, param));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage scale(BufferedImage image) {
+        double ratio = Math.min(1.0, (double) previewSize / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+
+        BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = thumbnail.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return thumbnail;
+    }
+
+    private byte[] encode(String objectName, BufferedImage thumbnail) {
+        try (var out = new ByteArrayOutputStream()) {
+            ImageIO.write(thumbnail, "jpg", out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new ResourceOperationException("Failed to encode preview: " + objectName, e);
+        }
+    }
+
+    private void closeQuietly(InputStream stream) {
+        try {
+            stream.close();
+        } catch (IOException e) {
+            log.debug("Failed to close stale preview stream", e);
+        }
+    }
+}
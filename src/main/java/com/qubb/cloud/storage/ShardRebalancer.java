@@ -0,0 +1,206 @@
+package com.qubb.cloud.storage;
+
+import com.qubb.cloud.util.PathUtils;
+import io.minio.messages.Item;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Moves users whose recorded shard differs from the one the ring assigns them, a few users per run.
+ * A move copies the user's objects, switches the placement, waits for other nodes' placement caches
+ * to expire, then catches up on writes that reached the old shard meanwhile before deleting it there.
+ * Only objects whose copy on the new shard matches are deleted; anything else is left and logged.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ShardRebalancer {
+
+    private static final String LOCK_PREFIX = "storage:shards:migrating:";
+    private static final RedisScript<Long> RELEASE_LOCK =
+            RedisScript.of(new ClassPathResource("scripts/release-lock.lua"), Long.class);
+
+    private final ShardRouter shardRouter;
+    private final MinioService minioService;
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${storage.sharding.rebalance.enabled:true}")
+    private boolean enabled;
+
+    @Value("${storage.sharding.rebalance.max-users-per-run:10}")
+    private int maxUsersPerRun;
+
+    @Value("${storage.sharding.rebalance.lock-ttl:6h}")
+    private Duration lockTtl;
+
+    @Value("${presigned.expiry:15m}")
+    private Duration presignExpiry;
+
+    private volatile boolean legacyUsersRecorded;
+
+    @Scheduled(initialDelayString = "${storage.sharding.rebalance.initial-delay:1m}",
+            fixedDelayString = "${storage.sharding.rebalance.interval:5m}")
+    public void rebalance() {
+        if (!enabled || !shardRouter.isSharded()) {
+            return;
+        }
+        try {
+            recordLegacyUsers();
+            List<Integer> misplaced = new ArrayList<>();
+            shardRouter.forEachPlacement((userId, shard) -> {
+                if (misplaced.size() < maxUsersPerRun && !shard.equals(shardRouter.target(userId))) {
+                    misplaced.add(userId);
+                }
+            });
+            misplaced.forEach(userId -> StoragePriority.BULK.run(() -> moveLocked(userId)));
+        } catch (RuntimeException e) {
+            log.error("Shard rebalancing run failed", e);
+        }
+    }
+
+    /**
+     * Users who have not been active since sharding was enabled have no placement yet; they are
+     * recorded on the legacy shard so that they get moved as well.
+     */
+    private void recordLegacyUsers() {
+        StorageShard legacy = shardRouter.legacyShard();
+        if (legacy == null || legacyUsersRecorded) {
+            return;
+        }
+        try (var roots = minioService.listObjects(legacy, "")) {
+            roots.map(Item::objectName)
+                    .map(PathUtils::extractUserId)
+                    .filter(userId -> userId != null)
+                    .forEach(userId -> shardRouter.recordIfAbsent(userId, legacy));
+        }
+        legacyUsersRecorded = true;
+    }
+
+    private void moveLocked(int userId) {
+        String lock = LOCK_PREFIX + userId;
+        String owner = UUID.randomUUID().toString();
+        if (!Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(lock, owner, lockTtl))) {
+            return;
+        }
+        try {
+            StorageShard from = shardRouter.placement(userId);
+            StorageShard to = shardRouter.target(userId);
+            if (!from.equals(to)) {
+                move(userId, from, to);
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to move user {} between shards", userId, e);
+        } finally {
+            redisTemplate.execute(RELEASE_LOCK, List.of(lock), owner);
+        }
+    }
+
+    /**
+     * No presigned URLs are issued from the start of the copy until every node routes to the new
+     * shard, and the catch-up waits for URLs issued before the copy to expire.
+     */
+    void move(int userId, StorageShard from, StorageShard to) {
+        long started = System.currentTimeMillis();
+        List<String> prefixes = userPrefixes(userId);
+        log.info("Moving user {} from shard {} to {}", userId, from.name(), to.name());
+        shardRouter.beginMove(userId, lockTtl);
+        long switched;
+        try {
+            prefixes.forEach(prefix -> minioService.recursiveListObjects(from, prefix)
+                    .forEach(item -> minioService.transferObject(from, to, item.objectName())));
+
+            shardRouter.move(userId, to);
+            switched = System.currentTimeMillis();
+            awaitUntil(switched + shardRouter.cacheTtl().plusSeconds(1).toMillis());
+        } finally {
+            shardRouter.endMove(userId);
+        }
+        awaitUntil(started + presignExpiry.toMillis());
+
+        prefixes.forEach(prefix -> catchUp(from, to, prefix, started, switched));
+        int kept = prefixes.stream().mapToInt(prefix -> removeMoved(from, to, prefix)).sum();
+        if (kept > 0) {
+            log.warn("Moved user {} to shard {}, keeping {} objects on {} that differ from their copies",
+                    userId, to.name(), kept, from.name());
+        } else {
+            log.info("Moved user {} to shard {}", userId, to.name());
+        }
+    }
+
+    /**
+     * Deletes the objects under {@code prefix} from the old shard whose copy on the new one has the
+     * same etag or, for copies written in parts, the same size. Returns how many were kept.
+     */
+    private int removeMoved(StorageShard from, StorageShard to, String prefix) {
+        Map<String, Item> copies = minioService.recursiveListObjects(to, prefix)
+                .collect(Collectors.toMap(Item::objectName, Function.identity()));
+        int[] kept = {0};
+        minioService.recursiveListObjects(from, prefix).forEach(item -> {
+            Item copy = copies.get(item.objectName());
+            if (copy != null && (Objects.equals(item.etag(), copy.etag()) || item.size() == copy.size())) {
+                minioService.removeObject(from, item.objectName());
+            } else {
+                log.warn("Keeping {} on shard {}: its copy on {} differs", item.objectName(), from.name(), to.name());
+                kept[0]++;
+            }
+        });
+        return kept[0];
+    }
+
+    /**
+     * Objects written to the old shard after the copy began are copied again; objects copied but
+     * deleted from the old shard before the switch are deleted from the new one. Anything else
+     * on the new shard has been written there since the switch and is left alone.
+     */
+    private void catchUp(StorageShard from, StorageShard to, String prefix, long started, long switched) {
+        Map<String, Item> moved = minioService.recursiveListObjects(to, prefix)
+                .collect(Collectors.toMap(Item::objectName, Function.identity()));
+        minioService.recursiveListObjects(from, prefix).forEach(item -> {
+            Item copy = moved.remove(item.objectName());
+            long modified = lastModified(item);
+            if (modified >= started && (copy == null || lastModified(copy) < modified)) {
+                minioService.transferObject(from, to, item.objectName());
+            }
+        });
+        moved.values().stream()
+                .filter(copy -> lastModified(copy) < switched)
+                .forEach(copy -> minioService.removeObject(to, copy.objectName()));
+    }
+
+    private static void awaitUntil(long deadline) {
+        try {
+            Thread.sleep(Math.max(0, deadline - System.currentTimeMillis()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while switching shards", e);
+        }
+    }
+
+    private static List<String> userPrefixes(int userId) {
+        String root = PathUtils.buildUserRootPath(userId);
+        return List.of(root, PathUtils.buildPreviewObjectName(root), PathUtils.buildChunkRoot(userId),
+                PathUtils.buildTrashRoot(userId));
+    }
+
+    private static long lastModified(Item item) {
+        return item.isDir() || item.lastModified() == null
+                ? Instant.EPOCH.toEpochMilli()
+                : item.lastModified().toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,42 @@
+package com.qubb.cloud.storage;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring over the shards. Each shard owns {@code virtualNodes} points per unit of weight,
+ * so adding a shard only takes over the users between its points and their predecessors.
+ */
+final class ShardRing {
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private final NavigableMap<Long, StorageShard> ring = new TreeMap<>();
+
+    ShardRing(List<StorageShard> shards, Map<String, Integer> weights, int virtualNodes) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one storage shard is required");
+        }
+        for (StorageShard shard : shards) {
+            int points = virtualNodes * Math.max(1, weights.getOrDefault(shard.name(), 1));
+            for (int i = 0; i < points; i++) {
+                ring.put(hash(shard.name() + "#" + i), shard);
+            }
+        }
+    }
+
+    StorageShard locate(int userId) {
+        Map.Entry<Long, StorageShard> entry = ring.ceilingEntry(hash("user-" + userId));
+        return (entry != null ? entry : ring.firstEntry()).getValue();
+    }
+
+    private static long hash(String key) {
+        return HASH.hashString(key, StandardCharsets.UTF_8).asLong();
+    }
+}
@@ -0,0 +1,173 @@
+package com.qubb.cloud.storage;
+
+import com.qubb.cloud.exception.ServiceOverloadedException;
+import com.qubb.cloud.util.PathUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Routes object names to the shard that holds their user. A user's shard is recorded in Redis when
+ * the user is first seen, so changing the shard list never strands data: users stay where they are
+ * until {@link ShardRebalancer} has moved them to the shard the ring now assigns them.
+ * Objects outside user roots live on the first shard.
+ */
+@Slf4j
+public class ShardRouter {
+
+    private static final String PLACEMENT_KEY = "storage:shards:placement";
+    private static final String MOVING_PREFIX = "storage:shards:moving:";
+
+    private final Map<String, StorageShard> shards = new LinkedHashMap<>();
+    private final StorageShard defaultShard;
+    private final StorageShard legacyShard;
+    private final ShardRing ring;
+    private final StringRedisTemplate redisTemplate;
+    private final Duration cacheTtl;
+    private final Map<Integer, CachedPlacement> placements = new ConcurrentHashMap<>();
+
+    /**
+     * @param legacyShard shard that held all users before sharding was configured, or null;
+     *                    users without a recorded placement are looked for there
+     */
+    public ShardRouter(List<StorageShard> shards,
+                       Map<String, Integer> weights,
+                       String legacyShard,
+                       int virtualNodes,
+                       Duration cacheTtl,
+                       StringRedisTemplate redisTemplate) {
+        shards.forEach(shard -> {
+            if (this.shards.putIfAbsent(shard.name(), shard) != null) {
+                throw new IllegalArgumentException("Duplicate storage shard name: " + shard.name());
+            }
+        });
+        this.defaultShard = shards.getFirst();
+        this.legacyShard = legacyShard == null || legacyShard.isBlank() ? null : shard(legacyShard);
+        this.ring = new ShardRing(shards, weights, virtualNodes);
+        this.cacheTtl = cacheTtl;
+        this.redisTemplate = redisTemplate;
+    }
+
+    public static ShardRouter single(StorageShard shard) {
+        return new ShardRouter(List.of(shard), Map.of(), null, 1, Duration.ZERO, null);
+    }
+
+    public StorageShard route(String objectName) {
+        if (shards.size() == 1) {
+            return defaultShard;
+        }
+        Integer userId = PathUtils.extractUserId(objectName);
+        return userId == null ? defaultShard : placement(userId);
+    }
+
+    public Collection<StorageShard> shards() {
+        return Collections.unmodifiableCollection(shards.values());
+    }
+
+    boolean isSharded() {
+        return shards.size() > 1;
+    }
+
+    StorageShard legacyShard() {
+        return legacyShard;
+    }
+
+    /**
+     * Shard the ring assigns the user to; where the user should live once rebalanced.
+     */
+    StorageShard target(int userId) {
+        return ring.locate(userId);
+    }
+
+    StorageShard placement(int userId) {
+        CachedPlacement cached = placements.get(userId);
+        if (cached != null && cached.expiresAt() > System.nanoTime()) {
+            return cached.shard();
+        }
+        StorageShard shard = shard(readOrAssign(userId));
+        placements.put(userId, new CachedPlacement(shard, System.nanoTime() + cacheTtl.toNanos()));
+        return shard;
+    }
+
+    /**
+     * Records a user found on the legacy shard that has not been routed yet, so the rebalancer sees it.
+     */
+    void recordIfAbsent(int userId, StorageShard shard) {
+        redisTemplate.opsForHash().putIfAbsent(PLACEMENT_KEY, String.valueOf(userId), shard.name());
+    }
+
+    /**
+     * Moves the user's placement once its data has been copied. Other nodes follow within the cache TTL.
+     */
+    void move(int userId, StorageShard shard) {
+        redisTemplate.opsForHash().put(PLACEMENT_KEY, String.valueOf(userId), shard.name());
+        placements.remove(userId);
+    }
+
+    /**
+     * Marks the user as being moved until {@link #endMove} or {@code ttl}, whichever comes first.
+     * Presigned URLs would write to the old shard behind the move's back, so none are issued meanwhile.
+     */
+    void beginMove(int userId, Duration ttl) {
+        redisTemplate.opsForValue().set(MOVING_PREFIX + userId, "1", ttl);
+    }
+
+    void endMove(int userId) {
+        redisTemplate.delete(MOVING_PREFIX + userId);
+    }
+
+    public boolean isMoving(String objectName) {
+        if (!isSharded()) {
+            return false;
+        }
+        Integer userId = PathUtils.extractUserId(objectName);
+        return userId != null && Boolean.TRUE.equals(redisTemplate.hasKey(MOVING_PREFIX + userId));
+    }
+
+    Duration cacheTtl() {
+        return cacheTtl;
+    }
+
+    void forEachPlacement(BiConsumer<Integer, StorageShard> action) {
+        try (Cursor<Map.Entry<Object, Object>> cursor = redisTemplate.opsForHash()
+                .scan(PLACEMENT_KEY, ScanOptions.scanOptions().count(500).build())) {
+            cursor.forEachRemaining(entry -> {
+                StorageShard shard = shards.get(String.valueOf(entry.getValue()));
+                if (shard != null) {
+                    action.accept(Integer.valueOf(String.valueOf(entry.getKey())), shard);
+                }
+            });
+        }
+    }
+
+    private String readOrAssign(int userId) {
+        try {
+            Object recorded = redisTemplate.opsForHash().get(PLACEMENT_KEY, String.valueOf(userId));
+            if (recorded != null) {
+                return recorded.toString();
+            }
+            StorageShard home = legacyShard != null ? legacyShard : ring.locate(userId);
+            redisTemplate.opsForHash().putIfAbsent(PLACEMENT_KEY, String.valueOf(userId), home.name());
+            return String.valueOf(redisTemplate.opsForHash().get(PLACEMENT_KEY, String.valueOf(userId)));
+        } catch (RuntimeException e) {
+            log.error("Shard placement lookup failed for user {}", userId, e);
+            throw new ServiceOverloadedException("Storage placement is unavailable", 5);
+        }
+    }
+
+    private StorageShard shard(String name) {
+        StorageShard shard = shards.get(name);
+        if (shard == null) {
+            throw new IllegalStateException("Unknown storage shard: " + name);
+        }
+        return shard;
+    }
+
+    private record CachedPlacement(StorageShard shard, long expiresAt) {}
+}
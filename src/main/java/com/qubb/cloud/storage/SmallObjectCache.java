@@ -0,0 +1,274 @@
+package com.qubb.cloud.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.GetObjectResponse;
+import io.minio.StatObjectResponse;
+import okhttp3.Headers;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory cache of small objects and directory markers, so their reads and existence checks skip
+ * the MinIO round trip. Bytes live off-heap in fixed-size pages of one direct buffer allocated at
+ * startup, so the cache neither grows the heap nor churns it; the page pool is the byte budget and
+ * the least recently used entries give their pages back when it runs out.
+ * <p>
+ * Entries are served without asking storage for {@code fresh-for}; after that they are revalidated
+ * by etag. Writes made through this node drop entries at once; writes from other nodes are seen
+ * once the entry is revalidated.
+ */
+@Component
+public class SmallObjectCache {
+
+    private final boolean enabled;
+    private final int maxObjectSize;
+    private final int maxEntries;
+    private final int pageSize;
+    private final long freshForNanos;
+    private final ByteBuffer pages;
+    private final int[] freePages;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(1024, 0.75f, true);
+    private final AtomicLong invalidations = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter revalidations;
+    private int freeCount;
+
+    public SmallObjectCache(@Value("${storage.small-object-cache.enabled:true}") boolean enabled,
+                            @Value("${storage.small-object-cache.max-object-size:64KB}") DataSize maxObjectSize,
+                            @Value("${storage.small-object-cache.budget:64MB}") DataSize budget,
+                            @Value("${storage.small-object-cache.page-size:4KB}") DataSize pageSize,
+                            @Value("${storage.small-object-cache.max-entries:100000}") int maxEntries,
+                            @Value("${storage.small-object-cache.fresh-for:2s}") Duration freshFor,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.pageSize = (int) pageSize.toBytes();
+        this.maxObjectSize = (int) Math.min(maxObjectSize.toBytes(), budget.toBytes());
+        this.maxEntries = maxEntries;
+        this.freshForNanos = freshFor.toNanos();
+        // a single direct buffer is capped at 2 GiB
+        int pageCount = enabled ? (int) Math.min(budget.toBytes(), Integer.MAX_VALUE) / this.pageSize : 0;
+        this.pages = ByteBuffer.allocateDirect(pageCount * this.pageSize);
+        this.freePages = new int[pageCount];
+        for (int i = 0; i < pageCount; i++) {
+            freePages[i] = i;
+        }
+        this.freeCount = pageCount;
+        this.hits = counter(meterRegistry, "hit");
+        this.misses = counter(meterRegistry, "miss");
+        this.revalidations = counter(meterRegistry, "revalidated");
+        Gauge.builder("storage.small.cache.used", this, cache -> cache.usedBytes())
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("storage.small.cache.entries", this, cache -> cache.entryCount())
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Taken before a read is sent to storage; a result older than a later invalidation is not stored.
+     */
+    long stamp() {
+        return invalidations.get();
+    }
+
+    /**
+     * A copy of the cached entry, or null. The body is null when only the metadata is cached.
+     */
+    Snapshot get(String objectName) {
+        if (!enabled) {
+            return null;
+        }
+        synchronized (this) {
+            Entry entry = entries.get(objectName);
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            boolean fresh = System.nanoTime() < entry.freshUntil;
+            if (fresh) {
+                hits.increment();
+            }
+            return new Snapshot(entry.headers, entry.pages == null ? null : read(entry), fresh);
+        }
+    }
+
+    /**
+     * Storage confirmed the cached etag is still current.
+     */
+    synchronized void revalidated(String objectName) {
+        Entry entry = entries.get(objectName);
+        if (entry != null) {
+            entry.freshUntil = System.nanoTime() + freshForNanos;
+            revalidations.increment();
+        }
+    }
+
+    /**
+     * Caches a small object read in full and hands back a response over the cached bytes;
+     * larger objects are returned untouched.
+     */
+    GetObjectResponse store(GetObjectResponse response, long stamp) throws IOException {
+        long size = size(response.headers());
+        if (!enabled || size < 0 || size > maxObjectSize) {
+            return response;
+        }
+        byte[] body;
+        try (response) {
+            body = response.readNBytes((int) size);
+        }
+        put(response.object(), new Entry(response.headers(), body.length), body, stamp);
+        return new GetObjectResponse(response.headers(), response.bucket(), response.region(), response.object(),
+                new ByteArrayInputStream(body));
+    }
+
+    /**
+     * Caches the metadata of a small object; for empty objects such as directory markers that is all there is.
+     */
+    void storeMetadata(StatObjectResponse stat, long stamp) {
+        if (!enabled || stat.size() > maxObjectSize) {
+            return;
+        }
+        synchronized (this) {
+            Entry current = entries.get(stat.object());
+            if (current != null && current.pages != null && stat.etag().equals(current.etag())) {
+                current.freshUntil = System.nanoTime() + freshForNanos;
+                return;
+            }
+        }
+        byte[] body = stat.size() == 0 ? new byte[0] : null;
+        put(stat.object(), new Entry(stat.headers(), 0), body, stamp);
+    }
+
+    @EventListener
+    public void onObjectChanged(ObjectChangedEvent event) {
+        if (enabled) {
+            invalidations.incrementAndGet();
+            synchronized (this) {
+                release(entries.remove(event.objectName()));
+            }
+        }
+    }
+
+    private synchronized void put(String objectName, Entry entry, byte[] body, long stamp) {
+        if (stamp != invalidations.get()) {
+            return;
+        }
+        release(entries.remove(objectName));
+        int needed = body == null ? 0 : (body.length + pageSize - 1) / pageSize;
+        if (!reserve(needed)) {
+            return;
+        }
+        if (body != null) {
+            entry.pages = new int[needed];
+            for (int i = 0; i < needed; i++) {
+                entry.pages[i] = freePages[--freeCount];
+                int offset = i * pageSize;
+                pages.put(entry.pages[i] * pageSize, body, offset, Math.min(pageSize, body.length - offset));
+            }
+        }
+        entry.freshUntil = System.nanoTime() + freshForNanos;
+        entries.put(objectName, entry);
+    }
+
+    /**
+     * Evicts least recently used entries until the pages and an entry slot are free.
+     */
+    private boolean reserve(int needed) {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while ((freeCount < needed || entries.size() >= maxEntries) && eldest.hasNext()) {
+            Entry victim = eldest.next();
+            eldest.remove();
+            release(victim);
+        }
+        return freeCount >= needed && entries.size() < maxEntries;
+    }
+
+    private void release(Entry entry) {
+        if (entry != null && entry.pages != null) {
+            for (int page : entry.pages) {
+                freePages[freeCount++] = page;
+            }
+            entry.pages = null;
+        }
+    }
+
+    private byte[] read(Entry entry) {
+        byte[] body = new byte[entry.length];
+        for (int i = 0; i < entry.pages.length; i++) {
+            int offset = i * pageSize;
+            pages.get(entry.pages[i] * pageSize, body, offset, Math.min(pageSize, entry.length - offset));
+        }
+        return body;
+    }
+
+    private synchronized long usedBytes() {
+        return (long) (freePages.length - freeCount) * pageSize;
+    }
+
+    private synchronized int entryCount() {
+        return entries.size();
+    }
+
+    private static long size(Headers headers) {
+        String length = headers.get(HttpHeaders.CONTENT_LENGTH);
+        return length == null ? -1 : Long.parseLong(length);
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("storage.small.cache.requests")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Response headers of the cached object and, when held, its bytes.
+     */
+    record Snapshot(Headers headers, byte[] body, boolean fresh) {
+
+        String etag() {
+            return headers.get(HttpHeaders.ETAG);
+        }
+
+        GetObjectResponse toObject(String bucket, String objectName) {
+            return new GetObjectResponse(headers, bucket, null, objectName, new ByteArrayInputStream(body));
+        }
+
+        StatObjectResponse toStat(String bucket, String objectName) {
+            return new StatObjectResponse(headers, bucket, null, objectName);
+        }
+    }
+
+    private static final class Entry {
+
+        private final Headers headers;
+        private final int length;
+        private int[] pages;
+        private long freshUntil;
+
+        private Entry(Headers headers, int length) {
+            this.headers = headers;
+            this.length = length;
+        }
+
+        private String etag() {
+            return headers.get(HttpHeaders.ETAG);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.qubb.cloud.storage;
+
+import com.qubb.cloud.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.minio.GetObjectResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits how many storage calls of each {@link StoragePriority} run at once. Bulk calls also step
+ * aside while interactive calls are waiting for a slot, so browsing is scheduled ahead of transfers.
+ * A call that cannot get a slot within the queue timeout is rejected with 503.
+ * <p>
+ * An interactive read gives its slot back once the response headers are in. Its body may stream
+ * to a throttled client for minutes and only keeps the connection busy, which the client's own
+ * connection budget bounds; holding the slot as well would let a few downloads lock browsing out.
+ * A bulk read holds its slot until the body is closed, so transfers stay within the bulk budget.
+ */
+@Slf4j
+@Component
+public class StorageBulkheads {
+
+    private final Map<StoragePriority, Bulkhead> bulkheads = new EnumMap<>(StoragePriority.class);
+    private final InteractiveQueue interactiveQueue = new InteractiveQueue();
+
+    public StorageBulkheads(@Value("${storage.bulkheads.interactive.concurrency:48}") int interactiveConcurrency,
+                            @Value("${storage.bulkheads.interactive.queue-timeout:2s}") Duration interactiveTimeout,
+                            @Value("${storage.bulkheads.bulk.concurrency:16}") int bulkConcurrency,
+                            @Value("${storage.bulkheads.bulk.queue-timeout:30s}") Duration bulkTimeout,
+                            MeterRegistry meterRegistry) {
+        bulkheads.put(StoragePriority.INTERACTIVE,
+                new Bulkhead(StoragePriority.INTERACTIVE, interactiveConcurrency, interactiveTimeout, meterRegistry));
+        bulkheads.put(StoragePriority.BULK,
+                new Bulkhead(StoragePriority.BULK, bulkConcurrency, bulkTimeout, meterRegistry));
+    }
+
+    <T> T execute(StorageCallContext.StorageCall<T> call) throws Exception {
+        StoragePriority priority = StoragePriority.current();
+        Bulkhead bulkhead = bulkheads.get(priority);
+        bulkhead.acquire(interactiveQueue);
+        T result;
+        try {
+            result = call.execute();
+        } catch (Exception | Error e) {
+            bulkhead.permits.release();
+            throw e;
+        }
+        if (priority == StoragePriority.BULK && result instanceof GetObjectResponse object) {
+            @SuppressWarnings("unchecked")
+            T held = (T) releasedOnClose(object, bulkhead.permits);
+            return held;
+        }
+        bulkhead.permits.release();
+        return result;
+    }
+
+    private static GetObjectResponse releasedOnClose(GetObjectResponse object, Semaphore permits) {
+        var released = new AtomicBoolean();
+        return new GetObjectResponse(object.headers(), object.bucket(), object.region(), object.object(),
+                new FilterInputStream(object) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            if (released.compareAndSet(false, true)) {
+                                permits.release();
+                            }
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Counts interactive calls waiting for a slot, so bulk calls can wait for none to be left.
+     */
+    private static final class InteractiveQueue {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition empty = lock.newCondition();
+        private int waiting;
+
+        private void enter() {
+            lock.lock();
+            try {
+                waiting++;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void leave() {
+            lock.lock();
+            try {
+                if (--waiting == 0) {
+                    empty.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Returns how much of {@code nanos} is left once no interactive call is waiting, or
+         * nothing when the time ran out first.
+         */
+        private long awaitEmpty(long nanos) {
+            lock.lock();
+            try {
+                while (waiting > 0 && nanos > 0) {
+                    nanos = empty.awaitNanos(nanos);
+                }
+                return Math.max(0, nanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServiceOverloadedException("Interrupted while waiting for storage", 1);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final class Bulkhead {
+
+        private final StoragePriority priority;
+        private final Semaphore permits;
+        private final Duration queueTimeout;
+        private final Timer waitTimer;
+        private final Counter rejected;
+
+        private Bulkhead(StoragePriority priority, int concurrency, Duration queueTimeout, MeterRegistry meterRegistry) {
+            this.priority = priority;
+            this.permits = new Semaphore(concurrency, true);
+            this.queueTimeout = queueTimeout;
+            String tag = priority.name().toLowerCase(Locale.ROOT);
+            this.waitTimer = Timer.builder("storage.bulkhead.wait")
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            this.rejected = Counter.builder("storage.bulkhead.rejected")
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            Gauge.builder("storage.bulkhead.active", permits, p -> concurrency - p.availablePermits())
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            Gauge.builder("storage.bulkhead.queued", permits, Semaphore::getQueueLength)
+                    .tag("class", tag)
+                    .register(meterRegistry);
+        }
+
+        /**
+         * Interactive calls take a free slot straight away, and otherwise queue where bulk calls
+         * can see them; bulk calls wait for that queue to empty before queueing themselves.
+         */
+        private void acquire(InteractiveQueue interactiveQueue) {
+            long start = System.nanoTime();
+            try {
+                if (priority == StoragePriority.BULK) {
+                    take(interactiveQueue.awaitEmpty(queueTimeout.toNanos()));
+                } else if (!permits.tryAcquire()) {
+                    interactiveQueue.enter();
+                    try {
+                        take(queueTimeout.toNanos());
+                    } finally {
+                        interactiveQueue.leave();
+                    }
+                }
+            } finally {
+                waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private void take(long timeoutNanos) {
+            try {
+                if (!permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                    rejected.increment();
+                    log.warn("Storage {} bulkhead saturated: {} waiting", priority, permits.getQueueLength());
+                    throw new ServiceOverloadedException("Storage is busy, please retry",
+                            Math.max(1, queueTimeout.toSeconds()));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServiceOverloadedException("Interrupted while waiting for storage", 1);
+            }
+        }
+    }
+}
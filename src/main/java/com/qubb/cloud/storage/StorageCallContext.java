@@ -0,0 +1,72 @@
+package com.qubb.cloud.storage;
+
+/**
+ * Binds {@link StorageCallStats} to the thread serving the current request.
+ * Calls made outside of a request (startup, scheduled jobs) are not accounted.
+ */
+public final class StorageCallContext {
+
+    private static final ThreadLocal<StorageCallStats> CURRENT = new ThreadLocal<>();
+
+    private StorageCallContext() {
+    }
+
+    public static StorageCallStats begin() {
+        StorageCallStats stats = new StorageCallStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    public static StorageCallStats current() {
+        return CURRENT.get();
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Wraps a task so that calls it makes on another thread are added to the caller's request.
+     */
+    public static Runnable wrap(Runnable task) {
+        StorageCallStats stats = CURRENT.get();
+        if (stats == null) {
+            return task;
+        }
+        return () -> {
+            StorageCallStats previous = CURRENT.get();
+            CURRENT.set(stats);
+            try {
+                task.run();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    static <T> T track(String operation, StorageCall<T> call) throws Exception {
+        StorageCallStats stats = CURRENT.get();
+        if (stats == null) {
+            return call.execute();
+        }
+        long start = System.nanoTime();
+        try {
+            return call.execute();
+        } finally {
+            stats.record(operation, System.nanoTime() - start);
+        }
+    }
+
+    private static void restore(StorageCallStats previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    @FunctionalInterface
+    interface StorageCall<T> {
+        T execute() throws Exception;
+    }
+}
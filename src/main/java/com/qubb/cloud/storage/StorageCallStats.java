@@ -0,0 +1,48 @@
+package com.qubb.cloud.storage;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Storage round trips made while serving one HTTP request.
+ * Counters are thread-safe so work handed to other threads can report into the same request.
+ */
+public class StorageCallStats {
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final Map<String, LongAdder> callsByOperation = new ConcurrentHashMap<>();
+
+    public void record(String operation, long elapsedNanos) {
+        calls.increment();
+        nanos.add(elapsedNanos);
+        callsByOperation.computeIfAbsent(operation, key -> new LongAdder()).increment();
+    }
+
+    public long calls() {
+        return calls.sum();
+    }
+
+    public long calls(String operation) {
+        LongAdder adder = callsByOperation.get(operation);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    public double totalMillis() {
+        return nanos.sum() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public Map<String, Long> callsByOperation() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        callsByOperation.forEach((operation, adder) -> snapshot.put(operation, adder.sum()));
+        return snapshot;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d calls in %.1f ms %s", calls(), totalMillis(), callsByOperation());
+    }
+}
@@ -1,20 +1,34 @@
 package com.qubb.cloud.storage;
 
 import com.qubb.cloud.payload.DownloadResponse;
+import com.qubb.cloud.payload.ReadConditions;
 import com.qubb.cloud.payload.ResourceInfoResponse;
 import io.minio.StatObjectResponse;
 import io.minio.messages.Item;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 public interface StorageOperations {
     void delete(String path);
-    DownloadResponse download(String path);
+    DownloadResponse download(String path, ReadConditions conditions, Predicate<Item> include);
+    DownloadResponse downloadSelection(String basePath, List<String> objectNames, String filename, Predicate<Item> include);
+    CompletableFuture<DownloadResponse> preview(String path);
     List<ResourceInfoResponse> upload(MultipartFile[] files, String basePath);
-    void copyResource(String source, String target);
+    List<ResourceInfoResponse> uploadArchive(InputStream archive, String basePath);
+    Optional<String> presignDownload(StatObjectResponse stat);
+    String presignUpload(String path, long size);
+    Map<String, String> presignedUploadHeaders(long size);
+    ResourceInfoResponse completeDirectUpload(StatObjectResponse stat, long maxSize);
+    void copyResource(String source, String target, Predicate<Item> include);
     Stream<Item> recursiveListObjects(String rootPath);
+    Stream<Item> listObjects(String prefix);
     StatObjectResponse statObject(String path);
 
 }
@@ -1,13 +1,20 @@
 package com.qubb.cloud.storage;
 
 import com.qubb.cloud.payload.DownloadResponse;
+import com.qubb.cloud.payload.ReadConditions;
 import com.qubb.cloud.payload.ResourceInfoResponse;
 import io.minio.StatObjectResponse;
 import io.minio.messages.Item;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 
@@ -18,6 +25,9 @@ public class StorageOperationsImpl implements StorageOperations {
     private final DeleteService deleteService;
     private final DownloadService downloadService;
     private final UploadService uploadService;
+    private final PreviewService previewService;
+    private final ArchiveUploadService archiveUploadService;
+    private final PresignService presignService;
 
     @Override
     public void delete(String path) {
@@ -25,8 +35,19 @@ public class StorageOperationsImpl implements StorageOperations {
     }
 
     @Override
-    public DownloadResponse download(String path) {
-        return downloadService.download(path);
+    public DownloadResponse download(String path, ReadConditions conditions, Predicate<Item> include) {
+        return downloadService.download(path, conditions, include);
+    }
+
+    @Override
+    public DownloadResponse downloadSelection(String basePath, List<String> objectNames, String filename,
+                                              Predicate<Item> include) {
+        return downloadService.downloadSelection(basePath, objectNames, filename, include);
+    }
+
+    @Override
+    public CompletableFuture<DownloadResponse> preview(String path) {
+        return previewService.preview(path);
     }
 
     @Override
@@ -35,8 +56,37 @@ public class StorageOperationsImpl implements StorageOperations {
     }
 
     @Override
-    public void copyResource(String source, String target) {
-        minioService.copyDirectoryContents(source, target);
+    public List<ResourceInfoResponse> uploadArchive(InputStream archive, String basePath) {
+        return archiveUploadService.upload(archive, basePath);
+    }
+
+    @Override
+    public Optional<String> presignDownload(StatObjectResponse stat) {
+        return presignService.presignGet(stat);
+    }
+
+    @Override
+    public String presignUpload(String path, long size) {
+        return presignService.presignPut(path, size);
+    }
+
+    @Override
+    public Map<String, String> presignedUploadHeaders(long size) {
+        return presignService.uploadHeaders(size);
+    }
+
+    @Override
+    public ResourceInfoResponse completeDirectUpload(StatObjectResponse stat, long maxSize) {
+        return uploadService.completeDirectUpload(stat, maxSize);
+    }
+
+    @Override
+    public void copyResource(String source, String target, Predicate<Item> include) {
+        if (source.endsWith("/")) {
+            StoragePriority.BULK.run(() -> minioService.copyDirectoryContents(source, target, include));
+        } else {
+            minioService.copyDirectoryContents(source, target, include);
+        }
     }
 
     @Override
@@ -44,6 +94,11 @@ public class StorageOperationsImpl implements StorageOperations {
         return minioService.recursiveListObjects(rootPath);
     }
 
+    @Override
+    public Stream<Item> listObjects(String prefix) {
+        return minioService.listObjects(prefix);
+    }
+
     @Override
     public StatObjectResponse statObject(String path) {
         return minioService.statObject(path);
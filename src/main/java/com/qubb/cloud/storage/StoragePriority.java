@@ -0,0 +1,55 @@
+package com.qubb.cloud.storage;
+
+import java.util.function.Supplier;
+
+/**
+ * Scheduling class of storage calls made by the current thread. Browsing (stats, listings, single
+ * file reads) is interactive; archives, folder moves and large uploads are bulk and run against a
+ * separate connection budget so they cannot starve browsing.
+ */
+public enum StoragePriority {
+    INTERACTIVE,
+    BULK;
+
+    private static final ThreadLocal<StoragePriority> CURRENT = new ThreadLocal<>();
+
+    public static StoragePriority current() {
+        StoragePriority priority = CURRENT.get();
+        return priority == null ? INTERACTIVE : priority;
+    }
+
+    public <T> T call(Supplier<T> task) {
+        StoragePriority previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return task.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    <T> T execute(StorageCallContext.StorageCall<T> call) throws Exception {
+        StoragePriority previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return call.execute();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    public void run(Runnable task) {
+        call(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    private static void restore(StoragePriority previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.qubb.cloud.storage;
+
+import io.minio.MinioAsyncClient;
+import io.minio.MinioClient;
+
+/**
+ * One MinIO endpoint and bucket pair holding a share of the users. Each shard has its own interactive
+ * and bulk clients, so connection budgets are per backend.
+ */
+public record StorageShard(String name,
+                           String bucket,
+                           MinioClient client,
+                           MinioClient bulkClient,
+                           MinioAsyncClient bulkAsyncClient,
+                           MinioClient presignClient) {
+
+    MinioClient client(StoragePriority priority) {
+        return priority == StoragePriority.BULK ? bulkClient : client;
+    }
+}
@@ -0,0 +1,31 @@
+package com.qubb.cloud.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Bytes ready to be written to MinIO, with the metadata describing how they were encoded.
+ * Closing it releases the stream and any temporary file backing it.
+ */
+public record StoredContent(InputStream stream, long size, Map<String, String> metadata, Path tempFile)
+        implements Closeable {
+
+    public static StoredContent raw(InputStream stream, long size) {
+        return new StoredContent(stream, size, Map.of(), null);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            stream.close();
+        } finally {
+            if (tempFile != null) {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.qubb.cloud.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A staged file that is removed once the response has been streamed from it.
+ */
+@Slf4j
+public class TempFileResource extends FileSystemResource {
+
+    private final Path path;
+
+    public TempFileResource(Path path) {
+        super(path);
+        this.path = path;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return new FilterInputStream(super.getInputStream()) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    delete(path);
+                }
+            }
+        };
+    }
+
+    static void delete(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete temporary file {}", path, e);
+        }
+    }
+}
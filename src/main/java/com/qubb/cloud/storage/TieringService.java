@@ -0,0 +1,248 @@
+package com.qubb.cloud.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qubb.cloud.exception.ResourceChangedException;
+import com.qubb.cloud.exception.ResourceOperationException;
+import com.qubb.cloud.util.PathUtils;
+import io.minio.GetObjectResponse;
+import io.minio.StatObjectResponse;
+import io.minio.messages.Item;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Moves files nobody reads to the cold bucket and back on their next read. A file moved out leaves
+ * a small stub at its path with the {@value #CODEC} codec, carrying the file's metadata, logical
+ * size and MD5, so listings, folder sizes and sync see it as before. Reading the stub streams the
+ * copy from the cold bucket and queues the file to be moved back.
+ * <p>
+ * Cold copies are named after the file and its etag. Stubs are copied along with their folders, so
+ * a copy is shared by every stub naming it and only removed by {@link #sweep} once none does.
+ */
+@Slf4j
+@Service
+public class TieringService {
+
+    public static final String CODEC = "cold";
+
+    private final MinioService minioService;
+    private final ShardRouter shardRouter;
+    private final StorageShard cold;
+    private final ObjectMapper objectMapper;
+    private final Duration sweepGrace;
+    private final ThreadPoolExecutor promotions;
+    private final Set<String> promoting = ConcurrentHashMap.newKeySet();
+
+    public TieringService(MinioService minioService,
+                          ShardRouter shardRouter,
+                          ColdStorage coldStorage,
+                          ObjectMapper objectMapper,
+                          @Value("${storage.tiering.sweep-grace:1h}") Duration sweepGrace,
+                          @Value("${storage.tiering.promotion.threads:2}") int threads,
+                          @Value("${storage.tiering.promotion.queue-capacity:1000}") int queueCapacity) {
+        this.minioService = minioService;
+        this.shardRouter = shardRouter;
+        this.cold = coldStorage.shard();
+        this.objectMapper = objectMapper;
+        this.sweepGrace = sweepGrace;
+        this.promotions = new ThreadPoolExecutor(
+                threads, threads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("promotion-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        promotions.shutdownNow();
+    }
+
+    public void createBucketIfNotExists() {
+        minioService.createBucketIfNotExists(cold);
+    }
+
+    /**
+     * The cold copy a listed stub refers to, or {@code null} for files in the hot tier.
+     */
+    public static String coldObject(Item item) {
+        return ObjectMetadata.get(item.userMetadata(), ObjectMetadata.COLD_OBJECT);
+    }
+
+    /**
+     * Copies the file to the cold bucket and replaces it with a stub, unless it changed since it
+     * was listed. Returns the key of the cold copy, or {@code null} when nothing was moved.
+     */
+    public String demote(Item item) {
+        String objectName = item.objectName();
+        StatObjectResponse current = minioService.statObject(shardRouter.route(objectName), objectName);
+        String etag = unquote(current.etag());
+        String codec = ObjectMetadata.get(current.headers(), ObjectMetadata.CODEC);
+        if (!etag.equals(unquote(item.etag())) || CODEC.equalsIgnoreCase(codec)) {
+            return null;
+        }
+        String coldObject = objectName + "@" + etag;
+        minioService.transferObject(shardRouter.route(objectName), cold, objectName, coldObject);
+
+        Map<String, String> metadata = ObjectMetadata.userMetadata(current.headers());
+        metadata.put(ObjectMetadata.CODEC, CODEC);
+        metadata.put(ObjectMetadata.LOGICAL_SIZE,
+                String.valueOf(ObjectMetadata.logicalSize(current.headers(), current.size())));
+        metadata.put(ObjectMetadata.COLD_OBJECT, coldObject);
+        metadata.putIfAbsent(ObjectMetadata.TIERED_ETAG, etag);
+        if (codec == null && etag.length() == 32 && etag.chars().allMatch(HexFormat::isHexDigit)) {
+            metadata.putIfAbsent(ObjectMetadata.CONTENT_MD5, etag);
+        }
+        byte[] stub = write(new ColdReference(objectName, coldObject));
+        try {
+            minioService.putObjectIfMatch(objectName, new ByteArrayInputStream(stub), stub.length,
+                    current.contentType(), metadata, current);
+        } catch (ResourceChangedException e) {
+            log.debug("Not moving {} to the cold tier: it changed while being copied", objectName);
+            minioService.removeObject(cold, coldObject);
+            return null;
+        }
+        log.debug("Moved {} to the cold tier", objectName);
+        return coldObject;
+    }
+
+    /**
+     * Streams the cold copy a stub refers to, still encoded with the file's own codec, and queues
+     * the file read to be moved back to the hot tier. That is not necessarily the file the stub was
+     * written for, since stubs are copied along with their folders.
+     * <p>
+     * The copy is named by the stub's metadata, which only the server writes, and must lie under
+     * the root of the user owning the stub, so a stub cannot point a read at another user's copy.
+     */
+    public GetObjectResponse open(GetObjectResponse stub) throws IOException {
+        String objectName = stub.object();
+        String coldObject = ObjectMetadata.get(stub.headers(), ObjectMetadata.COLD_OBJECT);
+        stub.close();
+        Integer owner = PathUtils.extractUserId(objectName);
+        if (coldObject == null || owner == null || !coldObject.startsWith(PathUtils.buildUserRootPath(owner))) {
+            throw new ResourceOperationException("Invalid cold reference for " + objectName + ": " + coldObject);
+        }
+        GetObjectResponse copy = minioService.getObject(cold, coldObject);
+        promoteLater(objectName);
+        return copy;
+    }
+
+    /**
+     * Removes the user's cold copies not in {@code referenced}, the cold objects named by all their
+     * stubs. A stub copied to a folder the caller had already listed while its original was removed
+     * is missed by that listing, so the copies found are checked against a second listing first.
+     * Copies younger than the grace period are kept for demotions still writing their stub.
+     */
+    public int sweep(int userId, Set<String> referenced) {
+        Instant before = Instant.now().minus(sweepGrace);
+        String root = PathUtils.buildUserRootPath(userId);
+        List<String> unreferenced;
+        try (Stream<Item> copies = minioService.recursiveListObjects(cold, root)) {
+            unreferenced = copies
+                    .filter(item -> !item.isDir() && !referenced.contains(item.objectName()))
+                    .filter(item -> item.lastModified() != null && item.lastModified().toInstant().isBefore(before))
+                    .map(Item::objectName)
+                    .toList();
+        }
+        if (unreferenced.isEmpty()) {
+            return 0;
+        }
+        Set<String> stillReferenced;
+        try (Stream<Item> items = Stream.concat(minioService.recursiveListObjects(root),
+                minioService.recursiveListObjects(PathUtils.buildTrashRoot(userId)))) {
+            stillReferenced = items.map(TieringService::coldObject)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet());
+        }
+        List<String> removable = unreferenced.stream().filter(copy -> !stillReferenced.contains(copy)).toList();
+        removable.forEach(coldObject -> minioService.removeObject(cold, coldObject));
+        return removable.size();
+    }
+
+    /**
+     * Reads of a file share one promotion; while the queue is full, reads are served from the cold
+     * tier without promoting.
+     */
+    private void promoteLater(String objectName) {
+        if (!promoting.add(objectName)) {
+            return;
+        }
+        try {
+            promotions.execute(() -> {
+                try {
+                    StoragePriority.BULK.run(() -> promote(objectName));
+                } catch (RuntimeException e) {
+                    log.warn("Failed to move {} back from the cold tier", objectName, e);
+                } finally {
+                    promoting.remove(objectName);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            promoting.remove(objectName);
+            log.debug("Not moving {} back from the cold tier: too many files queued", objectName);
+        }
+    }
+
+    /**
+     * Writes the cold copy, metadata included, back over the stub if the stub is still there. The
+     * write is conditional on the stub's etag up to its last request, so a file written over the
+     * stub meanwhile is kept whatever the size of the copy. The file keeps the etag sync knows it
+     * by, as its own changes unless it was stored in one part. The copy itself stays until the
+     * sweep, since copies of the stub may refer to it.
+     */
+    void promote(String objectName) {
+        StatObjectResponse stub = minioService.statObject(shardRouter.route(objectName), objectName);
+        String coldObject = ObjectMetadata.get(stub.headers(), ObjectMetadata.COLD_OBJECT);
+        if (coldObject == null) {
+            return;
+        }
+        StatObjectResponse stat = minioService.statObject(cold, coldObject);
+        try (GetObjectResponse copy = minioService.getObject(cold, coldObject)) {
+            Map<String, String> metadata = ObjectMetadata.userMetadata(stat.headers());
+            metadata.put(ObjectMetadata.TIERED_ETAG, ObjectMetadata.get(stub.headers(), ObjectMetadata.TIERED_ETAG));
+            minioService.putObjectIfMatch(objectName, copy, stat.size(), stat.contentType(), metadata, stub);
+            log.debug("Moved {} back from the cold tier", objectName);
+        } catch (ResourceChangedException e) {
+            log.debug("Not moving {} back from the cold tier: it changed meanwhile", objectName);
+        } catch (IOException e) {
+            throw new ResourceOperationException("Failed to close cold copy: " + coldObject, e);
+        }
+    }
+
+    private byte[] write(ColdReference reference) {
+        try {
+            return objectMapper.writeValueAsBytes(reference);
+        } catch (IOException e) {
+            throw new ResourceOperationException("Failed to write cold reference: " + reference.objectName(), e);
+        }
+    }
+
+    private static String unquote(String etag) {
+        if (etag == null) {
+            return "";
+        }
+        return etag.startsWith("\"") && etag.endsWith("\"") && etag.length() > 1
+                ? etag.substring(1, etag.length() - 1)
+                : etag;
+    }
+}
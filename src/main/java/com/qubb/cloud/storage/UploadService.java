@@ -1,11 +1,18 @@
 package com.qubb.cloud.storage;
 
+import com.qubb.cloud.exception.InvalidUploadException;
+import com.qubb.cloud.exception.PayloadTooLargeException;
+import com.qubb.cloud.exception.ResourceAlreadyExistsException;
 import com.qubb.cloud.exception.ResourceOperationException;
 import com.qubb.cloud.payload.ResourceInfoResponse;
 import com.qubb.cloud.util.PathUtils;
 import com.qubb.cloud.util.ResourceResponseBuilder;
+import io.minio.ObjectWriteResponse;
+import io.minio.StatObjectResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 import java.util.Arrays;
 import java.util.List;
@@ -16,6 +23,11 @@ import java.util.stream.Collectors;
 public class UploadService {
 
     private final MinioService minioService;
+    private final CompressionService compressionService;
+    private final ChunkStore chunkStore;
+
+    @Value("${storage.bulkheads.bulk.upload-threshold:16MB}")
+    private DataSize bulkUploadThreshold;
 
     public List<ResourceInfoResponse> upload(MultipartFile[] files, String path)  {
         return Arrays.stream(files)
@@ -29,21 +41,52 @@ public class UploadService {
             String objectName = buildObjectName(basePath, relativePath);
             createParentDirectories(objectName);
 
-            if (minioService.objectExists(objectName)) {
-                throw new ResourceOperationException("File already exists: " + objectName);
+            StoragePriority priority = file.getSize() > bulkUploadThreshold.toBytes()
+                    ? StoragePriority.BULK
+                    : StoragePriority.INTERACTIVE;
+            ObjectWriteResponse written;
+            if (chunkStore.shouldChunk(file.getSize())) {
+                try (var stream = file.getInputStream()) {
+                    written = priority.call(() -> chunkStore.storeChunked(objectName, stream, file.getContentType()));
+                }
+            } else {
+                try (StoredContent content = compressionService.prepare(
+                        file.getInputStream(), file.getSize(), file.getContentType())) {
+                    written = priority.call(() -> minioService.putObjectIfAbsent(objectName, content.stream(),
+                            content.size(), file.getContentType(), content.metadata()));
+                }
             }
 
-            minioService.putObject(objectName, file.getInputStream(), file.getSize(), file.getContentType());
-
-            return List.of(ResourceResponseBuilder.buildFromObjectName(
-                    objectName,
-                    minioService.statObject(objectName)
-            ));
+            return List.of(ResourceResponseBuilder.buildFromUpload(objectName, file.getSize(), written));
+        } catch (ResourceAlreadyExistsException e) {
+            throw e;
         } catch (Exception e) {
             throw new ResourceOperationException("Failed to upload file: " + e.getMessage());
         }
     }
 
+    /**
+     * Registers a file the client has put straight into storage through a presigned URL. The URL
+     * only accepts a new file of the size it was signed for, so a larger file found here was stored
+     * some other way and is left alone.
+     */
+    public ResourceInfoResponse completeDirectUpload(StatObjectResponse stat, long maxSize) {
+        String objectName = stat.object();
+        if (stat.size() > maxSize) {
+            throw new PayloadTooLargeException("File exceeds the upload limit: " + objectName);
+        }
+        if (ObjectMetadata.get(stat.headers(), ObjectMetadata.DIRECT_UPLOAD) == null) {
+            throw new ResourceAlreadyExistsException("File was not uploaded through a presigned URL: " + objectName);
+        }
+        if (ObjectMetadata.STORAGE_KEYS.stream().anyMatch(key -> ObjectMetadata.get(stat.headers(), key) != null)) {
+            minioService.removeObject(objectName);
+            throw new InvalidUploadException("Upload sets metadata reserved for stored files: " + objectName);
+        }
+        createParentDirectories(objectName);
+        minioService.registerDirectUpload(stat);
+        return ResourceResponseBuilder.buildFromObjectName(objectName, stat);
+    }
+
     private void createParentDirectories(String objectName) {
         String parentDir = PathUtils.getParentPath(objectName);
         if (!parentDir.isEmpty() && !minioService.isDirectoryExists(parentDir)) {
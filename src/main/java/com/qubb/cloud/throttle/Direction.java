@@ -0,0 +1,6 @@
+package com.qubb.cloud.throttle;
+
+public enum Direction {
+    UPLOAD,
+    DOWNLOAD
+}
@@ -0,0 +1,16 @@
+package com.qubb.cloud.throttle;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an endpoint as a heavy transfer: it counts against the user's concurrency cap and
+ * is refused while the user's bandwidth bucket for {@link #value()} is too far in debt.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Throttled {
+    Direction value();
+}
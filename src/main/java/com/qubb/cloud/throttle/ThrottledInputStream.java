@@ -0,0 +1,87 @@
+package com.qubb.cloud.throttle;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * Paces reads against the user's bandwidth bucket. Tokens are taken a chunk at a time, so Redis
+ * is asked once per chunk rather than once per read; tokens left over at close are given back.
+ */
+class ThrottledInputStream extends FilterInputStream {
+
+    private final UserThrottleService throttle;
+    private final int userId;
+    private final Direction direction;
+    private final int chunkSize;
+    private long granted;
+    private boolean closed;
+
+    ThrottledInputStream(InputStream in, UserThrottleService throttle, int userId, Direction direction, int chunkSize) {
+        super(in);
+        this.throttle = throttle;
+        this.userId = userId;
+        this.direction = direction;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public int read() throws IOException {
+        reserve(1);
+        int value = super.read();
+        if (value != -1) {
+            granted--;
+        }
+        return value;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        reserve(1);
+        int read = super.read(b, off, (int) Math.min(len, granted));
+        if (read > 0) {
+            granted -= read;
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        reserve(1);
+        long skipped = super.skip(Math.min(n, granted));
+        granted -= skipped;
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            if (granted > 0) {
+                throttle.take(userId, direction, -granted);
+                granted = 0;
+            }
+        }
+        super.close();
+    }
+
+    private void reserve(int needed) throws IOException {
+        if (granted >= needed) {
+            return;
+        }
+        long waitMillis = throttle.take(userId, direction, chunkSize);
+        granted += chunkSize;
+        if (waitMillis > 0) {
+            try {
+                Thread.sleep(waitMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while throttled");
+            }
+        }
+    }
+}
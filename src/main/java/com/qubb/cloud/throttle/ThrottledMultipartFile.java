@@ -0,0 +1,72 @@
+package com.qubb.cloud.throttle;
+
+import org.springframework.core.io.Resource;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Multipart bodies are received by the container before the controller runs, so for them the limit
+ * paces the transfer on to storage rather than the client's upload itself.
+ */
+class ThrottledMultipartFile implements MultipartFile {
+
+    private final MultipartFile delegate;
+    private final UserThrottleService throttle;
+    private final int userId;
+
+    ThrottledMultipartFile(MultipartFile delegate, UserThrottleService throttle, int userId) {
+        this.delegate = delegate;
+        this.throttle = throttle;
+        this.userId = userId;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return delegate.getOriginalFilename();
+    }
+
+    @Override
+    public String getContentType() {
+        return delegate.getContentType();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return delegate.isEmpty();
+    }
+
+    @Override
+    public long getSize() {
+        return delegate.getSize();
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+        try (InputStream in = getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return throttle.limit(delegate.getInputStream(), userId, Direction.UPLOAD);
+    }
+
+    @Override
+    public Resource getResource() {
+        return delegate.getResource();
+    }
+
+    @Override
+    public void transferTo(File dest) throws IOException, IllegalStateException {
+        delegate.transferTo(dest);
+    }
+}
@@ -0,0 +1,61 @@
+package com.qubb.cloud.throttle;
+
+import com.qubb.cloud.security.UserDetailsImpl;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Admits {@link Throttled} endpoints against the caller's limits and holds a concurrency lease
+ * until the response, including a streamed body, has been written.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserThrottleInterceptor implements HandlerInterceptor {
+
+    private static final String LEASE_ATTRIBUTE = UserThrottleInterceptor.class.getName() + ".lease";
+
+    private final UserThrottleService userThrottleService;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Throttled throttled = throttled(handler);
+        Integer userId = currentUserId();
+        if (throttled == null || userId == null) {
+            return true;
+        }
+        userThrottleService.checkBandwidth(userId, throttled.value());
+        String lease = userThrottleService.acquireTransfer(userId);
+        if (lease != null) {
+            request.setAttribute(LEASE_ATTRIBUTE, new Lease(userId, lease));
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(LEASE_ATTRIBUTE) instanceof Lease lease) {
+            userThrottleService.releaseTransfer(lease.userId(), lease.id());
+        }
+    }
+
+    private static Throttled throttled(Object handler) {
+        return handler instanceof HandlerMethod method ? method.getMethodAnnotation(Throttled.class) : null;
+    }
+
+    private static Integer currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UserDetailsImpl userDetails
+                && userDetails.user() != null) {
+            return userDetails.user().getId();
+        }
+        return null;
+    }
+
+    private record Lease(int userId, String id) {}
+}
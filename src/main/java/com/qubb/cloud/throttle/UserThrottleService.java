@@ -0,0 +1,161 @@
+package com.qubb.cloud.throttle;
+
+import com.qubb.cloud.exception.RateLimitExceededException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Per-user transfer limits shared by all nodes through Redis: a bytes-per-second token bucket for each
+ * direction and a cap on concurrent heavy operations. Limits fail open when Redis is unreachable,
+ * so throttling never takes downloads down with it.
+ */
+@Slf4j
+@Service
+public class UserThrottleService {
+
+    private static final RedisScript<Long> TOKEN_BUCKET =
+            RedisScript.of(new ClassPathResource("scripts/token-bucket.lua"), Long.class);
+    private static final RedisScript<Long> CONCURRENCY_LEASE =
+            RedisScript.of(new ClassPathResource("scripts/concurrency-lease.lua"), Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${throttle.enabled:true}")
+    private boolean enabled;
+
+    @Value("${throttle.download.rate:20MB}")
+    private DataSize downloadRate;
+
+    @Value("${throttle.download.burst:40MB}")
+    private DataSize downloadBurst;
+
+    @Value("${throttle.upload.rate:20MB}")
+    private DataSize uploadRate;
+
+    @Value("${throttle.upload.burst:40MB}")
+    private DataSize uploadBurst;
+
+    @Value("${throttle.max-wait:5s}")
+    private Duration maxWait;
+
+    @Value("${throttle.chunk-size:256KB}")
+    private DataSize chunkSize;
+
+    @Value("${throttle.max-concurrent-transfers:4}")
+    private int maxConcurrentTransfers;
+
+    @Value("${throttle.lease-ttl:30m}")
+    private Duration leaseTtl;
+
+    public UserThrottleService(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * Refuses a new transfer while the user's bucket is so far in debt that its first bytes would wait too long.
+     */
+    public void checkBandwidth(int userId, Direction direction) {
+        if (!enabled) {
+            return;
+        }
+        long waitMillis = take(userId, direction, 0);
+        if (waitMillis > maxWait.toMillis()) {
+            throw new RateLimitExceededException("Transfer rate limit exceeded",
+                    Math.max(1, Duration.ofMillis(waitMillis - maxWait.toMillis()).toSeconds() + 1));
+        }
+    }
+
+    /**
+     * Takes a slot for a heavy operation and returns its lease id, to be handed back to {@link #releaseTransfer}.
+     */
+    public String acquireTransfer(int userId) {
+        if (!enabled) {
+            return null;
+        }
+        String lease = UUID.randomUUID().toString();
+        try {
+            Long taken = redisTemplate.execute(CONCURRENCY_LEASE, List.of(leaseKey(userId)),
+                    String.valueOf(maxConcurrentTransfers), String.valueOf(leaseTtl.toMillis()), lease);
+            if (taken != null && taken == 0) {
+                throw new RateLimitExceededException(
+                        "Too many concurrent transfers, at most " + maxConcurrentTransfers + " allowed", 1);
+            }
+            return lease;
+        } catch (RateLimitExceededException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            log.warn("Transfer concurrency check skipped for user {}: {}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    public void releaseTransfer(int userId, String lease) {
+        if (lease == null) {
+            return;
+        }
+        try {
+            redisTemplate.opsForZSet().remove(leaseKey(userId), lease);
+        } catch (RuntimeException e) {
+            log.warn("Failed to release transfer lease of user {}, it expires in {}", userId, leaseTtl);
+        }
+    }
+
+    public InputStream limit(InputStream stream, int userId, Direction direction) {
+        if (!enabled) {
+            return stream;
+        }
+        return new ThrottledInputStream(stream, this, userId, direction, (int) chunkSize.toBytes());
+    }
+
+    public MultipartFile limit(MultipartFile file, int userId) {
+        if (!enabled) {
+            return file;
+        }
+        return new ThrottledMultipartFile(file, this, userId);
+    }
+
+    /**
+     * Books a transfer that bypasses the application, such as a presigned URL, against the user's bucket.
+     */
+    public void charge(int userId, Direction direction, Long bytes) {
+        if (enabled && bytes != null && bytes > 0) {
+            take(userId, direction, bytes);
+        }
+    }
+
+    /**
+     * Takes {@code bytes} tokens (or returns them when negative) and gives the time to wait before using them.
+     */
+    long take(int userId, Direction direction, long bytes) {
+        DataSize rate = direction == Direction.DOWNLOAD ? downloadRate : uploadRate;
+        DataSize burst = direction == Direction.DOWNLOAD ? downloadBurst : uploadBurst;
+        try {
+            Long waitMillis = redisTemplate.execute(TOKEN_BUCKET, List.of(bucketKey(userId, direction)),
+                    String.valueOf(rate.toBytes()), String.valueOf(burst.toBytes()), String.valueOf(bytes));
+            return waitMillis == null ? 0 : waitMillis;
+        } catch (RuntimeException e) {
+            log.warn("Bandwidth limit skipped for user {}: {}", userId, e.getMessage());
+            return 0;
+        }
+    }
+
+    private static String bucketKey(int userId, Direction direction) {
+        return "throttle:bandwidth:" + direction.name().toLowerCase(Locale.ROOT) + ":" + userId;
+    }
+
+    private static String leaseKey(int userId) {
+        return "throttle:transfers:" + userId;
+    }
+}
@@ -1,7 +1,16 @@
 package com.qubb.cloud.util;
 
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 public class PathUtils {
 
+    private static final String PREVIEW_ROOT = "previews/";
+    private static final String CHUNK_ROOT = "chunks/";
+    private static final String TRASH_ROOT = "trash/";
+    private static final Pattern USER_ROOT = Pattern.compile(
+            "(?:" + PREVIEW_ROOT + "|" + CHUNK_ROOT + "|" + TRASH_ROOT + ")?user-(\\d+)-files/");
+
     public static String getResourceName(String resourcePath) {
         if (resourcePath.endsWith("/")) {
             // Для папки: "folder1/folder2/" -> "folder2"
@@ -16,6 +25,67 @@ public class PathUtils {
         return String.format("user-%d-files/", id);
     }
 
+    /**
+     * Id of the user whose root the object lives under, previews, chunks and trash included; null for anything else.
+     */
+    public static Integer extractUserId(String objectName) {
+        Matcher matcher = USER_ROOT.matcher(objectName);
+        return matcher.lookingAt() ? Integer.valueOf(matcher.group(1)) : null;
+    }
+
+    /**
+     * Previews live in a tree parallel to the user roots so they never appear in listings,
+     * search results or directory archives: "user-1-files/a/cat.jpg" -> "previews/user-1-files/a/cat.jpg".
+     */
+    public static String buildPreviewObjectName(String objectName) {
+        return PREVIEW_ROOT + objectName;
+    }
+
+    public static boolean isPreviewObject(String objectName) {
+        return objectName.startsWith(PREVIEW_ROOT);
+    }
+
+    /**
+     * Chunks of files stored in pieces are shared by every file of the user that contains them, so
+     * they are named by content in a tree of their own: "chunks/user-1-files/<sha-256>".
+     */
+    public static String buildChunkObjectName(int userId, String hash) {
+        return buildChunkRoot(userId) + hash;
+    }
+
+    public static String buildChunkRoot(int userId) {
+        return CHUNK_ROOT + buildUserRootPath(userId);
+    }
+
+    public static boolean isChunkObject(String objectName) {
+        return objectName.startsWith(CHUNK_ROOT);
+    }
+
+    /**
+     * Deleted content that was in the way of a new write is moved to a tree of its own, one folder
+     * per trash entry: "user-1-files/docs/" of entry 7 -> "trash/user-1-files/7/docs/".
+     */
+    public static String buildTrashObjectName(int userId, long entryId, String objectName) {
+        return buildTrashRoot(userId) + entryId + "/" + objectName.substring(buildUserRootPath(userId).length());
+    }
+
+    public static String buildTrashRoot(int userId) {
+        return TRASH_ROOT + buildUserRootPath(userId);
+    }
+
+    public static boolean isTrashObject(String objectName) {
+        return objectName.startsWith(TRASH_ROOT);
+    }
+
+    /**
+     * Whether the object is one of the user's own files or folders rather than a preview, chunk or
+     * trashed object.
+     */
+    public static boolean isUserObject(String objectName) {
+        return !isPreviewObject(objectName) && !isChunkObject(objectName) && !isTrashObject(objectName)
+                && extractUserId(objectName) != null;
+    }
+
     public static String buildFullUserPath(int id, String path) {
         String root = buildUserRootPath(id);
         if (path.contains(root)) {
@@ -1,8 +1,19 @@
 package com.qubb.cloud.util;
 
+import com.qubb.cloud.entity.FolderSize;
+import com.qubb.cloud.entity.TrashEntry;
 import com.qubb.cloud.payload.ResourceInfoResponse;
+import com.qubb.cloud.payload.TrashEntryResponse;
+import com.qubb.cloud.payload.VersionedResponse;
+import com.qubb.cloud.storage.ObjectMetadata;
+import io.minio.ObjectWriteResponse;
 import io.minio.StatObjectResponse;
 import io.minio.messages.Item;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
 
 public class ResourceResponseBuilder {
     private static final String DIRECTORY_TYPE = "DIRECTORY";
@@ -16,7 +27,7 @@ public class ResourceResponseBuilder {
         return ResourceInfoResponse.builder()
                 .path(PathUtils.getParentPath(objectName))
                 .name(isDirectory ? name + "/" : name)
-                .size(isDirectory ? null : item.size())
+                .size(isDirectory ? null : ObjectMetadata.logicalSize(item.userMetadata(), item.size()))
                 .type(isDirectory ? DIRECTORY_TYPE : FILE_TYPE)
                 .build();
     }
@@ -28,8 +39,115 @@ public class ResourceResponseBuilder {
         return ResourceInfoResponse.builder()
                 .path(PathUtils.getParentPath(objectName))
                 .name(isDirectory ? name + "/" : name)
-                .size(isDirectory ? null : stat.size())
+                .size(isDirectory ? null : ObjectMetadata.logicalSize(stat.headers(), stat.size()))
                 .type(isDirectory ? DIRECTORY_TYPE : FILE_TYPE)
                 .build();
     }
+
+    public static ResourceInfoResponse buildFromObjectName(String objectName, long size) {
+        return ResourceInfoResponse.builder()
+                .path(PathUtils.getParentPath(objectName))
+                .name(PathUtils.getResourceName(objectName))
+                .size(size)
+                .type(FILE_TYPE)
+                .build();
+    }
+
+    /**
+     * Built from what the write returned, so an upload needs no stat afterwards. The etag is the one
+     * later reads of the file report.
+     */
+    public static ResourceInfoResponse buildFromUpload(String objectName, long size, ObjectWriteResponse written) {
+        return buildFromObjectName(objectName, size).toBuilder()
+                .etag(quoteEtag(written.etag()))
+                .build();
+    }
+
+    public static ResourceInfoResponse buildFromDirectory(String objectName, Map<String, FolderSize> sizes) {
+        return withFolderSize(ResourceInfoResponse.builder()
+                .path(PathUtils.getParentPath(objectName))
+                .name(PathUtils.getResourceName(objectName) + "/")
+                .type(DIRECTORY_TYPE)
+                .build(), sizes);
+    }
+
+    public static ResourceInfoResponse buildFromFolderSize(FolderSize folderSize) {
+        return ResourceInfoResponse.builder()
+                .path(PathUtils.getParentPath(folderSize.getPath()))
+                .name(PathUtils.getResourceName(folderSize.getPath()) + "/")
+                .size(folderSize.getBytes())
+                .fileCount(folderSize.getFiles())
+                .type(DIRECTORY_TYPE)
+                .build();
+    }
+
+    public static TrashEntryResponse buildFromTrashEntry(TrashEntry entry) {
+        String objectName = entry.getObjectName();
+        boolean isDirectory = objectName.endsWith("/");
+        String name = PathUtils.getResourceName(objectName);
+        return TrashEntryResponse.builder()
+                .id(entry.getId())
+                .path(PathUtils.getParentPath(objectName))
+                .name(isDirectory ? name + "/" : name)
+                .type(isDirectory ? DIRECTORY_TYPE : FILE_TYPE)
+                .deletedAt(entry.getTrashedAt())
+                .purgeAfter(entry.getPurgeAfter())
+                .build();
+    }
+
+    /**
+     * Fills in the rolled-up size of directory entries; {@code sizes} is keyed by full folder path.
+     * Folders without any files are reported as empty.
+     */
+    public static ResourceInfoResponse withFolderSize(ResourceInfoResponse entry, Map<String, FolderSize> sizes) {
+        if (!DIRECTORY_TYPE.equals(entry.type())) {
+            return entry;
+        }
+        FolderSize folderSize = sizes.get(folderPath(entry));
+        return entry.toBuilder()
+                .size(folderSize == null ? 0L : folderSize.getBytes())
+                .fileCount(folderSize == null ? 0L : folderSize.getFiles())
+                .build();
+    }
+
+    public static String folderPath(ResourceInfoResponse entry) {
+        return entry.path() + entry.name();
+    }
+
+    public static boolean isDirectory(ResourceInfoResponse entry) {
+        return DIRECTORY_TYPE.equals(entry.type());
+    }
+
+    public static VersionedResponse<ResourceInfoResponse> buildVersioned(String objectName, StatObjectResponse stat) {
+        return new VersionedResponse<>(
+                buildFromObjectName(objectName, stat),
+                quoteEtag(stat.etag()),
+                stat.lastModified() == null ? null : stat.lastModified().toInstant()
+        );
+    }
+
+    /**
+     * A listing changes whenever an entry is added, removed or rewritten, so its etag is a digest
+     * of every entry's name, etag and size. Nested changes show up through the rolled-up sizes
+     * of the subdirectory entries.
+     */
+    public static String buildListingEtag(List<Item> items, List<ResourceInfoResponse> directories) {
+        StringBuilder entries = new StringBuilder();
+        items.forEach(item -> entries
+                .append(item.objectName()).append('\0')
+                .append(item.etag()).append('\0')
+                .append(item.isDir() ? "" : item.size()).append('\n'));
+        directories.forEach(directory -> entries
+                .append(folderPath(directory)).append('\0')
+                .append(directory.size()).append('\0')
+                .append(directory.fileCount()).append('\n'));
+        return quoteEtag(DigestUtils.md5DigestAsHex(entries.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String quoteEtag(String etag) {
+        if (etag == null) {
+            return null;
+        }
+        return etag.startsWith("\"") ? etag : "\"" + etag + "\"";
+    }
 }
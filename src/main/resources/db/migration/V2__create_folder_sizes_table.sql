@@ -0,0 +1,12 @@
+CREATE TABLE folder_sizes (
+                       path VARCHAR(1024) PRIMARY KEY,
+                       user_id INTEGER NOT NULL,
+                       bytes BIGINT NOT NULL,
+                       files BIGINT NOT NULL
+);
+
+CREATE INDEX folder_sizes_user_bytes_index ON folder_sizes (user_id, bytes DESC);
+
+CREATE TABLE folder_size_users (
+                       user_id INTEGER PRIMARY KEY REFERENCES users (id) ON DELETE CASCADE
+);
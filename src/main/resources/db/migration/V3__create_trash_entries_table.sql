@@ -0,0 +1,12 @@
+CREATE TABLE trash_entries (
+                       id BIGSERIAL PRIMARY KEY,
+                       user_id INTEGER NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+                       object_name VARCHAR(1024) NOT NULL,
+                       trashed_at TIMESTAMP WITH TIME ZONE NOT NULL,
+                       purge_after TIMESTAMP WITH TIME ZONE NOT NULL,
+                       shadowed BOOLEAN NOT NULL DEFAULT FALSE
+);
+
+CREATE INDEX trash_entries_user_index ON trash_entries (user_id);
+
+CREATE INDEX trash_entries_purge_after_index ON trash_entries (purge_after);
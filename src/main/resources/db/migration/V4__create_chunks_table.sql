@@ -0,0 +1,10 @@
+CREATE TABLE chunks (
+                       id BIGSERIAL PRIMARY KEY,
+                       user_id INTEGER NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+                       hash VARCHAR(64) NOT NULL,
+                       size BIGINT NOT NULL,
+                       last_used_at TIMESTAMP WITH TIME ZONE NOT NULL,
+                       CONSTRAINT chunks_user_hash_unique UNIQUE (user_id, hash)
+);
+
+CREATE INDEX chunks_last_used_at_index ON chunks (last_used_at);
@@ -0,0 +1,8 @@
+CREATE TABLE object_access (
+                       object_name VARCHAR(1024) PRIMARY KEY,
+                       user_id INTEGER NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+                       reads BIGINT NOT NULL,
+                       last_accessed_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX object_access_user_index ON object_access (user_id);
@@ -0,0 +1,2 @@
+ALTER TABLE folder_size_users ADD COLUMN built BOOLEAN NOT NULL DEFAULT TRUE;
+ALTER TABLE folder_size_users ADD COLUMN claimed_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now();
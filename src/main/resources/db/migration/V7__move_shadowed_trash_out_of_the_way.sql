@@ -0,0 +1,9 @@
+-- Shadowed entries hid only what was older than their deletion; their content is mixed with newer
+-- writes and cannot be told apart by path, so they are dropped and what they hid shows again.
+DELETE FROM trash_entries WHERE shadowed;
+
+ALTER TABLE trash_entries DROP COLUMN shadowed;
+ALTER TABLE trash_entries ADD COLUMN stored_at VARCHAR(1024);
+
+CREATE INDEX trash_entries_hiding_index ON trash_entries (user_id, object_name varchar_pattern_ops)
+    WHERE stored_at IS NULL;
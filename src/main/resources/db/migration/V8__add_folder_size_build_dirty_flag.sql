@@ -0,0 +1,2 @@
+-- Set by a size change that lands while the user's sizes are being built; the build then lists again.
+ALTER TABLE folder_size_users ADD COLUMN dirty BOOLEAN NOT NULL DEFAULT FALSE;
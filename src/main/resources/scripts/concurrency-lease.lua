@@ -0,0 +1,15 @@
+-- Takes one of ARGV[1] concurrent leases in the sorted set KEYS[1]. Leases expire after
+-- ARGV[2] ms so that a node dying mid-transfer does not hold the slot forever.
+-- ARGV[3] lease id. Returns 1 when taken, 0 when the cap is reached.
+local limit = tonumber(ARGV[1])
+local ttl = tonumber(ARGV[2])
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now)
+if redis.call('ZCARD', KEYS[1]) >= limit then
+    return 0
+end
+redis.call('ZADD', KEYS[1], now + ttl, ARGV[3])
+redis.call('PEXPIRE', KEYS[1], ttl)
+return 1
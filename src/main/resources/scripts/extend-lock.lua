@@ -0,0 +1,7 @@
+-- Resets the expiry of the lock KEYS[1] to ARGV[2] milliseconds only while it still holds the
+-- owner token ARGV[1], so a run can only keep a lock it has not lost.
+-- Returns 1 when extended, 0 when the lock is gone or owned by someone else.
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('PEXPIRE', KEYS[1], ARGV[2])
+end
+return 0
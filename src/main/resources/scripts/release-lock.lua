@@ -0,0 +1,7 @@
+-- Deletes the lock KEYS[1] only while it still holds the owner token ARGV[1], so a run that
+-- outlived its lock cannot release the lock another node has taken since.
+-- Returns 1 when released, 0 when the lock is gone or owned by someone else.
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('DEL', KEYS[1])
+end
+return 0
@@ -0,0 +1,96 @@
+package com.qubb.cloud.config;
+
+import okhttp3.Call;
+import okhttp3.Interceptor;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class MinioTransportInterceptorTest {
+
+    private static final String URL = "http://minio:9000/user-files/user-1-files/a.txt";
+
+    private final Interceptor.Chain chain = mock(Interceptor.Chain.class);
+    private final Call call = mock(Call.class);
+    private final MinioTransportInterceptor interceptor = new MinioTransportInterceptor(3,
+            Duration.ofMillis(1), Duration.ofMillis(2), Duration.ofSeconds(5));
+
+    @Test
+    @DisplayName("Test a failing idempotent call is sent as many times as max-attempts, not once more")
+    public void givenServerErrors_whenIntercept_thenMaxAttemptsRequestsSent() throws Exception {
+
+        //Given
+        Request request = new Request.Builder().url(URL).get().build();
+        given(request);
+        BDDMockito.given(chain.proceed(request)).willAnswer(invocation -> response(request, 503));
+
+        //When
+        Response response = interceptor.intercept(chain);
+
+        //Then
+        assertThat(response.code()).isEqualTo(503);
+        verify(chain, times(3)).proceed(request);
+    }
+
+    @Test
+    @DisplayName("Test a non-idempotent call is sent once whatever the outcome")
+    public void givenFailingPut_whenIntercept_thenNotRetried() throws Exception {
+
+        //Given
+        Request request = new Request.Builder().url(URL).put(RequestBody.create(new byte[1])).build();
+        given(request);
+        BDDMockito.given(chain.proceed(request)).willThrow(new IOException("connection reset"));
+
+        //When
+        //Then
+        assertThatThrownBy(() -> interceptor.intercept(chain)).isInstanceOf(IOException.class);
+        verify(chain, times(1)).proceed(request);
+    }
+
+    @Test
+    @DisplayName("Test a cancelled call stops retrying")
+    public void givenCancelledCall_whenIntercept_thenNoFurtherAttempts() throws Exception {
+
+        //Given
+        Request request = new Request.Builder().url(URL).get().build();
+        given(request);
+        BDDMockito.given(chain.proceed(request)).willAnswer(invocation -> {
+            BDDMockito.given(call.isCanceled()).willReturn(true);
+            throw new IOException("Canceled");
+        });
+
+        //When
+        //Then
+        assertThatThrownBy(() -> interceptor.intercept(chain)).isInstanceOf(IOException.class);
+        verify(chain, times(1)).proceed(request);
+    }
+
+    private void given(Request request) {
+        BDDMockito.given(chain.request()).willReturn(request);
+        BDDMockito.given(chain.call()).willReturn(call);
+        BDDMockito.given(chain.withReadTimeout(anyInt(), any())).willReturn(chain);
+    }
+
+    private static Response response(Request request, int code) {
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .message("status " + code)
+                .body(ResponseBody.create(new byte[0], null))
+                .build();
+    }
+}
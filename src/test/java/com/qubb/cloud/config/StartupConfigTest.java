@@ -0,0 +1,36 @@
+package com.qubb.cloud.config;
+
+import com.qubb.cloud.service.ChangeFeedService;
+import com.qubb.cloud.service.TrashPurger;
+import com.qubb.cloud.service.TrashService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StartupConfigTest {
+
+    private final LazyInitializationExcludeFilter filter = StartupConfig.eagerBackgroundBeans();
+
+    @Test
+    @DisplayName("Test scheduled jobs and message listeners stay eager while other beans become lazy")
+    public void givenLazyInitialization_whenFiltering_thenBackgroundBeansExcluded() {
+
+        //Given
+        var scheduledJob = new RootBeanDefinition(TrashPurger.class);
+        var messageListener = new RootBeanDefinition(ChangeFeedService.class);
+        var service = new RootBeanDefinition(TrashService.class);
+
+        //When
+        boolean scheduledJobExcluded = filter.isExcluded("trashPurger", scheduledJob, TrashPurger.class);
+        boolean messageListenerExcluded = filter.isExcluded("changeFeedService", messageListener, ChangeFeedService.class);
+        boolean serviceExcluded = filter.isExcluded("trashService", service, TrashService.class);
+
+        //Then
+        assertThat(scheduledJobExcluded).isTrue();
+        assertThat(messageListenerExcluded).isTrue();
+        assertThat(serviceExcluded).isFalse();
+    }
+}
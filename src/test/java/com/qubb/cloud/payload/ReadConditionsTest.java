@@ -0,0 +1,50 @@
+package com.qubb.cloud.payload;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReadConditionsTest {
+
+    private static final Instant MODIFIED = Instant.parse("2026-10-19T10:00:00.250Z");
+
+    @Test
+    @DisplayName("Test any of several If-None-Match tags, weak or strong, matches the current etag")
+    public void givenSeveralEntityTags_whenCompared_thenAnyMatchCounts() {
+
+        //Given
+        var headers = new HttpHeaders();
+        headers.set(HttpHeaders.IF_NONE_MATCH, "\"old\", W/\"current\"");
+        headers.setIfModifiedSince(MODIFIED.minusSeconds(3600).toEpochMilli());
+
+        //When
+        var conditions = ReadConditions.from(headers);
+
+        //Then
+        assertThat(conditions.isNotModified("\"current\"", MODIFIED)).isTrue();
+        assertThat(conditions.isNotModified("current", MODIFIED)).isTrue();
+        assertThat(conditions.isNotModified("\"newer\"", MODIFIED)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Test If-Modified-Since is compared to the second and only without If-None-Match")
+    public void givenOnlyModifiedSince_whenCompared_thenSecondPrecision() {
+
+        //Given
+        var headers = new HttpHeaders();
+        headers.setIfModifiedSince(MODIFIED.toEpochMilli());
+
+        //When
+        var conditions = ReadConditions.from(headers);
+
+        //Then
+        assertThat(conditions.isNotModified("\"any\"", MODIFIED)).isTrue();
+        assertThat(conditions.isNotModified("\"any\"", MODIFIED.plusSeconds(1))).isFalse();
+        assertThat(new ReadConditions(List.of("*"), null).isNotModified("\"any\"", MODIFIED)).isTrue();
+    }
+}
@@ -0,0 +1,97 @@
+package com.qubb.cloud.security;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.qubb.cloud.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BoundedPasswordEncoderTest {
+
+    private final CountDownLatch entered = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger hashed = new AtomicInteger();
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        encoder.destroy();
+    }
+
+    @Test
+    @DisplayName("Test hashing runs on the password pool rather than the calling thread")
+    public void givenEncoder_whenEncode_thenHashedOnPoolThread() {
+
+        //Given
+        encoder = new BoundedPasswordEncoder(threadNamingEncoder(), 1, 1, Duration.ofSeconds(5), new SimpleMeterRegistry());
+
+        //When
+        String encoded = encoder.encode("secret");
+
+        //Then
+        assertThat(encoded).startsWith("password-hash-");
+        assertThat(encoder.matches("secret", encoded)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Test a saturated pool times out queued calls and rejects further ones as overloaded")
+    public void givenBusyWorkerAndFullQueue_whenEncode_thenOverloaded() throws Exception {
+
+        //Given
+        encoder = new BoundedPasswordEncoder(blockingEncoder(), 1, 1, Duration.ofMillis(100), new SimpleMeterRegistry());
+        CompletableFuture.runAsync(() -> encoder.encode("first")).exceptionally(e -> null);
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+        //When
+        //Then
+        assertThatThrownBy(() -> encoder.encode("queued"))
+                .isInstanceOf(ServiceOverloadedException.class);
+        assertThatThrownBy(() -> encoder.encode("rejected"))
+                .isInstanceOfSatisfying(ServiceOverloadedException.class,
+                        e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(1));
+        assertThat(hashed).hasValue(1);
+    }
+
+    private static PasswordEncoder threadNamingEncoder() {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return Thread.currentThread().getName() + ":" + rawPassword;
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return encodedPassword.endsWith(":" + rawPassword);
+            }
+        };
+    }
+
+    private PasswordEncoder blockingEncoder() {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                hashed.incrementAndGet();
+                entered.countDown();
+                Uninterruptibles.awaitUninterruptibly(release);
+                return rawPassword.toString();
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return false;
+            }
+        };
+    }
+}
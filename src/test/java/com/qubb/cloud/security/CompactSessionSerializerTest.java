@@ -0,0 +1,60 @@
+package com.qubb.cloud.security;
+
+import com.qubb.cloud.util.DataUtil;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompactSessionSerializerTest {
+
+    private final CompactSessionSerializer serializer =
+            new CompactSessionSerializer(getClass().getClassLoader(), Duration.ofSeconds(5), 100);
+
+    @Test
+    @DisplayName("Test security context is stored without the password hash")
+    public void givenAuthenticatedContext_whenSerialize_thenOnlyIdAndUsernameAreKept() {
+
+        //Given
+        var user = DataUtil.getKikwiPersisted();
+        var context = new SecurityContextImpl(UsernamePasswordAuthenticationToken.authenticated(
+                new UserDetailsImpl(user), null, Collections.emptyList()));
+
+        //When
+        byte[] bytes = serializer.serialize(context);
+        var restored = (SecurityContext) serializer.deserialize(bytes);
+
+        //Then
+        assertThat(bytes.length).isLessThan(16);
+        var principal = (UserDetailsImpl) restored.getAuthentication().getPrincipal();
+        assertThat(restored.getAuthentication().isAuthenticated()).isTrue();
+        assertThat(principal.user().getId()).isEqualTo(user.getId());
+        assertThat(principal.getUsername()).isEqualTo(user.getUsername());
+        assertThat(principal.getPassword()).isNull();
+        assertThat(restored).isNotSameAs(serializer.deserialize(bytes));
+    }
+
+    @Test
+    @DisplayName("Test session timestamps and legacy JDK values round trip")
+    public void givenSessionValues_whenSerialize_thenRoundTrip() {
+
+        //Given
+        var legacy = new JdkSerializationRedisSerializer().serialize("legacy");
+
+        //When
+        var lastAccessed = serializer.deserialize(serializer.serialize(1_700_000_000_000L));
+        var maxInactive = serializer.deserialize(serializer.serialize(1800));
+
+        //Then
+        assertThat(lastAccessed).isEqualTo(1_700_000_000_000L);
+        assertThat(maxInactive).isEqualTo(1800);
+        assertThat(serializer.deserialize(legacy)).isEqualTo("legacy");
+    }
+}
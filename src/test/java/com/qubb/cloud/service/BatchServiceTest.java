@@ -0,0 +1,102 @@
+package com.qubb.cloud.service;
+
+import com.qubb.cloud.payload.BatchItemResult;
+import com.qubb.cloud.payload.BatchItemResult.Status;
+import com.qubb.cloud.payload.BatchOperation;
+import com.qubb.cloud.payload.BatchRequest;
+import com.qubb.cloud.security.UserDetailsImpl;
+import com.qubb.cloud.storage.StorageOperations;
+import com.qubb.cloud.throttle.UserThrottleService;
+import com.qubb.cloud.util.DataUtil;
+import com.qubb.cloud.util.ValidationFacade;
+import io.minio.messages.Item;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.mockito.quality.Strictness;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class BatchServiceTest {
+
+    private static final String DOCS = "user-1-files/docs/";
+
+    private final StorageOperations storageOperations = mock(StorageOperations.class);
+    private final TrashService trashService = mock(TrashService.class);
+    private final UserDetailsImpl userDetails = new UserDetailsImpl(DataUtil.getKikwiPersisted());
+    private final BatchService batchService = new BatchService(storageOperations, mock(ValidationFacade.class),
+            mock(FolderSizeService.class), mock(ChangeFeedService.class), mock(UserThrottleService.class),
+            trashService, 2, 4);
+
+    @BeforeEach
+    public void setUp() {
+        BDDMockito.given(trashService.visibleItems(anyInt(), any())).willReturn(item -> true);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        batchService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Test batch delete lists the shared parent once and reports every item")
+    public void givenSelection_whenBatchDelete_thenPerItemResults() {
+
+        //Given
+        BDDMockito.given(storageOperations.listObjects(DOCS))
+                .willAnswer(invocation -> Stream.of(item(DOCS + "a.txt"), item(DOCS + "b.txt"), item(DOCS + "sub/")));
+        var request = BatchRequest.builder()
+                .operation(BatchOperation.DELETE)
+                .paths(List.of("docs/a.txt", "docs/b.txt", "docs/missing.txt", "docs/sub/", "docs/sub/c.txt"))
+                .build();
+
+        //When
+        List<BatchItemResult> results = batchService.execute(request, userDetails);
+
+        //Then
+        assertThat(results).extracting(BatchItemResult::status)
+                .containsExactly(Status.OK, Status.OK, Status.NOT_FOUND, Status.OK, Status.SKIPPED);
+        verify(storageOperations, times(1)).listObjects(DOCS);
+        verify(trashService).trash(1, DOCS + "a.txt");
+        verify(trashService).trash(1, DOCS + "b.txt");
+        verify(trashService).trash(1, DOCS + "sub/");
+        verify(trashService, times(3)).trash(anyInt(), anyString());
+    }
+
+    @Test
+    @DisplayName("Test failing item does not fail the rest of the batch")
+    public void givenFailingItem_whenBatchDelete_thenOthersStillDeleted() {
+
+        //Given
+        BDDMockito.given(storageOperations.listObjects(DOCS))
+                .willAnswer(invocation -> Stream.of(item(DOCS + "a.txt"), item(DOCS + "b.txt")));
+        doThrow(new IllegalStateException("storage down")).when(trashService).trash(1, DOCS + "a.txt");
+        var request = BatchRequest.builder()
+                .operation(BatchOperation.DELETE)
+                .paths(List.of("docs/a.txt", "docs/b.txt"))
+                .build();
+
+        //When
+        List<BatchItemResult> results = batchService.execute(request, userDetails);
+
+        //Then
+        assertThat(results).extracting(BatchItemResult::status).containsExactly(Status.FAILED, Status.OK);
+        assertThat(results.getFirst().error()).isEqualTo("storage down");
+        verify(trashService).trash(1, DOCS + "b.txt");
+    }
+
+    private static Item item(String objectName) {
+        Item item = mock(Item.class, withSettings().strictness(Strictness.LENIENT));
+        BDDMockito.given(item.objectName()).willReturn(objectName);
+        BDDMockito.given(item.isDir()).willReturn(objectName.endsWith("/"));
+        return item;
+    }
+}
@@ -0,0 +1,50 @@
+package com.qubb.cloud.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qubb.cloud.security.UserDetailsImpl;
+import com.qubb.cloud.util.DataUtil;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class ChangeFeedServiceTest {
+
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    private final ChangeFeedService changeFeedService =
+            new ChangeFeedService(redisTemplate, new ObjectMapper(), Duration.ofMinutes(1), 1, 256);
+
+    @Test
+    @DisplayName("Test move is published on the user's channel")
+    public void givenMove_whenPublished_thenSentToUserChannel() {
+
+        //When
+        changeFeedService.moved(3, "user-3-files/a.txt", "user-3-files/docs/a.txt");
+
+        //Then
+        verify(redisTemplate).convertAndSend("cloud:changes:user-3",
+                "{\"type\":\"MOVED\",\"path\":\"user-3-files/docs/a.txt\",\"from\":\"user-3-files/a.txt\"}");
+    }
+
+    @Test
+    @DisplayName("Test oldest stream is closed past the per-user limit")
+    public void givenStreamLimit_whenSubscribeAgain_thenOldestClosed() {
+
+        //Given
+        var userDetails = new UserDetailsImpl(DataUtil.getKikwiPersisted());
+        SseEmitter first = changeFeedService.subscribe(userDetails);
+
+        //When
+        changeFeedService.subscribe(userDetails);
+
+        //Then
+        assertThatThrownBy(() -> first.send(SseEmitter.event().comment("ping")))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,125 @@
+package com.qubb.cloud.service;
+
+import com.qubb.cloud.entity.FolderSize;
+import com.qubb.cloud.repository.FolderSizeRepository;
+import com.qubb.cloud.storage.MinioService;
+import com.qubb.cloud.storage.ObjectSizeChangedEvent;
+import io.minio.messages.Item;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.BDDMockito;
+import org.mockito.InOrder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class FolderSizeServiceTest {
+
+    private final FolderSizeRepository folderSizeRepository = mock(FolderSizeRepository.class);
+    private final MinioService minioService = mock(MinioService.class);
+    private final FolderSizeService folderSizeService = new FolderSizeService(folderSizeRepository,
+            minioService, new TransactionTemplate(mock(PlatformTransactionManager.class)));
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(folderSizeService, "buildTimeout", Duration.ofMinutes(30));
+        ReflectionTestUtils.setField(folderSizeService, "maxBuildAttempts", 3);
+    }
+
+    @Test
+    @DisplayName("Test removed file takes its size off every folder above it")
+    public void givenTrackedUser_whenFileRemoved_thenDeltaAppliedToAncestors() {
+
+        //Given
+        BDDMockito.given(folderSizeRepository.lockTrackedUser(7)).willReturn(Optional.of(true));
+
+        //When
+        folderSizeService.onObjectSizeChanged(new ObjectSizeChangedEvent("user-7-files/docs/2024/report.pdf", -1200, -1));
+
+        //Then
+        InOrder inOrder = inOrder(folderSizeRepository);
+        inOrder.verify(folderSizeRepository).addDelta("user-7-files/", 7, -1200, -1);
+        inOrder.verify(folderSizeRepository).addDelta("user-7-files/docs/", 7, -1200, -1);
+        inOrder.verify(folderSizeRepository).addDelta("user-7-files/docs/2024/", 7, -1200, -1);
+        inOrder.verify(folderSizeRepository).deleteEmpty(
+                List.of("user-7-files/", "user-7-files/docs/", "user-7-files/docs/2024/"));
+    }
+
+    @Test
+    @DisplayName("Test previews and users without built sizes are not counted")
+    public void givenPreviewOrUntrackedUser_whenSizeChanged_thenNothingApplied() {
+
+        //Given
+        BDDMockito.given(folderSizeRepository.lockTrackedUser(8)).willReturn(Optional.empty());
+
+        //When
+        folderSizeService.onObjectSizeChanged(new ObjectSizeChangedEvent("previews/user-7-files/cat.jpg", 300, 1));
+        folderSizeService.onObjectSizeChanged(new ObjectSizeChangedEvent("user-8-files/cat.jpg", 300, 1));
+
+        //Then
+        verify(folderSizeRepository, never()).lockTrackedUser(7);
+        verify(folderSizeRepository, never()).addDelta(any(), anyInt(), anyLong(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Test size change during a build marks it dirty instead of being dropped")
+    public void givenBuildInProgress_whenSizeChanged_thenBuildMarkedDirty() {
+
+        //Given
+        BDDMockito.given(folderSizeRepository.lockTrackedUser(7)).willReturn(Optional.of(false));
+
+        //When
+        folderSizeService.onObjectSizeChanged(new ObjectSizeChangedEvent("user-7-files/cat.jpg", 300, 1));
+
+        //Then
+        verify(folderSizeRepository).markDirty(7);
+        verify(folderSizeRepository, never()).addDelta(any(), anyInt(), anyLong(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Test build that raced a write lists again before its sizes are saved")
+    @SuppressWarnings("unchecked")
+    public void givenWriteDuringListing_whenBuild_thenListedAgainAndSavedOnce() {
+
+        //Given
+        BDDMockito.given(folderSizeRepository.claimBuild(eq(7), any())).willReturn(1);
+        BDDMockito.given(folderSizeRepository.markBuilt(7)).willReturn(0, 1);
+        var first = item("user-7-files/docs/a.txt", 100);
+        var second = item("user-7-files/docs/b.txt", 50);
+        BDDMockito.given(minioService.recursiveListObjects("user-7-files/"))
+                .willReturn(Stream.of(first), Stream.of(first, second));
+
+        //When
+        folderSizeService.build(7);
+
+        //Then
+        verify(minioService, times(2)).recursiveListObjects("user-7-files/");
+        verify(folderSizeRepository).restartBuild(7);
+        ArgumentCaptor<Collection<FolderSize>> saved = ArgumentCaptor.forClass(Collection.class);
+        verify(folderSizeRepository).saveAll(saved.capture());
+        assertThat(saved.getValue()).extracting(FolderSize::getPath, FolderSize::getBytes, FolderSize::getFiles)
+                .containsExactlyInAnyOrder(tuple("user-7-files/", 150L, 2L), tuple("user-7-files/docs/", 150L, 2L));
+        verify(folderSizeRepository, never()).releaseBuild(7);
+    }
+
+    private static Item item(String objectName, long size) {
+        Item item = mock(Item.class);
+        BDDMockito.given(item.objectName()).willReturn(objectName);
+        BDDMockito.given(item.size()).willReturn(size);
+        return item;
+    }
+}
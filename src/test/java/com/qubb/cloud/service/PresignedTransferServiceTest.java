@@ -0,0 +1,79 @@
+package com.qubb.cloud.service;
+
+import com.qubb.cloud.payload.ResourceInfoResponse;
+import com.qubb.cloud.security.UserDetailsImpl;
+import com.qubb.cloud.storage.StorageOperations;
+import com.qubb.cloud.throttle.Direction;
+import com.qubb.cloud.throttle.UserThrottleService;
+import com.qubb.cloud.util.DataUtil;
+import com.qubb.cloud.util.ValidationFacade;
+import io.minio.StatObjectResponse;
+import okhttp3.Headers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class PresignedTransferServiceTest {
+
+    private static final String OBJECT = "user-1-files/docs/report.pdf";
+
+    private final StorageOperations storageOperations = mock(StorageOperations.class);
+    private final ValidationFacade validationFacade = mock(ValidationFacade.class);
+    private final UserThrottleService userThrottleService = mock(UserThrottleService.class);
+    private final ChangeFeedService changeFeedService = mock(ChangeFeedService.class);
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, String> values = mock(ValueOperations.class);
+    private final UserDetailsImpl userDetails = new UserDetailsImpl(DataUtil.getKikwiPersisted());
+    private final PresignedTransferService presignedTransferService = new PresignedTransferService(storageOperations,
+            validationFacade, userThrottleService, changeFeedService, mock(TrashService.class), redisTemplate);
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(presignedTransferService, "maxUploadSize", DataSize.ofGigabytes(5));
+        ReflectionTestUtils.setField(presignedTransferService, "completionTtl", Duration.ofDays(7));
+        BDDMockito.given(redisTemplate.opsForValue()).willReturn(values);
+    }
+
+    @Test
+    @DisplayName("Test repeated completion of one direct upload registers and charges it once")
+    public void givenCompletedUpload_whenCompleteAgain_thenRegisteredAndChargedOnce() {
+
+        //Given
+        var stat = mock(StatObjectResponse.class);
+        BDDMockito.given(stat.etag()).willReturn("e1");
+        BDDMockito.given(stat.size()).willReturn(5L);
+        BDDMockito.given(stat.headers()).willReturn(Headers.of());
+        BDDMockito.given(validationFacade.isSourceResourceExists(OBJECT)).willReturn(true);
+        BDDMockito.given(storageOperations.statObject(OBJECT)).willReturn(stat);
+        BDDMockito.given(values.setIfAbsent(eq("presigned:completed:" + OBJECT + ":e1"), anyString(), any(Duration.class)))
+                .willReturn(true, false);
+        BDDMockito.given(storageOperations.completeDirectUpload(stat, DataSize.ofGigabytes(5).toBytes()))
+                .willReturn(ResourceInfoResponse.builder().name("report.pdf").size(5L).build());
+
+        //When
+        var first = presignedTransferService.completeUpload("docs/report.pdf", userDetails);
+        var second = presignedTransferService.completeUpload("docs/report.pdf", userDetails);
+
+        //Then
+        assertThat(first.size()).isEqualTo(5L);
+        assertThat(second.size()).isEqualTo(5L);
+        verify(storageOperations, times(1)).completeDirectUpload(any(), anyLong());
+        verify(userThrottleService, times(1)).charge(anyInt(), eq(Direction.UPLOAD), eq(5L));
+        verify(changeFeedService, times(1)).created(anyInt(), eq(OBJECT));
+    }
+}
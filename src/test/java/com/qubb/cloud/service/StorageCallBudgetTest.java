@@ -0,0 +1,126 @@
+package com.qubb.cloud.service;
+
+import com.qubb.cloud.security.UserDetailsImpl;
+import com.qubb.cloud.storage.*;
+import com.qubb.cloud.throttle.UserThrottleService;
+import com.qubb.cloud.util.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.*;
+import io.minio.messages.Item;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.quality.Strictness;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+@ExtendWith(MockitoExtension.class)
+public class StorageCallBudgetTest {
+
+    private static final String USER_ROOT = "user-1-files/";
+
+    @Mock
+    private MinioClient minioClient;
+
+    private DirectoryService directoryService;
+    private ResourceService resourceService;
+    private final UserDetailsImpl userDetails = new UserDetailsImpl(DataUtil.getKikwiPersisted());
+
+    @BeforeEach
+    public void setUp() {
+        var meterRegistry = new SimpleMeterRegistry();
+        var minioService = new MinioService(
+                ShardRouter.single(new StorageShard("default", "user-files", minioClient, minioClient, null, null)),
+                new HedgedRequests(false, Duration.ofMillis(20), Duration.ofSeconds(1), 1, meterRegistry),
+                new StorageBulkheads(8, Duration.ofSeconds(1), 2, Duration.ofSeconds(1), meterRegistry),
+                mock(MultipartCopier.class),
+                mock(ConditionalUploader.class),
+                new SmallObjectCache(false, DataSize.ofKilobytes(64), DataSize.ofMegabytes(1), DataSize.ofKilobytes(4),
+                        1000, Duration.ofSeconds(2), meterRegistry),
+                mock(AccessStats.class),
+                event -> {});
+        var requestValidator = new RequestValidator();
+        var storageOperations = new StorageOperationsImpl(
+                minioService,
+                new DeleteService(minioService),
+                new DownloadService(minioService, new CompressionService(mock(ChunkStore.class), mock(TieringService.class)), mock(DirectoryArchiver.class),
+                        mock(DiskObjectCache.class)),
+                new UploadService(minioService, new CompressionService(mock(ChunkStore.class), mock(TieringService.class)), mock(ChunkStore.class)),
+                mock(PreviewService.class),
+                mock(ArchiveUploadService.class),
+                mock(PresignService.class)
+        );
+        var trashService = mock(TrashService.class, withSettings().strictness(Strictness.LENIENT));
+        BDDMockito.given(trashService.isVisible(anyInt(), any())).willReturn(true);
+        BDDMockito.given(trashService.visibleItems(anyInt(), any())).willReturn(item -> true);
+        directoryService = new DirectoryService(minioService, requestValidator, mock(FolderSizeService.class),
+                mock(ChangeFeedService.class), trashService);
+        resourceService = new ResourceService(storageOperations,
+                new ValidationFacade(requestValidator, new ResourceValidator(minioService)),
+                mock(UserThrottleService.class),
+                mock(FolderSizeService.class),
+                mock(ChangeFeedService.class),
+                trashService);
+    }
+
+    @Test
+    @DisplayName("Test directory listing storage call budget")
+    public void givenDirectory_whenGetDirectoryContent_thenCallsStayWithinBudget() throws Exception {
+
+        //Given
+        var items = items(50);
+        BDDMockito.given(minioClient.bucketExists(any(BucketExistsArgs.class))).willReturn(true);
+        BDDMockito.given(minioClient.statObject(any(StatObjectArgs.class))).willReturn(mock(StatObjectResponse.class));
+        BDDMockito.given(minioClient.listObjects(any(ListObjectsArgs.class))).willReturn(items);
+
+        //When
+        var response = StorageCallBudget.assertAtMost(4,
+                () -> directoryService.getDirectoryContentInfo("docs/", userDetails));
+
+        //Then
+        assertThat(response.body()).hasSize(50);
+        assertThat(response.etag()).isNotBlank();
+    }
+
+    @Test
+    @DisplayName("Test search does not stat every hit")
+    public void givenManyMatches_whenSearch_thenSingleListing() {
+
+        //Given
+        var items = items(50);
+        BDDMockito.given(minioClient.listObjects(any(ListObjectsArgs.class))).willReturn(items);
+
+        //When
+        var response = StorageCallBudget.assertAtMost(1,
+                () -> resourceService.search("report", userDetails));
+
+        //Then
+        assertThat(response).hasSize(50);
+    }
+
+    private static List<Result<Item>> items(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new Result<>(item(USER_ROOT + "docs/report-" + i + ".txt", 10L * i)))
+                .toList();
+    }
+
+    private static Item item(String objectName, long size) {
+        Item item = mock(Item.class, withSettings().strictness(Strictness.LENIENT));
+        BDDMockito.given(item.objectName()).willReturn(objectName);
+        BDDMockito.given(item.size()).willReturn(size);
+        return item;
+    }
+}
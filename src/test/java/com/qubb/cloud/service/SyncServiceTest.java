@@ -0,0 +1,189 @@
+package com.qubb.cloud.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qubb.cloud.payload.SyncEntry;
+import com.qubb.cloud.payload.SyncRequest;
+import com.qubb.cloud.security.UserDetailsImpl;
+import com.qubb.cloud.storage.MinioService;
+import com.qubb.cloud.util.DataUtil;
+import com.qubb.cloud.util.ValidationFacade;
+import io.minio.messages.Item;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.mockito.quality.Strictness;
+
+import java.io.ByteArrayOutputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+public class SyncServiceTest {
+
+    private static final String DOCS = "user-1-files/docs/";
+
+    private final MinioService minioService = mock(MinioService.class);
+    private final TrashService trashService = mock(TrashService.class);
+    private final SyncSnapshotStore snapshotStore = mock(SyncSnapshotStore.class);
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final UserDetailsImpl userDetails = new UserDetailsImpl(DataUtil.getKikwiPersisted());
+    private final SyncService syncService = new SyncService(minioService, mock(ValidationFacade.class),
+            trashService, snapshotStore, objectMapper, 1000);
+
+    @BeforeEach
+    public void setUp() {
+        BDDMockito.given(trashService.visibleItems(anyInt(), any())).willReturn(item -> true);
+        BDDMockito.given(snapshotStore.save(eq(1), eq(DOCS), anyMap())).willReturn("next-token");
+    }
+
+    @Test
+    @DisplayName("Test first sync returns only the files that differ and a token for the next one")
+    public void givenFullManifest_whenSync_thenOnlyDifferencesReturned() throws Exception {
+
+        //Given
+        var items = List.of(
+                item(DOCS + "same.txt", "\"0cc175b9c0f1b6a831c399e269772661\"", 1),
+                item(DOCS + "remote.txt", "\"e2\"", 7),
+                item(DOCS + "edited.txt", "\"e3\"", 9));
+        BDDMockito.given(minioService.recursiveListObjects(DOCS)).willReturn(items.stream());
+        var request = SyncRequest.builder()
+                .path("docs/")
+                .entries(List.of(
+                        SyncEntry.builder().path("same.txt").size(1L).hash("0cc175b9c0f1b6a831c399e269772661").build(),
+                        SyncEntry.builder().path("edited.txt").size(4L).hash("ffff").build(),
+                        SyncEntry.builder().path("local.txt").size(3L).build()))
+                .build();
+
+        //When
+        JsonNode response = run(request);
+
+        //Then
+        assertThat(actions(response)).containsExactly(
+                Map.entry("remote.txt", "DOWNLOAD"),
+                Map.entry("edited.txt", "CONFLICT"),
+                Map.entry("local.txt", "UPLOAD"));
+        assertThat(response.get("actions").get(0).get("size").asLong()).isEqualTo(7L);
+        assertThat(response.get("token").asText()).isEqualTo("next-token");
+    }
+
+    @Test
+    @DisplayName("Test sync with a token compares against the last sync and applies deletions both ways")
+    public void givenToken_whenSync_thenChangesSinceLastSyncReturned() throws Exception {
+
+        //Given
+        BDDMockito.given(snapshotStore.load(1, DOCS, "token"))
+                .willReturn(Optional.of(Map.of("kept.txt", "e1", "gone.txt", "e2", "removed.txt", "e4")));
+        var items = List.of(
+                item(DOCS + "kept.txt", "\"e1\"", 1),
+                item(DOCS + "new.txt", "\"e3\"", 2),
+                item(DOCS + "removed.txt", "\"e4\"", 3));
+        BDDMockito.given(minioService.recursiveListObjects(DOCS)).willReturn(items.stream());
+        var request = SyncRequest.builder()
+                .path("docs/")
+                .token("token")
+                .entries(List.of(SyncEntry.builder().path("removed.txt").deleted(true).build()))
+                .build();
+
+        //When
+        JsonNode response = run(request);
+
+        //Then
+        assertThat(actions(response)).containsExactly(
+                Map.entry("new.txt", "DOWNLOAD"),
+                Map.entry("removed.txt", "DELETE_REMOTE"),
+                Map.entry("gone.txt", "DELETE_LOCAL"));
+    }
+
+    @Test
+    @DisplayName("Test file changed on both sides without a comparable hash is a conflict even at equal size")
+    public void givenEqualSizeWithoutComparableHash_whenSync_thenConflict() throws Exception {
+
+        //Given
+        BDDMockito.given(snapshotStore.load(1, DOCS, "token"))
+                .willReturn(Optional.of(Map.of("parts.bin", "e1", "unhashed.txt", "e2")));
+        var items = List.of(
+                item(DOCS + "parts.bin", "\"9b2cf535f27731c974343645a3985328-2\"", 8),
+                item(DOCS + "unhashed.txt", "\"0cc175b9c0f1b6a831c399e269772661\"", 1));
+        BDDMockito.given(minioService.recursiveListObjects(DOCS)).willReturn(items.stream());
+        var request = SyncRequest.builder()
+                .path("docs/")
+                .token("token")
+                .entries(List.of(
+                        SyncEntry.builder().path("parts.bin").size(8L).hash("ffff").build(),
+                        SyncEntry.builder().path("unhashed.txt").size(1L).build()))
+                .build();
+
+        //When
+        JsonNode response = run(request);
+
+        //Then
+        assertThat(actions(response)).containsExactly(
+                Map.entry("parts.bin", "CONFLICT"),
+                Map.entry("unhashed.txt", "CONFLICT"));
+    }
+
+    @Test
+    @DisplayName("Test a file moved to the cold tier keeps its etag and hash for sync")
+    public void givenTieredFiles_whenSync_thenComparedByTieredEtagAndRecordedHash() throws Exception {
+
+        //Given
+        BDDMockito.given(snapshotStore.load(1, DOCS, "token"))
+                .willReturn(Optional.of(Map.of("cold.pdf", "e1", "edited.pdf", "e2")));
+        var cold = item(DOCS + "cold.pdf", "\"stub-1\"", 80, Map.of(
+                "X-Amz-Meta-Codec", "cold",
+                "X-Amz-Meta-Tiered-Etag", "e1"));
+        var edited = item(DOCS + "edited.pdf", "\"stub-2\"", 80, Map.of(
+                "X-Amz-Meta-Codec", "cold",
+                "X-Amz-Meta-Tiered-Etag", "e3",
+                "X-Amz-Meta-Content-Md5", "0cc175b9c0f1b6a831c399e269772661",
+                "X-Amz-Meta-Logical-Size", "1"));
+        BDDMockito.given(minioService.recursiveListObjects(DOCS)).willReturn(Stream.of(cold, edited));
+        var request = SyncRequest.builder()
+                .path("docs/")
+                .token("token")
+                .entries(List.of(SyncEntry.builder().path("edited.pdf").size(1L)
+                        .hash("0cc175b9c0f1b6a831c399e269772661").build()))
+                .build();
+
+        //When
+        JsonNode response = run(request);
+
+        //Then
+        assertThat(actions(response)).isEmpty();
+        verify(snapshotStore).save(1, DOCS, Map.of("cold.pdf", "e1", "edited.pdf", "e3"));
+    }
+
+    private JsonNode run(SyncRequest request) throws Exception {
+        var out = new ByteArrayOutputStream();
+        syncService.sync(request, userDetails).writeTo(out);
+        return objectMapper.readTree(out.toByteArray());
+    }
+
+    private static Map<String, String> actions(JsonNode response) {
+        Map<String, String> actions = new LinkedHashMap<>();
+        response.get("actions").forEach(action -> actions.put(action.get("path").asText(), action.get("action").asText()));
+        return actions;
+    }
+
+    private static Item item(String objectName, String etag, long size) {
+        return item(objectName, etag, size, Map.of());
+    }
+
+    private static Item item(String objectName, String etag, long size, Map<String, String> userMetadata) {
+        Item item = mock(Item.class, withSettings().strictness(Strictness.LENIENT));
+        BDDMockito.given(item.userMetadata()).willReturn(userMetadata);
+        BDDMockito.given(item.objectName()).willReturn(objectName);
+        BDDMockito.given(item.etag()).willReturn(etag);
+        BDDMockito.given(item.size()).willReturn(size);
+        return item;
+    }
+}
@@ -0,0 +1,124 @@
+package com.qubb.cloud.service;
+
+import com.qubb.cloud.entity.ObjectAccess;
+import com.qubb.cloud.repository.ObjectAccessRepository;
+import com.qubb.cloud.repository.UserRepository;
+import com.qubb.cloud.storage.MinioService;
+import com.qubb.cloud.storage.TieringService;
+import io.minio.messages.Item;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class TieringPolicyTest {
+
+    private static final String ROOT = "user-1-files/";
+
+    private final TieringService tieringService = mock(TieringService.class);
+    private final MinioService minioService = mock(MinioService.class);
+    private final ObjectAccessRepository objectAccessRepository = mock(ObjectAccessRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final TrashService trashService = mock(TrashService.class);
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, String> values = mock(ValueOperations.class);
+    private final TieringPolicy tieringPolicy = new TieringPolicy(tieringService, minioService,
+            objectAccessRepository, userRepository, trashService, redisTemplate, true, Duration.ofDays(90),
+            DataSize.ofMegabytes(1), 10, 1000, Duration.ofHours(6));
+
+    @BeforeEach
+    public void setUp() {
+        BDDMockito.given(trashService.visibleItems(anyInt(), any())).willReturn(item -> true);
+        BDDMockito.given(minioService.recursiveListObjects(anyString())).willAnswer(invocation -> Stream.of());
+        BDDMockito.given(redisTemplate.opsForValue()).willReturn(values);
+    }
+
+    @Test
+    @DisplayName("Test only old, unread, large enough files are demoted and every stub's copy is kept")
+    public void givenMixedFiles_whenTier_thenColdFilesDemotedAndReferencedCopiesKept() {
+
+        //Given
+        var old = ZonedDateTime.now().minusDays(200);
+        var cold = item(ROOT + "cold.bin", old, 5_000_000, Map.of());
+        var read = item(ROOT + "read.bin", old, 5_000_000, Map.of());
+        var small = item(ROOT + "small.txt", old, 10, Map.of());
+        var edited = item(ROOT + "edited.bin", old, 5_000_000,
+                Map.of("X-Amz-Meta-Modified", Instant.now().minus(Duration.ofDays(1)).toString()));
+        var stub = item(ROOT + "stub.bin", old, 80, Map.of("X-Amz-Meta-Cold-Object", ROOT + "stub.bin@e1"));
+        var trashed = item("trash/user-1-files/7/gone.bin", old, 80,
+                Map.of("X-Amz-Meta-Cold-Object", ROOT + "gone.bin@e2"));
+        BDDMockito.given(objectAccessRepository.findByUserId(1)).willReturn(List.of(
+                ObjectAccess.builder().objectName(ROOT + "read.bin").userId(1).reads(3)
+                        .lastAccessedAt(Instant.now().minus(Duration.ofDays(1))).build(),
+                ObjectAccess.builder().objectName(ROOT + "deleted.bin").userId(1).reads(1)
+                        .lastAccessedAt(Instant.now()).build()));
+        BDDMockito.given(minioService.recursiveListObjects(ROOT)).willReturn(Stream.of(cold, read, small, edited, stub));
+        BDDMockito.given(minioService.recursiveListObjects("trash/" + ROOT)).willReturn(Stream.of(trashed));
+        BDDMockito.given(tieringService.demote(cold)).willReturn(ROOT + "cold.bin@e3");
+
+        //When
+        tieringPolicy.tier(1, Instant.now().minus(Duration.ofDays(90)));
+
+        //Then
+        verify(tieringService).demote(cold);
+        verify(tieringService, never()).demote(read);
+        verify(tieringService, never()).demote(small);
+        verify(tieringService, never()).demote(edited);
+        verify(tieringService, never()).demote(stub);
+        verify(tieringService).sweep(1, Set.of(ROOT + "cold.bin@e3", ROOT + "stub.bin@e1", ROOT + "gone.bin@e2"));
+        verify(objectAccessRepository).deleteAllByIdInBatch(List.of(ROOT + "deleted.bin"));
+    }
+
+    @Test
+    @DisplayName("Test a run stops once its lock is lost and releases only a lock it still owns")
+    @SuppressWarnings("unchecked")
+    public void givenLockLostMidRun_whenRun_thenStopsAndReleasesByOwner() {
+
+        //Given
+        BDDMockito.given(values.setIfAbsent(eq("cloud:tiering:running"), anyString(), any(Duration.class)))
+                .willReturn(true);
+        BDDMockito.given(userRepository.findAllIds()).willReturn(List.of(1, 2));
+        BDDMockito.given(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .willReturn(1L, 0L, 1L);
+
+        //When
+        tieringPolicy.run();
+
+        //Then
+        verify(objectAccessRepository).findByUserId(1);
+        verify(objectAccessRepository, never()).findByUserId(2);
+        verify(redisTemplate, never()).delete(anyString());
+        verify(redisTemplate, times(3)).execute(any(RedisScript.class), eq(List.of("cloud:tiering:running")),
+                any(Object[].class));
+    }
+
+    private static Item item(String objectName, ZonedDateTime lastModified, long size, Map<String, String> userMetadata) {
+        Item item = mock(Item.class, withSettings().strictness(Strictness.LENIENT));
+        BDDMockito.given(item.objectName()).willReturn(objectName);
+        BDDMockito.given(item.lastModified()).willReturn(lastModified);
+        BDDMockito.given(item.size()).willReturn(size);
+        BDDMockito.given(item.userMetadata()).willReturn(userMetadata);
+        return item;
+    }
+}
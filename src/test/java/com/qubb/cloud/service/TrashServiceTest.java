@@ -0,0 +1,113 @@
+package com.qubb.cloud.service;
+
+import com.qubb.cloud.entity.TrashEntry;
+import com.qubb.cloud.repository.TrashEntryRepository;
+import com.qubb.cloud.storage.MinioService;
+import io.minio.messages.Item;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.mockito.quality.Strictness;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class TrashServiceTest {
+
+    private static final Instant TRASHED_AT = Instant.parse("2024-05-01T10:00:00Z");
+
+    private final TrashEntryRepository trashEntryRepository = mock(TrashEntryRepository.class);
+    private final MinioService minioService = mock(MinioService.class);
+    private final TrashService trashService = new TrashService(trashEntryRepository, minioService,
+            mock(ChangeFeedService.class), Duration.ofDays(30));
+
+    @Test
+    @DisplayName("Test listing filter hides what lies under deleted paths without asking storage")
+    public void givenTrashedFolderBelowListing_whenListing_thenHiddenByPathOnly() {
+
+        //Given
+        BDDMockito.given(trashEntryRepository.findHidingUnder(1, "user-1-files/\\_work/_%"))
+                .willReturn(List.of(entry(5L, "user-1-files/_work/docs/")));
+
+        //When
+        Predicate<Item> visible = trashService.visibleItems(1, "user-1-files/_work/");
+
+        //Then
+        assertThat(visible.test(item("user-1-files/_work/docs/old.txt"))).isFalse();
+        assertThat(visible.test(item("user-1-files/_work/docs/"))).isFalse();
+        assertThat(visible.test(item("user-1-files/_work/docs2/new.txt"))).isTrue();
+        verify(trashEntryRepository).findByUserIdAndStoredAtIsNullAndObjectNameIn(1,
+                Set.of("user-1-files/", "user-1-files/_work/"));
+        verifyNoInteractions(minioService);
+    }
+
+    @Test
+    @DisplayName("Test writing over a deleted file removes it for good and drops its entry")
+    public void givenTrashedFile_whenReleased_thenRemovedAndEntryDropped() {
+
+        //Given
+        TrashEntry entry = entry(5L, "user-1-files/a.txt");
+        BDDMockito.given(trashEntryRepository.findByUserIdAndStoredAtIsNullAndObjectNameIn(eq(1), any()))
+                .willReturn(List.of(entry));
+        Item stored = item("user-1-files/a.txt");
+        Item sibling = item("user-1-files/a.txt.bak");
+        BDDMockito.given(minioService.listObjects("user-1-files/a.txt")).willReturn(Stream.of(stored, sibling));
+        BDDMockito.given(minioService.removeObjects(anyList())).willReturn(1);
+
+        //When
+        trashService.release(1, "user-1-files/a.txt");
+
+        //Then
+        verify(minioService).removeObjects(List.of(stored));
+        verify(minioService).removeObject("previews/user-1-files/a.txt");
+        verify(trashEntryRepository).delete(entry);
+    }
+
+    @Test
+    @DisplayName("Test writing into a deleted folder moves its content to the trash tree")
+    public void givenTrashedFolder_whenWrittenInto_thenContentMovedOutOfTheWay() {
+
+        //Given
+        TrashEntry entry = entry(7L, "user-1-files/docs/");
+        BDDMockito.given(trashEntryRepository.findByUserIdAndStoredAtIsNullAndObjectNameIn(eq(1), any()))
+                .willReturn(List.of(entry));
+        Item old = item("user-1-files/docs/old.txt");
+        BDDMockito.given(minioService.recursiveListObjects("user-1-files/docs/")).willReturn(Stream.of(old));
+        BDDMockito.given(minioService.recursiveListObjects("previews/user-1-files/docs/")).willReturn(Stream.of());
+        BDDMockito.given(minioService.removeObjects(anyList())).willReturn(1);
+
+        //When
+        trashService.release(1, "user-1-files/docs/new.txt");
+
+        //Then
+        verify(minioService).copyDirectoryContents(eq("user-1-files/docs/"), eq("trash/user-1-files/7/docs/"), any());
+        assertThat(entry.getStoredAt()).isEqualTo("trash/user-1-files/7/docs/");
+        verify(trashEntryRepository).save(entry);
+    }
+
+    private static TrashEntry entry(long id, String objectName) {
+        return TrashEntry.builder()
+                .id(id)
+                .userId(1)
+                .objectName(objectName)
+                .trashedAt(TRASHED_AT)
+                .purgeAfter(TRASHED_AT.plus(Duration.ofDays(30)))
+                .build();
+    }
+
+    private static Item item(String objectName) {
+        Item item = mock(Item.class, withSettings().strictness(Strictness.LENIENT));
+        BDDMockito.given(item.objectName()).willReturn(objectName);
+        return item;
+    }
+}
@@ -0,0 +1,45 @@
+package com.qubb.cloud.storage;
+
+import com.qubb.cloud.entity.ObjectAccess;
+import com.qubb.cloud.repository.ObjectAccessRepository;
+import com.qubb.cloud.util.PathUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Collection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class AccessStatsTest {
+
+    private final ObjectAccessRepository objectAccessRepository = mock(ObjectAccessRepository.class);
+    private final AccessStats accessStats = new AccessStats(objectAccessRepository, true, 100, new SimpleMeterRegistry());
+
+    @Test
+    @DisplayName("Test reads of a file are flushed as one row and previews or folders are not counted")
+    @SuppressWarnings("unchecked")
+    public void givenRepeatedReads_whenFlush_thenOneAggregatedRowPerFile() {
+
+        //Given
+        accessStats.record("user-1-files/a.txt");
+        accessStats.record("user-1-files/a.txt");
+        accessStats.record("user-1-files/docs/");
+        accessStats.record(PathUtils.buildPreviewObjectName("user-1-files/b.png"));
+
+        //When
+        accessStats.flush();
+        accessStats.flush();
+
+        //Then
+        ArgumentCaptor<Collection<ObjectAccess>> batch = ArgumentCaptor.forClass(Collection.class);
+        verify(objectAccessRepository, times(1)).addAll(batch.capture());
+        assertThat(batch.getValue()).singleElement().satisfies(access -> {
+            assertThat(access.getObjectName()).isEqualTo("user-1-files/a.txt");
+            assertThat(access.getUserId()).isEqualTo(1);
+            assertThat(access.getReads()).isEqualTo(2L);
+        });
+    }
+}
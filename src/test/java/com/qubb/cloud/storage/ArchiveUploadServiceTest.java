@@ -0,0 +1,123 @@
+package com.qubb.cloud.storage;
+
+import com.qubb.cloud.exception.IncorrectPathException;
+import com.qubb.cloud.exception.ResourceAlreadyExistsException;
+import com.qubb.cloud.payload.ResourceInfoResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class ArchiveUploadServiceTest {
+
+    private static final String TARGET = "user-1-files/upload/";
+
+    @Mock
+    private MinioService minioService;
+
+    private ArchiveUploadService archiveUploadService;
+
+    @BeforeEach
+    public void setUp() {
+        archiveUploadService = new ArchiveUploadService(minioService, new CompressionService(mock(ChunkStore.class), mock(TieringService.class)), 2);
+        ReflectionTestUtils.setField(archiveUploadService, "memoryThreshold", DataSize.ofKilobytes(1));
+        ReflectionTestUtils.setField(archiveUploadService, "maxEntries", 100);
+        ReflectionTestUtils.setField(archiveUploadService, "maxExpandedSize", DataSize.ofMegabytes(1));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        archiveUploadService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Test zip upload is expanded into objects and missing folders are created once")
+    public void givenZip_whenUpload_thenFilesStoredAndFoldersPlanned() throws Exception {
+
+        //Given
+        var archive = zip("docs/a.txt", "hello", "docs/deep/b.txt", "x".repeat(5_000), "c.txt", "c");
+
+        //When
+        var response = archiveUploadService.upload(new ByteArrayInputStream(archive), TARGET);
+
+        //Then
+        assertThat(response).extracting(ResourceInfoResponse::name)
+                .containsExactlyInAnyOrder("a.txt", "b.txt", "c.txt");
+        verify(minioService).putObjectIfAbsent(eq(TARGET + "docs/deep/b.txt"), any(), anyLong(), eq("text/plain"), anyMap());
+        verify(minioService).createDirectoryObject(TARGET);
+        verify(minioService).createDirectoryObject(TARGET + "docs/");
+        verify(minioService).createDirectoryObject(TARGET + "docs/deep/");
+    }
+
+    @Test
+    @DisplayName("Test entries escaping the target folder are rejected")
+    public void givenTraversalEntry_whenUpload_thenRejected() throws Exception {
+
+        //Given
+        var archive = zip("../../user-2-files/evil.txt", "boom");
+
+        //When / Then
+        assertThatThrownBy(() -> archiveUploadService.upload(new ByteArrayInputStream(archive), TARGET))
+                .isInstanceOf(IncorrectPathException.class);
+        verify(minioService, never()).putObjectIfAbsent(anyString(), any(), anyLong(), anyString(), anyMap());
+    }
+
+    @Test
+    @DisplayName("Test files already stored by a failed archive are removed and no folders are created")
+    public void givenExistingFile_whenUpload_thenStoredEntriesRolledBack() throws Exception {
+
+        //Given
+        var archive = zip("a.txt", "hello", "b.txt", "taken");
+        var firstStored = new CountDownLatch(1);
+        BDDMockito.given(minioService.putObjectIfAbsent(eq(TARGET + "a.txt"), any(), anyLong(), anyString(), anyMap()))
+                .willAnswer(invocation -> {
+                    firstStored.countDown();
+                    return null;
+                });
+        BDDMockito.given(minioService.putObjectIfAbsent(eq(TARGET + "b.txt"), any(), anyLong(), anyString(), anyMap()))
+                .willAnswer(invocation -> {
+                    firstStored.await();
+                    throw new ResourceAlreadyExistsException("File already exists: " + TARGET + "b.txt");
+                });
+
+        //When / Then
+        assertThatThrownBy(() -> archiveUploadService.upload(new ByteArrayInputStream(archive), TARGET))
+                .isInstanceOf(ResourceAlreadyExistsException.class);
+        verify(minioService).removeObjects(Map.of(TARGET + "a.txt", 5L));
+        verify(minioService, never()).createDirectoryObject(anyString());
+    }
+
+    private static byte[] zip(String... namesAndContents) throws Exception {
+        var bytes = new ByteArrayOutputStream();
+        try (var zip = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                zip.putNextEntry(new ZipEntry(namesAndContents[i]));
+                zip.write(namesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
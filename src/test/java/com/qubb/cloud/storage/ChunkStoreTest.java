@@ -0,0 +1,100 @@
+package com.qubb.cloud.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qubb.cloud.entity.Chunk;
+import com.qubb.cloud.exception.ChunksMissingException;
+import com.qubb.cloud.repository.ChunkRepository;
+import io.minio.GetObjectResponse;
+import okhttp3.Headers;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ChunkStoreTest {
+
+    private static final String FIRST = "a".repeat(64);
+    private static final String SECOND = "b".repeat(64);
+
+    private final MinioService minioService = mock(MinioService.class);
+    private final ChunkRepository chunkRepository = mock(ChunkRepository.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ChunkStore chunkStore = new ChunkStore(minioService, chunkRepository,
+            new ContentDefinedChunker(DataSize.ofKilobytes(1), DataSize.ofKilobytes(4), DataSize.ofKilobytes(16)),
+            objectMapper, DataSize.ofMegabytes(64), 1000, 2);
+
+    @Test
+    @DisplayName("Test a file is not written while any of its chunks is missing")
+    public void givenMissingChunk_whenWriteFile_thenMissingReportedAndNothingWritten() {
+
+        //Given
+        BDDMockito.given(chunkRepository.findByUserIdAndHashIn(eq(1), anyCollection()))
+                .willReturn(List.of(Chunk.builder().userId(1).hash(FIRST).size(3).build()));
+
+        //When
+        //Then
+        assertThatThrownBy(() -> chunkStore.writeFile(1, "user-1-files/big.bin", List.of(FIRST, SECOND, FIRST),
+                null, null))
+                .isInstanceOfSatisfying(ChunksMissingException.class,
+                        e -> assertThat(e.getMissing()).containsExactly(SECOND));
+        verify(minioService, never()).putObjectIfAbsent(anyString(), any(), anyLong(), any(), anyMap());
+    }
+
+    @Test
+    @DisplayName("Test a chunked file reads back as its chunks in manifest order from the path owner's chunks")
+    public void givenManifest_whenOpen_thenChunksConcatenated() throws Exception {
+
+        //Given
+        var manifest = new ChunkManifest(1, 2, 9, List.of(
+                new ChunkManifest.ChunkRef(FIRST, 3),
+                new ChunkManifest.ChunkRef(SECOND, 3),
+                new ChunkManifest.ChunkRef(FIRST, 3)));
+        BDDMockito.given(minioService.getObject("chunks/user-1-files/" + FIRST)).willAnswer(invocation -> object("abc"));
+        BDDMockito.given(minioService.getObject("chunks/user-1-files/" + SECOND)).willAnswer(invocation -> object("def"));
+
+        //When
+        byte[] content;
+        try (var stream = chunkStore.open("user-1-files/big.bin",
+                new ByteArrayInputStream(objectMapper.writeValueAsBytes(manifest)))) {
+            content = stream.readAllBytes();
+        }
+
+        //Then
+        assertThat(new String(content, StandardCharsets.UTF_8)).isEqualTo("abcdefabc");
+        verify(minioService, never()).getObject(startsWith("chunks/user-2-files/"));
+    }
+
+    @Test
+    @DisplayName("Test a chunk shorter than the manifest says fails the read")
+    public void givenTruncatedChunk_whenRead_thenFails() throws Exception {
+
+        //Given
+        var manifest = new ChunkManifest(1, 1, 6, List.of(
+                new ChunkManifest.ChunkRef(FIRST, 3),
+                new ChunkManifest.ChunkRef(SECOND, 3)));
+        BDDMockito.given(minioService.getObject("chunks/user-1-files/" + FIRST)).willAnswer(invocation -> object("abc"));
+        BDDMockito.given(minioService.getObject("chunks/user-1-files/" + SECOND)).willAnswer(invocation -> object("d"));
+
+        //When
+        var stream = chunkStore.open("user-1-files/big.bin",
+                new ByteArrayInputStream(objectMapper.writeValueAsBytes(manifest)));
+
+        //Then
+        assertThatThrownBy(stream::readAllBytes).isInstanceOf(IOException.class);
+    }
+
+    private static GetObjectResponse object(String content) {
+        return new GetObjectResponse(Headers.of(), "user-files", null, "chunk",
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+}
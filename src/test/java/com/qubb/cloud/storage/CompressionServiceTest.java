@@ -0,0 +1,99 @@
+package com.qubb.cloud.storage;
+
+import com.github.luben.zstd.Zstd;
+import io.minio.GetObjectResponse;
+import okhttp3.Headers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class CompressionServiceTest {
+
+    private final TieringService tieringService = mock(TieringService.class);
+    private final CompressionService compressionService = new CompressionService(mock(ChunkStore.class), tieringService);
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(compressionService, "enabled", true);
+        ReflectionTestUtils.setField(compressionService, "level", 3);
+        ReflectionTestUtils.setField(compressionService, "minSize", DataSize.ofKilobytes(4));
+        ReflectionTestUtils.setField(compressionService, "sampleSize", DataSize.ofKilobytes(64));
+        ReflectionTestUtils.setField(compressionService, "maxRatio", 0.8);
+    }
+
+    @Test
+    @DisplayName("Test compressible upload is stored compressed and decoded back")
+    public void givenCsv_whenPrepare_thenStoredCompressedWithLogicalSize() throws Exception {
+
+        //Given
+        byte[] csv = "id,name,value\n1,kikwi,42\n".repeat(5_000).getBytes(StandardCharsets.UTF_8);
+
+        //When
+        byte[] decoded;
+        try (var content = compressionService.prepare(new ByteArrayInputStream(csv), csv.length, "text/csv")) {
+            assertThat(content.size()).isLessThan(csv.length / 5);
+            assertThat(content.metadata())
+                    .containsEntry(ObjectMetadata.CODEC, CompressionService.ZSTD)
+                    .containsEntry(ObjectMetadata.LOGICAL_SIZE, String.valueOf(csv.length))
+                    .containsEntry(ObjectMetadata.CONTENT_MD5, DigestUtils.md5DigestAsHex(csv));
+            decoded = compressionService.decode(content.stream(), content.metadata().get(ObjectMetadata.CODEC))
+                    .readAllBytes();
+        }
+
+        //Then
+        assertThat(decoded).isEqualTo(csv);
+    }
+
+    @Test
+    @DisplayName("Test incompressible upload is stored as is")
+    public void givenRandomBytes_whenPrepare_thenStoredRaw() throws Exception {
+
+        //Given
+        byte[] random = new byte[100_000];
+        new Random(42).nextBytes(random);
+
+        //When
+        try (var content = compressionService.prepare(
+                new ByteArrayInputStream(random), random.length, "application/octet-stream")) {
+
+            //Then
+            assertThat(content.metadata()).isEmpty();
+            assertThat(content.size()).isEqualTo(random.length);
+            assertThat(content.stream().readAllBytes()).isEqualTo(random);
+        }
+    }
+
+    @Test
+    @DisplayName("Test a cold stub is read from its cold copy, decoded with the copy's own codec")
+    public void givenColdStub_whenDecode_thenColdCopyDecoded() throws Exception {
+
+        //Given
+        byte[] csv = "id,name,value\n1,kikwi,42\n".repeat(5_000).getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = Zstd.compress(csv);
+        var stub = new GetObjectResponse(Headers.of(ObjectMetadata.header(ObjectMetadata.CODEC), TieringService.CODEC),
+                "user-files", null, "user-1-files/data.csv", new ByteArrayInputStream(new byte[0]));
+        var copy = new GetObjectResponse(Headers.of(ObjectMetadata.header(ObjectMetadata.CODEC), CompressionService.ZSTD),
+                "user-files-cold", null, "user-1-files/data.csv@e1", new ByteArrayInputStream(compressed));
+        BDDMockito.given(tieringService.open(stub)).willReturn(copy);
+
+        //When
+        byte[] decoded;
+        try (var stream = compressionService.decode(stub)) {
+            decoded = stream.readAllBytes();
+        }
+
+        //Then
+        assertThat(decoded).isEqualTo(csv);
+    }
+}
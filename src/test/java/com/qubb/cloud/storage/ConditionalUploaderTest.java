@@ -0,0 +1,108 @@
+package com.qubb.cloud.storage;
+
+import com.google.common.collect.Multimap;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.CreateMultipartUploadResponse;
+import io.minio.MinioAsyncClient;
+import io.minio.UploadPartResponse;
+import io.minio.messages.InitiateMultipartUploadResult;
+import io.minio.messages.Part;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.BDDMockito;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ConditionalUploaderTest {
+
+    private static final String BUCKET = "user-files";
+    private static final int SIZE = (int) DataSize.ofMegabytes(12).toBytes();
+
+    private final MinioAsyncClient client = mock(MinioAsyncClient.class);
+    private final StorageShard shard = new StorageShard("primary", BUCKET, null, null, client, null);
+    private final ConditionalUploader uploader = new ConditionalUploader(
+            new StorageBulkheads(4, Duration.ofSeconds(1), 4, Duration.ofSeconds(1), new SimpleMeterRegistry()),
+            DataSize.ofMegabytes(5));
+
+    @Test
+    @DisplayName("Test large conditional upload sends the condition on completion, not on creation")
+    @SuppressWarnings("unchecked")
+    public void givenLargeObject_whenUpload_thenConditionSentOnComplete() throws Exception {
+
+        //Given
+        var created = createdUpload();
+        BDDMockito.given(client.createMultipartUploadAsync(eq(BUCKET), any(), eq("target.iso"), any(), any()))
+                .willReturn(CompletableFuture.completedFuture(created));
+        BDDMockito.given(client.uploadPartAsync(eq(BUCKET), any(), eq("target.iso"), any(Object.class), anyLong(),
+                        eq("upload-1"), anyInt(), any(), any()))
+                .willAnswer(invocation -> CompletableFuture.completedFuture(partUploaded(invocation.getArgument(6))));
+        BDDMockito.given(client.completeMultipartUploadAsync(any(), any(), any(), any(), any(), any(), any()))
+                .willReturn(CompletableFuture.completedFuture(null));
+
+        //When
+        uploader.upload(shard, "target.iso", new ByteArrayInputStream(new byte[SIZE]), (long) SIZE,
+                "application/octet-stream", Map.of("codec", "zstd"), Map.of("If-None-Match", "*"));
+
+        //Then
+        var createHeaders = ArgumentCaptor.forClass(Multimap.class);
+        verify(client).createMultipartUploadAsync(eq(BUCKET), any(), eq("target.iso"), createHeaders.capture(), any());
+        assertThat(createHeaders.getValue().containsKey("If-None-Match")).isFalse();
+        assertThat(createHeaders.getValue().get("x-amz-meta-codec")).containsExactly("zstd");
+        var parts = ArgumentCaptor.forClass(Part[].class);
+        var completeHeaders = ArgumentCaptor.forClass(Multimap.class);
+        verify(client).completeMultipartUploadAsync(eq(BUCKET), any(), eq("target.iso"), eq("upload-1"),
+                parts.capture(), completeHeaders.capture(), any());
+        assertThat(Arrays.stream(parts.getValue()).map(Part::etag).toList())
+                .containsExactly("etag-1", "etag-2", "etag-3");
+        assertThat(completeHeaders.getValue().get("If-None-Match")).containsExactly("*");
+        verify(client, never()).abortMultipartUploadAsync(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Test stream shorter than the declared size aborts the upload")
+    public void givenShortStream_whenUpload_thenUploadAborted() throws Exception {
+
+        //Given
+        var created = createdUpload();
+        BDDMockito.given(client.createMultipartUploadAsync(any(), any(), any(), any(), any()))
+                .willReturn(CompletableFuture.completedFuture(created));
+        BDDMockito.given(client.uploadPartAsync(any(), any(), any(), any(Object.class), anyLong(), any(), anyInt(),
+                        any(), any()))
+                .willAnswer(invocation -> CompletableFuture.completedFuture(partUploaded(invocation.getArgument(6))));
+        BDDMockito.given(client.abortMultipartUploadAsync(any(), any(), any(), any(), any(), any()))
+                .willReturn(CompletableFuture.completedFuture(null));
+
+        //When / Then
+        assertThatThrownBy(() -> uploader.upload(shard, "target.iso", new ByteArrayInputStream(new byte[SIZE - 1]),
+                (long) SIZE, "application/octet-stream", Map.of(), Map.of("If-None-Match", "*")))
+                .isInstanceOf(IOException.class);
+        verify(client).abortMultipartUploadAsync(eq(BUCKET), any(), eq("target.iso"), eq("upload-1"), any(), any());
+        verify(client, never()).completeMultipartUploadAsync(any(), any(), any(), any(), any(), any(), any());
+    }
+
+    private static CreateMultipartUploadResponse createdUpload() {
+        var result = mock(InitiateMultipartUploadResult.class);
+        BDDMockito.given(result.uploadId()).willReturn("upload-1");
+        var response = mock(CreateMultipartUploadResponse.class);
+        BDDMockito.given(response.result()).willReturn(result);
+        return response;
+    }
+
+    private static UploadPartResponse partUploaded(int partNumber) {
+        var response = mock(UploadPartResponse.class);
+        BDDMockito.given(response.etag()).willReturn("etag-" + partNumber);
+        return response;
+    }
+}
@@ -0,0 +1,81 @@
+package com.qubb.cloud.storage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ContentDefinedChunkerTest {
+
+    private final ContentDefinedChunker chunker = new ContentDefinedChunker(
+            DataSize.ofKilobytes(1), DataSize.ofKilobytes(4), DataSize.ofKilobytes(16));
+
+    @Test
+    @DisplayName("Test chunks are within the size limits and add up to the content")
+    public void givenContent_whenSplit_thenChunksWithinLimitsAndComplete() throws IOException {
+
+        //Given
+        byte[] content = random(1, 200_000);
+
+        //When
+        List<byte[]> chunks = split(content);
+
+        //Then
+        var joined = new ByteArrayOutputStream();
+        chunks.forEach(joined::writeBytes);
+        assertThat(joined.toByteArray()).isEqualTo(content);
+        assertThat(chunks.subList(0, chunks.size() - 1))
+                .allSatisfy(chunk -> assertThat(chunk.length).isBetween(1024, 16 * 1024));
+    }
+
+    @Test
+    @DisplayName("Test an insertion only changes the chunks around it")
+    public void givenInsertion_whenSplit_thenLaterChunksUnchanged() throws IOException {
+
+        //Given
+        byte[] original = random(2, 200_000);
+        byte[] edited = new byte[original.length + 100];
+        System.arraycopy(original, 0, edited, 0, 50_000);
+        System.arraycopy(random(3, 100), 0, edited, 50_000, 100);
+        System.arraycopy(original, 50_000, edited, 50_100, original.length - 50_000);
+
+        //When
+        Set<String> before = fingerprints(split(original));
+        Set<String> after = fingerprints(split(edited));
+
+        //Then
+        Set<String> changed = new HashSet<>(after);
+        changed.removeAll(before);
+        assertThat(changed.size()).isLessThanOrEqualTo(3);
+        assertThat(before.size()).isGreaterThan(20);
+    }
+
+    private List<byte[]> split(byte[] content) throws IOException {
+        List<byte[]> chunks = new ArrayList<>();
+        chunker.split(new ByteArrayInputStream(content), (buffer, length) -> chunks.add(Arrays.copyOf(buffer, length)));
+        return chunks;
+    }
+
+    private static Set<String> fingerprints(List<byte[]> chunks) {
+        Set<String> fingerprints = new HashSet<>();
+        chunks.forEach(chunk -> fingerprints.add(Arrays.hashCode(chunk) + ":" + chunk.length));
+        return fingerprints;
+    }
+
+    private static byte[] random(long seed, int length) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,125 @@
+package com.qubb.cloud.storage;
+
+import com.qubb.cloud.exception.ResourceOperationException;
+import io.minio.GetObjectResponse;
+import io.minio.messages.Item;
+import okhttp3.Headers;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+@ExtendWith(MockitoExtension.class)
+public class DirectoryArchiverTest {
+
+    private static final String DIRECTORY = "user-1-files/docs/";
+
+    @Mock
+    private MinioService minioService;
+
+    private DirectoryArchiver archiver;
+
+    @TempDir
+    private Path tempDir;
+
+    @AfterEach
+    public void tearDown() {
+        archiver.shutdown();
+    }
+
+    @Test
+    @DisplayName("Test directory archive keeps relative paths and stores compressed media as is")
+    public void givenMixedDirectory_whenArchive_thenEntriesKeepPathsAndMethods() throws Exception {
+
+        //Given
+        archiver = new DirectoryArchiver(minioService, new CompressionService(mock(ChunkStore.class), mock(TieringService.class)), 2);
+        ReflectionTestUtils.setField(archiver, "compressionLevel", 6);
+        var text = "line of text\n".repeat(1_000);
+        var photo = new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 1, 2, 3};
+        var items = Stream.of(DIRECTORY, DIRECTORY + "notes.txt", DIRECTORY + "photos/", DIRECTORY + "photos/cat.jpg")
+                .map(DirectoryArchiverTest::item)
+                .toList();
+        BDDMockito.given(minioService.recursiveListObjects(DIRECTORY)).willReturn(items.stream());
+        BDDMockito.given(minioService.getObject(DIRECTORY + "notes.txt"))
+                .willReturn(object(text.getBytes(StandardCharsets.UTF_8)));
+        BDDMockito.given(minioService.getObject(DIRECTORY + "photos/cat.jpg")).willReturn(object(photo));
+        var target = tempDir.resolve("docs.zip");
+
+        //When
+        try (var out = Files.newOutputStream(target)) {
+            archiver.archive(DIRECTORY, out);
+        }
+
+        //Then
+        try (var zip = ZipFile.builder().setPath(target).get()) {
+            assertThat(zip.getEntry("photos/").isDirectory()).isTrue();
+            var notes = zip.getEntry("notes.txt");
+            assertThat(notes.getMethod()).isEqualTo(ZipEntry.DEFLATED);
+            assertThat(new String(zip.getInputStream(notes).readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(text);
+            var cat = zip.getEntry("photos/cat.jpg");
+            assertThat(cat.getMethod()).isEqualTo(ZipEntry.STORED);
+            assertThat(zip.getInputStream(cat).readAllBytes()).isEqualTo(photo);
+            assertThat(zip.getEntry("")).isNull();
+        }
+    }
+
+    @Test
+    @DisplayName("Test streamed archive fails the read instead of ending early when an entry cannot be read")
+    public void givenUnreadableEntry_whenReadOpenedArchive_thenReadFails() {
+
+        //Given
+        archiver = new DirectoryArchiver(minioService, new CompressionService(mock(ChunkStore.class), mock(TieringService.class)), 2);
+        ReflectionTestUtils.setField(archiver, "compressionLevel", 6);
+        var items = Stream.of(DIRECTORY + "a.txt", DIRECTORY + "b.txt")
+                .map(DirectoryArchiverTest::item)
+                .toList();
+        BDDMockito.given(minioService.recursiveListObjects(DIRECTORY)).willReturn(items.stream());
+        BDDMockito.given(minioService.getObject(DIRECTORY + "a.txt")).willReturn(object(new byte[]{1, 2, 3}));
+        BDDMockito.given(minioService.getObject(DIRECTORY + "b.txt"))
+                .willThrow(new ResourceOperationException("Failed to get object"));
+
+        //When
+        var stream = archiver.open(DIRECTORY, item -> true);
+
+        //Then
+        assertThatThrownBy(() -> {
+            try (stream) {
+                stream.transferTo(OutputStream.nullOutputStream());
+            }
+        }).isInstanceOf(IOException.class)
+                .hasRootCauseInstanceOf(ResourceOperationException.class);
+    }
+
+    private static Item item(String objectName) {
+        Item item = mock(Item.class, withSettings().strictness(Strictness.LENIENT));
+        BDDMockito.given(item.objectName()).willReturn(objectName);
+        BDDMockito.given(item.userMetadata()).willReturn(Map.of());
+        return item;
+    }
+
+    private static GetObjectResponse object(byte[] content) {
+        return new GetObjectResponse(Headers.of(), "user-files", null, "object", new ByteArrayInputStream(content));
+    }
+}
@@ -0,0 +1,209 @@
+package com.qubb.cloud.storage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.GetObjectResponse;
+import okhttp3.Headers;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.BDDMockito;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class DiskObjectCacheTest {
+
+    @TempDir
+    private Path directory;
+
+    private final MinioService minioService = mock(MinioService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Test second read is served from disk after revalidation")
+    public void givenCachedObject_whenReadAgain_thenServedFromDisk() throws Exception {
+
+        //Given
+        var cache = cache(DataSize.ofKilobytes(64));
+        var object = object("user-1-files/logo.svg", "\"v1\"", "<svg/>");
+        BDDMockito.given(minioService.getObject("user-1-files/logo.svg")).willReturn(object);
+        BDDMockito.given(minioService.getObjectIfModified(eq("user-1-files/logo.svg"), any())).willReturn(Optional.empty());
+        consume(cache.read("user-1-files/logo.svg"));
+
+        //When
+        var read = cache.read("user-1-files/logo.svg");
+
+        //Then
+        assertThat(read.object()).isNull();
+        assertThat(consume(read)).isEqualTo("<svg/>");
+        verify(minioService, times(1)).getObject("user-1-files/logo.svg");
+        assertThat(meterRegistry.get("storage.disk.cache.hit.ratio").gauge().value()).isEqualTo(0.5);
+    }
+
+    @Test
+    @DisplayName("Test least recently used entry is evicted and writes invalidate")
+    public void givenFullCache_whenNewObjectStored_thenEldestEvicted() throws Exception {
+
+        //Given
+        var cache = cache(DataSize.ofBytes(10));
+        var first = object("user-1-files/a.txt", "\"a\"", "aaaaaa");
+        var second = object("user-1-files/b.txt", "\"b\"", "bbbbbb");
+        BDDMockito.given(minioService.getObject("user-1-files/a.txt")).willReturn(first);
+        BDDMockito.given(minioService.getObject("user-1-files/b.txt")).willReturn(second);
+        var firstRead = cache.read("user-1-files/a.txt");
+        consume(firstRead);
+
+        //When
+        var secondRead = cache.read("user-1-files/b.txt");
+        consume(secondRead);
+        var evicted = firstRead.cached().file();
+        var kept = secondRead.cached().file();
+        cache.onObjectChanged(new ObjectChangedEvent("user-1-files/b.txt"));
+
+        //Then
+        assertThat(evicted).doesNotExist();
+        assertThat(kept).doesNotExist();
+        assertThat(meterRegistry.get("storage.disk.cache.evictions").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("storage.disk.cache.size").gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("Test a read stopped early still fills the entry for the next read")
+    public void givenMiss_whenClosedBeforeEnd_thenStillCached() throws Exception {
+
+        //Given
+        var cache = cache(DataSize.ofKilobytes(64));
+        BDDMockito.given(minioService.getObject("user-1-files/notes.txt"))
+                .willReturn(object("user-1-files/notes.txt", "\"n1\"", "hello"));
+        BDDMockito.given(minioService.getObjectIfModified(eq("user-1-files/notes.txt"), any())).willReturn(Optional.empty());
+
+        //When
+        var partial = cache.read("user-1-files/notes.txt");
+        try (var in = partial.body()) {
+            assertThat(in.read()).isEqualTo('h');
+        }
+        var full = cache.read("user-1-files/notes.txt");
+
+        //Then
+        assertThat(consume(full)).isEqualTo("hello");
+        assertThat(full.cached().file()).hasContent("hello");
+        verify(minioService, times(1)).getObject("user-1-files/notes.txt");
+        try (var files = Files.list(directory.resolve("cache"))) {
+            assertThat(files).containsExactly(full.cached().file());
+        }
+    }
+
+    @Test
+    @DisplayName("Test concurrent misses share one download and read it as it arrives")
+    public void givenDownloadInProgress_whenReadAgain_thenNotFetchedTwice() throws Exception {
+
+        //Given
+        var cache = cache(DataSize.ofKilobytes(64));
+        var release = new CountDownLatch(1);
+        var body = new SequenceInputStream(new ByteArrayInputStream("hel".getBytes()), new InputStream() {
+            private final InputStream rest = new ByteArrayInputStream("lo".getBytes());
+
+            @Override
+            public int read() throws IOException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                return rest.read();
+            }
+        });
+        BDDMockito.given(minioService.getObject("user-1-files/notes.txt"))
+                .willReturn(object("user-1-files/notes.txt", "\"n1\"", 5, body));
+
+        //When
+        var first = cache.read("user-1-files/notes.txt");
+        var second = cache.read("user-1-files/notes.txt");
+        release.countDown();
+
+        //Then
+        assertThat(consume(first)).isEqualTo("hello");
+        assertThat(consume(second)).isEqualTo("hello");
+        assertThat(second.cached()).isEqualTo(first.cached());
+        verify(minioService, times(1)).getObject("user-1-files/notes.txt");
+    }
+
+    @Test
+    @DisplayName("Test a failed download fails its readers and leaves no entry")
+    public void givenBrokenBody_whenRead_thenReadFailsAndNotCached() throws Exception {
+
+        //Given
+        var cache = cache(DataSize.ofKilobytes(64));
+        var body = new SequenceInputStream(new ByteArrayInputStream("hel".getBytes()), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("connection reset");
+            }
+        });
+        BDDMockito.given(minioService.getObject("user-1-files/notes.txt"))
+                .willReturn(object("user-1-files/notes.txt", "\"n1\"", 5, body));
+
+        //When
+        var read = cache.read("user-1-files/notes.txt");
+
+        //Then
+        assertThatThrownBy(() -> consume(read)).isInstanceOf(IOException.class);
+        assertThat(read.cached().file()).doesNotExist();
+    }
+
+    @Test
+    @DisplayName("Test entry opened by a read stays readable after it is evicted")
+    public void givenOpenedEntry_whenEvicted_thenStillReadable() throws Exception {
+
+        //Given
+        var cache = cache(DataSize.ofBytes(10));
+        BDDMockito.given(minioService.getObject("user-1-files/a.txt")).willReturn(object("user-1-files/a.txt", "\"a\"", "aaaaaa"));
+        BDDMockito.given(minioService.getObject("user-1-files/b.txt")).willReturn(object("user-1-files/b.txt", "\"b\"", "bbbbbb"));
+        BDDMockito.given(minioService.getObjectIfModified(eq("user-1-files/a.txt"), any())).willReturn(Optional.empty());
+        consume(cache.read("user-1-files/a.txt"));
+        var hit = cache.read("user-1-files/a.txt");
+
+        //When
+        consume(cache.read("user-1-files/b.txt"));
+
+        //Then
+        assertThat(hit.cached().file()).doesNotExist();
+        assertThat(consume(hit)).isEqualTo("aaaaaa");
+    }
+
+    private static String consume(DiskObjectCache.Read read) throws Exception {
+        try (var in = read.body()) {
+            return new String(in.readAllBytes());
+        }
+    }
+
+    private DiskObjectCache cache(DataSize maxSize) throws Exception {
+        return new DiskObjectCache(minioService, true, directory.resolve("cache"), maxSize, maxSize, meterRegistry);
+    }
+
+    private static GetObjectResponse object(String name, String etag, String body) {
+        return object(name, etag, body.length(), new ByteArrayInputStream(body.getBytes()));
+    }
+
+    private static GetObjectResponse object(String name, String etag, long length, InputStream body) {
+        var headers = Headers.of(
+                "ETag", etag,
+                "Content-Length", String.valueOf(length),
+                "Last-Modified", "Mon, 19 Oct 2026 10:00:00 GMT");
+        return new GetObjectResponse(headers, "user-files", null, name, body);
+    }
+}
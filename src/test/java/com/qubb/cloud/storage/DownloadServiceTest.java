@@ -0,0 +1,52 @@
+package com.qubb.cloud.storage;
+
+import com.qubb.cloud.payload.ReadConditions;
+import io.minio.StatObjectResponse;
+import okhttp3.Headers;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class DownloadServiceTest {
+
+    private static final String FILE = "user-1-files/docs/a.txt";
+
+    private final MinioService minioService = mock(MinioService.class);
+    private final DiskObjectCache diskObjectCache = mock(DiskObjectCache.class);
+    private final DownloadService downloadService = new DownloadService(minioService, new CompressionService(mock(ChunkStore.class), mock(TieringService.class)),
+            mock(DirectoryArchiver.class), diskObjectCache);
+
+    @Test
+    @DisplayName("Test not modified answers with the current validators and reads no body")
+    public void givenOneOfSeveralTagsCurrent_whenDownload_thenNotModifiedWithCurrentEtag() {
+
+        //Given
+        BDDMockito.given(minioService.statObject(FILE)).willReturn(stat());
+        var conditions = new ReadConditions(List.of("\"old\"", "\"v2\""), null);
+
+        //When
+        var response = downloadService.download(FILE, conditions, item -> true);
+
+        //Then
+        assertThat(response.isNotModified()).isTrue();
+        assertThat(response.etag()).isEqualTo("v2");
+        assertThat(response.lastModified()).isEqualTo(Instant.parse("2026-10-19T10:00:00Z"));
+        verify(minioService, never()).getObject(anyString());
+    }
+
+    private static StatObjectResponse stat() {
+        var headers = Headers.of(
+                "ETag", "\"v2\"",
+                "Content-Length", "5",
+                "Content-Type", "text/plain",
+                "Last-Modified", "Mon, 19 Oct 2026 10:00:00 GMT");
+        return new StatObjectResponse(headers, "user-files", null, FILE);
+    }
+}
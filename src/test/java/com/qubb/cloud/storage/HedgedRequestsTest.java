@@ -0,0 +1,59 @@
+package com.qubb.cloud.storage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HedgedRequestsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final HedgedRequests hedgedRequests = new HedgedRequests(
+            true, Duration.ofMillis(5), Duration.ofMillis(50), 4, meterRegistry);
+
+    @AfterEach
+    public void tearDown() {
+        hedgedRequests.shutdown();
+    }
+
+    @Test
+    @DisplayName("Test slow read is hedged and the late answer is discarded")
+    public void givenStuckFirstAttempt_whenCall_thenSecondAttemptWins() throws Exception {
+
+        //Given
+        var release = new CountDownLatch(1);
+        var discardedLatch = new CountDownLatch(1);
+        var attempts = new AtomicInteger();
+        List<String> discarded = new CopyOnWriteArrayList<>();
+
+        //When
+        String result = hedgedRequests.call("statObject", () -> {
+            if (attempts.getAndIncrement() == 0) {
+                release.await();
+                return "slow";
+            }
+            return "fast";
+        }, value -> {
+            discarded.add(value);
+            discardedLatch.countDown();
+        });
+        release.countDown();
+
+        //Then
+        assertThat(result).isEqualTo("fast");
+        assertThat(attempts).hasValue(2);
+        assertThat(discardedLatch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(discarded).containsExactly("slow");
+        assertThat(meterRegistry.counter("storage.hedged.requests",
+                "operation", "statObject", "outcome", "sent").count()).isEqualTo(1);
+    }
+}
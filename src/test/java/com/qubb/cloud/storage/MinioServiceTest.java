@@ -0,0 +1,93 @@
+package com.qubb.cloud.storage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.MinioClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.PutObjectArgs;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import okhttp3.Headers;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+
+public class MinioServiceTest {
+
+    private final MinioClient minioClient = mock(MinioClient.class);
+    private final List<Object> events = new ArrayList<>();
+    private final MinioService minioService = minioService(8);
+
+    @Test
+    @DisplayName("Test overwriting a file moves folder sizes by the difference only")
+    public void givenExistingFile_whenOverwritten_thenSizeDeltasNetToDifference() throws Exception {
+
+        //Given
+        var previous = mock(StatObjectResponse.class);
+        BDDMockito.given(previous.size()).willReturn(100L);
+        BDDMockito.given(previous.headers()).willReturn(Headers.of());
+        BDDMockito.given(minioClient.statObject(any(StatObjectArgs.class))).willReturn(previous);
+        BDDMockito.given(minioClient.putObject(any(PutObjectArgs.class))).willReturn(mock(ObjectWriteResponse.class));
+
+        //When
+        minioService.putObject("user-1-files/notes.txt", new ByteArrayInputStream(new byte[40]), 40L, "text/plain");
+
+        //Then
+        var deltas = events.stream()
+                .filter(ObjectSizeChangedEvent.class::isInstance)
+                .map(ObjectSizeChangedEvent.class::cast)
+                .toList();
+        assertThat(deltas.stream().mapToLong(ObjectSizeChangedEvent::bytes).sum()).isEqualTo(-60);
+        assertThat(deltas.stream().mapToInt(ObjectSizeChangedEvent::files).sum()).isZero();
+    }
+
+    @Test
+    @DisplayName("Test open download bodies do not hold the interactive slots a stat needs")
+    public void givenOpenDownloadBodies_whenStatObject_thenServed() throws Exception {
+
+        //Given
+        var service = minioService(2);
+        BDDMockito.given(minioClient.getObject(any(GetObjectArgs.class))).willAnswer(invocation -> new GetObjectResponse(
+                Headers.of(), "user-files", null, "user-1-files/big.iso", new ByteArrayInputStream(new byte[16])));
+        BDDMockito.given(minioClient.statObject(any(StatObjectArgs.class))).willReturn(mock(StatObjectResponse.class));
+        List<GetObjectResponse> downloads = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            downloads.add(service.getObject("user-1-files/big.iso"));
+        }
+
+        //When
+        var stat = service.statObject("user-1-files/notes.txt");
+
+        //Then
+        assertThat(stat).isNotNull();
+        for (GetObjectResponse download : downloads) {
+            download.close();
+        }
+    }
+
+    private MinioService minioService(int interactiveConcurrency) {
+        var meterRegistry = new SimpleMeterRegistry();
+        return new MinioService(
+                ShardRouter.single(new StorageShard("default", "user-files", minioClient, minioClient, null, null)),
+                new HedgedRequests(false, Duration.ofMillis(20), Duration.ofSeconds(1), 1, meterRegistry),
+                new StorageBulkheads(interactiveConcurrency, Duration.ofMillis(200), 2, Duration.ofSeconds(1),
+                        meterRegistry),
+                mock(MultipartCopier.class),
+                mock(ConditionalUploader.class),
+                new SmallObjectCache(false, DataSize.ofKilobytes(64), DataSize.ofMegabytes(1), DataSize.ofKilobytes(4),
+                        1000, Duration.ofSeconds(2), meterRegistry),
+                mock(AccessStats.class),
+                events::add);
+    }
+}
@@ -0,0 +1,126 @@
+package com.qubb.cloud.storage;
+
+import com.google.common.collect.Multimap;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.CreateMultipartUploadResponse;
+import io.minio.MinioAsyncClient;
+import io.minio.StatObjectResponse;
+import io.minio.UploadPartCopyResponse;
+import io.minio.messages.CopyPartResult;
+import io.minio.messages.InitiateMultipartUploadResult;
+import io.minio.messages.Part;
+import okhttp3.Headers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.BDDMockito;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class MultipartCopierTest {
+
+    private static final String BUCKET = "user-files";
+    private static final long SIZE = DataSize.ofMegabytes(12).toBytes();
+
+    private final MinioAsyncClient client = mock(MinioAsyncClient.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StorageShard shard = new StorageShard("primary", BUCKET, null, null, client, null);
+    private final MultipartCopier copier = new MultipartCopier(
+            new StorageBulkheads(4, Duration.ofSeconds(1), 4, Duration.ofSeconds(1), meterRegistry),
+            DataSize.ofMegabytes(5), DataSize.ofMegabytes(5), 2, 4);
+    private final Map<Integer, String> ranges = new ConcurrentHashMap<>();
+
+    @AfterEach
+    public void tearDown() {
+        copier.shutdown();
+    }
+
+    @Test
+    @DisplayName("Test large object is copied as ranged parts and completed in order")
+    public void givenLargeObject_whenCopy_thenRangedPartsCompleted() throws Exception {
+
+        //Given
+        var created = createdUpload();
+        BDDMockito.given(client.createMultipartUploadAsync(eq(BUCKET), any(), eq("target.iso"), any(), any()))
+                .willReturn(CompletableFuture.completedFuture(created));
+        BDDMockito.given(client.uploadPartCopyAsync(eq(BUCKET), any(), eq("target.iso"), eq("upload-1"), anyInt(), any(), any()))
+                .willAnswer(invocation -> CompletableFuture.completedFuture(
+                        partCopied(invocation.getArgument(4), invocation.getArgument(5))));
+        BDDMockito.given(client.completeMultipartUploadAsync(any(), any(), any(), any(), any(), any(), any()))
+                .willReturn(CompletableFuture.completedFuture(null));
+
+        //When
+        copier.copy(shard, source(), "target.iso");
+
+        //Then
+        var parts = ArgumentCaptor.forClass(Part[].class);
+        verify(client).completeMultipartUploadAsync(eq(BUCKET), any(), eq("target.iso"), eq("upload-1"),
+                parts.capture(), any(), any());
+        assertThat(Arrays.stream(parts.getValue()).map(Part::etag).toList())
+                .containsExactly("etag-1", "etag-2", "etag-3");
+        assertThat(ranges).containsExactlyInAnyOrderEntriesOf(Map.of(
+                1, "bytes=0-5242879",
+                2, "bytes=5242880-10485759",
+                3, "bytes=10485760-12582911"));
+        verify(client, never()).abortMultipartUploadAsync(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Test failed part aborts the multipart copy")
+    public void givenFailingPart_whenCopy_thenUploadAborted() throws Exception {
+
+        //Given
+        var created = createdUpload();
+        BDDMockito.given(client.createMultipartUploadAsync(any(), any(), any(), any(), any()))
+                .willReturn(CompletableFuture.completedFuture(created));
+        BDDMockito.given(client.uploadPartCopyAsync(any(), any(), any(), any(), anyInt(), any(), any()))
+                .willReturn(CompletableFuture.failedFuture(new IOException("connection reset")));
+        BDDMockito.given(client.abortMultipartUploadAsync(any(), any(), any(), any(), any(), any()))
+                .willReturn(CompletableFuture.completedFuture(null));
+
+        //When / Then
+        assertThatThrownBy(() -> copier.copy(shard, source(), "target.iso"))
+                .isInstanceOf(IOException.class);
+        verify(client).abortMultipartUploadAsync(eq(BUCKET), any(), eq("target.iso"), eq("upload-1"), any(), any());
+        verify(client, never()).completeMultipartUploadAsync(any(), any(), any(), any(), any(), any(), any());
+    }
+
+    private static StatObjectResponse source() {
+        var headers = Headers.of(
+                "ETag", "\"source-etag\"",
+                "Content-Length", String.valueOf(SIZE),
+                "Content-Type", "application/octet-stream",
+                "Last-Modified", "Mon, 19 Oct 2026 10:00:00 GMT");
+        return new StatObjectResponse(headers, BUCKET, null, "source.iso");
+    }
+
+    private static CreateMultipartUploadResponse createdUpload() {
+        var result = mock(InitiateMultipartUploadResult.class);
+        BDDMockito.given(result.uploadId()).willReturn("upload-1");
+        var response = mock(CreateMultipartUploadResponse.class);
+        BDDMockito.given(response.result()).willReturn(result);
+        return response;
+    }
+
+    private UploadPartCopyResponse partCopied(int partNumber, Multimap<String, String> headers) {
+        ranges.put(partNumber, List.copyOf(headers.get("x-amz-copy-source-range")).getFirst());
+        var result = mock(CopyPartResult.class);
+        BDDMockito.given(result.etag()).willReturn("etag-" + partNumber);
+        var response = mock(UploadPartCopyResponse.class);
+        BDDMockito.given(response.result()).willReturn(result);
+        return response;
+    }
+}
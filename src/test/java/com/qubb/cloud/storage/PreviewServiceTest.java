@@ -0,0 +1,111 @@
+package com.qubb.cloud.storage;
+
+import com.qubb.cloud.exception.ServiceOverloadedException;
+import com.qubb.cloud.util.PathUtils;
+import io.minio.GetObjectResponse;
+import io.minio.StatObjectResponse;
+import okhttp3.Headers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+public class PreviewServiceTest {
+
+    private static final String IMAGE = "user-1-files/photos/cat.png";
+
+    private final MinioService minioService = mock(MinioService.class);
+    private final PreviewService previewService = new PreviewService(minioService, new CompressionService(mock(ChunkStore.class), mock(TieringService.class)), 1, 4);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(previewService, "previewSize", 16);
+        ReflectionTestUtils.setField(previewService, "maxSourceSize", DataSize.ofMegabytes(1));
+        ReflectionTestUtils.setField(previewService, "maxSourcePixels", 1_000_000L);
+        ReflectionTestUtils.setField(previewService, "generationTimeout", Duration.ofSeconds(5));
+        BDDMockito.given(minioService.statObject(IMAGE)).willReturn(stat());
+        BDDMockito.given(minioService.getObjectIfExists(PathUtils.buildPreviewObjectName(IMAGE))).willReturn(Optional.empty());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        previewService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Test a preview being rendered does not hold the request thread")
+    public void givenRenderInProgress_whenPreview_thenReturnsBeforeRenderFinishes() throws Exception {
+
+        //Given
+        byte[] png = png();
+        BDDMockito.given(minioService.getObject(IMAGE)).willAnswer(invocation -> {
+            release.await();
+            return object(png);
+        });
+
+        //When
+        var preview = previewService.preview(IMAGE);
+
+        //Then
+        assertThat(preview).isNotDone();
+        release.countDown();
+        assertThat(preview.join().mediaType().toString()).isEqualTo("image/jpeg");
+    }
+
+    @Test
+    @DisplayName("Test a render slower than the timeout fails the request with 503")
+    public void givenSlowRender_whenPreview_thenOverloaded() {
+
+        //Given
+        ReflectionTestUtils.setField(previewService, "generationTimeout", Duration.ofMillis(20));
+        BDDMockito.given(minioService.getObject(IMAGE)).willAnswer(invocation -> {
+            release.await();
+            return object(png());
+        });
+
+        //When
+        var preview = previewService.preview(IMAGE);
+
+        //Then
+        assertThatThrownBy(preview::join)
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(ServiceOverloadedException.class);
+    }
+
+    private static StatObjectResponse stat() {
+        var headers = Headers.of(
+                "ETag", "\"v1\"",
+                "Content-Length", "100",
+                "Content-Type", "image/png",
+                "Last-Modified", "Mon, 19 Oct 2026 10:00:00 GMT");
+        return new StatObjectResponse(headers, "user-files", null, IMAGE);
+    }
+
+    private static GetObjectResponse object(byte[] content) {
+        return new GetObjectResponse(Headers.of(), "user-files", null, IMAGE, new ByteArrayInputStream(content));
+    }
+
+    private static byte[] png() throws Exception {
+        var out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(64, 32, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,72 @@
+package com.qubb.cloud.storage;
+
+import io.minio.messages.Item;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ShardRebalancerTest {
+
+    private static final String ROOT = "user-1-files/";
+
+    private final MinioService minioService = mock(MinioService.class);
+    private final ShardRouter shardRouter = mock(ShardRouter.class);
+    private final StorageShard from = new StorageShard("old", "old-files", null, null, null, null);
+    private final StorageShard to = new StorageShard("new", "new-files", null, null, null, null);
+    private final ShardRebalancer rebalancer = new ShardRebalancer(shardRouter, minioService,
+            mock(StringRedisTemplate.class));
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(rebalancer, "lockTtl", Duration.ofHours(6));
+        ReflectionTestUtils.setField(rebalancer, "presignExpiry", Duration.ZERO);
+        BDDMockito.given(shardRouter.cacheTtl()).willReturn(Duration.ZERO);
+        BDDMockito.given(minioService.recursiveListObjects(any(StorageShard.class), anyString()))
+                .willAnswer(invocation -> Stream.of());
+    }
+
+    @Test
+    @DisplayName("Test move deletes only old-shard objects whose copy matches and blocks presigns meanwhile")
+    public void givenObjectChangedAfterCatchUp_whenMove_thenOnlyMatchingOriginalsRemoved() {
+
+        //Given
+        var originals = List.of(item(ROOT + "same.txt", "e1", 3), item(ROOT + "late.txt", "e2", 5));
+        var copies = List.of(item(ROOT + "same.txt", "e1", 3), item(ROOT + "late.txt", "e3", 4));
+        BDDMockito.given(minioService.recursiveListObjects(from, ROOT)).willAnswer(invocation -> originals.stream());
+        BDDMockito.given(minioService.recursiveListObjects(to, ROOT)).willAnswer(invocation -> copies.stream());
+
+        //When
+        rebalancer.move(1, from, to);
+
+        //Then
+        var order = inOrder(shardRouter);
+        order.verify(shardRouter).beginMove(eq(1), any(Duration.class));
+        order.verify(shardRouter).move(1, to);
+        order.verify(shardRouter).endMove(1);
+        verify(minioService).removeObject(from, ROOT + "same.txt");
+        verify(minioService, never()).removeObject(from, ROOT + "late.txt");
+    }
+
+    private static Item item(String objectName, String etag, long size) {
+        Item item = mock(Item.class, withSettings().strictness(Strictness.LENIENT));
+        BDDMockito.given(item.objectName()).willReturn(objectName);
+        BDDMockito.given(item.etag()).willReturn(etag);
+        BDDMockito.given(item.size()).willReturn(size);
+        BDDMockito.given(item.lastModified()).willReturn(ZonedDateTime.now().minusDays(1));
+        return item;
+    }
+}
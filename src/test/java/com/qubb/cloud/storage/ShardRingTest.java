@@ -0,0 +1,45 @@
+package com.qubb.cloud.storage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ShardRingTest {
+
+    private static final int USERS = 10_000;
+
+    @Test
+    @DisplayName("Test adding a shard only moves the users it takes over")
+    public void givenThreeShards_whenFourthAdded_thenAboutAQuarterOfUsersMove() {
+
+        //Given
+        var first = shard("first");
+        var second = shard("second");
+        var third = shard("third");
+        var fourth = shard("fourth");
+        var before = new ShardRing(List.of(first, second, third), Map.of(), 128);
+
+        //When
+        var after = new ShardRing(List.of(first, second, third, fourth), Map.of(), 128);
+
+        //Then
+        long moved = IntStream.range(0, USERS)
+                .filter(userId -> !before.locate(userId).equals(after.locate(userId)))
+                .count();
+        long movedElsewhere = IntStream.range(0, USERS)
+                .filter(userId -> !before.locate(userId).equals(after.locate(userId)))
+                .filter(userId -> !after.locate(userId).equals(fourth))
+                .count();
+        assertThat(moved).isBetween(USERS / 5L, USERS * 3L / 10);
+        assertThat(movedElsewhere).isZero();
+    }
+
+    private static StorageShard shard(String name) {
+        return new StorageShard(name, name + "-files", null, null, null, null);
+    }
+}
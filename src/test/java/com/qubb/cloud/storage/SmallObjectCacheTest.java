@@ -0,0 +1,91 @@
+package com.qubb.cloud.storage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.GetObjectResponse;
+import okhttp3.Headers;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SmallObjectCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Test small object is served from off-heap pages until it changes")
+    public void givenStoredObject_whenChanged_thenDropped() throws Exception {
+
+        //Given
+        var cache = cache(DataSize.ofKilobytes(64));
+        String body = "x".repeat(5000);
+        try (var stored = cache.store(object("user-1-files/notes.txt", body), cache.stamp())) {
+            assertThat(new String(stored.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(body);
+        }
+
+        //When
+        var hit = cache.get("user-1-files/notes.txt");
+        cache.onObjectChanged(new ObjectChangedEvent("user-1-files/notes.txt"));
+
+        //Then
+        assertThat(hit.fresh()).isTrue();
+        assertThat(new String(hit.body(), StandardCharsets.UTF_8)).isEqualTo(body);
+        assertThat(hit.etag()).isEqualTo("\"v1\"");
+        assertThat(cache.get("user-1-files/notes.txt")).isNull();
+        assertThat(meterRegistry.get("storage.small.cache.used").gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("Test least recently used object is evicted when the byte budget is spent")
+    public void givenFullBudget_whenStore_thenEldestEvicted() throws Exception {
+
+        //Given
+        var cache = cache(DataSize.ofKilobytes(8));
+        cache.store(object("user-1-files/a.txt", "a".repeat(4096)), cache.stamp()).close();
+        cache.store(object("user-1-files/b.txt", "b".repeat(4096)), cache.stamp()).close();
+        cache.get("user-1-files/a.txt");
+
+        //When
+        cache.store(object("user-1-files/c.txt", "c".repeat(100)), cache.stamp()).close();
+
+        //Then
+        assertThat(cache.get("user-1-files/a.txt")).isNotNull();
+        assertThat(cache.get("user-1-files/b.txt")).isNull();
+        assertThat(cache.get("user-1-files/c.txt").body()).hasSize(100);
+    }
+
+    @Test
+    @DisplayName("Test read started before a write is not cached")
+    public void givenInvalidationDuringRead_whenStore_thenNotCached() throws Exception {
+
+        //Given
+        var cache = cache(DataSize.ofKilobytes(64));
+        long stamp = cache.stamp();
+        cache.onObjectChanged(new ObjectChangedEvent("user-1-files/notes.txt"));
+
+        //When
+        cache.store(object("user-1-files/notes.txt", "old"), stamp).close();
+
+        //Then
+        assertThat(cache.get("user-1-files/notes.txt")).isNull();
+    }
+
+    private SmallObjectCache cache(DataSize budget) {
+        return new SmallObjectCache(true, DataSize.ofKilobytes(64), budget, DataSize.ofKilobytes(4),
+                1000, Duration.ofMinutes(1), meterRegistry);
+    }
+
+    private static GetObjectResponse object(String objectName, String body) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        var headers = Headers.of(
+                "ETag", "\"v1\"",
+                "Content-Length", String.valueOf(bytes.length),
+                "Content-Type", "text/plain");
+        return new GetObjectResponse(headers, "user-files", null, objectName, new ByteArrayInputStream(bytes));
+    }
+}
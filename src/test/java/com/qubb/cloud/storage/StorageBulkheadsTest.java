@@ -0,0 +1,92 @@
+package com.qubb.cloud.storage;
+
+import com.qubb.cloud.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.GetObjectResponse;
+import okhttp3.Headers;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class StorageBulkheadsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StorageBulkheads bulkheads = new StorageBulkheads(
+            2, Duration.ofMillis(200), 1, Duration.ofMillis(50), meterRegistry);
+
+    @Test
+    @DisplayName("Test saturated bulk class does not block interactive calls")
+    public void givenBulkSaturated_whenExecute_thenBulkRejectedAndInteractiveServed() throws Exception {
+
+        //Given
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var transfer = CompletableFuture.runAsync(() -> StoragePriority.BULK.run(() -> {
+            try {
+                bulkheads.execute(() -> {
+                    started.countDown();
+                    return release.await(5, TimeUnit.SECONDS);
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+        started.await(5, TimeUnit.SECONDS);
+
+        //When
+        String listing = bulkheads.execute(() -> "listing");
+
+        //Then
+        assertThat(listing).isEqualTo("listing");
+        assertThatThrownBy(() -> StoragePriority.BULK.call(() -> {
+            try {
+                return bulkheads.execute(() -> "archive");
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        })).isInstanceOf(ServiceOverloadedException.class);
+        assertThat(meterRegistry.counter("storage.bulkhead.rejected", "class", "bulk").count()).isEqualTo(1);
+        release.countDown();
+        transfer.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("Test bulk object read keeps its slot until the body is closed")
+    public void givenOpenBulkObjectBody_whenExecute_thenSlotReleasedOnlyOnClose() throws Exception {
+
+        //Given
+        var registry = new SimpleMeterRegistry();
+        var single = new StorageBulkheads(1, Duration.ofMillis(50), 1, Duration.ofMillis(50), registry);
+        GetObjectResponse object = StoragePriority.BULK.execute(() -> single.execute(() -> new GetObjectResponse(
+                Headers.of(), "user-files", null, "object", new ByteArrayInputStream(new byte[]{1}))));
+
+        //When
+        var whileOpen = CompletableFuture.supplyAsync(() -> StoragePriority.BULK.call(() -> {
+            try {
+                return single.execute(() -> "copy");
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+
+        //Then
+        assertThatThrownBy(whileOpen::join).hasCauseInstanceOf(ServiceOverloadedException.class);
+        object.close();
+        object.close();
+        assertThat(StoragePriority.BULK.execute(() -> single.execute(() -> "copy"))).isEqualTo("copy");
+        assertThat(registry.get("storage.bulkhead.active").tag("class", "bulk").gauge().value())
+                .isZero();
+    }
+}
@@ -0,0 +1,206 @@
+package com.qubb.cloud.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qubb.cloud.exception.ResourceChangedException;
+import com.qubb.cloud.exception.ResourceOperationException;
+import io.minio.GetObjectResponse;
+import io.minio.StatObjectResponse;
+import io.minio.messages.Item;
+import okhttp3.Headers;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.BDDMockito;
+import org.mockito.quality.Strictness;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class TieringServiceTest {
+
+    private static final String FILE = "user-1-files/docs/report.pdf";
+    private static final String ETAG = "0cc175b9c0f1b6a831c399e269772661";
+
+    private final MinioService minioService = mock(MinioService.class);
+    private final StorageShard hot = new StorageShard("default", "user-files", null, null, null, null);
+    private final StorageShard cold = new StorageShard("cold", "user-files-cold", null, null, null, null);
+    private final TieringService tieringService = new TieringService(minioService, ShardRouter.single(hot),
+            new ColdStorage(cold), new ObjectMapper(), Duration.ofHours(1), 1, 10);
+
+    @Test
+    @DisplayName("Test a demoted file leaves a stub that keeps its size, hash and etag for sync")
+    @SuppressWarnings("unchecked")
+    public void givenColdFile_whenDemote_thenCopiedAndReplacedWithStub() {
+
+        //Given
+        BDDMockito.given(minioService.statObject(hot, FILE)).willReturn(stat());
+
+        //When
+        String coldObject = tieringService.demote(item());
+
+        //Then
+        assertThat(coldObject).isEqualTo(FILE + "@" + ETAG);
+        verify(minioService).transferObject(hot, cold, FILE, coldObject);
+        ArgumentCaptor<Map<String, String>> metadata = ArgumentCaptor.forClass(Map.class);
+        verify(minioService).putObjectIfMatch(eq(FILE), any(), anyLong(), eq("application/pdf"), metadata.capture(), any());
+        assertThat(metadata.getValue()).containsEntry(ObjectMetadata.CODEC, TieringService.CODEC)
+                .containsEntry(ObjectMetadata.COLD_OBJECT, coldObject)
+                .containsEntry(ObjectMetadata.LOGICAL_SIZE, "2048")
+                .containsEntry(ObjectMetadata.CONTENT_MD5, ETAG)
+                .containsEntry(ObjectMetadata.TIERED_ETAG, ETAG)
+                .containsEntry("owner", "kikwi");
+    }
+
+    @Test
+    @DisplayName("Test a file written to while being demoted stays in the hot tier")
+    public void givenFileChangedDuringCopy_whenDemote_thenColdCopyRemoved() {
+
+        //Given
+        BDDMockito.given(minioService.statObject(hot, FILE)).willReturn(stat());
+        BDDMockito.given(minioService.putObjectIfMatch(eq(FILE), any(), anyLong(), any(), anyMap(), any()))
+                .willThrow(new ResourceChangedException("File has changed: " + FILE));
+
+        //When
+        String coldObject = tieringService.demote(item());
+
+        //Then
+        assertThat(coldObject).isNull();
+        verify(minioService).removeObject(cold, FILE + "@" + ETAG);
+    }
+
+    @Test
+    @DisplayName("Test a read stub is replaced by its cold copy, conditional on the stub and keeping the tiered etag")
+    @SuppressWarnings("unchecked")
+    public void givenStub_whenPromote_thenCopyWrittenOverStub() throws Exception {
+
+        //Given
+        var stub = stub(FILE + "@" + ETAG);
+        BDDMockito.given(minioService.statObject(hot, FILE)).willReturn(stub);
+        BDDMockito.given(minioService.statObject(cold, FILE + "@" + ETAG)).willReturn(stat());
+        var copy = new GetObjectResponse(Headers.of(), "user-files-cold", null, FILE + "@" + ETAG,
+                new ByteArrayInputStream(new byte[2048]));
+        BDDMockito.given(minioService.getObject(cold, FILE + "@" + ETAG)).willReturn(copy);
+
+        //When
+        tieringService.promote(FILE);
+
+        //Then
+        ArgumentCaptor<Map<String, String>> metadata = ArgumentCaptor.forClass(Map.class);
+        verify(minioService).putObjectIfMatch(eq(FILE), eq(copy), eq(2048L), eq("application/pdf"),
+                metadata.capture(), eq(stub));
+        assertThat(metadata.getValue()).containsEntry(ObjectMetadata.TIERED_ETAG, "old-etag")
+                .containsEntry("owner", "kikwi")
+                .doesNotContainKey(ObjectMetadata.CODEC);
+    }
+
+    @Test
+    @DisplayName("Test a stub overwritten before the copy is written keeps the new file")
+    public void givenStubChangedBeforeWrite_whenPromote_thenConditionalWriteRefusedQuietly() throws Exception {
+
+        //Given
+        var stub = stub(FILE + "@" + ETAG);
+        BDDMockito.given(minioService.statObject(hot, FILE)).willReturn(stub);
+        BDDMockito.given(minioService.statObject(cold, FILE + "@" + ETAG)).willReturn(stat());
+        var copy = new GetObjectResponse(Headers.of(), "user-files-cold", null, FILE + "@" + ETAG,
+                new ByteArrayInputStream(new byte[2048]));
+        BDDMockito.given(minioService.getObject(cold, FILE + "@" + ETAG)).willReturn(copy);
+        BDDMockito.given(minioService.putObjectIfMatch(eq(FILE), any(), anyLong(), any(), anyMap(), eq(stub)))
+                .willThrow(new ResourceChangedException("File has changed: " + FILE));
+
+        //When
+        tieringService.promote(FILE);
+
+        //Then
+        verify(minioService, times(1)).statObject(hot, FILE);
+        verify(minioService).putObjectIfMatch(eq(FILE), eq(copy), eq(2048L), any(), anyMap(), eq(stub));
+    }
+
+    @Test
+    @DisplayName("Test a stub naming a cold copy outside its owner's root is not read")
+    public void givenStubOfOtherUsersCopy_whenOpen_thenRefused() {
+
+        //Given
+        var headers = Headers.of(ObjectMetadata.header(ObjectMetadata.CODEC), TieringService.CODEC,
+                ObjectMetadata.header(ObjectMetadata.COLD_OBJECT), "user-2-files/secret.pdf@e1");
+        var stub = new GetObjectResponse(headers, "user-files", null, FILE, new ByteArrayInputStream(new byte[0]));
+
+        //When
+        //Then
+        assertThatThrownBy(() -> tieringService.open(stub)).isInstanceOf(ResourceOperationException.class);
+        verify(minioService, never()).getObject(eq(cold), anyString());
+    }
+
+    @Test
+    @DisplayName("Test sweep removes only old cold copies that no stub refers to, rechecked against a second listing")
+    public void givenColdCopies_whenSweep_thenOnlyUnreferencedOldCopiesRemoved() {
+
+        //Given
+        var old = ZonedDateTime.now().minusDays(1);
+        var copies = List.of(
+                listed("user-1-files/kept.pdf@e1", old, Map.of()),
+                listed("user-1-files/gone.pdf@e2", old, Map.of()),
+                listed("user-1-files/new.pdf@e3", ZonedDateTime.now(), Map.of()),
+                listed("user-1-files/moved.pdf@e4", old, Map.of()));
+        var copiedStub = listed("user-1-files/copied/moved.pdf", old,
+                Map.of("X-Amz-Meta-Cold-Object", "user-1-files/moved.pdf@e4"));
+        BDDMockito.given(minioService.recursiveListObjects(cold, "user-1-files/")).willReturn(copies.stream());
+        BDDMockito.given(minioService.recursiveListObjects("user-1-files/")).willReturn(Stream.of(copiedStub));
+        BDDMockito.given(minioService.recursiveListObjects("trash/user-1-files/")).willReturn(Stream.of());
+
+        //When
+        int swept = tieringService.sweep(1, Set.of("user-1-files/kept.pdf@e1"));
+
+        //Then
+        assertThat(swept).isEqualTo(1);
+        verify(minioService).removeObject(cold, "user-1-files/gone.pdf@e2");
+        verify(minioService, never()).removeObject(cold, "user-1-files/new.pdf@e3");
+        verify(minioService, never()).removeObject(cold, "user-1-files/moved.pdf@e4");
+    }
+
+    private static Item item() {
+        Item item = mock(Item.class, withSettings().strictness(Strictness.LENIENT));
+        BDDMockito.given(item.objectName()).willReturn(FILE);
+        BDDMockito.given(item.etag()).willReturn("\"" + ETAG + "\"");
+        return item;
+    }
+
+    private static StatObjectResponse stat() {
+        var headers = Headers.of(
+                "ETag", "\"" + ETAG + "\"",
+                "Content-Length", "2048",
+                "Content-Type", "application/pdf",
+                "Last-Modified", "Mon, 19 Oct 2026 10:00:00 GMT",
+                "X-Amz-Meta-Owner", "kikwi");
+        return new StatObjectResponse(headers, "user-files", null, FILE);
+    }
+
+    private static StatObjectResponse stub(String coldObject) {
+        var headers = Headers.of(
+                "ETag", "\"stub-etag\"",
+                "Content-Length", "80",
+                "Content-Type", "application/pdf",
+                "Last-Modified", "Mon, 19 Oct 2026 10:00:00 GMT",
+                "X-Amz-Meta-Codec", TieringService.CODEC,
+                "X-Amz-Meta-Cold-Object", coldObject,
+                "X-Amz-Meta-Tiered-Etag", "old-etag");
+        return new StatObjectResponse(headers, "user-files", null, FILE);
+    }
+
+    private static Item listed(String objectName, ZonedDateTime lastModified, Map<String, String> userMetadata) {
+        Item item = mock(Item.class, withSettings().strictness(Strictness.LENIENT));
+        BDDMockito.given(item.objectName()).willReturn(objectName);
+        BDDMockito.given(item.lastModified()).willReturn(lastModified);
+        BDDMockito.given(item.userMetadata()).willReturn(userMetadata);
+        return item;
+    }
+}
@@ -0,0 +1,113 @@
+package com.qubb.cloud.storage;
+
+import com.qubb.cloud.exception.InvalidUploadException;
+import com.qubb.cloud.exception.ResourceAlreadyExistsException;
+import io.minio.ObjectWriteResponse;
+import io.minio.StatObjectResponse;
+import okhttp3.Headers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class UploadServiceTest {
+
+    private static final String TARGET = "user-1-files/docs/";
+
+    @Mock
+    private MinioService minioService;
+
+    @Mock
+    private ChunkStore chunkStore;
+
+    private UploadService uploadService;
+
+    @BeforeEach
+    public void setUp() {
+        uploadService = new UploadService(minioService,
+                new CompressionService(chunkStore, mock(TieringService.class)), chunkStore);
+        ReflectionTestUtils.setField(uploadService, "bulkUploadThreshold", DataSize.ofMegabytes(16));
+    }
+
+    @Test
+    @DisplayName("Test upload is a single conditional put answered from the put result")
+    public void givenNewFile_whenUpload_thenConditionalPutWithoutStat() {
+
+        //Given
+        ObjectWriteResponse written = new ObjectWriteResponse(Headers.of(), "user-files", null, TARGET + "a.txt", "abc", null);
+        BDDMockito.given(minioService.isDirectoryExists(TARGET)).willReturn(true);
+        BDDMockito.given(minioService.putObjectIfAbsent(eq(TARGET + "a.txt"), any(), eq(5L), eq("text/plain"), anyMap()))
+                .willReturn(written);
+
+        //When
+        var uploaded = uploadService.upload(new MultipartFile[]{file("a.txt")}, TARGET);
+
+        //Then
+        assertThat(uploaded).singleElement().satisfies(resource -> {
+            assertThat(resource.path()).isEqualTo(TARGET);
+            assertThat(resource.name()).isEqualTo("a.txt");
+            assertThat(resource.size()).isEqualTo(5L);
+            assertThat(resource.etag()).isEqualTo("\"abc\"");
+        });
+        verify(minioService, never()).objectExists(anyString());
+        verify(minioService, never()).statObject(anyString());
+    }
+
+    @Test
+    @DisplayName("Test upload over an existing file is reported as a conflict")
+    public void givenExistingFile_whenUpload_thenAlreadyExists() {
+
+        //Given
+        BDDMockito.given(minioService.isDirectoryExists(TARGET)).willReturn(true);
+        BDDMockito.given(minioService.putObjectIfAbsent(eq(TARGET + "a.txt"), any(), anyLong(), any(), anyMap()))
+                .willThrow(new ResourceAlreadyExistsException("File already exists: " + TARGET + "a.txt"));
+
+        //When
+        //Then
+        assertThatThrownBy(() -> uploadService.upload(new MultipartFile[]{file("a.txt")}, TARGET))
+                .isInstanceOf(ResourceAlreadyExistsException.class);
+    }
+
+    @Test
+    @DisplayName("Test direct upload carrying a storage codec is removed and refused")
+    public void givenDirectUploadWithCodec_whenComplete_thenRemovedAndRefused() {
+
+        //Given
+        var headers = Headers.of(
+                "ETag", "\"e1\"",
+                "Content-Length", "80",
+                "Last-Modified", "Mon, 19 Oct 2026 10:00:00 GMT",
+                ObjectMetadata.header(ObjectMetadata.DIRECT_UPLOAD), "true",
+                ObjectMetadata.header(ObjectMetadata.CODEC), TieringService.CODEC,
+                ObjectMetadata.header(ObjectMetadata.COLD_OBJECT), "user-2-files/secret.pdf@e2");
+        var stat = new StatObjectResponse(headers, "user-files", null, TARGET + "stub.pdf");
+
+        //When
+        //Then
+        assertThatThrownBy(() -> uploadService.completeDirectUpload(stat, DataSize.ofGigabytes(5).toBytes()))
+                .isInstanceOf(InvalidUploadException.class);
+        verify(minioService).removeObject(TARGET + "stub.pdf");
+        verify(minioService, never()).registerDirectUpload(any());
+    }
+
+    private static MultipartFile file(String name) {
+        return new MockMultipartFile("files", name, "text/plain", "hello".getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,44 @@
+package com.qubb.cloud.throttle;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class ThrottledInputStreamTest {
+
+    @Mock
+    private UserThrottleService throttle;
+
+    @Test
+    @DisplayName("Test throttled stream takes tokens per chunk and returns the unused rest on close")
+    public void givenStream_whenReadFully_thenTokensTakenPerChunkAndRefunded() throws Exception {
+
+        //Given
+        BDDMockito.given(throttle.take(eq(7), eq(Direction.DOWNLOAD), anyLong())).willReturn(0L);
+        byte[] content = new byte[1000];
+
+        //When
+        byte[] read;
+        try (var stream = new ThrottledInputStream(
+                new ByteArrayInputStream(content), throttle, 7, Direction.DOWNLOAD, 256)) {
+            read = stream.readAllBytes();
+        }
+
+        //Then
+        assertThat(read).hasSize(1000);
+        verify(throttle, times(4)).take(7, Direction.DOWNLOAD, 256);
+        verify(throttle).take(7, Direction.DOWNLOAD, -24);
+    }
+}
@@ -0,0 +1,24 @@
+package com.qubb.cloud.util;
+
+import com.qubb.cloud.storage.StorageCallContext;
+import com.qubb.cloud.storage.StorageCallStats;
+
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StorageCallBudget {
+
+    public static <T> T assertAtMost(long maxCalls, Supplier<T> action) {
+        StorageCallStats stats = StorageCallContext.begin();
+        try {
+            T result = action.get();
+            assertThat(stats.calls())
+                    .as("storage calls made: %s", stats)
+                    .isLessThanOrEqualTo(maxCalls);
+            return result;
+        } finally {
+            StorageCallContext.end();
+        }
+    }
+}